@@ -0,0 +1,200 @@
+package com.library.bench;
+
+import com.library.dao.BookDAO;
+import com.library.entity.BookStatus;
+import com.library.exception.BusinessException;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ★ 借阅基准测试：原流程（borrowBookLegacy）与当前流程（borrowBook）对比
+ *
+ * 多个柜台线程同时借阅少量热门图书（故意制造同一本书上的竞争），每次借阅成功后立即还原该书，继续下一次。
+ * 对每种流程统计：每秒成功借阅数、因已被借出而失败的次数、数据库错误（死锁、锁等待超时）次数、借阅延迟，
+ * 以及 InnoDB 行锁等待次数和等待总时间（SHOW GLOBAL STATUS 前后差值，测试期间库上的其他活动也会计入）。
+ *
+ * 需要连接数据库：测试开始时创建临时用户和图书，结束后删除（借阅日志会保留在 sys_logs 中）。
+ *
+ * 用法：java com.library.bench.BorrowBenchmark [每项测试秒数] [柜台线程数] [热门图书数]
+ * 例如：java com.library.bench.BorrowBenchmark 10 16 4
+ */
+public class BorrowBenchmark {
+
+    private interface BorrowCall {
+        void borrow(BookDAO dao, int bookId, int userId) throws DBException, BusinessException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int desks = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int bookCount = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        BookDAO.ensureSchema();
+        String tag = "bench" + System.currentTimeMillis();
+        int[] userIds = new int[desks];
+        int[] bookIds = new int[bookCount];
+
+        try (Connection conn = DBHelper.getConnection()) {
+            for (int i = 0; i < desks; i++) {
+                userIds[i] = insert(conn, "INSERT INTO users (username, password, role) VALUES (?, '-', 'user')",
+                        tag + "_desk" + i);
+            }
+            for (int i = 0; i < bookCount; i++) {
+                bookIds[i] = insert(conn, "INSERT INTO books (title, author, status) VALUES (?, 'BorrowBenchmark', "
+                        + BookStatus.AVAILABLE.getCode() + ")", tag + "_book" + i);
+            }
+        }
+
+        System.out.println("借阅基准测试：每项 " + seconds + " 秒，柜台线程 " + desks + " 个，热门图书 " + bookCount + " 本");
+        System.out.println();
+        System.out.printf("%8s  %12s  %10s  %8s  %10s  %10s  %12s  %14s%n",
+                "流程", "成功(次/秒)", "已借出", "错误", "p50(ms)", "p99(ms)", "行锁等待次数", "行锁等待(ms)");
+
+        try {
+            run("原流程", BookDAO::borrowBookLegacy, seconds, userIds, bookIds);
+            run("当前流程", BookDAO::borrowBook, seconds, userIds, bookIds);
+        } finally {
+            cleanup(userIds, bookIds);
+        }
+    }
+
+    private static void run(String name, BorrowCall call, int seconds, int[] userIds, int[] bookIds) throws Exception {
+        for (int bookId : bookIds) {
+            release(bookId);
+        }
+
+        long[] locksBefore = rowLockStatus();
+        ExecutorService pool = Executors.newFixedThreadPool(userIds.length);
+        AtomicLong borrowed = new AtomicLong();
+        AtomicLong unavailable = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int userId : userIds) {
+            futures.add(pool.submit(() -> {
+                BookDAO dao = new BookDAO();
+                List<Long> latencies = new ArrayList<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int bookId = bookIds[random.nextInt(bookIds.length)];
+                    long t0 = System.nanoTime();
+                    try {
+                        call.borrow(dao, bookId, userId);
+                        latencies.add(System.nanoTime() - t0);
+                        borrowed.incrementAndGet();
+                        release(bookId);
+                    } catch (BusinessException e) {
+                        unavailable.incrementAndGet();
+                    } catch (DBException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+                return latencies;
+            }));
+        }
+
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> f : futures) {
+            latencies.addAll(f.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        long[] locksAfter = rowLockStatus();
+
+        Collections.sort(latencies);
+        System.out.printf("%8s  %12.1f  %10d  %8d  %10.2f  %10.2f  %12d  %14d%n",
+                name, borrowed.get() / (elapsed / 1e9), unavailable.get(), errors.get(),
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                locksAfter[0] - locksBefore[0], locksAfter[1] - locksBefore[1]);
+    }
+
+    /**
+     * 还原一本书：关闭未归还记录，恢复为可借阅（不计入借阅耗时）
+     */
+    private static void release(int bookId) throws SQLException, DBException {
+        try (Connection conn = DBHelper.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE borrow_records SET is_returned = 1, return_time = NOW() WHERE book_id = ? AND is_returned = 0")) {
+                ps.setInt(1, bookId);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE books SET status = " + BookStatus.AVAILABLE.getCode() + " WHERE id = ?")) {
+                ps.setInt(1, bookId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * InnoDB 行锁等待次数和累计等待毫秒数
+     */
+    private static long[] rowLockStatus() throws SQLException, DBException {
+        long[] result = new long[2];
+        try (Connection conn = DBHelper.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW GLOBAL STATUS WHERE Variable_name IN " +
+                     "('Innodb_row_lock_waits', 'Innodb_row_lock_time')")) {
+            while (rs.next()) {
+                int index = "Innodb_row_lock_waits".equalsIgnoreCase(rs.getString(1)) ? 0 : 1;
+                result[index] = rs.getLong(2);
+            }
+        }
+        return result;
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1);
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+
+    private static int insert(Connection conn, String sql, String value) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, value);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * 删除测试创建的借阅记录、图书和用户
+     */
+    private static void cleanup(int[] userIds, int[] bookIds) {
+        try (Connection conn = DBHelper.getConnection()) {
+            for (int bookId : bookIds) {
+                execute(conn, "DELETE FROM borrow_records WHERE book_id = ?", bookId);
+                execute(conn, "DELETE FROM books WHERE id = ?", bookId);
+            }
+            for (int userId : userIds) {
+                execute(conn, "DELETE FROM users WHERE id = ?", userId);
+            }
+        } catch (Exception e) {
+            System.err.println("清理测试数据失败: " + e.getMessage());
+        }
+    }
+
+    private static void execute(Connection conn, String sql, int id) throws SQLException {
+        if (id <= 0) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.library.bench;
+
+import com.library.config.SystemConfig;
+import com.library.util.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ★ 密码验证基准测试：各迭代次数下每秒可处理的登录数
+ *
+ * 只测密码验证本身（登录的主要 CPU 开销），不连接数据库。
+ * 对每个迭代次数分别测：单线程（单次登录延迟）和 PASSWORD_VERIFY_THREADS 个线程并发（早高峰吞吐量）。
+ *
+ * 用法：java com.library.bench.PasswordHashBenchmark [每项测试秒数] [迭代次数1,迭代次数2,...]
+ * 例如：java com.library.bench.PasswordHashBenchmark 5 10000,50000,100000,200000
+ */
+public class PasswordHashBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int[] costs = {10000, 50000, SystemConfig.PASSWORD_HASH_ITERATIONS, 200000, 310000};
+        if (args.length > 1) {
+            String[] parts = args[1].split(",");
+            costs = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                costs[i] = Integer.parseInt(parts[i].trim());
+            }
+        }
+        int threads = SystemConfig.PASSWORD_VERIFY_THREADS;
+
+        System.out.println("密码验证基准测试（PBKDF2WithHmacSHA256），每项 " + seconds + " 秒，并发线程数 " + threads);
+        System.out.println("当前配置迭代次数: " + SystemConfig.PASSWORD_HASH_ITERATIONS);
+        System.out.println();
+        System.out.printf("%10s  %14s  %16s  %18s%n", "迭代次数", "单次耗时(ms)", "单线程(次/秒)", threads + "线程(次/秒)");
+
+        for (int cost : costs) {
+            String stored = PasswordHasher.hash("Library2024", cost);
+
+            // 预热（触发 JIT 编译）
+            for (int i = 0; i < 5; i++) {
+                PasswordHasher.verify("Library2024", stored);
+            }
+
+            double single = run(stored, 1, seconds);
+            double parallel = run(stored, threads, seconds);
+            System.out.printf("%10d  %14.2f  %16.1f  %18.1f%n", cost, 1000.0 / single, single, parallel);
+        }
+    }
+
+    /**
+     * 用 threads 个线程持续验证 seconds 秒，返回每秒验证次数
+     */
+    private static double run(String stored, int threads, int seconds) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicLong count = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    if (!PasswordHasher.verify("Library2024", stored)) {
+                        throw new IllegalStateException("验证结果错误");
+                    }
+                    count.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return count.get() / (elapsed / 1e9);
+    }
+}
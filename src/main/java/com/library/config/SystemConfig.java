@@ -31,6 +31,11 @@ public class SystemConfig {
             ? "1 分钟"
             : "30 天";
 
+    /**
+     * 每笔借阅最多续借次数（每次从当前应还时间起顺延一个借阅期限）
+     */
+    public static final int MAX_RENEW_COUNT = 2;
+
     /**
      * 罚款配置
      */
@@ -43,6 +48,359 @@ public class SystemConfig {
             ? "每分钟"
             : "每天";
 
+    // ============================================================
+    // ★ 密码哈希配置
+    // ============================================================
+
+    /**
+     * PBKDF2 迭代次数（计算成本）。调整后旧密码仍可登录，并在下次登录时按新成本重新哈希。
+     * 可运行 com.library.bench.PasswordHashBenchmark 查看各成本下每秒可处理的登录数。
+     */
+    public static final int PASSWORD_HASH_ITERATIONS = 100000;
+
+    /**
+     * 同时计算密码哈希的线程数（默认等于 CPU 核数）
+     */
+    public static final int PASSWORD_VERIFY_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 排队等待验证的登录请求上限，超出时提示稍后再试
+     */
+    public static final int PASSWORD_VERIFY_QUEUE = 64;
+
+    // ============================================================
+    // ★ 登录限流配置
+    // ============================================================
+
+    /**
+     * 登录失败统计的滑动窗口（秒）
+     */
+    public static final int LOGIN_WINDOW_SECONDS = 300;
+
+    /**
+     * 同一用户名在窗口内允许的失败次数，达到后锁定
+     */
+    public static final int LOGIN_MAX_FAILURES_PER_USER = 5;
+
+    /**
+     * 同一客户端在窗口内允许的失败次数（跨用户名），达到后锁定
+     */
+    public static final int LOGIN_MAX_FAILURES_PER_CLIENT = 20;
+
+    /**
+     * 首次锁定时长（秒），之后每次锁定翻倍
+     */
+    public static final int LOGIN_LOCKOUT_BASE_SECONDS = 30;
+
+    /**
+     * 最长锁定时长（秒）
+     */
+    public static final int LOGIN_LOCKOUT_MAX_SECONDS = 3600;
+
+    /**
+     * 限流器最多跟踪的用户名/客户端数量（超出时淘汰最久未访问的未锁定键，锁定中的键不淘汰）
+     */
+    public static final int LOGIN_LIMITER_MAX_ENTRIES = 10000;
+
+    // ============================================================
+    // ★ 会话配置（一个进程服务多个用户时）
+    // ============================================================
+
+    /**
+     * 会话空闲超时（分钟），超时后需要重新登录
+     */
+    public static final int SESSION_IDLE_TIMEOUT_MINUTES = 30;
+
+    /**
+     * 最多同时保持的会话数（已满时淘汰空闲最久的会话）
+     */
+    public static final int SESSION_MAX_COUNT = 10000;
+
+    /**
+     * 每个用户最多同时保持的会话数（再登录时淘汰该用户最早的会话）
+     */
+    public static final int SESSION_MAX_PER_USER = 5;
+
+    // ============================================================
+    // ★ 用户缓存配置
+    // ============================================================
+
+    /**
+     * 用户缓存最多保存的用户数（超出时淘汰最久未访问的）
+     */
+    public static final int USER_CACHE_MAX_ENTRIES = 1000;
+
+    /**
+     * 缓存的用户信息有效期（秒），限制其他客户端修改用户后本机读到旧数据的时间
+     */
+    public static final int USER_CACHE_TTL_SECONDS = 60;
+
+    /**
+     * 用户管理列表每页条数
+     */
+    public static final int USER_PAGE_SIZE = 200;
+
+    /**
+     * 带条件检索用户时最多统计的总数（超出时显示"超过 N"，避免大范围计数）
+     */
+    public static final int USER_COUNT_LIMIT = 10000;
+
+    /**
+     * 用户名过滤器（布隆过滤器）的目标误判率
+     */
+    public static final double USERNAME_FILTER_FPP = 0.01;
+
+    /**
+     * 用户名过滤器的最小容量（实际容量为当前用户数的 2 倍，且不小于此值）
+     */
+    public static final int USERNAME_FILTER_MIN_CAPACITY = 10000;
+
+    /**
+     * 用户名过滤器追加读取其他进程新增用户的最短间隔（毫秒），间隔内判断"不存在"时不查库
+     */
+    public static final long USERNAME_FILTER_REFRESH_MILLIS = 5000;
+
+    /**
+     * 用户名过滤器定期全量重建的间隔（小时），补上其他进程的改名
+     */
+    public static final int USERNAME_FILTER_REBUILD_HOURS = 6;
+
+    /**
+     * 输入用户名后延迟多久检查是否可用（毫秒），连续输入时只检查最后一次
+     */
+    public static final int USERNAME_CHECK_DELAY_MILLIS = 300;
+
+    // ============================================================
+    // ★ 批量用户操作配置（批量删除、注销、启用/禁用）
+    // ============================================================
+
+    /**
+     * 每条语句 IN 列表中的最多用户数（选中更多用户时分成多条语句，仍在同一事务中）
+     */
+    public static final int USER_BATCH_CHUNK_SIZE = 1000;
+
+    // ============================================================
+    // ★ 批量导入用户配置
+    // ============================================================
+
+    /**
+     * 每批处理的行数（一次查重、一次哈希、一次批量插入）
+     */
+    public static final int USER_IMPORT_CHUNK_ROWS = 1000;
+
+    /**
+     * 导入结果中最多保留的错误行数（超出只计数）
+     */
+    public static final int USER_IMPORT_MAX_ERRORS = 1000;
+
+    // ============================================================
+    // ★ HTTP 服务配置（无界面服务模式，见 com.library.server.LibraryServer）
+    // ============================================================
+
+    /**
+     * HTTP 服务默认端口（可由启动参数覆盖）
+     */
+    public static final int HTTP_PORT = 8080;
+
+    /**
+     * 处理请求的工作线程数
+     */
+    public static final int HTTP_WORKER_THREADS = 32;
+
+    /**
+     * 服务模式连接池的连接数上限（应低于 MySQL 的 max_connections）：
+     * 每个工作线程一个，另留一些给后台维护任务和请求中嵌套获取的连接
+     */
+    public static final int DB_POOL_MAX_CONNECTIONS = HTTP_WORKER_THREADS + 8;
+
+    /**
+     * 连接池已满时最多等待多久（毫秒），超时按数据库繁忙处理
+     */
+    public static final long DB_POOL_WAIT_MILLIS = 5000;
+
+    /**
+     * 服务模式写日志的带超时连接池的连接数上限（日志写入很快，少量连接即可）
+     */
+    public static final int DB_LOG_POOL_MAX_CONNECTIONS = 8;
+
+    /**
+     * 等待处理的请求队列长度（队列已满时直接返回 503，不再排队）
+     */
+    public static final int HTTP_QUEUE_CAPACITY = 512;
+
+    /**
+     * 请求体最大字节数
+     */
+    public static final int HTTP_MAX_BODY_BYTES = 16 * 1024;
+
+    /**
+     * 检索图书时每次最多返回的条数
+     */
+    public static final int HTTP_SEARCH_LIMIT = 100;
+
+    // ============================================================
+    // ★ 流式查询配置（日志归档导出、用户名过滤器重建等全表读取）
+    // ============================================================
+
+    /**
+     * 流式读取时会话的 net_write_timeout（秒）
+     * 流式结果集在消费完之前一直占用连接，服务器等待客户端读取的时间超过此值会断开连接；
+     * 调用方逐行写文件或网络时处理较慢，因此比 MySQL 默认的 60 秒放宽
+     */
+    public static final int STREAM_NET_WRITE_TIMEOUT_SECONDS = 600;
+
+    // ============================================================
+    // ★ 流通操作去重配置（借阅、归还、罚款、遗失的操作编号）
+    // ============================================================
+
+    /**
+     * 操作编号记录的保留天数
+     * 客户端只会在超时后短时间内重试，超过此期限的记录由后台维护任务删除
+     */
+    public static final int CIRCULATION_OP_RETENTION_DAYS = 7;
+
+    /**
+     * 操作编号的最大长度（客户端一般使用 UUID）
+     */
+    public static final int CIRCULATION_OP_ID_MAX_LENGTH = 64;
+
+    // ============================================================
+    // ★ 图书预约配置
+    // ============================================================
+
+    /**
+     * 预约到书后的保留期限（毫秒），期限内未借阅则顺延给下一位预约读者
+     * - 测试模式：2 分钟
+     * - 生产模式：3 天
+     */
+    public static final long HOLD_PICKUP_MILLIS = IS_TEST_MODE
+            ? 2L * 60 * 1000
+            : 3L * 24 * 60 * 60 * 1000;
+
+    /**
+     * 预约保留期限（文字描述）
+     */
+    public static final String HOLD_PICKUP_TEXT = IS_TEST_MODE
+            ? "2 分钟"
+            : "3 天";
+
+    /**
+     * 每位读者同时有效的预约数上限
+     */
+    public static final int HOLD_MAX_PER_USER = 5;
+
+    /**
+     * 后台检查过期预约的间隔（秒）
+     */
+    public static final int HOLD_SWEEP_INTERVAL_SECONDS = 60;
+
+    /**
+     * 每批处理的过期预约数
+     */
+    public static final int HOLD_SWEEP_BATCH = 500;
+
+    /**
+     * 客户端检查未读通知的间隔（秒），只读取当前用户的未读通知（带索引）
+     */
+    public static final int NOTIFICATION_POLL_SECONDS = 60;
+
+    // ============================================================
+    // ★ 系统日志分区与保留配置
+    // ============================================================
+
+    /**
+     * 日志在线保留月数：超过此月数的日志由后台任务归档到本地压缩文件，再从数据库中删除
+     */
+    public static final int LOG_RETENTION_MONTHS = 12;
+
+    /**
+     * 提前创建的未来分区月数
+     */
+    public static final int LOG_PARTITION_AHEAD_MONTHS = 2;
+
+    /**
+     * 日志查看面板默认显示的天数
+     */
+    public static final int LOG_DEFAULT_VIEW_DAYS = 7;
+
+    /**
+     * 日志检索每页条数
+     */
+    public static final int LOG_PAGE_SIZE = 200;
+
+    /**
+     * 日志总数缓存有效期（秒）：过期后在后台重新 COUNT(*) 校准
+     * 本进程的写入和删除已实时计入，校准只修正其他客户端造成的偏差，COUNT(*) 要扫描整个索引，因此间隔较长
+     */
+    public static final int LOG_COUNT_TTL_SECONDS = 3600;
+
+    /**
+     * 实时跟踪模式的刷新间隔（毫秒）
+     */
+    public static final int LOG_TAIL_INTERVAL_MILLIS = 2000;
+
+    /**
+     * 实时跟踪模式下表格最多保留的行数（超出后丢弃最旧的行）
+     */
+    public static final int LOG_TAIL_MAX_ROWS = 1000;
+
+    /**
+     * 实时跟踪最多记录的空缺 id 数：事务中写入的日志 id 先分配、后提交，可能在更大的 id 之后才可见，
+     * 扫描时跳过的 id 记为空缺，之后只按主键补读这些 id
+     */
+    public static final int LOG_TAIL_MAX_GAPS = 200;
+
+    /**
+     * 空缺 id 的补读期限（毫秒），超过仍未出现的视为事务已回滚
+     */
+    public static final int LOG_TAIL_GAP_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * 日志归档目录：默认相对于程序运行目录，可用 -Dlibrary.log.archive.dir=... 指定
+     * 归档可能由任一客户端或服务端执行，多台机器部署时应指向同一共享目录，各处才能检索到全部归档
+     */
+    public static final String LOG_ARCHIVE_DIR = System.getProperty("library.log.archive.dir", "archive/sys_logs");
+
+    /**
+     * 单个归档文件最多写入的日志条数，超过后滚动到新文件
+     */
+    public static final int LOG_ARCHIVE_ROWS_PER_FILE = 200000;
+
+    /**
+     * 归档文件内每个压缩块的日志条数（块索引的粒度，检索时只解压时间范围重叠的块）
+     */
+    public static final int LOG_ARCHIVE_BLOCK_ROWS = 5000;
+
+    /**
+     * 日志本地缓存目录：数据库不可用时日志先追加到这里，恢复后由后台任务补写
+     */
+    public static final String LOG_SPOOL_DIR = "spool";
+
+    /**
+     * 写日志的数据库连接/读写超时（毫秒），超时即改写本地缓存，避免业务操作等待
+     */
+    public static final int LOG_WRITE_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * 本地缓存批量刷盘间隔（毫秒）
+     */
+    public static final int LOG_SPOOL_FSYNC_MILLIS = 200;
+
+    /**
+     * 本地缓存补写检查间隔（秒）
+     */
+    public static final int LOG_SPOOL_REPLAY_INTERVAL_SECONDS = 5;
+
+    /**
+     * 本地缓存每批补写的条数
+     */
+    public static final int LOG_SPOOL_REPLAY_BATCH = 500;
+
+    /**
+     * 后台维护任务执行间隔（小时）
+     */
+    public static final int MAINTENANCE_INTERVAL_HOURS = 24;
+
     /**
      * 获取当前模式说明
      */
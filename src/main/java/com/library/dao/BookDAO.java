@@ -1,12 +1,21 @@
 package com.library.dao;
 
+import com.library.entity.LogEventType;
 import com.library.exception.*;
 import com.library.util.DBHelper;
+import com.library.util.JsonUtil;
+import com.library.util.SchemaHelper;
 import com.library.config.SystemConfig; // ← 导入配置类
-import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import com.library.entity.Book;
+import com.library.entity.BookStatus;
+import com.library.entity.BorrowRecord;
+import com.library.entity.HoldStatus;
+import com.library.entity.LogEvent;
 import java.sql.*;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class BookDAO {
     // ============================================================
@@ -20,9 +29,234 @@ public class BookDAO {
         public String bookTitle;
         public String bookAuthor;
     }
+
+    // ★ 图书状态码（books.status 为 TINYINT，SQL 中直接使用整数常量）
+    private static final int STATUS_AVAILABLE = BookStatus.AVAILABLE.getCode();
+    private static final int STATUS_BORROWED = BookStatus.BORROWED.getCode();
+    private static final int STATUS_LOST = BookStatus.LOST.getCode();
+    private static final int STATUS_DELETED = BookStatus.DELETED.getCode();
+    private static final int STATUS_ON_HOLD = BookStatus.ON_HOLD.getCode();
+
+    /** 借阅期限（秒），写入应还时间和续借顺延时使用 */
+    private static final long DUE_PERIOD_SECONDS = SystemConfig.DUE_PERIOD_MILLIS / 1000;
+
     private LogDAO logDAO = new LogDAO();
 
+    /**
+     * ★ 图书和借阅记录表结构升级（可重复执行）：
+     * - books.status 由字符串改为 TINYINT 状态码
+     * - borrow_records 上"每本书最多一条未归还记录"的唯一约束（借阅时用它代替重复借阅检查）
+     * - 两张表的乐观锁版本号 version
+     * - 流通操作去重表 circulation_ops（见 CirculationOps）
+     * - 借阅记录的应还时间 due_time 和续借次数 renew_count（每次启动按借出时间回填缺失的应还时间，之后改为 NOT NULL）
+     *
+     * 旧数据中英文代码（'available' 等）和中文文字（'可借阅'、'已删除' 等）混用，迁移时两种写法都映射到同一个状态码；
+     * 先写入新列再在一条 ALTER 中替换旧列，中途失败时旧列仍在，下次启动重新迁移。
+     *
+     * 每一步单独执行、单独捕获异常，一步失败不影响后面的步骤；借阅、归还依赖的步骤失败时，
+     * 全部步骤执行完后抛出异常终止启动，不带着不完整的表结构运行。
+     */
+    public static void ensureSchema() {
+        List<String> failures = new ArrayList<>();
+        try (Connection conn = DBHelper.getConnection()) {
+            schemaStep(conn, "books.status 状态码", true, failures, c -> {
+                String type = SchemaHelper.columnType(c, "books", "status");
+                if (type != null && !"tinyint".equals(type)) {
+                    SchemaHelper.ensureColumn(c, "books", "status_code", "TINYINT NOT NULL DEFAULT " + STATUS_AVAILABLE);
+                    SchemaHelper.execute(c, "UPDATE books SET status_code = CASE " +
+                            "WHEN status IN ('borrowed', '已借出') THEN " + STATUS_BORROWED + " " +
+                            "WHEN status IN ('lost', '遗失') THEN " + STATUS_LOST + " " +
+                            "WHEN status IN ('deleted', '已删除') THEN " + STATUS_DELETED + " " +
+                            "ELSE " + STATUS_AVAILABLE + " END");
+                    SchemaHelper.execute(c, "ALTER TABLE books DROP COLUMN status, " +
+                            "CHANGE COLUMN status_code status TINYINT NOT NULL DEFAULT " + STATUS_AVAILABLE);
+                }
+            });
+            // 可借阅列表按 id 倒序、各状态计数都只扫描索引（缺少时只影响性能）
+            schemaStep(conn, "idx_books_status", false, failures,
+                    c -> SchemaHelper.ensureIndex(c, "books", "idx_books_status", "(status, id)"));
+
+            // ★ 乐观锁版本号：每次修改加 1，按读取时的版本号条件更新
+            schemaStep(conn, "version 列", true, failures, c -> {
+                SchemaHelper.ensureColumn(c, "books", "version", "INT NOT NULL DEFAULT 0");
+                SchemaHelper.ensureColumn(c, "borrow_records", "version", "INT NOT NULL DEFAULT 0");
+            });
+
+            // ★ 流通操作编号（重试去重）
+            schemaStep(conn, "circulation_ops", true, failures, CirculationOps::ensureSchema);
+
+            // ★ 续借：应还时间单独存储，续借时直接顺延
+            // 回填每次启动都执行（只更新仍为 NULL 的行），上次中途失败或旧版本写入的记录下次启动补上；
+            // 全部回填后改为 NOT NULL，之后不会再出现缺失的应还时间
+            schemaStep(conn, "borrow_records.due_time", true, failures, c -> {
+                SchemaHelper.ensureColumn(c, "borrow_records", "due_time", "DATETIME NULL");
+                SchemaHelper.execute(c, "UPDATE borrow_records SET due_time = " +
+                        "COALESCE(borrow_time, CURRENT_TIMESTAMP) + INTERVAL " + DUE_PERIOD_SECONDS + " SECOND " +
+                        "WHERE due_time IS NULL");
+                if (SchemaHelper.isNullable(c, "borrow_records", "due_time")) {
+                    SchemaHelper.execute(c, "ALTER TABLE borrow_records MODIFY due_time DATETIME NOT NULL");
+                }
+            });
+            schemaStep(conn, "borrow_records.renew_count", true, failures,
+                    c -> SchemaHelper.ensureColumn(c, "borrow_records", "renew_count", "INT NOT NULL DEFAULT 0"));
+
+            // ★ 每本书最多一条未归还记录：生成列只在未归还时等于 book_id，唯一索引忽略 NULL
+            schemaStep(conn, "uk_borrow_active_book", true, failures, c -> {
+                SchemaHelper.ensureColumn(c, "borrow_records", "active_book_id",
+                        "INT AS (IF(is_returned = 0, book_id, NULL)) STORED");
+                if (!SchemaHelper.indexExists(c, "borrow_records", "uk_borrow_active_book")) {
+                    SchemaHelper.execute(c, "ALTER TABLE borrow_records " +
+                            "ADD UNIQUE INDEX uk_borrow_active_book (active_book_id)");
+                }
+            });
+        } catch (DBException | SQLException e) {
+            failures.add("连接数据库: " + e.getMessage());
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("图书表结构升级失败，无法启动: " + String.join("; ", failures));
+        }
+    }
+
+    /**
+     * 表结构升级的一个步骤
+     */
+    private interface SchemaStep {
+        void run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * 执行一个升级步骤：必需的步骤失败时记入 failures，可选的步骤失败只打印警告
+     */
+    private static void schemaStep(Connection conn, String name, boolean required, List<String> failures, SchemaStep step) {
+        try {
+            step.run(conn);
+        } catch (SQLException e) {
+            if (required) {
+                failures.add(name + ": " + e.getMessage());
+            }
+            System.err.println("图书表结构升级失败（" + name + "）: " + e.getMessage());
+        }
+    }
+
+    /**
+     * ★ 借阅图书
+     * - 条件更新同时完成"是否可借"检查并锁住该书的行，不先查询再更新；
+     * - 同一本书只能有一条未归还记录由唯一索引 uk_borrow_active_book 保证，不再单独 COUNT 检查重复借阅；
+     * - 日志与借阅记录在同一事务中写入，不另开连接。
+     * 成功时只有 更新、插入记录、插入日志、提交 四次往返；失败时才查询原因给出提示。
+     * 先更新 books 再插入记录：若用 INSERT ... SELECT 先读 books，InnoDB 会对该行加共享锁，
+     * 两个读者同时借同一本书时都要从共享锁升级为排他锁，必然一方死锁回滚。
+     */
     public void borrowBook(int bookId, int userId) throws DBException, BusinessException {
+        borrowBook(null, bookId, userId);
+    }
+
+    /**
+     * 借阅图书（带操作编号）：超时后用同一编号重试不会重复借阅，返回第一次的结果
+     * @param operationId 客户端生成的操作编号，null 表示不去重
+     */
+    public void borrowBook(String operationId, int bookId, int userId) throws DBException, BusinessException {
+        Connection conn = null;
+        try {
+            conn = DBHelper.getConnection();
+            conn.setAutoCommit(false);
+
+            if (CirculationOps.claim(conn, operationId, userId, CirculationOps.BORROW, bookId)) {
+                conn.rollback();
+                return;
+            }
+
+            // 1. 只有可借阅的书才会被更新；未命中时再看是否为该读者预约保留的书
+            String sqlUpdate = "UPDATE books SET status=" + STATUS_BORROWED + ", version=version+1 WHERE id=? AND status=" + STATUS_AVAILABLE;
+            try (PreparedStatement psUpdate = conn.prepareStatement(sqlUpdate)) {
+                psUpdate.setInt(1, bookId);
+                if (psUpdate.executeUpdate() == 0 && !HoldDAO.fulfill(conn, bookId, userId)) {
+                    conn.rollback();
+                    throw new BusinessException(borrowFailureReason(conn, bookId, userId));
+                }
+            }
+
+            // 2. 插入借阅记录（唯一索引兜底：图书状态与借阅记录不一致时拒绝第二条未归还记录）
+            String sqlInsert = "INSERT INTO borrow_records (user_id, book_id, borrow_time, due_time, is_returned) " +
+                    "VALUES (?, ?, NOW(), NOW() + INTERVAL " + DUE_PERIOD_SECONDS + " SECOND, 0)";
+            try (PreparedStatement psInsert = conn.prepareStatement(sqlInsert)) {
+                psInsert.setInt(1, userId);
+                psInsert.setInt(2, bookId);
+                psInsert.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                conn.rollback();
+                throw new BusinessException("该书已被借出或不可借阅！");
+            }
+
+            // 3. 日志随借阅一起提交；语句级的写日志失败只回滚这一条语句，借阅照常提交，之后补记；
+            //    死锁或断线会让整个事务失效，按借阅失败处理
+            LogEvent event = new LogEvent(LogEventType.BOOK_BORROWED, bookId, JsonUtil.object("userId", userId),
+                    "成功借阅图书 ID: " + bookId + ", 用户 ID: " + userId);
+            boolean logged = false;
+            try {
+                logDAO.insertEvent(conn, event);
+                logged = true;
+            } catch (SQLException e) {
+                if (LogDAO.abortsTransaction(e)) {
+                    throw e;
+                }
+                System.err.println("借阅日志写入失败，稍后补记: " + e.getMessage());
+            }
+
+            conn.commit();
+            if (logged) {
+                logDAO.onCommitted(1);
+            } else {
+                logDAO.logEvent(event);
+            }
+
+        } catch (BusinessException e) {
+            try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
+            CirculationOps.recordRejected(operationId, userId, CirculationOps.BORROW, bookId, e);
+            throw e;
+        } catch (SQLException e) {
+            try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
+            throw new DBException("借阅交易失败: " + e.getMessage(), e);
+        } finally {
+            try {
+                if(conn!=null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * 借阅失败的原因（只在条件更新未命中时查询）
+     */
+    private String borrowFailureReason(Connection conn, int bookId, int userId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM borrow_records WHERE user_id = ? AND book_id = ? AND is_returned = 0";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setInt(2, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return "您已借阅该图书，请勿重复借阅！";
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("SELECT status FROM books WHERE id = ?")) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == STATUS_ON_HOLD) {
+                    return "该书已为预约读者保留，暂不可借阅，可以加入预约队列。";
+                }
+            }
+        }
+        return "该书已被借出或不可借阅！";
+    }
+
+    /**
+     * 原借阅流程：重复借阅检查、条件更新、插入记录三次往返，提交后另开连接写日志
+     * 已由 {@link #borrowBook} 代替，保留用于基准测试对比（见 bench.BorrowBenchmark）
+     */
+    public void borrowBookLegacy(int bookId, int userId) throws DBException, BusinessException {
         Connection conn = null;
         try {
             conn = DBHelper.getConnection();
@@ -41,7 +275,7 @@ public class BookDAO {
             }
 
             // ✅ 2. 检查并更新图书状态（★ 修复这里）
-            String sqlUpdate = "UPDATE books SET status='borrowed' WHERE id=? AND status='available'";
+            String sqlUpdate = "UPDATE books SET status=" + STATUS_BORROWED + ", version=version+1 WHERE id=? AND status=" + STATUS_AVAILABLE;
             try (PreparedStatement psUpdate = conn.prepareStatement(sqlUpdate)) {
                 psUpdate.setInt(1, bookId);
                 int rows = psUpdate.executeUpdate();
@@ -51,8 +285,8 @@ public class BookDAO {
             }
 
             // ✅ 3. 插入借阅记录（设置 is_returned = 0）
-            String sqlInsert = "INSERT INTO borrow_records (user_id, book_id, borrow_time, is_returned) " +
-                    "VALUES (?, ?, NOW(), 0)";
+            String sqlInsert = "INSERT INTO borrow_records (user_id, book_id, borrow_time, due_time, is_returned) " +
+                    "VALUES (?, ?, NOW(), NOW() + INTERVAL " + DUE_PERIOD_SECONDS + " SECOND, 0)";
             try (PreparedStatement psInsert = conn.prepareStatement(sqlInsert)) {
                 psInsert.setInt(1, userId);
                 psInsert.setInt(2, bookId);
@@ -60,7 +294,8 @@ public class BookDAO {
             }
 
             conn.commit();
-            logDAO.logOperation("成功借阅图书 ID: " + bookId + ", 用户 ID: " + userId);
+            logDAO.logEvent(LogEventType.BOOK_BORROWED, bookId, JsonUtil.object("userId", userId),
+                    "成功借阅图书 ID: " + bookId + ", 用户 ID: " + userId);
 
         } catch (BusinessException e) {
             try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
@@ -81,27 +316,43 @@ public class BookDAO {
     // --- CRUD 操作 ---
 
     public void addBook(String title, String author) throws DBException {
-        String sql = "INSERT INTO books (title, author, status) VALUES (?, ?, '可借阅')";
+        String sql = "INSERT INTO books (title, author, status) VALUES (?, ?, " + STATUS_AVAILABLE + ")";
         try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, title);
             ps.setString(2, author);
             ps.executeUpdate();
-            logDAO.logOperation("新增图书: " + title);
+
+            Integer bookId = null;
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    bookId = keys.getInt(1);
+                }
+            }
+            logDAO.logEvent(LogEventType.BOOK_ADDED, bookId, JsonUtil.object("title", title, "author", author),
+                    "新增图书: " + title);
         } catch (SQLException e) {
             throw new DBException("入库图书失败: " + e.getMessage(), e);
         }
     }
 
-    public void updateBook(int id, String newTitle, String newAuthor) throws DBException {
-        String sql = "UPDATE books SET title=?, author=? WHERE id=?";
+    /**
+     * 修改图书信息（按读取时的版本号更新，不覆盖期间其他管理员的修改）
+     * @param expectedVersion 读取图书时的版本号（Book.getVersion()）
+     * @throws OptimisticLockException 图书在读取之后已被修改
+     */
+    public void updateBook(int id, String newTitle, String newAuthor, int expectedVersion)
+            throws DBException, OptimisticLockException {
+        String sql = "UPDATE books SET title=?, author=?, version=version+1 WHERE id=? AND version=?";
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, newTitle);
             ps.setString(2, newAuthor);
             ps.setInt(3, id);
-            ps.executeUpdate();
-            logDAO.logOperation("修改图书 ID " + id + " 信息");
+            ps.setInt(4, expectedVersion);
+            checkVersion(ps.executeUpdate());
+            logDAO.logEvent(LogEventType.BOOK_UPDATED, id, JsonUtil.object("title", newTitle, "author", newAuthor),
+                    "修改图书 ID " + id + " 信息");
         } catch (SQLException e) {
             throw new DBException("修改图书失败: " + e.getMessage(), e);
         }
@@ -114,7 +365,7 @@ public class BookDAO {
             ps.setInt(1, bookId);
             int rows = ps.executeUpdate();
             if(rows == 0) throw new DBException("删除失败，图书可能不存在");
-            logDAO.logOperation("删除图书 ID: " + bookId);
+            logDAO.logEvent(LogEventType.BOOK_DELETED, bookId, null, "删除图书 ID: " + bookId);
         } catch (SQLException e) {
             if (e.getErrorCode() == 1451) {
                 throw new DBException("删除失败：该图书存在借阅记录。", e);
@@ -124,201 +375,152 @@ public class BookDAO {
     }
 
     // --- 查询操作 ---
+    // ★ 查询只返回 Book / BorrowRecord 列表，不依赖 Swing；
+    //   界面表格由 ui.BookTableModels 根据列表生成，HTTP 服务、导出等直接使用列表
+
+    /**
+     * 查询图书列表
+     * @param keyword 搜索关键词（书名模糊匹配），null 表示查询所有
+     * @param onlyAvailable 是否只查询可借阅的图书（true=普通用户，false=管理员）
+     */
+    public List<Book> findBooks(String keyword, boolean onlyAvailable) throws DBException {
+        return queryBooks(keyword, onlyAvailable ? "status = " + STATUS_AVAILABLE : null);
+    }
 
     /**
-     * ★ 单参数版本 - 查询图书列表
+     * 查询在馆流通的图书：可借阅、已借出（可预约）和预约保留，不含遗失和已删除
+     * @param keyword 搜索关键词（书名模糊匹配），null 表示查询所有
      */
-    public DefaultTableModel getBookModel(String keyword) {
-        Vector<String> cols = new Vector<>();
-        cols.add("ID");
-        cols.add("书名");
-        cols.add("作者");
-        cols.add("状态");
-
-        Vector<Vector<Object>> data = new Vector<>();
-
-        String sql = "SELECT id, title, author, status FROM books WHERE status != '已删除'";
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            sql += " AND title LIKE ?";
+    public List<Book> findCirculatingBooks(String keyword) throws DBException {
+        return queryBooks(keyword, "status IN (" + STATUS_AVAILABLE + ", " + STATUS_BORROWED + ", " + STATUS_ON_HOLD + ")");
+    }
+
+    private List<Book> queryBooks(String keyword, String statusCondition) throws DBException {
+        StringBuilder sql = new StringBuilder("SELECT id, title, author, status, version FROM books WHERE 1=1");
+        boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
+        if (hasKeyword) {
+            sql.append(" AND title LIKE ?");
+        }
+        if (statusCondition != null) {
+            sql.append(" AND ").append(statusCondition);
         }
-        sql += " ORDER BY id ASC";
+        sql.append(" ORDER BY id DESC");
 
+        List<Book> books = new ArrayList<>();
         try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                ps.setString(1, "%" + keyword + "%");
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            if (hasKeyword) {
+                ps.setString(1, "%" + keyword.trim() + "%");
             }
-
-            try(ResultSet rs = ps.executeQuery()){
-                while(rs.next()) {
-                    Vector<Object> row = new Vector<>();
-                    row.add(rs.getInt("id"));
-                    row.add(rs.getString("title"));
-                    row.add(rs.getString("author"));
-                    row.add(rs.getString("status"));
-                    data.add(row);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    books.add(readBook(rs));
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (SQLException e) {
+            throw new DBException("查询图书列表失败: " + e.getMessage(), e);
         }
-
-        // ★ 添加不可编辑功能
-        return new DefaultTableModel(data, cols) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        return books;
     }
+
     /**
-     * 获取图书列表的 TableModel
-     * @param keyword 搜索关键词（书名模糊匹配），null 表示查询所有
-     * @param onlyAvailable 是否只查询可借阅的图书（true=普通用户，false=管理员）
-     * @return DefaultTableModel
+     * 检索未删除的图书（书名模糊匹配，按编号倒序，最多 limit 条）
      */
-    public DefaultTableModel getBookModel(String keyword, boolean onlyAvailable) {
-        Vector<String> cols = new Vector<>();
-        cols.add("图书编号");
-        cols.add("书名");
-        cols.add("作者");
-        cols.add("状态");
-
-        Vector<Vector<Object>> data = new Vector<>();
-
-        StringBuilder sql = new StringBuilder("SELECT id, title, author, status FROM books WHERE 1=1");
-
-        if (keyword != null && !keyword.trim().isEmpty()) {
+    public List<Book> searchBooks(String keyword, boolean onlyAvailable, int limit) throws DBException {
+        StringBuilder sql = new StringBuilder("SELECT id, title, author, status, version FROM books WHERE status != " + STATUS_DELETED);
+        boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
+        if (hasKeyword) {
             sql.append(" AND title LIKE ?");
         }
-
         if (onlyAvailable) {
-            sql.append(" AND status = 'available'");
+            sql.append(" AND status = " + STATUS_AVAILABLE);
         }
+        sql.append(" ORDER BY id DESC LIMIT ?");
 
-        sql.append(" ORDER BY id DESC");
-
+        List<Book> books = new ArrayList<>();
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql.toString())) {
-
             int paramIndex = 1;
-            if (keyword != null && !keyword.trim().isEmpty()) {
+            if (hasKeyword) {
                 ps.setString(paramIndex++, "%" + keyword.trim() + "%");
             }
-
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("id"));
-                row.add(rs.getString("title"));
-                row.add(rs.getString("author"));
-
-                // ★★★ 状态列改成中文
-                String status = rs.getString("status");
-                String statusText;
-                switch (status) {
-                    case "available":
-                        statusText = "可借阅";
-                        break;
-                    case "borrowed":
-                        statusText = "已借出";
-                        break;
-                    case "lost":
-                        statusText = "遗失";
-                        break;
-                    case "deleted":
-                        statusText = "已删除";
-                        break;
-                    default:
-                        statusText = status; // 兼容其他状态
+            ps.setInt(paramIndex, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    books.add(readBook(rs));
                 }
-                row.add(statusText);
-
-                data.add(row);
             }
-
         } catch (SQLException e) {
-            e.printStackTrace();
-            // ★ 可以选择记录日志或显示错误信息
-            System.err.println("查询图书列表失败: " + e.getMessage());
-        } catch (DBException e) {
-            throw new RuntimeException(e);
+            throw new DBException("查询图书列表失败: " + e.getMessage(), e);
         }
-
-        return new DefaultTableModel(data, cols) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        return books;
     }
 
+    /**
+     * 用户的全部借阅记录（按借出时间倒序）
+     */
+    public List<BorrowRecord> findBorrowRecordsByUser(int userId) throws DBException {
+        return queryBorrowRecords(BorrowRecordMapper.SELECT + "WHERE br.user_id = ? ORDER BY br.borrow_time DESC", userId);
+    }
 
+    /**
+     * 全部借阅记录（管理员用，按借出时间倒序）
+     */
+    public List<BorrowRecord> findAllBorrowRecords() throws DBException {
+        return queryBorrowRecords(BorrowRecordMapper.SELECT + "ORDER BY br.borrow_time DESC");
+    }
 
-    public DefaultTableModel getBorrowStatusModel() {
-        Vector<String> cols = new Vector<>();
-        cols.add("ID");
-        cols.add("书名");
-        cols.add("状态");
-        cols.add("借阅人");
-        cols.add("借出时间");
-
-        Vector<Vector<Object>> data = new Vector<>();
+    /**
+     * 用户当前在借的图书（按借出时间倒序）
+     */
+    public List<BorrowRecord> findCurrentLoans(int userId) throws DBException {
+        return queryBorrowRecords(BorrowRecordMapper.SELECT +
+                "WHERE br.user_id = ? AND br.is_returned = 0 ORDER BY br.borrow_time DESC", userId);
+    }
 
-        String sql = "SELECT b.id, b.title, b.status, u.username, br.borrow_time " +
-                "FROM books b " +
-                "LEFT JOIN borrow_records br ON b.id = br.book_id AND br.is_returned = 0 " +
-                "LEFT JOIN users u ON br.user_id = u.id " +
-                "WHERE b.status != '已删除' AND b.status != '遗失' " +
-                "ORDER BY b.id ASC";
+    /**
+     * 用户待支付的罚款（按借阅记录编号倒序）
+     */
+    public List<BorrowRecord> findUnpaidFines(int userId) throws DBException {
+        return queryBorrowRecords(BorrowRecordMapper.SELECT +
+                "WHERE br.user_id = ? AND br.fine_amount > 0 AND br.fine_paid = 0 ORDER BY br.id DESC", userId);
+    }
 
+    private List<BorrowRecord> queryBorrowRecords(String sql, Object... params) throws DBException {
+        List<BorrowRecord> records = new ArrayList<>();
         try (Connection conn = DBHelper.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("id"));
-                row.add(rs.getString("title"));
-
-                String status = rs.getString("status");
-                row.add(status);
-
-                String username = rs.getString("username");
-                row.add(username != null ? username : "-");
-
-                Timestamp borrowTime = rs.getTimestamp("borrow_time");
-                row.add(borrowTime != null ? borrowTime.toString() : "-");
-
-                data.add(row);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    records.add(BorrowRecordMapper.read(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException("查询借阅记录失败: " + e.getMessage(), e);
         }
+        return records;
+    }
 
-        // ★ 添加不可编辑功能
-        return new DefaultTableModel(data, cols) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+    private static Book readBook(ResultSet rs) throws SQLException {
+        return new Book(rs.getInt("id"), rs.getString("title"), rs.getString("author"),
+                BookStatus.fromCode(rs.getInt("status")), rs.getInt("version"));
     }
 
     /**
-     * 根据图书状态（如 '可借阅', '已借出'）统计图书数量。
+     * 根据图书状态统计图书数量。
      * @param status 图书状态
      * @return 对应状态的图书数量
      */
-    public int getCountByStatus(String status) throws com.library.exception.DBException {
+    public int getCountByStatus(BookStatus status) throws com.library.exception.DBException {
         String sql = "SELECT COUNT(*) AS count FROM books WHERE status = ?";
 
         try (Connection conn = com.library.util.DBHelper.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setString(1, status);
+            ps.setInt(1, status.getCode());
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
                     return rs.getInt("count");
@@ -330,302 +532,9 @@ public class BookDAO {
         return 0;
     }
 
-    /**
-     * ★ 获取用户的借阅记录（修复罚款显示逻辑）
-     */
-    /**
-     * ★ 获取用户的借阅记录（简化状态显示）
-     */
-    public DefaultTableModel getMyBorrowRecordsModel(int userId) throws DBException {
-        Vector<String> cols = new Vector<>();
-        cols.add("记录ID");
-        cols.add("书名");
-        cols.add("借出日期");
-        cols.add("应归还日期/归还日期");
-        cols.add("是否归还");
-        cols.add("状态");
-        cols.add("罚款金额");
-
-        Vector<Vector<Object>> data = new Vector<>();
-
-        String sql = "SELECT br.id, b.title, br.borrow_time, br.return_time, br.is_returned, " +
-                "br.resolution, br.fine_amount, br.fine_paid " +
-                "FROM borrow_records br " +
-                "JOIN books b ON br.book_id = b.id " +
-                "WHERE br.user_id = ? " +
-                "ORDER BY br.borrow_time DESC";
-
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, userId);
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("id"));
-                row.add(rs.getString("title"));
-
-                Timestamp borrowTime = rs.getTimestamp("borrow_time");
-                row.add(borrowTime != null ? borrowTime.toString() : "-");
-
-                Timestamp returnTime = rs.getTimestamp("return_time");
-                int isReturned = rs.getInt("is_returned");
-
-                // ★ 第4列：应归还日期/归还日期
-                if (isReturned == 1) {
-                    // 已归还，显示实际归还日期
-                    row.add(returnTime != null ? returnTime.toString() : "-");
-                } else {
-                    // 未归还，显示应归还日期
-                    if (borrowTime != null) {
-                        long dueTimeMillis = borrowTime.getTime() + SystemConfig.DUE_PERIOD_MILLIS;
-                        Timestamp dueDate = new Timestamp(dueTimeMillis);
-                        row.add(dueDate.toString());
-                    } else {
-                        row.add("-");
-                    }
-                }
-
-                // ★ 第5列：是否归还
-                String returnStatus;
-                if (isReturned == 1) {
-                    returnStatus = "已归还";
-                } else if (isReturned == 2) {
-                    returnStatus = "遗失";
-                } else {
-                    returnStatus = "未归还";
-                }
-                row.add(returnStatus);
-
-                // ★★★ 第6列：状态（简化显示）
-                String resolution = rs.getString("resolution");
-                double fineAmount = rs.getDouble("fine_amount");
-                String statusText;
-
-                if (isReturned == 1) {
-                    // 已归还
-                    if (fineAmount > 0) {
-                        // ★ 有罚款，只显示"超期罚款"
-                        statusText = "超期罚款";
-                    } else if (resolution != null && resolution.contains("遗失")) {
-                        statusText = "遗失罚款";
-                    } else {
-                        statusText = "正常归还";
-                    }
-                } else if (isReturned == 2) {
-                    // 遗失
-                    if (resolution != null && resolution.contains("新书替换")) {
-                        statusText = "遗失 - 新书替换";
-                    } else {
-                        statusText = "遗失 - 罚款处理";
-                    }
-                } else {
-                    // 未归还，计算是否超期
-                    if (borrowTime != null) {
-                        long currentTime = System.currentTimeMillis();
-                        long dueTimeMillis = borrowTime.getTime() + SystemConfig.DUE_PERIOD_MILLIS;
-
-                        if (currentTime > dueTimeMillis) {
-                            long overdueMillis = currentTime - dueTimeMillis;
-                            long overduePeriod = SystemConfig.calculateOverduePeriod(overdueMillis);
-                            statusText = String.format("已超期 %d %s", overduePeriod, SystemConfig.getTimeUnitText());
-                        } else {
-                            long remainingMillis = dueTimeMillis - currentTime;
-                            long remainingPeriod = SystemConfig.calculateRemainingPeriod(remainingMillis);
-                            statusText = String.format("借阅中（剩余 %d %s）", remainingPeriod, SystemConfig.getTimeUnitText());
-                        }
-                    } else {
-                        statusText = "数据异常";
-                    }
-                }
-                row.add(statusText);
-
-                // ★ 第7列：罚款金额
-                boolean finePaid = rs.getBoolean("fine_paid");
-
-                String fineText;
-                if (fineAmount > 0) {
-                    if (finePaid) {
-                        fineText = String.format("%.2f 元（已支付）", fineAmount);
-                    } else {
-                        fineText = String.format("%.2f 元（待支付）", fineAmount);
-                    }
-                } else {
-                    fineText = "-";
-                }
-                row.add(fineText);
-
-                data.add(row);
-            }
-        } catch (SQLException e) {
-            throw new DBException("查询借阅记录失败: " + e.getMessage(), e);
-        }
-
-        return new DefaultTableModel(data, cols) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-    }
-
 
     private static final int DUE_DAYS = 30;
 
-    /**
-     * ★ 获取所有借阅记录（管理员用）- 修复遗失状态显示
-     */
-    public DefaultTableModel getAllBorrowRecordsModel() throws DBException {
-        Vector<String> cols = new Vector<>();
-        cols.add("记录ID");
-        cols.add("图书ID");
-        cols.add("图书名称");
-        cols.add("用户ID");
-        cols.add("用户名");
-        cols.add("借出日期");
-        cols.add("应还日期");
-        cols.add("是否归还");
-        cols.add("状态");
-        cols.add("罚款状态");
-
-        Vector<Vector<Object>> data = new Vector<>();
-
-        String sql = "SELECT br.id, br.book_id, b.title, br.user_id, u.username, " +
-                "br.borrow_time, br.return_time, br.is_returned, br.resolution, " +
-                "br.fine_amount, br.fine_paid " +
-                "FROM borrow_records br " +
-                "JOIN books b ON br.book_id = b.id " +
-                "JOIN users u ON br.user_id = u.id " +
-                "ORDER BY br.borrow_time DESC";
-
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("id"));
-                row.add(rs.getInt("book_id"));
-                row.add(rs.getString("title"));
-                row.add(rs.getInt("user_id"));
-                row.add(rs.getString("username"));
-
-                Timestamp borrowTime = rs.getTimestamp("borrow_time");
-                row.add(borrowTime != null ? borrowTime.toString() : "-");
-
-                Timestamp returnTime = rs.getTimestamp("return_time");
-                int isReturned = rs.getInt("is_returned");
-
-                // ★ 应还日期
-                if (borrowTime != null) {
-                    long dueTimeMillis = borrowTime.getTime() + SystemConfig.DUE_PERIOD_MILLIS;
-                    Timestamp dueDate = new Timestamp(dueTimeMillis);
-                    row.add(dueDate.toString());
-                } else {
-                    row.add("-");
-                }
-
-                // ★★★ 是否归还（修复：新书替换显示为"已归还"）
-                String resolution = rs.getString("resolution");
-                String returnStatus;
-                if (isReturned == 1) {
-                    returnStatus = "已归还";
-                } else if (isReturned == 2) {
-                    // ★ 检查是否是新书替换
-                    if (resolution != null && resolution.contains("新书替换")) {
-                        returnStatus = "已归还";  // ← 新书替换显示为"已归还"
-                    } else {
-                        returnStatus = "遗失";    // ← 遗失罚款显示为"遗失"
-                    }
-                } else {
-                    returnStatus = "未归还";
-                }
-                row.add(returnStatus);
-
-
-                // ★★★ 状态列（根据 resolution 字段判断）
-                double fineAmount = rs.getDouble("fine_amount");
-                String statusText;
-
-                if (isReturned == 1) {
-                    // 已归还
-                    if (fineAmount > 0) {
-                        statusText = "超期罚款";
-                    } else if (resolution != null && resolution.contains("遗失")) {
-                        statusText = "遗失罚款";
-                    } else {
-                        statusText = "正常归还";
-                    }
-                } else if (isReturned == 2) {
-                    // ★★★ 遗失 - 根据 resolution 判断处理方式
-                    if (resolution != null) {
-                        if (resolution.contains("新书替换")) {
-                            statusText = "新书替换";
-                        } else if (resolution.contains("遗失") && resolution.contains("罚款")) {
-                            statusText = "遗失罚款";
-                        } else {
-                            // 兼容旧数据
-                            statusText = "遗失罚款";
-                        }
-                    } else {
-                        // resolution 为空，根据罚款金额判断
-                        if (fineAmount > 0) {
-                            statusText = "遗失罚款";
-                        } else {
-                            statusText = "新书替换";
-                        }
-                    }
-                } else {
-                    // 未归还，计算是否超期
-                    if (borrowTime != null) {
-                        long currentTime = System.currentTimeMillis();
-                        long dueTimeMillis = borrowTime.getTime() + SystemConfig.DUE_PERIOD_MILLIS;
-
-                        if (currentTime > dueTimeMillis) {
-                            long overdueMillis = currentTime - dueTimeMillis;
-                            long overduePeriod = SystemConfig.calculateOverduePeriod(overdueMillis);
-                            statusText = String.format("已超期 %d %s", overduePeriod, SystemConfig.getTimeUnitText());
-                        } else {
-                            long remainingMillis = dueTimeMillis - currentTime;
-                            long remainingPeriod = SystemConfig.calculateRemainingPeriod(remainingMillis);
-                            statusText = String.format("借阅中（剩余 %d %s）", remainingPeriod, SystemConfig.getTimeUnitText());
-                        }
-                    } else {
-                        statusText = "数据异常";
-                    }
-                }
-                row.add(statusText);
-
-                // ★ 罚款状态
-                boolean finePaid = rs.getBoolean("fine_paid");
-                String fineText;
-                if (fineAmount > 0) {
-                    if (finePaid) {
-                        fineText = String.format("%.2f 元（已支付）", fineAmount);
-                    } else {
-                        fineText = String.format("%.2f 元（待支付）", fineAmount);
-                    }
-                } else {
-                    fineText = "-";
-                }
-                row.add(fineText);
-
-                data.add(row);
-            }
-        } catch (SQLException e) {
-            throw new DBException("查询借阅记录失败: " + e.getMessage(), e);
-        }
-
-        return new DefaultTableModel(data, cols) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-    }
-
 
     /**
      * 处理图书遗失（事务操作）。
@@ -638,56 +547,65 @@ public class BookDAO {
 
             String title = null;
             String author = null;
-            String currentStatus = null;
+            BookStatus currentStatus = null;
+            int version = 0;
 
-            String querySql = "SELECT title, author, status FROM books WHERE id = ?";
+            String querySql = "SELECT title, author, status, version FROM books WHERE id = ?";
             try (PreparedStatement ps = conn.prepareStatement(querySql)) {
                 ps.setInt(1, bookId);
                 ResultSet rs = ps.executeQuery();
                 if (rs.next()) {
                     title = rs.getString("title");
                     author = rs.getString("author");
-                    currentStatus = rs.getString("status");
+                    currentStatus = BookStatus.fromCode(rs.getInt("status"));
+                    version = rs.getInt("version");
                 } else {
                     throw new BusinessException("找不到 ID 为 " + bookId + " 的图书。");
                 }
             }
 
-            if (!"borrowed".equalsIgnoreCase(currentStatus) && !"borrowed".equalsIgnoreCase(currentStatus)) {
+            if (currentStatus != BookStatus.BORROWED) {
                 throw new BusinessException("图书状态异常（当前: " + currentStatus + "），只有[已借出]的书才能处理遗失。");
             }
 
             if ("Replacement".equals(resolutionType)) {
-                String insertNewSql = "INSERT INTO books (title, author, status) VALUES (?, ?, '可借阅')";
+                String insertNewSql = "INSERT INTO books (title, author, status) VALUES (?, ?, " + STATUS_AVAILABLE + ")";
                 try (PreparedStatement ps = conn.prepareStatement(insertNewSql, Statement.RETURN_GENERATED_KEYS)) {
                     ps.setString(1, title);
                     ps.setString(2, author);
                     ps.executeUpdate();
                 }
 
-                String deleteOldSql = "UPDATE books SET status = '已删除' WHERE id = ?";
+                String deleteOldSql = "UPDATE books SET status = " + STATUS_DELETED + ", version = version + 1 " +
+                        "WHERE id = ? AND version = ?";
                 try (PreparedStatement ps = conn.prepareStatement(deleteOldSql)) {
                     ps.setInt(1, bookId);
-                    ps.executeUpdate();
+                    ps.setInt(2, version);
+                    checkVersion(ps.executeUpdate());
                 }
+                HoldDAO.cancelAllForBook(conn, bookId);
 
-                String closeRecordSql = "UPDATE borrow_records SET return_time = NOW(), is_returned = 1, fine_amount = 0, resolution = '新书替换(旧书已删/新书已上架)' WHERE book_id = ? AND is_returned = 0";
+                String closeRecordSql = "UPDATE borrow_records SET return_time = NOW(), is_returned = 1, version = version + 1, fine_amount = 0, resolution = '新书替换(旧书已删/新书已上架)' WHERE book_id = ? AND is_returned = 0";
                 try (PreparedStatement ps = conn.prepareStatement(closeRecordSql)) {
                     ps.setInt(1, bookId);
                     int rows = ps.executeUpdate();
                     if (rows == 0) throw new BusinessException("未找到活跃借阅记录。");
                 }
 
-                logDAO.logOperation("遗失处理: ID " + bookId + " 已删除，新书已上架替换。");
+                logDAO.logEvent(LogEventType.BOOK_LOST, bookId, JsonUtil.object("resolution", "Replacement"),
+                        "遗失处理: ID " + bookId + " 已删除，新书已上架替换。");
 
             } else {
-                String markLostSql = "UPDATE books SET status = 'lost' WHERE id = ?";
+                String markLostSql = "UPDATE books SET status = " + STATUS_LOST + ", version = version + 1 " +
+                        "WHERE id = ? AND version = ?";
                 try (PreparedStatement ps = conn.prepareStatement(markLostSql)) {
                     ps.setInt(1, bookId);
-                    ps.executeUpdate();
+                    ps.setInt(2, version);
+                    checkVersion(ps.executeUpdate());
                 }
+                HoldDAO.cancelAllForBook(conn, bookId);
 
-                String closeRecordSql = "UPDATE borrow_records SET return_time = NOW(), is_returned = 1, fine_amount = ?, resolution = '遗失罚款' WHERE book_id = ? AND is_returned = 0";
+                String closeRecordSql = "UPDATE borrow_records SET return_time = NOW(), is_returned = 1, version = version + 1, fine_amount = ?, resolution = '遗失罚款' WHERE book_id = ? AND is_returned = 0";
                 try (PreparedStatement ps = conn.prepareStatement(closeRecordSql)) {
                     ps.setDouble(1, amount);
                     ps.setInt(2, bookId);
@@ -695,7 +613,8 @@ public class BookDAO {
                     if (rows == 0) throw new BusinessException("未找到活跃借阅记录。");
                 }
 
-                logDAO.logOperation("遗失处理: ID " + bookId + " 标记为遗失，罚款: " + amount);
+                logDAO.logEvent(LogEventType.BOOK_LOST, bookId, JsonUtil.object("resolution", "Fine", "amount", amount),
+                        "遗失处理: ID " + bookId + " 标记为遗失，罚款: " + amount);
             }
 
             conn.commit();
@@ -712,12 +631,13 @@ public class BookDAO {
     }
 
     /**
-     * 统计特定状态的图书数量。
+     * 统计特定状态的图书数量（走 status 索引）。
+     * @param status 图书状态，null 表示统计除已删除外的全部图书
      */
-    public int getBookCountByStatus(String status) {
+    public int getBookCountByStatus(BookStatus status) {
         String sql;
         if (status == null) {
-            sql = "SELECT COUNT(*) FROM books WHERE status != '已删除'";
+            sql = "SELECT COUNT(*) FROM books WHERE status != " + STATUS_DELETED;
         } else {
             sql = "SELECT COUNT(*) FROM books WHERE status = ?";
         }
@@ -726,7 +646,7 @@ public class BookDAO {
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             if (status != null) {
-                ps.setString(1, status);
+                ps.setInt(1, status.getCode());
             }
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -740,136 +660,6 @@ public class BookDAO {
         return 0;
     }
 
-    /**
-     * ★ 获取所有借阅记录（管理员用）- 显示归还时间
-     * 与 getAllBorrowRecordsModel() 的区别：
-     * 1. 第7列显示"归还时间"而不是"应还时间"
-     * 2. 第8列不显示超期计算，只显示简单状态
-     */
-    /**
-     * ★ 获取所有借阅记录（管理员用）- 显示归还时间
-     * ★★★ 修复：新书替换的记录显示为"已归还"
-     */
-    public DefaultTableModel getAllBorrowRecordsModelForAdmin() throws DBException {
-        Vector<String> cols = new Vector<>();
-        cols.add("记录ID");
-        cols.add("图书ID");
-        cols.add("图书名称");
-        cols.add("用户ID");
-        cols.add("用户名");
-        cols.add("借出日期");
-        cols.add("归还日期");
-        cols.add("是否归还");
-        cols.add("状态");
-
-        Vector<Vector<Object>> data = new Vector<>();
-
-        String sql = "SELECT br.id, br.book_id, b.title, br.user_id, u.username, " +
-                "br.borrow_time, br.return_time, br.is_returned, br.resolution, " +
-                "br.fine_amount, br.fine_paid " +
-                "FROM borrow_records br " +
-                "JOIN books b ON br.book_id = b.id " +
-                "JOIN users u ON br.user_id = u.id " +
-                "ORDER BY br.borrow_time DESC";
-
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("id"));
-                row.add(rs.getInt("book_id"));
-                row.add(rs.getString("title"));
-                row.add(rs.getInt("user_id"));
-                row.add(rs.getString("username"));
-
-                // 借出时间
-                Timestamp borrowTime = rs.getTimestamp("borrow_time");
-                row.add(borrowTime != null ? borrowTime.toString() : "-");
-
-                // 归还时间
-                Timestamp returnTime = rs.getTimestamp("return_time");
-                row.add(returnTime != null ? returnTime.toString() : "-");
-
-                // ★★★ 是否归还状态（根据 resolution 判断新书替换）
-                int isReturned = rs.getInt("is_returned");
-                String resolution = rs.getString("resolution");
-                String returnStatus;
-
-                if (isReturned == 1) {
-                    returnStatus = "已归还";
-                } else if (isReturned == 2) {
-                    // ★★★ 关键修复：新书替换视为"已归还"
-                    if (resolution != null && resolution.contains("新书替换")) {
-                        returnStatus = "已归还";  // 新书替换 → 已归还
-                    } else {
-                        returnStatus = "遗失";     // 遗失罚款 → 遗失
-                    }
-                } else {
-                    returnStatus = "未归还";
-                }
-                row.add(returnStatus);
-
-                // ★ 状态列（详细说明）
-                double fineAmount = rs.getDouble("fine_amount");
-                boolean finePaid = rs.getBoolean("fine_paid");
-                String statusText;
-
-                if (isReturned == 1) {
-                    // 正常归还
-                    if (fineAmount > 0) {
-                        if (finePaid) {
-                            statusText = String.format("超期归还（已支付罚款 %.2f 元）", fineAmount);
-                        } else {
-                            statusText = String.format("超期归还（待支付罚款 %.2f 元）", fineAmount);
-                        }
-                    } else {
-                        statusText = "正常归还";
-                    }
-                } else if (isReturned == 2) {
-                    // ★★★ 遗失状态（区分新书替换和罚款处理）
-                    if (resolution != null && resolution.contains("新书替换")) {
-                        statusText = "新书替换";  // 显示为"新书替换"
-                    } else if (resolution != null && resolution.contains("罚款")) {
-                        statusText = String.format("遗失罚款（%.2f 元）", fineAmount);
-                    } else {
-                        // 兼容旧数据
-                        if (fineAmount > 0) {
-                            statusText = String.format("遗失罚款（%.2f 元）", fineAmount);
-                        } else {
-                            statusText = "新书替换";
-                        }
-                    }
-                } else {
-                    // 未归还
-                    if (fineAmount > 0) {
-                        if (finePaid) {
-                            statusText = String.format("借阅中（已支付罚款 %.2f 元）", fineAmount);
-                        } else {
-                            statusText = String.format("借阅中（待支付罚款 %.2f 元）", fineAmount);
-                        }
-                    } else {
-                        statusText = "借阅中";
-                    }
-                }
-                row.add(statusText);
-
-                data.add(row);
-            }
-        } catch (SQLException e) {
-            throw new DBException("查询借阅记录失败: " + e.getMessage(), e);
-        }
-
-        return new DefaultTableModel(data, cols) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-    }
-
 
     /**
      * 查询用户对某本书的待支付罚款
@@ -904,18 +694,36 @@ public class BookDAO {
      * @param finePayment 支付的罚款金额（如果没有罚款传0）
      */
     public void returnBook(int bookId, int userId, double finePayment) throws DBException, BusinessException {
+        returnBook(null, bookId, userId, finePayment);
+    }
+
+    /**
+     * 归还图书（带操作编号）：超时后用同一编号重试不会重复归还或重复收取罚款
+     * @param operationId 客户端生成的操作编号，null 表示不去重
+     */
+    public void returnBook(String operationId, int bookId, int userId, double finePayment)
+            throws DBException, BusinessException {
+        if (Double.isNaN(finePayment) || Double.isInfinite(finePayment) || finePayment < 0) {
+            throw new BusinessException("支付金额无效。");
+        }
         Connection conn = null;
         try {
             conn = DBHelper.getConnection();
             conn.setAutoCommit(false);
 
+            if (CirculationOps.claim(conn, operationId, userId, CirculationOps.RETURN, bookId)) {
+                conn.rollback();
+                return;
+            }
+
             // 1. 查询借阅记录和罚款信息
-            String checkSql = "SELECT id, fine_amount, fine_paid FROM borrow_records " +
+            String checkSql = "SELECT id, fine_amount, fine_paid, version FROM borrow_records " +
                     "WHERE book_id = ? AND user_id = ? AND is_returned = 0";
 
             int borrowId = 0;
             double fineAmount = 0;
             boolean finePaid = false;
+            int version = 0;
 
             try (PreparedStatement ps = conn.prepareStatement(checkSql)) {
                 ps.setInt(1, bookId);
@@ -926,6 +734,7 @@ public class BookDAO {
                     borrowId = rs.getInt("id");
                     fineAmount = rs.getDouble("fine_amount");
                     finePaid = rs.getBoolean("fine_paid");
+                    version = rs.getInt("version");
                 } else {
                     throw new BusinessException("还书失败：您不是该书的借阅人，或该书已归还。");
                 }
@@ -953,28 +762,29 @@ public class BookDAO {
             String updateRecordSql;
             if (fineAmount > 0) {
                 updateRecordSql = "UPDATE borrow_records " +
-                        "SET return_time = NOW(), is_returned = 1, fine_paid = 1, " +
+                        "SET return_time = NOW(), is_returned = 1, fine_paid = 1, version = version + 1, " +
                         "resolution = CONCAT(IFNULL(resolution, ''), ' 正常归还（已支付罚款 ', ?, ' 元）') " +
-                        "WHERE id = ?";
+                        "WHERE id = ? AND version = ?";
             } else {
                 updateRecordSql = "UPDATE borrow_records " +
-                        "SET return_time = NOW(), is_returned = 1, " +
+                        "SET return_time = NOW(), is_returned = 1, version = version + 1, " +
                         "resolution = '正常归还' " +
-                        "WHERE id = ?";
+                        "WHERE id = ? AND version = ?";
             }
 
+            // ★ 按读取时的版本号更新：期间管理员记录了罚款等修改时不会按旧的罚款信息归还
             try (PreparedStatement ps = conn.prepareStatement(updateRecordSql)) {
+                int index = 1;
                 if (fineAmount > 0) {
-                    ps.setDouble(1, fineAmount);
-                    ps.setInt(2, borrowId);
-                } else {
-                    ps.setInt(1, borrowId);
+                    ps.setDouble(index++, fineAmount);
                 }
-                ps.executeUpdate();
+                ps.setInt(index++, borrowId);
+                ps.setInt(index, version);
+                checkVersion(ps.executeUpdate());
             }
 
-            // 4. 更新图书状态
-            String updateBookSql = "UPDATE books SET status='available' WHERE id=? AND status='borrowed'";
+            // 4. 更新图书状态；有人预约时在同一事务中分配给队首读者
+            String updateBookSql = "UPDATE books SET status=" + STATUS_AVAILABLE + ", version=version+1 WHERE id=? AND status=" + STATUS_BORROWED;
             try (PreparedStatement ps = conn.prepareStatement(updateBookSql)) {
                 ps.setInt(1, bookId);
                 int rows = ps.executeUpdate();
@@ -982,20 +792,24 @@ public class BookDAO {
                     throw new BusinessException("还书失败：图书状态异常，请联系管理员。");
                 }
             }
+            HoldDAO.allocateNext(conn, bookId);
 
             conn.commit();
 
             // 5. 记录日志
             if (fineAmount > 0) {
-                logDAO.logOperation("成功归还图书 ID: " + bookId +
+                logDAO.logEvent(LogEventType.BOOK_RETURNED, bookId, JsonUtil.object("userId", userId, "finePaid", fineAmount),
+                        "成功归还图书 ID: " + bookId +
                         ", 用户 ID: " + userId +
                         ", 已支付罚款: " + fineAmount + " 元");
             } else {
-                logDAO.logOperation("成功归还图书 ID: " + bookId + ", 用户 ID: " + userId);
+                logDAO.logEvent(LogEventType.BOOK_RETURNED, bookId, JsonUtil.object("userId", userId),
+                        "成功归还图书 ID: " + bookId + ", 用户 ID: " + userId);
             }
 
         } catch (BusinessException e) {
             try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
+            CirculationOps.recordRejected(operationId, userId, CirculationOps.RETURN, bookId, e);
             throw e;
         } catch (SQLException e) {
             try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
@@ -1047,127 +861,93 @@ public class BookDAO {
 
     /**
      * ★ 新增：管理员记录超期罚款（只记录罚款，不自动归还）
+     * 按界面读取记录时的版本号更新，期间用户已归还或其他管理员已修改时不覆盖。
      * @param borrowId 借阅记录ID
      * @param fineAmount 罚款金额
+     * @param expectedVersion 读取借阅记录时的版本号（BorrowRecord.getVersion()）
+     * @throws OptimisticLockException 记录在读取之后已被修改
+     */
+    public void recordOverdueFine(int borrowId, double fineAmount, int expectedVersion)
+            throws DBException, BusinessException {
+        recordOverdueFine(null, borrowId, fineAmount, expectedVersion);
+    }
+
+    /**
+     * 记录超期罚款（带操作编号）：超时后用同一编号重试不会重复记录
+     * @param operationId 客户端生成的操作编号，null 表示不去重
      */
-    public void recordOverdueFine(int borrowId, double fineAmount) throws DBException {
+    public void recordOverdueFine(String operationId, int borrowId, double fineAmount, int expectedVersion)
+            throws DBException, BusinessException {
         String sql = "UPDATE borrow_records " +
-                "SET fine_amount = ?, fine_paid = 0, " +
+                "SET fine_amount = ?, fine_paid = 0, version = version + 1, " +
                 "resolution = CONCAT(IFNULL(resolution, ''), ' 超期罚款: ', ?, ' 元（待支付）') " +
-                "WHERE id = ? AND is_returned = 0";
+                "WHERE id = ? AND is_returned = 0 AND version = ?";
 
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        Connection conn = null;
+        try {
+            conn = DBHelper.getConnection();
+            conn.setAutoCommit(false);
+
+            if (CirculationOps.claim(conn, operationId, CirculationOps.currentActorId(), CirculationOps.FINE, borrowId)) {
+                conn.rollback();
+                return;
+            }
 
-            ps.setDouble(1, fineAmount);
-            ps.setDouble(2, fineAmount);
-            ps.setInt(3, borrowId);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setDouble(1, fineAmount);
+                ps.setDouble(2, fineAmount);
+                ps.setInt(3, borrowId);
+                ps.setInt(4, expectedVersion);
 
-            int rows = ps.executeUpdate();
-            if (rows == 0) {
-                throw new DBException("记录罚款失败：借阅记录不存在或已归还。");
+                int rows = ps.executeUpdate();
+                if (rows == 0) {
+                    // 只在未更新时查询原因：记录不存在或已归还，否则是版本冲突
+                    if (!isActiveRecord(conn, borrowId)) {
+                        throw new BusinessException("记录罚款失败：借阅记录不存在或已归还。");
+                    }
+                    throw new OptimisticLockException();
+                }
             }
 
-            logDAO.logOperation("管理员记录超期罚款：借阅记录ID " + borrowId +
+            conn.commit();
+            logDAO.logEvent(LogEventType.FINE_RECORDED, borrowId, JsonUtil.object("amount", fineAmount),
+                    "管理员记录超期罚款：借阅记录ID " + borrowId +
                     ", 罚款金额: " + fineAmount + " 元（待用户归还时支付）");
 
+        } catch (BusinessException e) {
+            try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
+            CirculationOps.recordRejected(operationId, CirculationOps.currentActorId(), CirculationOps.FINE, borrowId, e);
+            throw e;
         } catch (SQLException e) {
+            try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
             throw new DBException("记录罚款失败: " + e.getMessage(), e);
+        } finally {
+            try {
+                if(conn!=null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {}
         }
     }
 
-    public DefaultTableModel getCurrentBorrowedBooksModel(int userId) throws DBException {
-        Vector<String> cols = new Vector<>();
-        cols.add("图书ID");
-        cols.add("书名");
-        cols.add("作者");
-        cols.add("借出日期");
-        cols.add("应还日期");
-        cols.add("状态");
-
-        Vector<Vector<Object>> data = new Vector<>();
-
-        String sql = "SELECT br.book_id, b.title, b.author, br.borrow_time, " +
-                "br.fine_amount, br.fine_paid " +
-                "FROM borrow_records br " +
-                "JOIN books b ON br.book_id = b.id " +
-                "WHERE br.user_id = ? AND br.is_returned = 0 " +
-                "ORDER BY br.borrow_time DESC";
-
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, userId);
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("book_id"));
-                row.add(rs.getString("title"));
-                row.add(rs.getString("author"));
-
-                Timestamp borrowTime = rs.getTimestamp("borrow_time");
-                row.add(borrowTime != null ? borrowTime.toString() : "-");
-
-                if (borrowTime != null) {
-                    long dueTimeMillis = borrowTime.getTime() + SystemConfig.DUE_PERIOD_MILLIS;
-                    Timestamp dueDate = new Timestamp(dueTimeMillis);
-                    row.add(dueDate.toString());
-
-                    long currentTime = System.currentTimeMillis();
-                    double fineAmount = rs.getDouble("fine_amount");
-                    boolean finePaid = rs.getBoolean("fine_paid");
-
-                    String status;
-                    if (currentTime > dueTimeMillis) {
-                        // 已超期
-                        long overdueMillis = currentTime - dueTimeMillis;
-                        long overduePeriod = SystemConfig.calculateOverduePeriod(overdueMillis);
-
-                        if (fineAmount > 0 && !finePaid) {
-                            // ★ 管理员已记录罚款，待用户支付
-                            status = String.format("⚠ 已超期 %d %s（待支付罚款 %.2f 元）",
-                                    overduePeriod,
-                                    SystemConfig.getTimeUnitText(),
-                                    fineAmount);
-                        } else if (fineAmount > 0 && finePaid) {
-                            // 罚款已支付（不应该出现这种情况）
-                            status = String.format("已超期 %d %s（罚款已支付 %.2f 元，可归还）",
-                                    overduePeriod,
-                                    SystemConfig.getTimeUnitText(),
-                                    fineAmount);
-                        } else {
-                            // ★ 超期但管理员未记录罚款 - 禁止归还
-                            status = String.format("⚠ 已超期 %d %s（请联系管理员处理罚款）",
-                                    overduePeriod,
-                                    SystemConfig.getTimeUnitText());
-                        }
-                    } else {
-                        // 未超期
-                        long remainingMillis = dueTimeMillis - currentTime;
-                        long remainingPeriod = SystemConfig.calculateRemainingPeriod(remainingMillis);
-                        status = String.format("借阅中（剩余 %d %s）",
-                                remainingPeriod,
-                                SystemConfig.getTimeUnitText());
-                    }
-                    row.add(status);
-                } else {
-                    row.add("-");
-                    row.add("数据异常");
-                }
-
-                data.add(row);
+    private static boolean isActiveRecord(Connection conn, int borrowId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM borrow_records WHERE id = ? AND is_returned = 0")) {
+            ps.setInt(1, borrowId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
             }
-        } catch (SQLException e) {
-            throw new DBException("查询借阅记录失败: " + e.getMessage(), e);
         }
+    }
 
-        return new DefaultTableModel(data, cols) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+    /**
+     * 按版本号条件更新后检查：影响 0 行说明读取之后已被其他操作修改
+     */
+    private static void checkVersion(int rows) throws OptimisticLockException {
+        if (rows == 0) {
+            throw new OptimisticLockException();
+        }
     }
 
     /**
@@ -1176,20 +956,33 @@ public class BookDAO {
      * @param bookId 图书ID
      * @param fineAmount 罚款金额（如果是新书替换则为0）
      * @param isReplacement 是否为新书替换（true=新书替换，false=罚款处理）
+     * @param expectedVersion 读取借阅记录时的版本号（BorrowRecord.getVersion()）
+     * @throws OptimisticLockException 记录在读取之后已被修改（如用户刚刚归还）
      */
+    public void handleBookLoss(int borrowId, int bookId, double fineAmount, boolean isReplacement, int expectedVersion)
+            throws DBException, BusinessException {
+        handleBookLoss(null, borrowId, bookId, fineAmount, isReplacement, expectedVersion);
+    }
+
     /**
-     * ★ 处理图书遗失（确保正确写入 resolution）
+     * 处理图书遗失（带操作编号）：超时后用同一编号重试不会重复处理
+     * @param operationId 客户端生成的操作编号，null 表示不去重
      */
-    public void handleBookLoss(int borrowId, int bookId, double fineAmount, boolean isReplacement)
-            throws DBException, BusinessException {
+    public void handleBookLoss(String operationId, int borrowId, int bookId, double fineAmount,
+                               boolean isReplacement, int expectedVersion) throws DBException, BusinessException {
 
         Connection conn = null;
         try {
             conn = DBHelper.getConnection();
             conn.setAutoCommit(false);
 
+            if (CirculationOps.claim(conn, operationId, CirculationOps.currentActorId(), CirculationOps.LOSS, borrowId)) {
+                conn.rollback();
+                return;
+            }
+
             // 1. 检查借阅记录是否存在且未归还
-            String checkSql = "SELECT is_returned FROM borrow_records WHERE id = ?";
+            String checkSql = "SELECT is_returned, version FROM borrow_records WHERE id = ?";
             try (PreparedStatement ps = conn.prepareStatement(checkSql)) {
                 ps.setInt(1, borrowId);
                 ResultSet rs = ps.executeQuery();
@@ -1205,6 +998,9 @@ public class BookDAO {
                 if (isReturned == 2) {
                     throw new BusinessException("该图书已标记为遗失");
                 }
+                if (rs.getInt("version") != expectedVersion) {
+                    throw new OptimisticLockException();
+                }
             }
 
             // 2. 更新借阅记录
@@ -1214,34 +1010,35 @@ public class BookDAO {
             if (isReplacement) {
                 // ★ 新书替换
                 resolution = "遗失 - 新书替换";
-                updateBorrowSql = "UPDATE borrow_records SET is_returned = 2, return_time = NOW(), " +
-                        "resolution = ?, fine_amount = 0, fine_paid = 0 WHERE id = ?";
+                updateBorrowSql = "UPDATE borrow_records SET is_returned = 2, return_time = NOW(), version = version + 1, " +
+                        "resolution = ?, fine_amount = 0, fine_paid = 0 WHERE id = ? AND version = ?";
             } else {
                 // ★ 罚款处理
                 resolution = String.format("遗失 - 罚款处理: %.2f 元", fineAmount);
-                updateBorrowSql = "UPDATE borrow_records SET is_returned = 2, return_time = NOW(), " +
-                        "resolution = ?, fine_amount = ?, fine_paid = 1 WHERE id = ?";
+                updateBorrowSql = "UPDATE borrow_records SET is_returned = 2, return_time = NOW(), version = version + 1, " +
+                        "resolution = ?, fine_amount = ?, fine_paid = 1 WHERE id = ? AND version = ?";
             }
 
+            // ★ 检查之后、更新之前记录被修改（如用户恰好归还）时不生效
             try (PreparedStatement ps = conn.prepareStatement(updateBorrowSql)) {
-                ps.setString(1, resolution);
-                if (isReplacement) {
-                    ps.setInt(2, borrowId);
-                } else {
-                    ps.setDouble(2, fineAmount);
-                    ps.setInt(3, borrowId);
+                int index = 1;
+                ps.setString(index++, resolution);
+                if (!isReplacement) {
+                    ps.setDouble(index++, fineAmount);
                 }
-                ps.executeUpdate();
+                ps.setInt(index++, borrowId);
+                ps.setInt(index, expectedVersion);
+                checkVersion(ps.executeUpdate());
             }
 
             // 3. 更新图书状态
             String updateBookSql;
             if (isReplacement) {
                 // 新书替换 - 恢复为可借阅
-                updateBookSql = "UPDATE books SET status = 'available' WHERE id = ?";
+                updateBookSql = "UPDATE books SET status = " + STATUS_AVAILABLE + ", version = version + 1 WHERE id = ?";
             } else {
                 // 罚款处理 - 标记为遗失
-                updateBookSql = "UPDATE books SET status = 'lost' WHERE id = ?";
+                updateBookSql = "UPDATE books SET status = " + STATUS_LOST + ", version = version + 1 WHERE id = ?";
             }
 
             try (PreparedStatement ps = conn.prepareStatement(updateBookSql)) {
@@ -1249,8 +1046,23 @@ public class BookDAO {
                 ps.executeUpdate();
             }
 
+            // 4. 预约队列：新书替换后分配给队首读者，遗失则取消全部预约并通知
+            if (isReplacement) {
+                HoldDAO.allocateNext(conn, bookId);
+            } else {
+                HoldDAO.cancelAllForBook(conn, bookId);
+            }
+
             conn.commit();
 
+            logDAO.logEvent(LogEventType.BOOK_LOST, bookId,
+                    JsonUtil.object("borrowId", borrowId, "replacement", isReplacement, "amount", fineAmount),
+                    "遗失处理: 借阅记录ID " + borrowId + ", 图书 ID " + bookId + ", " + resolution);
+
+        } catch (BusinessException e) {
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) {}
+            CirculationOps.recordRejected(operationId, CirculationOps.currentActorId(), CirculationOps.LOSS, borrowId, e);
+            throw e;
         } catch (SQLException e) {
             if (conn != null) {
                 try {
@@ -1277,19 +1089,34 @@ public class BookDAO {
      * ★ 如果有超期但未记录罚款，禁止归还
      */
     public void returnBook(int bookId, int userId) throws DBException, BusinessException {
+        returnBook(null, bookId, userId);
+    }
+
+    /**
+     * 归还图书（带操作编号，不支付罚款）
+     * @param operationId 客户端生成的操作编号，null 表示不去重
+     */
+    public void returnBook(String operationId, int bookId, int userId) throws DBException, BusinessException {
         Connection conn = null;
         try {
             conn = DBHelper.getConnection();
             conn.setAutoCommit(false);
 
+            if (CirculationOps.claim(conn, operationId, userId, CirculationOps.RETURN, bookId)) {
+                conn.rollback();
+                return;
+            }
+
             // ✅ 1. 查询借阅记录和罚款信息
-            String checkSql = "SELECT id, borrow_time, fine_amount, fine_paid FROM borrow_records " +
+            String checkSql = "SELECT id, borrow_time, due_time, fine_amount, fine_paid, version FROM borrow_records " +
                     "WHERE book_id = ? AND user_id = ? AND is_returned = 0";
 
             int borrowId = 0;
             Timestamp borrowTime = null;
+            Timestamp dueTime = null;
             double fineAmount = 0;
             boolean finePaid = false;
+            int version = 0;
 
             try (PreparedStatement psCheck = conn.prepareStatement(checkSql)) {
                 psCheck.setInt(1, bookId);
@@ -1299,8 +1126,10 @@ public class BookDAO {
                 if (rs.next()) {
                     borrowId = rs.getInt("id");
                     borrowTime = rs.getTimestamp("borrow_time");
+                    dueTime = rs.getTimestamp("due_time");
                     fineAmount = rs.getDouble("fine_amount");
                     finePaid = rs.getBoolean("fine_paid");
+                    version = rs.getInt("version");
                 } else {
                     throw new BusinessException("还书失败：您不是该书的借阅人，或该书已归还。");
                 }
@@ -1308,7 +1137,10 @@ public class BookDAO {
 
             // ✅ 2. 检查是否超期
             long currentTime = System.currentTimeMillis();
-            long dueTimeMillis = borrowTime.getTime() + SystemConfig.DUE_PERIOD_MILLIS;
+            // 应还时间含续借顺延（due_time 为 NOT NULL；保留按借出时间计算的兜底）
+            long dueTimeMillis = dueTime != null
+                    ? dueTime.getTime()
+                    : borrowTime.getTime() + SystemConfig.DUE_PERIOD_MILLIS;
             boolean isOverdue = currentTime > dueTimeMillis;
 
             // ★ 3. 超期检查逻辑
@@ -1338,27 +1170,32 @@ public class BookDAO {
 
             // ✅ 4. 更新借阅记录
             String sqlUpdateRecord = "UPDATE borrow_records " +
-                    "SET return_time = NOW(), is_returned = 1, " +
+                    "SET return_time = NOW(), is_returned = 1, version = version + 1, " +
                     "resolution = '正常归还' " +
-                    "WHERE id = ?";
+                    "WHERE id = ? AND version = ?";
 
             try (PreparedStatement psUpdateRecord = conn.prepareStatement(sqlUpdateRecord)) {
                 psUpdateRecord.setInt(1, borrowId);
-                psUpdateRecord.executeUpdate();
+                psUpdateRecord.setInt(2, version);
+                checkVersion(psUpdateRecord.executeUpdate());
             }
 
-            // ✅ 5. 更新图书状态
-            String sqlUpdateBook = "UPDATE books SET status='available' WHERE id=? AND status='borrowed'";
+            // ✅ 5. 更新图书状态；有人预约时在同一事务中分配给队首读者
+            String sqlUpdateBook = "UPDATE books SET status=" + STATUS_AVAILABLE + ", version=version+1 WHERE id=? AND status=" + STATUS_BORROWED;
             try (PreparedStatement psUpdateBook = conn.prepareStatement(sqlUpdateBook)) {
                 psUpdateBook.setInt(1, bookId);
-                psUpdateBook.executeUpdate();
+                if (psUpdateBook.executeUpdate() > 0) {
+                    HoldDAO.allocateNext(conn, bookId);
+                }
             }
 
             conn.commit();
-            logDAO.logOperation("成功归还图书 ID: " + bookId + ", 用户 ID: " + userId);
+            logDAO.logEvent(LogEventType.BOOK_RETURNED, bookId, JsonUtil.object("userId", userId),
+                    "成功归还图书 ID: " + bookId + ", 用户 ID: " + userId);
 
         } catch (BusinessException e) {
             try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
+            CirculationOps.recordRejected(operationId, userId, CirculationOps.RETURN, bookId, e);
             throw e;
         } catch (SQLException e) {
             try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
@@ -1373,5 +1210,236 @@ public class BookDAO {
         }
     }
 
+    // ============================================================
+    // ★ 续借
+    // 续借条件全部写在一条条件 UPDATE 里：未归还、未超期、没有罚款、未达续借上限、该书没有排队预约的读者。
+    // 成功时只有一次更新；未命中时才查询原因给出提示。
+    // ============================================================
+
+    private static final String SQL_RENEW = "UPDATE borrow_records br " +
+            "SET br.due_time = br.due_time + INTERVAL " + DUE_PERIOD_SECONDS + " SECOND, " +
+            "br.renew_count = br.renew_count + 1, br.version = br.version + 1 " +
+            "WHERE br.id = ? AND br.user_id = ? AND br.is_returned = 0 " +
+            "AND br.due_time >= NOW() AND IFNULL(br.fine_amount, 0) = 0 " +
+            "AND br.renew_count < " + SystemConfig.MAX_RENEW_COUNT + " " +
+            "AND NOT EXISTS (SELECT 1 FROM book_holds h WHERE h.book_id = br.book_id " +
+            "AND h.status = " + HoldStatus.WAITING.getCode() + ")";
+
+    /**
+     * ★ 续借：应还时间顺延一个借阅期
+     * @return 新的应还时间
+     * @throws BusinessException 不满足续借条件（已超期、有罚款、达到续借上限、有读者预约等）
+     */
+    public Timestamp renewLoan(int borrowId, int userId) throws DBException, BusinessException {
+        return renewLoan(null, borrowId, userId);
+    }
+
+    /**
+     * 续借（带操作编号）：超时后用同一编号重试不会重复顺延
+     * @param operationId 客户端生成的操作编号，null 表示不去重
+     */
+    public Timestamp renewLoan(String operationId, int borrowId, int userId) throws DBException, BusinessException {
+        Connection conn = null;
+        try {
+            conn = DBHelper.getConnection();
+            conn.setAutoCommit(false);
+
+            if (CirculationOps.claim(conn, operationId, userId, CirculationOps.RENEW, borrowId)) {
+                conn.rollback();
+                return dueTimeOf(conn, borrowId);
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(SQL_RENEW)) {
+                ps.setInt(1, borrowId);
+                ps.setInt(2, userId);
+                if (ps.executeUpdate() == 0) {
+                    throw new BusinessException(renewFailureReason(conn, borrowId, userId));
+                }
+            }
+            Timestamp dueTime = dueTimeOf(conn, borrowId);
+
+            LogEvent event = renewEvent(borrowId, userId, dueTime);
+            boolean logged = false;
+            try {
+                logDAO.insertEvent(conn, event);
+                logged = true;
+            } catch (SQLException e) {
+                if (LogDAO.abortsTransaction(e)) {
+                    throw e;
+                }
+                System.err.println("续借日志写入失败，稍后补记: " + e.getMessage());
+            }
+
+            conn.commit();
+            if (logged) {
+                logDAO.onCommitted(1);
+            } else {
+                logDAO.logEvent(event);
+            }
+            return dueTime;
+
+        } catch (BusinessException e) {
+            try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
+            CirculationOps.recordRejected(operationId, userId, CirculationOps.RENEW, borrowId, e);
+            throw e;
+        } catch (SQLException e) {
+            try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
+            throw new DBException("续借失败: " + e.getMessage(), e);
+        } finally {
+            try {
+                if(conn!=null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * ★ 批量续借：在一个事务中续借列表中所有符合条件的借阅，不符合条件的跳过
+     * 每条记录按界面读取时的版本号更新（条件与 {@link #renewLoan} 相同），
+     * 超时后重试时已续借的记录版本号已变化，不会被再顺延一次。
+     * @param loans 界面上显示的借阅记录（BorrowRecord.getVersion() 为读取时的版本号）
+     * @return 已续借的记录
+     */
+    public List<BorrowRecord> renewLoans(int userId, List<BorrowRecord> loans) throws DBException {
+        List<BorrowRecord> renewed = new ArrayList<>();
+        if (loans.isEmpty()) {
+            return renewed;
+        }
+        Connection conn = null;
+        try {
+            conn = DBHelper.getConnection();
+            conn.setAutoCommit(false);
+
+            int[] counts;
+            try (PreparedStatement ps = conn.prepareStatement(SQL_RENEW + " AND br.version = ?")) {
+                for (BorrowRecord loan : loans) {
+                    ps.setInt(1, loan.getId());
+                    ps.setInt(2, userId);
+                    ps.setInt(3, loan.getVersion());
+                    ps.addBatch();
+                }
+                counts = ps.executeBatch();
+            }
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    renewed.add(loans.get(i));
+                }
+            }
+
+            // 新的应还时间一次查询读出，不逐条查询
+            Map<Integer, Timestamp> dueTimes = dueTimesOf(conn, renewed);
+            List<LogEvent> events = new ArrayList<>(renewed.size());
+            for (BorrowRecord loan : renewed) {
+                events.add(renewEvent(loan.getId(), userId, dueTimes.get(loan.getId())));
+            }
+            boolean logged = false;
+            try {
+                for (LogEvent event : events) {
+                    logDAO.insertEvent(conn, event);
+                }
+                logged = true;
+            } catch (SQLException e) {
+                if (LogDAO.abortsTransaction(e)) {
+                    throw e;
+                }
+                System.err.println("续借日志写入失败，稍后补记: " + e.getMessage());
+            }
+
+            conn.commit();
+            if (logged) {
+                logDAO.onCommitted(events.size());
+            } else if (!events.isEmpty()) {
+                logDAO.logEvents(events);
+            }
+            return renewed;
+
+        } catch (SQLException e) {
+            try { if(conn!=null) conn.rollback(); } catch (SQLException ex) {}
+            throw new DBException("批量续借失败: " + e.getMessage(), e);
+        } finally {
+            try {
+                if(conn!=null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {}
+        }
+    }
+
+    private static LogEvent renewEvent(int borrowId, int userId, Timestamp dueTime) {
+        return new LogEvent(LogEventType.LOAN_RENEWED, borrowId,
+                JsonUtil.object("userId", userId, "dueTime", dueTime),
+                "续借成功：借阅记录ID " + borrowId + ", 用户 ID: " + userId + ", 新的应还时间: " + dueTime);
+    }
+
+    private static Timestamp dueTimeOf(Connection conn, int borrowId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT due_time FROM borrow_records WHERE id = ?")) {
+            ps.setInt(1, borrowId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getTimestamp(1) : null;
+            }
+        }
+    }
+
+    /**
+     * 一次查询读出多条借阅记录的应还时间
+     */
+    private static Map<Integer, Timestamp> dueTimesOf(Connection conn, List<BorrowRecord> loans) throws SQLException {
+        Map<Integer, Timestamp> dueTimes = new HashMap<>();
+        if (loans.isEmpty()) {
+            return dueTimes;
+        }
+        StringBuilder sql = new StringBuilder("SELECT id, due_time FROM borrow_records WHERE id IN (");
+        for (int i = 0; i < loans.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < loans.size(); i++) {
+                ps.setInt(i + 1, loans.get(i).getId());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    dueTimes.put(rs.getInt(1), rs.getTimestamp(2));
+                }
+            }
+        }
+        return dueTimes;
+    }
+
+    /**
+     * 续借失败的原因（只在条件更新未命中时查询）
+     */
+    private static String renewFailureReason(Connection conn, int borrowId, int userId) throws SQLException {
+        String sql = "SELECT br.renew_count, br.fine_amount, br.due_time < NOW(), " +
+                "EXISTS (SELECT 1 FROM book_holds h WHERE h.book_id = br.book_id " +
+                "AND h.status = " + HoldStatus.WAITING.getCode() + ") " +
+                "FROM borrow_records br WHERE br.id = ? AND br.user_id = ? AND br.is_returned = 0";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, borrowId);
+            ps.setInt(2, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return "续借失败：借阅记录不存在或已归还。";
+                }
+                if (rs.getInt(1) >= SystemConfig.MAX_RENEW_COUNT) {
+                    return "续借失败：每次借阅最多续借 " + SystemConfig.MAX_RENEW_COUNT + " 次，请按时归还。";
+                }
+                if (rs.getDouble(2) > 0) {
+                    return "续借失败：该借阅有未结清的罚款，请归还时支付。";
+                }
+                if (rs.getBoolean(3)) {
+                    return "续借失败：该图书已超期，请尽快归还。";
+                }
+                if (rs.getBoolean(4)) {
+                    return "续借失败：已有其他读者预约该书，请按时归还。";
+                }
+                return "续借失败：借阅记录状态异常，请联系管理员。";
+            }
+        }
+    }
+
 } // ← 类结束
 
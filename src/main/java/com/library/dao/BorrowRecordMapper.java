@@ -0,0 +1,82 @@
+package com.library.dao;
+
+import com.library.entity.BorrowRecord;
+import com.library.entity.BorrowState;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * ★ 借阅记录的行映射（BookDAO 的各列表查询共用）
+ *
+ * - 列的顺序由 {@link #SELECT} 固定，按下标读取，不再每行每列按列名查找；
+ * - 处理状态由 SQL 中的 CASE 表达式算成一个整数（{@link BorrowState} 的序号），
+ *   Java 侧只做数组查表，不读取 resolution 字符串、不做 contains 匹配；
+ * - 只读取原始值，日期和金额的显示文字由界面在渲染时生成。
+ */
+final class BorrowRecordMapper {
+
+    private BorrowRecordMapper() {
+    }
+
+    /**
+     * 借阅记录查询的公共部分（借阅记录 br、图书 b、用户 u），后面直接拼接 WHERE / ORDER BY
+     * CASE 的取值顺序必须与 BorrowState 的声明顺序一致
+     */
+    static final String SELECT =
+            "SELECT br.id, br.book_id, b.title, b.author, br.user_id, u.username, " +
+            "br.borrow_time, br.return_time, br.is_returned, br.fine_amount, br.fine_paid, " +
+            "CASE br.is_returned " +
+            "WHEN 1 THEN CASE " +
+            "WHEN br.fine_amount > 0 THEN 2 " +
+            "WHEN br.resolution LIKE '%遗失%' THEN 3 " +
+            "ELSE 1 END " +
+            "WHEN 2 THEN CASE " +
+            "WHEN br.resolution LIKE '%新书替换%' THEN 4 " +
+            "WHEN br.fine_amount > 0 OR br.resolution LIKE '%罚款%' THEN 5 " +
+            "WHEN br.resolution IS NOT NULL THEN 6 " +
+            "ELSE 7 END " +
+            "ELSE 0 END AS state, br.version, br.due_time, br.renew_count " +
+            "FROM borrow_records br " +
+            "JOIN books b ON br.book_id = b.id " +
+            "JOIN users u ON br.user_id = u.id ";
+
+    private static final int ID = 1;
+    private static final int BOOK_ID = 2;
+    private static final int TITLE = 3;
+    private static final int AUTHOR = 4;
+    private static final int USER_ID = 5;
+    private static final int USERNAME = 6;
+    private static final int BORROW_TIME = 7;
+    private static final int RETURN_TIME = 8;
+    private static final int IS_RETURNED = 9;
+    private static final int FINE_AMOUNT = 10;
+    private static final int FINE_PAID = 11;
+    private static final int STATE = 12;
+    private static final int VERSION = 13;
+    private static final int DUE_TIME = 14;
+    private static final int RENEW_COUNT = 15;
+
+    /**
+     * 读取一行（查询必须以 {@link #SELECT} 开头）
+     */
+    static BorrowRecord read(ResultSet rs) throws SQLException {
+        BorrowRecord record = new BorrowRecord();
+        record.setId(rs.getInt(ID));
+        record.setBookId(rs.getInt(BOOK_ID));
+        record.setBookTitle(rs.getString(TITLE));
+        record.setBookAuthor(rs.getString(AUTHOR));
+        record.setUserId(rs.getInt(USER_ID));
+        record.setUsername(rs.getString(USERNAME));
+        record.setBorrowTime(rs.getTimestamp(BORROW_TIME));
+        record.setReturnTime(rs.getTimestamp(RETURN_TIME));
+        record.setIsReturned(rs.getInt(IS_RETURNED));
+        record.setFineAmount(rs.getDouble(FINE_AMOUNT));
+        record.setFinePaid(rs.getBoolean(FINE_PAID));
+        record.setState(BorrowState.fromCode(rs.getInt(STATE)));
+        record.setVersion(rs.getInt(VERSION));
+        record.setDueTime(rs.getTimestamp(DUE_TIME));
+        record.setRenewCount(rs.getInt(RENEW_COUNT));
+        return record;
+    }
+}
@@ -0,0 +1,154 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.exception.BusinessException;
+import com.library.exception.OptimisticLockException;
+import com.library.entity.User;
+import com.library.util.DBHelper;
+import com.library.util.SchemaHelper;
+import com.library.util.SessionManager;
+
+import java.sql.*;
+
+/**
+ * ★ 流通操作去重（circulation_ops 表，BookDAO 的借阅、归还、罚款、遗失处理、续借共用）
+ *
+ * 客户端为每次操作生成一个操作编号，超时后重试时沿用同一编号。编号按用户区分
+ * （借阅、归还、续借为读者，罚款、遗失为操作人）：其他用户提交了相同的编号时不会重放别人的结果，
+ * 而是作为自己的操作正常执行。
+ * - 操作在事务开始时先插入编号，与借阅记录等修改一起提交，提交了就一定有记录；
+ * - 重试时插入冲突，说明上一次已提交，直接返回成功，不再重复借阅或归还；
+ *   上一次仍在执行时，插入会等待主键上的锁，待其提交后同样按已完成处理；
+ * - 业务拒绝（如该书已被借出）随事务回滚后另行记录提示信息，重试时返回同样的提示；
+ *   版本冲突（OptimisticLockException）不记录，刷新后可以用同一编号重试。
+ *
+ * 没有操作编号（null）的调用不做去重，与原来的行为一致。
+ */
+final class CirculationOps {
+
+    static final String BORROW = "borrow";
+    static final String RETURN = "return";
+    static final String FINE = "fine";
+    static final String LOSS = "loss";
+    static final String RENEW = "renew";
+
+    private static final int OUTCOME_DONE = 0;
+    private static final int OUTCOME_REJECTED = 1;
+
+    private CirculationOps() {
+    }
+
+    /**
+     * 建表（可重复执行），由 BookDAO.ensureSchema 调用
+     */
+    static void ensureSchema(Connection conn) throws SQLException {
+        SchemaHelper.execute(conn, "CREATE TABLE IF NOT EXISTS circulation_ops (" +
+                "user_id INT NOT NULL, " +
+                "op_id VARCHAR(" + SystemConfig.CIRCULATION_OP_ID_MAX_LENGTH + ") NOT NULL, " +
+                "op_type VARCHAR(16) NOT NULL, " +
+                "target_id INT NOT NULL, " +
+                "outcome TINYINT NOT NULL, " +
+                "message VARCHAR(500) NULL, " +
+                "created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "PRIMARY KEY (user_id, op_id), " +
+                "INDEX idx_circulation_ops_created (created_at))");
+    }
+
+    /**
+     * 当前操作人的用户ID（罚款、遗失等由管理员执行的操作用它区分编号），未登录时为 0
+     */
+    static int currentActorId() {
+        User user = SessionManager.getCurrentUser();
+        return user != null ? user.getId() : 0;
+    }
+
+    /**
+     * 在当前事务中登记操作编号，必须是事务中的第一条语句
+     * @param userId 编号所属的用户
+     * @param targetId 借阅、归还为图书ID，罚款、遗失、续借为借阅记录ID
+     * @return true 表示该操作已经完成过，调用方回滚当前事务后直接返回
+     * @throws BusinessException 该操作此前被拒绝（返回原来的提示），或编号已用于其他操作
+     */
+    static boolean claim(Connection conn, String operationId, int userId, String type, int targetId)
+            throws SQLException, BusinessException {
+        if (operationId == null) {
+            return false;
+        }
+        if (operationId.isEmpty() || operationId.length() > SystemConfig.CIRCULATION_OP_ID_MAX_LENGTH) {
+            throw new BusinessException("操作编号无效");
+        }
+
+        String sql = "INSERT INTO circulation_ops (user_id, op_id, op_type, target_id, outcome) VALUES (?, ?, ?, ?, " +
+                OUTCOME_DONE + ")";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setString(2, operationId);
+            ps.setString(3, type);
+            ps.setInt(4, targetId);
+            ps.executeUpdate();
+            return false;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // 编号已存在：读取上一次的结果
+        }
+
+        String query = "SELECT op_type, target_id, outcome, message FROM circulation_ops " +
+                "WHERE user_id = ? AND op_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, userId);
+            ps.setString(2, operationId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    // 冲突的记录刚被清理，按重复操作处理比再执行一次更安全
+                    return true;
+                }
+                if (!type.equals(rs.getString(1)) || rs.getInt(2) != targetId) {
+                    throw new BusinessException("操作编号已用于其他操作，请重新提交。");
+                }
+                if (rs.getInt(3) == OUTCOME_REJECTED) {
+                    throw new BusinessException(rs.getString(4));
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 记录被拒绝的操作（在事务回滚之后调用，使用独立连接）
+     * 写入失败只打印错误：重试时会重新执行一次，结果仍按当时的数据判断
+     */
+    static void recordRejected(String operationId, int userId, String type, int targetId, BusinessException e) {
+        if (operationId == null || e instanceof OptimisticLockException) {
+            return;
+        }
+        String sql = "INSERT IGNORE INTO circulation_ops (user_id, op_id, op_type, target_id, outcome, message) " +
+                "VALUES (?, ?, ?, ?, " + OUTCOME_REJECTED + ", ?)";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setString(2, operationId);
+            ps.setString(3, type);
+            ps.setInt(4, targetId);
+            String message = e.getMessage();
+            ps.setString(5, message != null && message.length() > 500 ? message.substring(0, 500) : message);
+            ps.executeUpdate();
+        } catch (Exception ex) {
+            System.err.println("记录操作结果失败: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * 删除超过保留期限的操作编号（后台维护任务，分批删除避免长时间锁表）
+     */
+    static void purgeExpired() {
+        String sql = "DELETE FROM circulation_ops WHERE created_at < NOW() - INTERVAL ? DAY LIMIT 5000";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, SystemConfig.CIRCULATION_OP_RETENTION_DAYS);
+            while (ps.executeUpdate() > 0) {
+                // 继续删除下一批
+            }
+        } catch (Exception e) {
+            System.err.println("清理操作编号失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.entity.BookStatus;
+import com.library.entity.Hold;
+import com.library.entity.HoldStatus;
+import com.library.entity.LogEventType;
+import com.library.exception.BusinessException;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+import com.library.util.JsonUtil;
+import com.library.util.SchemaHelper;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ★ 图书预约（book_holds 表）
+ *
+ * - 每本书一个先到先得的队列：按预约 id 排队，队首由 (book_id, status, id) 索引直接取得；
+ * - 归还时在还书事务中把书分配给队首读者（{@link #allocateNext}）：图书改为"预约保留"，
+ *   预约改为"已到书"，同时写入到书通知，三者一起提交；
+ * - 预约保留的图书只有该读者能借（见 BookDAO.borrowBook），保留期内未借阅的由后台任务
+ *   {@link #expireReadyHolds()} 标记过期，并顺延给下一位读者。
+ *
+ * 锁顺序：涉及预约的事务都先锁定（或更新）books 中的图书行，再修改 book_holds，避免死锁。
+ */
+public class HoldDAO {
+
+    private static final int WAITING = HoldStatus.WAITING.getCode();
+    private static final int READY = HoldStatus.READY.getCode();
+    private static final int FULFILLED = HoldStatus.FULFILLED.getCode();
+    private static final int CANCELLED = HoldStatus.CANCELLED.getCode();
+    private static final int EXPIRED = HoldStatus.EXPIRED.getCode();
+
+    private static final int STATUS_AVAILABLE = BookStatus.AVAILABLE.getCode();
+    private static final int STATUS_BORROWED = BookStatus.BORROWED.getCode();
+    private static final int STATUS_ON_HOLD = BookStatus.ON_HOLD.getCode();
+
+    private LogDAO logDAO = new LogDAO();
+
+    /**
+     * ★ 预约表和通知表（可重复执行）
+     * 生成列 active_user_id 只在排队中或已到书时等于 user_id，唯一索引保证同一读者对同一本书最多一条有效预约
+     */
+    public static void ensureSchema() {
+        try (Connection conn = DBHelper.getConnection()) {
+            SchemaHelper.execute(conn, "CREATE TABLE IF NOT EXISTS book_holds (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "book_id INT NOT NULL, " +
+                    "user_id INT NOT NULL, " +
+                    "status TINYINT NOT NULL DEFAULT " + WAITING + ", " +
+                    "created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "ready_at DATETIME NULL, " +
+                    "expire_at DATETIME NULL, " +
+                    "active_user_id INT AS (IF(status IN (" + WAITING + ", " + READY + "), user_id, NULL)) STORED, " +
+                    "INDEX idx_holds_queue (book_id, status, id), " +
+                    "INDEX idx_holds_user (user_id, status), " +
+                    "INDEX idx_holds_expire (status, expire_at), " +
+                    "UNIQUE KEY uk_holds_active (book_id, active_user_id))");
+            NotificationDAO.ensureSchema(conn);
+        } catch (Exception e) {
+            System.err.println("预约表结构升级失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * ★ 预约图书：加入该书的预约队列
+     * 只能预约已借出或正在为他人保留的图书；可借阅的图书请直接借阅
+     * @return 在队列中的位置（从 1 开始）
+     */
+    public int placeHold(int bookId, int userId) throws DBException, BusinessException {
+        Connection conn = null;
+        try {
+            conn = DBHelper.getConnection();
+            conn.setAutoCommit(false);
+
+            // 1. 锁定图书行：与还书时的分配互斥，不会在书刚归还时加入一个无人处理的队列
+            BookStatus status = lockBook(conn, bookId);
+            if (status == null) {
+                throw new BusinessException("图书不存在");
+            }
+            if (status == BookStatus.AVAILABLE) {
+                throw new BusinessException("该书当前可借阅，请直接借阅。");
+            }
+            if (status != BookStatus.BORROWED && status != BookStatus.ON_HOLD) {
+                throw new BusinessException("该书当前状态为 [" + status.getDisplayName() + "]，无法预约。");
+            }
+
+            // 2. 借阅人不需要预约自己手中的书
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT 1 FROM borrow_records WHERE book_id = ? AND user_id = ? AND is_returned = 0")) {
+                ps.setInt(1, bookId);
+                ps.setInt(2, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        throw new BusinessException("您正在借阅该书，无需预约。");
+                    }
+                }
+            }
+
+            // 3. 有效预约数上限
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM book_holds WHERE user_id = ? AND status IN (" + WAITING + ", " + READY + ")")) {
+                ps.setInt(1, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) >= SystemConfig.HOLD_MAX_PER_USER) {
+                        throw new BusinessException("预约失败：同时有效的预约最多 " + SystemConfig.HOLD_MAX_PER_USER + " 本。");
+                    }
+                }
+            }
+
+            // 4. 加入队列（唯一索引拒绝重复预约）
+            int holdId;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO book_holds (book_id, user_id, status) VALUES (?, ?, " + WAITING + ")",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, bookId);
+                ps.setInt(2, userId);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    holdId = keys.getInt(1);
+                }
+            } catch (SQLIntegrityConstraintViolationException e) {
+                throw new BusinessException("您已预约该书，请勿重复预约。");
+            }
+
+            int position = queuePosition(conn, bookId, holdId);
+            conn.commit();
+
+            logDAO.logEvent(LogEventType.HOLD_PLACED, bookId, JsonUtil.object("userId", userId, "position", position),
+                    "预约图书 ID: " + bookId + ", 用户 ID: " + userId + ", 排队位置: " + position);
+            return position;
+
+        } catch (BusinessException e) {
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) {}
+            throw e;
+        } catch (SQLException e) {
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) {}
+            throw new DBException("预约失败: " + e.getMessage(), e);
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * ★ 取消预约；已到书的预约取消后，图书顺延给下一位读者
+     */
+    public void cancelHold(int holdId, int userId) throws DBException, BusinessException {
+        Connection conn = null;
+        try {
+            conn = DBHelper.getConnection();
+            conn.setAutoCommit(false);
+
+            int bookId;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT book_id FROM book_holds WHERE id = ? AND user_id = ?")) {
+                ps.setInt(1, holdId);
+                ps.setInt(2, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new BusinessException("预约记录不存在");
+                    }
+                    bookId = rs.getInt(1);
+                }
+            }
+
+            // 先锁图书再锁预约，锁定后重新读取状态（读取之后可能刚被分配或借阅）
+            lockBook(conn, bookId);
+            HoldStatus status;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT status FROM book_holds WHERE id = ? FOR UPDATE")) {
+                ps.setInt(1, holdId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    status = HoldStatus.fromCode(rs.getInt(1));
+                }
+            }
+            if (status == null || !status.isActive()) {
+                throw new BusinessException("该预约已" + (status != null ? status.getDisplayName() : "失效") + "，无法取消。");
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE book_holds SET status = " + CANCELLED + " WHERE id = ?")) {
+                ps.setInt(1, holdId);
+                ps.executeUpdate();
+            }
+            if (status == HoldStatus.READY) {
+                releaseBook(conn, bookId);
+            }
+
+            conn.commit();
+            logDAO.logEvent(LogEventType.HOLD_CANCELLED, bookId, JsonUtil.object("userId", userId, "holdId", holdId),
+                    "取消预约: 图书 ID " + bookId + ", 用户 ID " + userId);
+
+        } catch (BusinessException e) {
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) {}
+            throw e;
+        } catch (SQLException e) {
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) {}
+            throw new DBException("取消预约失败: " + e.getMessage(), e);
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * 查询用户的有效预约（排队中和已到书），排队中的附带当前位置
+     */
+    public List<Hold> findActiveHolds(int userId) throws DBException {
+        String sql = "SELECT h.id, h.book_id, b.title, b.author, h.user_id, h.status, h.created_at, h.expire_at, " +
+                "(SELECT COUNT(*) FROM book_holds q WHERE q.book_id = h.book_id AND q.status = " + WAITING +
+                " AND q.id <= h.id) AS position " +
+                "FROM book_holds h JOIN books b ON b.id = h.book_id " +
+                "WHERE h.user_id = ? AND h.status IN (" + WAITING + ", " + READY + ") ORDER BY h.id";
+        List<Hold> list = new ArrayList<>();
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Hold hold = new Hold();
+                    hold.setId(rs.getInt(1));
+                    hold.setBookId(rs.getInt(2));
+                    hold.setBookTitle(rs.getString(3));
+                    hold.setBookAuthor(rs.getString(4));
+                    hold.setUserId(rs.getInt(5));
+                    hold.setStatus(HoldStatus.fromCode(rs.getInt(6)));
+                    hold.setCreatedAt(rs.getTimestamp(7));
+                    hold.setExpireAt(rs.getTimestamp(8));
+                    hold.setPosition(rs.getInt(9));
+                    list.add(hold);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException("查询预约失败: " + e.getMessage(), e);
+        }
+        return list;
+    }
+
+    // ============================================================
+    // ★ 供 BookDAO 在借还事务中调用（调用方已锁定或更新图书行）
+    // ============================================================
+
+    /**
+     * 把图书分配给队首的预约读者：预约改为已到书，图书改为预约保留，并写入到书通知
+     * @return false 表示没有排队的读者，图书状态不变
+     */
+    static boolean allocateNext(Connection conn, int bookId) throws SQLException {
+        int holdId;
+        int userId;
+        String title;
+        String sql = "SELECT h.id, h.user_id, b.title FROM book_holds h JOIN books b ON b.id = h.book_id " +
+                "WHERE h.book_id = ? AND h.status = " + WAITING + " ORDER BY h.id LIMIT 1 FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                holdId = rs.getInt(1);
+                userId = rs.getInt(2);
+                title = rs.getString(3);
+            }
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE book_holds SET status = " + READY + ", " +
+                "ready_at = NOW(), expire_at = NOW() + INTERVAL ? SECOND WHERE id = ?")) {
+            ps.setLong(1, SystemConfig.HOLD_PICKUP_MILLIS / 1000);
+            ps.setInt(2, holdId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE books SET status = " + STATUS_ON_HOLD + ", version = version + 1 WHERE id = ?")) {
+            ps.setInt(1, bookId);
+            ps.executeUpdate();
+        }
+        NotificationDAO.enqueue(conn, userId, bookId, NotificationDAO.HOLD_READY,
+                "您预约的图书《" + title + "》已到馆，请在 " + SystemConfig.HOLD_PICKUP_TEXT + " 内借阅，逾期将顺延给下一位读者。");
+        return true;
+    }
+
+    /**
+     * 预约保留的图书不再为当前读者保留时：顺延给下一位读者，没有则恢复为可借阅
+     */
+    static void releaseBook(Connection conn, int bookId) throws SQLException {
+        if (!allocateNext(conn, bookId)) {
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE books SET status = " + STATUS_AVAILABLE +
+                    ", version = version + 1 WHERE id = ? AND status = " + STATUS_ON_HOLD)) {
+                ps.setInt(1, bookId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * 预约读者借走为其保留的图书
+     * 图书行先于预约更新（锁顺序一致），只有图书处于预约保留且该读者持有已到书的预约时才生效
+     * @return false 表示图书并未为该读者保留
+     */
+    static boolean fulfill(Connection conn, int bookId, int userId) throws SQLException {
+        String sql = "UPDATE books SET status = " + STATUS_BORROWED + ", version = version + 1 " +
+                "WHERE id = ? AND status = " + STATUS_ON_HOLD + " AND EXISTS (SELECT 1 FROM book_holds " +
+                "WHERE book_id = ? AND user_id = ? AND status = " + READY + ")";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, bookId);
+            ps.setInt(2, bookId);
+            ps.setInt(3, userId);
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE book_holds SET status = " + FULFILLED +
+                " WHERE book_id = ? AND user_id = ? AND status = " + READY)) {
+            ps.setInt(1, bookId);
+            ps.setInt(2, userId);
+            ps.executeUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * 图书遗失时取消其全部有效预约，并通知预约读者
+     */
+    static void cancelAllForBook(Connection conn, int bookId) throws SQLException {
+        String notify = "INSERT INTO notification_outbox (user_id, book_id, event_type, message) " +
+                "SELECT h.user_id, h.book_id, ?, CONCAT('您预约的图书《', b.title, '》已遗失，预约已取消。') " +
+                "FROM book_holds h JOIN books b ON b.id = h.book_id " +
+                "WHERE h.book_id = ? AND h.status IN (" + WAITING + ", " + READY + ")";
+        try (PreparedStatement ps = conn.prepareStatement(notify)) {
+            ps.setString(1, NotificationDAO.HOLD_CANCELLED);
+            ps.setInt(2, bookId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE book_holds SET status = " + CANCELLED +
+                " WHERE book_id = ? AND status IN (" + WAITING + ", " + READY + ")")) {
+            ps.setInt(1, bookId);
+            ps.executeUpdate();
+        }
+    }
+
+    // ============================================================
+    // ★ 后台任务：处理保留期已过的预约
+    // ============================================================
+
+    /**
+     * 将保留期已过的预约标记为过期，图书顺延给下一位读者（由 MaintenanceScheduler 定期执行）
+     * 每条预约单独一个事务，某一条失败不影响其他预约。
+     * 按 (expire_at, id) 键集分页，每批从上一批最后一条之后开始：处理失败仍为已到书的预约不会被下一批
+     * 重新选中，一次执行中每条预约至多处理一次，下次执行时再重试。
+     */
+    public void expireReadyHolds() {
+        String first = "SELECT id, book_id, user_id, expire_at FROM book_holds " +
+                "WHERE status = " + READY + " AND expire_at < NOW() ORDER BY expire_at, id LIMIT ?";
+        String next = "SELECT id, book_id, user_id, expire_at FROM book_holds " +
+                "WHERE status = " + READY + " AND expire_at < NOW() " +
+                "AND (expire_at > ? OR (expire_at = ? AND id > ?)) ORDER BY expire_at, id LIMIT ?";
+        try {
+            Timestamp lastExpireAt = null;
+            int lastId = 0;
+            int found;
+            do {
+                List<int[]> batch = new ArrayList<>();
+                try (Connection conn = DBHelper.getConnection();
+                     PreparedStatement ps = conn.prepareStatement(lastExpireAt == null ? first : next)) {
+                    int index = 1;
+                    if (lastExpireAt != null) {
+                        ps.setTimestamp(index++, lastExpireAt);
+                        ps.setTimestamp(index++, lastExpireAt);
+                        ps.setInt(index++, lastId);
+                    }
+                    ps.setInt(index, SystemConfig.HOLD_SWEEP_BATCH);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            batch.add(new int[]{rs.getInt(1), rs.getInt(2), rs.getInt(3)});
+                            lastId = rs.getInt(1);
+                            lastExpireAt = rs.getTimestamp(4);
+                        }
+                    }
+                }
+                found = batch.size();
+                for (int[] hold : batch) {
+                    expireHold(hold[0], hold[1], hold[2]);
+                }
+            } while (found == SystemConfig.HOLD_SWEEP_BATCH);
+        } catch (Exception e) {
+            System.err.println("处理过期预约失败: " + e.getMessage());
+        }
+    }
+
+    private void expireHold(int holdId, int bookId, int userId) {
+        Connection conn = null;
+        try {
+            conn = DBHelper.getConnection();
+            conn.setAutoCommit(false);
+
+            lockBook(conn, bookId);
+            // 读取之后读者可能刚好借走或取消，只处理仍为已到书且已过期的预约
+            int rows;
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE book_holds SET status = " + EXPIRED +
+                    " WHERE id = ? AND status = " + READY + " AND expire_at < NOW()")) {
+                ps.setInt(1, holdId);
+                rows = ps.executeUpdate();
+            }
+            if (rows == 0) {
+                conn.rollback();
+                return;
+            }
+
+            String title = bookTitle(conn, bookId);
+            NotificationDAO.enqueue(conn, userId, bookId, NotificationDAO.HOLD_EXPIRED,
+                    "您预约的图书《" + title + "》已超过保留期限未借阅，预约已失效。");
+            releaseBook(conn, bookId);
+            conn.commit();
+
+            logDAO.logEvent(LogEventType.HOLD_EXPIRED, bookId, JsonUtil.object("userId", userId, "holdId", holdId),
+                    "预约过期: 图书 ID " + bookId + ", 用户 ID " + userId);
+
+        } catch (SQLException | DBException e) {
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) {}
+            System.err.println("预约 " + holdId + " 过期处理失败: " + e.getMessage());
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {}
+        }
+    }
+
+    private static BookStatus lockBook(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT status FROM books WHERE id = ? FOR UPDATE")) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? BookStatus.fromCode(rs.getInt(1)) : null;
+            }
+        }
+    }
+
+    private static String bookTitle(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT title FROM books WHERE id = ?")) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : String.valueOf(bookId);
+            }
+        }
+    }
+
+    private static int queuePosition(Connection conn, int bookId, int holdId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM book_holds " +
+                "WHERE book_id = ? AND status = " + WAITING + " AND id <= ?")) {
+            ps.setInt(1, bookId);
+            ps.setInt(2, holdId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.library.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志归档目录
+ *
+ * 归档目录下的文件：
+ * - sys_logs-yyyyMM-NNN.ndjson.gz：归档数据，每行一条 JSON 日志，由若干个独立的 gzip 块首尾相接组成
+ * - sys_logs-yyyyMM-NNN.ndjson.gz.idx：块索引，每行 "字节偏移 \t 字节长度 \t 最早时间 \t 最晚时间 \t 条数"
+ * - index.tsv：文件目录，每行 "文件名 \t 月份 \t 最早时间 \t 最晚时间 \t 条数 \t 状态 \t 导出的最大 id"
+ * 时间均为毫秒时间戳。检索时先按目录筛选文件，再按块索引定位到块，只解压时间范围重叠的块。
+ *
+ * 所有写入都先写临时文件、刷盘后再原子改名，进程中途退出不会留下半个文件。
+ */
+class LogArchiveCatalog {
+    static final String INDEX_FILE = "index.tsv";
+    static final String BLOCK_INDEX_SUFFIX = ".idx";
+    static final String TEMP_SUFFIX = ".tmp";
+
+    /** 已写入归档文件，但数据库中的对应数据尚未删除 */
+    static final String STATUS_PENDING = "pending";
+    /** 数据库中的对应数据已删除，归档文件是唯一副本 */
+    static final String STATUS_DONE = "done";
+
+    /**
+     * 目录中的一个归档文件
+     */
+    static class FileEntry {
+        String file;
+        String month;      // yyyyMM
+        long minTime;
+        long maxTime;
+        long rows;
+        String status;
+        long maxId;        // 同一次导出的最大日志 id：数据库中 id 不超过它的该月日志都已导出
+
+        boolean overlaps(long from, long to) {
+            return maxTime >= from && minTime < to;
+        }
+    }
+
+    /**
+     * 归档文件中的一个压缩块
+     */
+    static class BlockEntry {
+        long offset;
+        long length;
+        long minTime;
+        long maxTime;
+        int rows;
+
+        boolean overlaps(long from, long to) {
+            return maxTime >= from && minTime < to;
+        }
+    }
+
+    private final Path dir;
+
+    LogArchiveCatalog(Path dir) {
+        this.dir = dir;
+    }
+
+    Path getDir() {
+        return dir;
+    }
+
+    Path resolve(String file) {
+        return dir.resolve(file);
+    }
+
+    /**
+     * 读取文件目录（按写入顺序，目录不存在时返回空列表）
+     */
+    synchronized List<FileEntry> readEntries() throws IOException {
+        List<FileEntry> list = new ArrayList<>();
+        Path index = dir.resolve(INDEX_FILE);
+        if (!Files.exists(index)) {
+            return list;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] f = line.split("\t");
+                FileEntry e = new FileEntry();
+                e.file = f[0];
+                e.month = f[1];
+                e.minTime = Long.parseLong(f[2]);
+                e.maxTime = Long.parseLong(f[3]);
+                e.rows = Long.parseLong(f[4]);
+                e.status = f[5];
+                e.maxId = Long.parseLong(f[6]);
+                list.add(e);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 覆盖写入文件目录
+     */
+    synchronized void writeEntries(List<FileEntry> entries) throws IOException {
+        StringBuilder sb = new StringBuilder("# file\tmonth\tmin_time\tmax_time\trows\tstatus\tmax_id\n");
+        for (FileEntry e : entries) {
+            sb.append(e.file).append('\t').append(e.month).append('\t')
+                    .append(e.minTime).append('\t').append(e.maxTime).append('\t')
+                    .append(e.rows).append('\t').append(e.status).append('\t')
+                    .append(e.maxId).append('\n');
+        }
+        writeAtomically(dir.resolve(INDEX_FILE), sb.toString());
+    }
+
+    /**
+     * 读取归档文件的块索引（按偏移顺序）
+     */
+    List<BlockEntry> readBlocks(String file) throws IOException {
+        List<BlockEntry> list = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(
+                dir.resolve(file + BLOCK_INDEX_SUFFIX), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] f = line.split("\t");
+                BlockEntry b = new BlockEntry();
+                b.offset = Long.parseLong(f[0]);
+                b.length = Long.parseLong(f[1]);
+                b.minTime = Long.parseLong(f[2]);
+                b.maxTime = Long.parseLong(f[3]);
+                b.rows = Integer.parseInt(f[4]);
+                list.add(b);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 写入归档文件的块索引
+     */
+    void writeBlocks(String file, List<BlockEntry> blocks) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (BlockEntry b : blocks) {
+            sb.append(b.offset).append('\t').append(b.length).append('\t')
+                    .append(b.minTime).append('\t').append(b.maxTime).append('\t')
+                    .append(b.rows).append('\n');
+        }
+        writeAtomically(dir.resolve(file + BLOCK_INDEX_SUFFIX), sb.toString());
+    }
+
+    /**
+     * 删除归档文件及其块索引
+     */
+    void deleteFile(String file) throws IOException {
+        Files.deleteIfExists(dir.resolve(file));
+        Files.deleteIfExists(dir.resolve(file + BLOCK_INDEX_SUFFIX));
+    }
+
+    /**
+     * 写临时文件 → 刷盘 → 原子改名
+     */
+    static void writeAtomically(Path target, String content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+        moveAtomically(tmp, target);
+    }
+
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
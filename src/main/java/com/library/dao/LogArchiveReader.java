@@ -0,0 +1,275 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.dao.LogArchiveCatalog.BlockEntry;
+import com.library.dao.LogArchiveCatalog.FileEntry;
+import com.library.entity.LogCategory;
+import com.library.entity.LogEventType;
+import com.library.entity.LogRecord;
+import com.library.exception.DBException;
+import com.library.util.JsonUtil;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * ★ 归档日志检索
+ *
+ * 按目录和块索引只挑出时间范围重叠的压缩块，逐块流式解压、逐行过滤，不把整个文件读入内存。
+ * 结果顺序、列和分页游标与 {@link LogDAO#searchLogs} 一致（按时间倒序），界面可以复用同一套展示逻辑。
+ */
+public class LogArchiveReader {
+
+    private final LogArchiveCatalog catalog;
+
+    public LogArchiveReader() {
+        this(Paths.get(SystemConfig.LOG_ARCHIVE_DIR));
+    }
+
+    public LogArchiveReader(Path archiveDir) {
+        this.catalog = new LogArchiveCatalog(archiveDir);
+    }
+
+    /**
+     * 归档概况
+     */
+    public static class ArchiveSummary {
+        public int files;
+        public long rows;
+        public Timestamp minTime;   // 无归档时为 null
+        public Timestamp maxTime;
+    }
+
+    /**
+     * 获取归档概况（只读目录，不解压）
+     */
+    public ArchiveSummary getSummary() throws DBException {
+        ArchiveSummary summary = new ArchiveSummary();
+        try {
+            for (FileEntry e : catalog.readEntries()) {
+                if (!LogArchiveCatalog.STATUS_DONE.equals(e.status)) {
+                    continue;
+                }
+                summary.files++;
+                summary.rows += e.rows;
+                if (summary.minTime == null || e.minTime < summary.minTime.getTime()) {
+                    summary.minTime = new Timestamp(e.minTime);
+                }
+                if (summary.maxTime == null || e.maxTime > summary.maxTime.getTime()) {
+                    summary.maxTime = new Timestamp(e.maxTime);
+                }
+            }
+        } catch (IOException e) {
+            throw new DBException("读取日志归档目录失败: " + e.getMessage(), e);
+        }
+        return summary;
+    }
+
+    /**
+     * 一条归档日志（只保留展示和排序需要的字段）
+     */
+    private static class ArchivedLog {
+        int id;
+        String username;
+        String category;
+        String eventType;
+        String operation;
+        long opTime;
+
+        /** 按 (op_time, id) 比较，越新越大 */
+        int compareTo(ArchivedLog o) {
+            int c = Long.compare(opTime, o.opTime);
+            return c != 0 ? c : Integer.compare(id, o.id);
+        }
+    }
+
+    /**
+     * 归档文件中的一个块
+     */
+    private static class BlockRef {
+        final String file;
+        final BlockEntry block;
+
+        BlockRef(String file, BlockEntry block) {
+            this.file = file;
+            this.block = block;
+        }
+    }
+
+    /**
+     * ★ 检索归档日志（按时间倒序分页）
+     * 块按最晚时间从新到旧处理，用容量为 pageSize+1 的小顶堆保留最新的匹配行；
+     * 堆满后，最晚时间早于堆顶的块不可能再有结果，直接停止，不再解压更早的块。
+     *
+     * @param filter 检索条件（字段含义同 LogDAO.searchLogs）
+     * @param after 上一页结果（首页传 null）
+     * @param pageSize 每页条数
+     */
+    public LogDAO.LogPage search(LogDAO.LogFilter filter, LogDAO.LogPage after, int pageSize) throws DBException {
+        long from = filter.from != null ? filter.from.getTime() : Long.MIN_VALUE;
+        long to = filter.to != null ? filter.to.getTime() : Long.MAX_VALUE;
+        ArchivedLog cursor = null;
+        if (after != null && after.lastTime != null) {
+            cursor = new ArchivedLog();
+            cursor.opTime = after.lastTime.getTime();
+            cursor.id = after.lastId;
+            // 游标之后（更早）的行：op_time 不超过游标时间
+            to = Math.min(to, cursor.opTime + 1);
+        }
+
+        PriorityQueue<ArchivedLog> heap = new PriorityQueue<>(pageSize + 1, ArchivedLog::compareTo);
+
+        try {
+            // 收集所有与时间范围重叠的块，按最晚时间倒序
+            List<BlockRef> blocks = new ArrayList<>();
+            for (FileEntry e : catalog.readEntries()) {
+                if (!LogArchiveCatalog.STATUS_DONE.equals(e.status) || !e.overlaps(from, to)) {
+                    continue;
+                }
+                for (BlockEntry b : catalog.readBlocks(e.file)) {
+                    if (b.overlaps(from, to)) {
+                        blocks.add(new BlockRef(e.file, b));
+                    }
+                }
+            }
+            blocks.sort((a, b) -> Long.compare(b.block.maxTime, a.block.maxTime));
+
+            for (BlockRef ref : blocks) {
+                if (heap.size() > pageSize && ref.block.maxTime < heap.peek().opTime) {
+                    break;
+                }
+                scanBlock(ref.file, ref.block, filter, from, to, cursor, heap, pageSize + 1);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new DBException("检索归档日志失败: " + e.getMessage(), e);
+        }
+
+        // 堆中按从旧到新弹出，倒序后即为结果
+        List<ArchivedLog> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        Collections.reverse(result);
+
+        LogDAO.LogPage page = new LogDAO.LogPage();
+        page.hasMore = result.size() > pageSize;
+        if (page.hasMore) {
+            result.remove(result.size() - 1);
+        }
+
+        for (ArchivedLog log : result) {
+            Timestamp opTime = new Timestamp(log.opTime);
+            page.records.add(new LogRecord(log.id, log.username, LogCategory.fromCode(log.category),
+                    LogEventType.fromCode(log.eventType), log.operation, opTime));
+            page.lastId = log.id;
+            page.lastTime = opTime;
+        }
+        return page;
+    }
+
+    /**
+     * 流式解压一个块，把匹配的行放入堆（堆超过容量时弹出最旧的一行）
+     */
+    private void scanBlock(String file, BlockEntry block, LogDAO.LogFilter filter, long from, long to,
+                           ArchivedLog cursor, PriorityQueue<ArchivedLog> heap, int capacity) throws IOException {
+        try (BufferedReader reader = openBlock(file, block)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> json = JsonUtil.parseObject(line);
+
+                ArchivedLog log = new ArchivedLog();
+                log.opTime = ((Number) json.get("opTime")).longValue();
+                log.id = ((Number) json.get("id")).intValue();
+                if (log.opTime < from || log.opTime >= to) {
+                    continue;
+                }
+                if (cursor != null && log.compareTo(cursor) >= 0) {
+                    continue;
+                }
+                log.username = (String) json.get("username");
+                log.category = (String) json.get("category");
+                log.eventType = (String) json.get("eventType");
+                log.operation = (String) json.get("operation");
+
+                if (!filter.matches(log.username, log.category, log.eventType, log.operation)) {
+                    continue;
+                }
+
+                heap.add(log);
+                if (heap.size() > capacity) {
+                    heap.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * 定位到块的起始偏移，只解压该块的字节
+     */
+    private BufferedReader openBlock(String file, BlockEntry block) throws IOException {
+        FileChannel channel = FileChannel.open(catalog.resolve(file), StandardOpenOption.READ);
+        channel.position(block.offset);
+        InputStream in = new BoundedInputStream(Channels.newInputStream(channel), block.length);
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new BufferedInputStream(in, 64 * 1024), 64 * 1024), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 只允许读取指定长度的输入流（防止解压越过块边界读到下一个块）
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(buf, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,560 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.dao.LogArchiveCatalog.BlockEntry;
+import com.library.dao.LogArchiveCatalog.FileEntry;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+import com.library.util.JsonUtil;
+import com.library.util.SchemaHelper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ★ 日志归档：把已结束月份的 sys_logs 导出为本地压缩文件，再从数据库中删除
+ *
+ * 流程（按月从旧到新处理，每月一次）：
+ * 1. 流式读取该月数据（逐行从 MySQL 取，不一次性载入内存），写入 gzip 压缩的 NDJSON 文件，
+ *    每 {@link SystemConfig#LOG_ARCHIVE_BLOCK_ROWS} 条一个独立压缩块，
+ *    每 {@link SystemConfig#LOG_ARCHIVE_ROWS_PER_FILE} 条滚动到新文件
+ * 2. 文件刷盘后登记到目录（状态 pending），同时记下导出的最大 id
+ * 3. 删除数据库中已导出的行（该月 id 不超过最大 id 的行）：分区中恰好只有这些行时锁表确认后
+ *    DROP PARTITION，否则在事务中 DELETE，删除条数与导出条数不符时回滚，作废本次导出下次重来
+ * 4. 目录状态改为 done
+ *
+ * 中断后的恢复只看 id 不超过导出最大 id 的行：还剩导出的条数说明没有删除，pending 文件作废后重新导出；
+ * 一条不剩说明已删除，直接把 pending 改为 done。导出后补写进该月的日志（如断线期间缓存的日志）
+ * id 更大，不影响判断，会在下次运行时追加为新文件。
+ *
+ * 各桌面客户端和服务端都会执行归档：归档期间持有命名锁 {@link LogPartitionManager#MAINTENANCE_LOCK}，
+ * 同一时间只有一个进程导出和删除；归档目录 {@link SystemConfig#LOG_ARCHIVE_DIR} 应配置为所有进程共用的位置。
+ */
+public class LogArchiver {
+    private static final String TABLE = "sys_logs";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final LogArchiveCatalog catalog;
+    private final LogPartitionManager partitionManager = new LogPartitionManager();
+
+    public LogArchiver() {
+        this(Paths.get(SystemConfig.LOG_ARCHIVE_DIR));
+    }
+
+    public LogArchiver(Path archiveDir) {
+        this.catalog = new LogArchiveCatalog(archiveDir);
+    }
+
+    /**
+     * ★ 归档所有超过在线保留月数的日志（其他进程正在维护日志时本次跳过）
+     * @return 归档的日志条数
+     */
+    public long archiveExpired() throws DBException {
+        Long rows = archiveBeforeLocked(YearMonth.now().minusMonths(SystemConfig.LOG_RETENTION_MONTHS));
+        if (rows == null) {
+            System.out.println("其他进程正在维护日志，本次跳过归档");
+            return 0;
+        }
+        return rows;
+    }
+
+    /**
+     * ★ 归档所有早于 month 的月份（先导出再从数据库删除，不会直接丢弃未归档的日志）
+     * @return 归档的日志条数
+     */
+    public long archiveBefore(YearMonth month) throws DBException {
+        if (month.isAfter(YearMonth.now())) {
+            month = YearMonth.now();
+        }
+        Long rows = archiveBeforeLocked(month);
+        if (rows == null) {
+            throw new DBException("其他进程正在维护日志，请稍后再试");
+        }
+        return rows;
+    }
+
+    /**
+     * 持有维护锁归档早于 cutoff 的月份，锁被其他进程持有时返回 null
+     */
+    private Long archiveBeforeLocked(YearMonth cutoff) throws DBException {
+        try (Connection lockConn = DBHelper.getConnection()) {
+            if (!SchemaHelper.tryLock(lockConn, LogPartitionManager.MAINTENANCE_LOCK)) {
+                return null;
+            }
+            try {
+                long total = 0;
+                for (YearMonth m = oldestMonth(); m != null && m.isBefore(cutoff); m = m.plusMonths(1)) {
+                    total += archiveMonth(m);
+                }
+                return total;
+            } finally {
+                SchemaHelper.releaseLock(lockConn, LogPartitionManager.MAINTENANCE_LOCK);
+            }
+        } catch (SQLException e) {
+            throw new DBException("获取日志维护锁失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 数据库中最早一条日志所在的月份，无日志时返回 null
+     */
+    private YearMonth oldestMonth() throws DBException {
+        try (Connection conn = DBHelper.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(op_time) FROM " + TABLE)) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                return YearMonth.from(rs.getTimestamp(1).toLocalDateTime());
+            }
+            return null;
+        } catch (SQLException e) {
+            throw new DBException("查询最早日志时间失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * ★ 归档指定月份（只能归档已结束的月份）
+     * @return 本次归档的日志条数
+     */
+    public long archiveMonth(YearMonth month) throws DBException {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new DBException("只能归档已结束的月份: " + month);
+        }
+
+        String monthKey = month.format(MONTH_FORMAT);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+
+        try (Connection conn = DBHelper.getConnection()) {
+            Files.createDirectories(catalog.getDir());
+
+            List<FileEntry> entries = recoverPending(conn, monthKey, from, to);
+
+            // 1. 流式导出
+            ArchiveWriter writer = new ArchiveWriter(catalog, monthKey, nextSequence(entries, monthKey));
+            long[] maxId = {0};
+            try {
+                export(from, to, writer, maxId);
+                writer.close();
+            } catch (DBException | IOException e) {
+                writer.abort();
+                throw e;
+            }
+
+            List<FileEntry> written = writer.getEntries();
+            long rows = 0;
+            for (FileEntry e : written) {
+                rows += e.rows;
+                e.maxId = maxId[0];
+            }
+
+            if (written.isEmpty()) {
+                // 该月已无数据，顺带删除空分区
+                purge(conn, month, from, to, 0, 0);
+                return 0;
+            }
+
+            // 2. 登记为 pending
+            entries.addAll(written);
+            catalog.writeEntries(entries);
+
+            // 3. 删除已导出的行
+            if (!purge(conn, month, from, to, rows, maxId[0])) {
+                // 导出时还有 id 更小的日志未提交，本次导出不完整：作废，下次重新导出
+                for (FileEntry e : written) {
+                    catalog.deleteFile(e.file);
+                }
+                entries.removeAll(written);
+                catalog.writeEntries(entries);
+                System.err.println("归档 " + monthKey + " 时发现导出后提交的日志，本次作废，下次重新导出");
+                return 0;
+            }
+
+            // 4. 标记为 done
+            for (FileEntry e : written) {
+                e.status = LogArchiveCatalog.STATUS_DONE;
+            }
+            catalog.writeEntries(entries);
+
+            System.out.println("已归档 " + monthKey + " 的日志 " + rows + " 条，共 " + written.size() + " 个文件");
+            return rows;
+
+        } catch (SQLException e) {
+            throw new DBException("归档日志失败: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new DBException("写入日志归档文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 处理上次中断留下的 pending 文件，返回整理后的目录
+     */
+    private List<FileEntry> recoverPending(Connection conn, String monthKey, Timestamp from, Timestamp to)
+            throws SQLException, IOException {
+        List<FileEntry> entries = catalog.readEntries();
+        boolean hasPending = false;
+        long pendingRows = 0;
+        long pendingMaxId = 0;
+        for (FileEntry e : entries) {
+            if (e.month.equals(monthKey) && LogArchiveCatalog.STATUS_PENDING.equals(e.status)) {
+                hasPending = true;
+                pendingRows += e.rows;
+                pendingMaxId = Math.max(pendingMaxId, e.maxId);
+            }
+        }
+        if (!hasPending) {
+            return entries;
+        }
+
+        // 删除是原子的，只看已导出范围内（id 不超过导出最大 id）的行，导出后补写的日志 id 更大，不影响判断：
+        // 一条不剩说明上次已删除；还剩导出的条数说明没有删除，pending 文件作废后重新导出
+        long remaining = countRange(conn, from, to, pendingMaxId);
+        if (remaining != 0 && remaining != pendingRows) {
+            throw new IOException("归档 " + monthKey + " 的待确认文件有 " + pendingRows + " 条，数据库中对应范围内还有 "
+                    + remaining + " 条，无法判断是否已删除，请人工核对 " + LogArchiveCatalog.INDEX_FILE);
+        }
+        boolean purged = remaining == 0;
+        Iterator<FileEntry> it = entries.iterator();
+        while (it.hasNext()) {
+            FileEntry e = it.next();
+            if (!e.month.equals(monthKey) || !LogArchiveCatalog.STATUS_PENDING.equals(e.status)) {
+                continue;
+            }
+            if (purged) {
+                e.status = LogArchiveCatalog.STATUS_DONE;
+            } else {
+                catalog.deleteFile(e.file);
+                it.remove();
+            }
+        }
+        catalog.writeEntries(entries);
+        return entries;
+    }
+
+    private static int nextSequence(List<FileEntry> entries, String monthKey) {
+        int max = 0;
+        String prefix = TABLE + "-" + monthKey + "-";
+        for (FileEntry e : entries) {
+            if (e.file.startsWith(prefix)) {
+                max = Math.max(max, Integer.parseInt(e.file.substring(prefix.length(), prefix.length() + 3)));
+            }
+        }
+        return max + 1;
+    }
+
+    static String fileName(String monthKey, int sequence) {
+        return String.format("%s-%s-%03d.ndjson.gz", TABLE, monthKey, sequence);
+    }
+
+    /**
+     * 归档文件中的一行
+     */
+    private static final class ExportRow {
+        final long id;
+        final long opTime;
+        final String line;
+
+        ExportRow(long id, long opTime, String line) {
+            this.id = id;
+            this.opTime = opTime;
+            this.line = line;
+        }
+    }
+
+    /**
+     * ★ 流式读取时间范围内的日志写入归档（见 {@link StreamingQuery}，内存占用与数据量无关）
+     * 流式结果集独占一个单独的连接，读完后恢复会话设置再归还；写文件失败时中止该连接。
+     */
+    private void export(Timestamp from, Timestamp to, ArchiveWriter writer, long[] maxId) throws DBException {
+        String sql = "SELECT id, username, operation, category, event_type, actor_id, target_type, " +
+                "target_id, payload, op_time FROM " + TABLE +
+                " WHERE op_time >= ? AND op_time < ? ORDER BY op_time, id";
+
+        StreamingQuery.stream(sql, LogArchiver::readExportRow, row -> {
+            writer.write(row.opTime, row.line);
+            maxId[0] = Math.max(maxId[0], row.id);
+            return true;
+        }, from, to);
+    }
+
+    private static ExportRow readExportRow(ResultSet rs) throws SQLException {
+        long id = rs.getLong("id");
+        long opTime = rs.getTimestamp("op_time").getTime();
+        String line = JsonUtil.object(
+                "id", id,
+                "username", rs.getString("username"),
+                "operation", rs.getString("operation"),
+                "category", rs.getString("category"),
+                "eventType", rs.getString("event_type"),
+                "actorId", rs.getObject("actor_id"),
+                "targetType", rs.getString("target_type"),
+                "targetId", rs.getObject("target_id"),
+                "payload", rs.getString("payload"),
+                "opTime", opTime);
+        return new ExportRow(id, opTime, line);
+    }
+
+    /**
+     * 时间范围内 id 不超过 maxId 的日志条数
+     */
+    private long countRange(Connection conn, Timestamp from, Timestamp to, long maxId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM " + TABLE + " WHERE op_time >= ? AND op_time < ? AND id <= ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            ps.setLong(3, maxId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * ★ 删除已导出的行（该月 id 不超过导出最大 id 的行）
+     * - 分区中恰好只有这些行（且没有更早的历史数据）时直接删除整个分区：检查和 DROP PARTITION 在表锁内完成，
+     *   期间补写的日志要等锁释放后才能写入，不会在未导出的情况下随分区一起删除
+     * - 否则在事务中 DELETE，删除条数必须等于导出条数（不等说明有导出时尚未提交、id 更小的日志），否则回滚
+     * @return 是否已删除；false 表示本次导出不完整，数据库未做修改
+     */
+    private boolean purge(Connection conn, YearMonth month, Timestamp from, Timestamp to, long rows, long maxId)
+            throws SQLException {
+        if (dropIfOnlyExported(conn, month, from, to, rows, maxId)) {
+            LogCountService.getInstance().onDeleted(rows);
+            return true;
+        }
+        if (rows == 0) {
+            return true;
+        }
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM " + TABLE + " WHERE op_time >= ? AND op_time < ? AND id <= ?")) {
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            ps.setLong(3, maxId);
+            int deleted = ps.executeUpdate();
+            if (deleted != rows) {
+                conn.rollback();
+                return false;
+            }
+            conn.commit();
+            LogCountService.getInstance().onDeleted(deleted);
+            return true;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * 锁表后确认分区中只有已导出的行，是则删除整个分区
+     */
+    private boolean dropIfOnlyExported(Connection conn, YearMonth month, Timestamp from, Timestamp to,
+                                       long rows, long maxId) throws SQLException {
+        SchemaHelper.execute(conn, "LOCK TABLES " + TABLE + " WRITE");
+        try {
+            if (countRange(conn, from, to, Long.MAX_VALUE) != rows || countRange(conn, from, to, maxId) != rows) {
+                return false;
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT 1 FROM " + TABLE + " WHERE op_time < ? LIMIT 1")) {
+                ps.setTimestamp(1, from);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return false;
+                    }
+                }
+            }
+            return partitionManager.dropPartition(conn, month);
+        } finally {
+            SchemaHelper.execute(conn, "UNLOCK TABLES");
+        }
+    }
+
+    /**
+     * 定时维护入口（不抛出异常，静默失败）
+     */
+    public void maintain() {
+        try {
+            archiveExpired();
+        } catch (DBException e) {
+            // 归档失败时数据仍保留在数据库中，下次维护时重试
+            System.err.println("日志归档失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 滚动写入归档文件：按块压缩、按条数换文件，关闭时刷盘并生成块索引
+     */
+    private static class ArchiveWriter implements Closeable {
+        private final LogArchiveCatalog catalog;
+        private final String monthKey;
+        private int sequence;
+
+        private final List<FileEntry> entries = new ArrayList<>();
+
+        // 当前文件
+        private FileEntry file;
+        private Path tempPath;
+        private FileOutputStream out;
+        private List<BlockEntry> blocks;
+
+        // 当前块
+        private BlockEntry block;
+        private BlockGzipStream gzip;
+        private Writer writer;
+
+        ArchiveWriter(LogArchiveCatalog catalog, String monthKey, int firstSequence) {
+            this.catalog = catalog;
+            this.monthKey = monthKey;
+            this.sequence = firstSequence;
+        }
+
+        void write(long opTime, String line) throws IOException {
+            if (file == null) {
+                openFile();
+            }
+            if (block == null) {
+                openBlock();
+            }
+
+            writer.write(line);
+            writer.write('\n');
+
+            block.rows++;
+            block.minTime = Math.min(block.minTime, opTime);
+            block.maxTime = Math.max(block.maxTime, opTime);
+            file.rows++;
+            file.minTime = Math.min(file.minTime, opTime);
+            file.maxTime = Math.max(file.maxTime, opTime);
+
+            if (block.rows >= SystemConfig.LOG_ARCHIVE_BLOCK_ROWS) {
+                closeBlock();
+            }
+            if (file.rows >= SystemConfig.LOG_ARCHIVE_ROWS_PER_FILE) {
+                closeFile();
+            }
+        }
+
+        private void openFile() throws IOException {
+            file = new FileEntry();
+            file.file = fileName(monthKey, sequence++);
+            file.month = monthKey;
+            file.minTime = Long.MAX_VALUE;
+            file.maxTime = Long.MIN_VALUE;
+            file.status = LogArchiveCatalog.STATUS_PENDING;
+            tempPath = catalog.resolve(file.file + LogArchiveCatalog.TEMP_SUFFIX);
+            out = new FileOutputStream(tempPath.toFile());
+            blocks = new ArrayList<>();
+        }
+
+        /**
+         * 每个块是一个独立的 gzip 成员：多个成员首尾相接仍是合法的 gzip 文件，
+         * 同时可以从任一块的起始偏移单独解压。
+         */
+        private void openBlock() throws IOException {
+            block = new BlockEntry();
+            block.offset = out.getChannel().position();
+            block.minTime = Long.MAX_VALUE;
+            block.maxTime = Long.MIN_VALUE;
+            gzip = new BlockGzipStream(out);
+            writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        private void closeBlock() throws IOException {
+            writer.flush();
+            gzip.finishBlock(); // 只结束压缩流，不关闭底层文件
+            gzip = null;
+            block.length = out.getChannel().position() - block.offset;
+            blocks.add(block);
+            block = null;
+        }
+
+        private void closeFile() throws IOException {
+            if (block != null) {
+                closeBlock();
+            }
+            out.getChannel().force(true);
+            out.close();
+            out = null;
+
+            catalog.writeBlocks(file.file, blocks);
+            LogArchiveCatalog.moveAtomically(tempPath, catalog.resolve(file.file));
+            entries.add(file);
+            file = null;
+        }
+
+        List<FileEntry> getEntries() {
+            return entries;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                closeFile();
+            }
+        }
+
+        /**
+         * 导出失败：删除本次写入的所有文件
+         */
+        void abort() {
+            try {
+                if (gzip != null) {
+                    gzip.release();
+                    gzip = null;
+                }
+                if (out != null) {
+                    out.close();
+                }
+                if (tempPath != null) {
+                    Files.deleteIfExists(tempPath);
+                }
+                for (FileEntry e : entries) {
+                    catalog.deleteFile(e.file);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 一个压缩块的 gzip 流：结束压缩块时不关闭底层文件，但要释放压缩器的本地内存
+     * （GZIPOutputStream.finish 不释放，close 会连同文件一起关闭）
+     */
+    private static class BlockGzipStream extends GZIPOutputStream {
+        BlockGzipStream(OutputStream out) throws IOException {
+            super(out, 64 * 1024);
+        }
+
+        void finishBlock() throws IOException {
+            try {
+                finish();
+            } finally {
+                release();
+            }
+        }
+
+        void release() {
+            def.end();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+
+import java.sql.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ★ 日志总数计数服务
+ *
+ * InnoDB 的 COUNT(*) 需要扫描整个索引，数据量越大越慢。这里把总数维护在内存中：
+ * - 精确计数：后台执行一次 COUNT(*) 作为基数，之后由写入、删除、归档等操作增减（常数时间）
+ * - 定期校准：基数超过 {@link SystemConfig#LOG_COUNT_TTL_SECONDS} 秒后在后台重新 COUNT(*)，
+ *   修正其他客户端写入造成的偏差；校准期间继续返回旧值。COUNT(*) 执行期间本进程的增减另外累计，
+ *   查询结束后加到结果上，校准不会抹掉这段时间的写入
+ * - 估算值：尚无精确计数时返回表统计信息中的行数（information_schema，不扫描数据），也在后台查询
+ *
+ * 界面显示总数只调用 {@link #getCount()}，任何情况下都不会在调用线程上访问数据库。
+ */
+public class LogCountService {
+    private static final LogCountService INSTANCE = new LogCountService();
+
+    private final AtomicLong count = new AtomicLong(-1);   // -1 表示未知（增减和校准在 this 上同步）
+    private volatile long countedAt;                       // 最近一次 COUNT(*) 的时间
+    private long changes;                                  // 本进程累计的增减（校准时计算查询期间的差值）
+    private long generation;                               // 清空次数（统计期间发生清空时结果作废）
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    private volatile long approximate = -1;
+    private volatile long approximateAt;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "library-log-count");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private LogCountService() {
+    }
+
+    public static LogCountService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * ★ 日志总数（常数时间，不访问数据库）
+     * 有精确计数时返回精确计数（过期则触发后台校准），否则返回最近一次的估算值并触发后台统计。
+     * @return 日志总数；尚未统计出任何结果时返回 -1
+     */
+    public long getCount() {
+        long c = count.get();
+        if (c < 0 || isStale()) {
+            refreshAsync();
+        }
+        return c >= 0 ? c : approximate;
+    }
+
+    /**
+     * 当前返回的是否为精确计数（估算值或计数已过期时为 false）
+     */
+    public boolean isExact() {
+        return count.get() >= 0 && !isStale();
+    }
+
+    /**
+     * 同步执行 COUNT(*) 并更新基数（只在确实需要精确值时调用，如危险操作前的确认）
+     * 查询期间本进程的增减（onInserted/onDeleted）加到结果上，不会被校准覆盖。
+     */
+    public long getExactCount() throws DBException {
+        long start = System.currentTimeMillis();
+        long changesBefore;
+        long generationBefore;
+        synchronized (this) {
+            changesBefore = changes;
+            generationBefore = generation;
+        }
+        try (Connection conn = DBHelper.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sys_logs")) {
+            long c = rs.next() ? rs.getLong(1) : 0;
+            synchronized (this) {
+                if (generation != generationBefore) {
+                    return count.get(); // 统计期间日志被清空，结果已作废
+                }
+                long reconciled = Math.max(0, c + (changes - changesBefore));
+                count.set(reconciled);
+                countedAt = start;
+                return reconciled;
+            }
+        } catch (SQLException e) {
+            throw new DBException("统计日志数量失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 估算的日志总数（来自表统计信息，缓存 TTL 秒）
+     */
+    public long getApproximateCount() throws DBException {
+        if (approximate >= 0 && System.currentTimeMillis() - approximateAt < ttlMillis()) {
+            return approximate;
+        }
+
+        // 分区表的 TABLE_ROWS 为各分区之和
+        String sql = "SELECT COALESCE(SUM(TABLE_ROWS), 0) FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sys_logs'";
+        try (Connection conn = DBHelper.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            approximate = rs.next() ? rs.getLong(1) : 0;
+            approximateAt = System.currentTimeMillis();
+            return approximate;
+        } catch (SQLException e) {
+            throw new DBException("查询日志表统计信息失败: " + e.getMessage(), e);
+        }
+    }
+
+    // ============================================================
+    // ★ 写入和删除路径调用，维护精确计数
+    // ============================================================
+
+    /**
+     * 新增了 n 条日志
+     */
+    synchronized void onInserted(long n) {
+        changes += n;
+        count.updateAndGet(c -> c < 0 ? c : c + n);
+    }
+
+    /**
+     * 删除了 n 条日志
+     */
+    synchronized void onDeleted(long n) {
+        changes -= n;
+        count.updateAndGet(c -> c < 0 ? c : Math.max(0, c - n));
+    }
+
+    /**
+     * 日志已全部清空
+     */
+    synchronized void onCleared() {
+        generation++;
+        count.set(0);
+        countedAt = System.currentTimeMillis();
+        approximate = -1;
+    }
+
+    private boolean isStale() {
+        return System.currentTimeMillis() - countedAt >= ttlMillis();
+    }
+
+    private static long ttlMillis() {
+        return SystemConfig.LOG_COUNT_TTL_SECONDS * 1000L;
+    }
+
+    /**
+     * 后台重新统计（同一时间只有一个统计在执行）
+     */
+    private void refreshAsync() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                if (count.get() < 0 && approximate < 0) {
+                    getApproximateCount(); // 先得到估算值，COUNT(*) 较慢
+                }
+                getExactCount();
+            } catch (DBException e) {
+                System.err.println(e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+}
@@ -1,38 +1,202 @@
 package com.library.dao;
 
+import com.library.config.SystemConfig;
+import com.library.entity.LogCategory;
+import com.library.entity.LogEvent;
+import com.library.entity.LogEventType;
+import com.library.entity.LogRecord;
+import com.library.entity.LogTargetType;
+import com.library.entity.User;
 import com.library.exception.DBException;
 import com.library.util.DBHelper;
+import com.library.util.SchemaHelper;
 import com.library.util.SessionManager;
-import javax.swing.table.DefaultTableModel;
 import java.sql.*;
-import java.util.Vector;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class LogDAO {
+    private LogPartitionManager partitionManager = new LogPartitionManager();
+
+    // ============================================================
+    // ★ 日志检索条件与分页结果
+    // ============================================================
+
+    /**
+     * 日志检索条件（所有字段可为空，为空表示不限）
+     */
+    public static class LogFilter {
+        public String username;        // 用户名（精确匹配，走 username 索引）
+        public Timestamp from;         // 起始时间（含）
+        public Timestamp to;           // 截止时间（不含）
+        public String keyword;         // 操作内容关键字（在索引缩小的范围内过滤）
+        public LogCategory category;   // 操作分类（走 category 索引）
+        public LogEventType eventType; // 事件类型（走 event_type 索引）
+
+        /**
+         * 判断一条日志是否满足用户名、分类、事件类型和关键字条件（时间范围由调用方判断）
+         * 用于不经过 SQL 过滤的场景：实时跟踪、归档检索。关键字匹配与 LIKE 一致，不区分大小写。
+         */
+        public boolean matches(String logUsername, String logCategory, String logEventType, String operation) {
+            if (username != null && !username.trim().isEmpty() && !username.trim().equals(logUsername)) {
+                return false;
+            }
+            if (category != null && !category.name().equals(logCategory)) {
+                return false;
+            }
+            if (eventType != null && !eventType.name().equals(logEventType)) {
+                return false;
+            }
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                return operation != null && operation.toLowerCase().contains(keyword.trim().toLowerCase());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 一页日志检索结果，lastTime/lastId 为下一页的游标
+     */
+    public static class LogPage {
+        public List<LogRecord> records = new ArrayList<>();
+        public Timestamp lastTime;
+        public int lastId;
+        public boolean hasMore;
+        public TailCursor tailCursor;  // 实时跟踪的下一次读取位置（只由 tailLogs 设置）
+    }
+
+    /**
+     * ★ 实时跟踪的读取位置（不可变，每次 tailLogs 返回新的位置）
+     * lastId 为已扫描的最大 id；gaps 为 lastId 之前跳过、尚未出现的 id（事务中写入、尚未提交的日志）及发现时间
+     */
+    public static final class TailCursor {
+        private final int lastId;
+        private final Map<Integer, Long> gaps;
+
+        /**
+         * 从 lastId 之后开始跟踪（lastId 及之前的日志不算新日志）
+         */
+        public TailCursor(int lastId) {
+            this(lastId, new LinkedHashMap<>());
+        }
+
+        private TailCursor(int lastId, Map<Integer, Long> gaps) {
+            this.lastId = lastId;
+            this.gaps = gaps;
+        }
+
+        public int getLastId() {
+            return lastId;
+        }
+
+        /**
+         * 等待补读的空缺 id 数
+         */
+        public int getGapCount() {
+            return gaps.size();
+        }
+    }
+
+    /**
+     * ★ 日志表结构升级：分类列、结构化事件列和检索索引（可重复执行）
+     * 所有索引都以 (..., op_time, id) 结尾，与检索的排序和游标条件一致，翻页只读一页的数据。
+     */
+    public static void ensureSchema() {
+        try (Connection conn = DBHelper.getConnection()) {
+            if (!SchemaHelper.columnExists(conn, "sys_logs", "category")) {
+                SchemaHelper.execute(conn, "ALTER TABLE sys_logs ADD COLUMN category VARCHAR(16) NULL");
+
+                // 回填历史数据（规则与 LogCategory.fromOperation 一致）
+                SchemaHelper.execute(conn, "UPDATE sys_logs SET category = CASE " +
+                        "WHEN operation LIKE '%登录%' THEN 'LOGIN' " +
+                        "WHEN operation LIKE '%成功归还%' THEN 'RETURN' " +
+                        "WHEN operation LIKE '%成功借阅%' THEN 'BORROW' " +
+                        "WHEN operation LIKE '%用户%' OR operation LIKE '%密码%' OR operation LIKE '%注销%' THEN 'USER' " +
+                        "WHEN operation LIKE '%罚款%' OR operation LIKE '%遗失%' THEN 'FINE' " +
+                        "WHEN operation LIKE '%图书%' THEN 'BOOK' " +
+                        "ELSE 'SYSTEM' END");
+            }
+            SchemaHelper.ensureIndex(conn, "sys_logs", "idx_logs_time", "(op_time, id)");
+            SchemaHelper.ensureIndex(conn, "sys_logs", "idx_logs_user_time", "(username, op_time, id)");
+            SchemaHelper.ensureIndex(conn, "sys_logs", "idx_logs_category_time", "(category, op_time, id)");
+
+            // ★ 结构化事件列：事件类型、操作人、目标对象、载荷
+            SchemaHelper.ensureColumn(conn, "sys_logs", "event_type", "VARCHAR(32) NULL");
+            SchemaHelper.ensureColumn(conn, "sys_logs", "actor_id", "INT NULL");
+            SchemaHelper.ensureColumn(conn, "sys_logs", "target_type", "VARCHAR(16) NULL");
+            SchemaHelper.ensureColumn(conn, "sys_logs", "target_id", "INT NULL");
+            // 载荷用 TEXT：批量操作的载荷（如导入的用户名列表）可能超过几百字节，VARCHAR(512) 会写入失败
+            SchemaHelper.ensureColumn(conn, "sys_logs", "payload", "TEXT NULL");
+            if ("varchar".equals(SchemaHelper.columnType(conn, "sys_logs", "payload"))) {
+                SchemaHelper.execute(conn, "ALTER TABLE sys_logs MODIFY payload TEXT NULL");
+            }
+            SchemaHelper.ensureIndex(conn, "sys_logs", "idx_logs_event_time", "(event_type, op_time, id)");
+            SchemaHelper.ensureIndex(conn, "sys_logs", "idx_logs_target", "(target_type, target_id, op_time, id)");
+            SchemaHelper.ensureIndex(conn, "sys_logs", "idx_logs_actor", "(actor_id, op_time, id)");
+        } catch (Exception e) {
+            System.err.println("日志表结构升级失败: " + e.getMessage());
+        }
+    }
 
     /**
      * 记录操作日志（不抛出异常，静默失败）
+     * 旧式纯文本日志，事件类型记为 OTHER，分类由文本推断。
      */
     public void logOperation(String operation) {
-        String sql = "INSERT INTO sys_logs (username, operation, op_time) VALUES (?, ?, NOW())";
+        logEvent(new LogEvent(LogEventType.OTHER, null, null, operation));
+    }
+
+    /**
+     * ★ 记录结构化日志事件（不抛出异常，静默失败）
+     * @param eventType 事件类型（决定分类和目标对象类型）
+     * @param targetId 目标对象ID（图书ID / 用户ID / 借阅记录ID），无则传 null
+     * @param payload 少量结构化数据（JSON，可用 JsonUtil.object 构造），无则传 null
+     * @param operation 可读的操作描述
+     */
+    public void logEvent(LogEventType eventType, Integer targetId, String payload, String operation) {
+        logEvent(new LogEvent(eventType, targetId, payload, operation));
+    }
+
+    /**
+     * ★ 记录结构化日志事件（不抛出异常）
+     * 使用短超时连接写库；数据库不可用或写入超时时改写本地缓存（{@link LogSpool}），恢复后自动补写，
+     * 业务操作不会因为写日志而长时间等待，日志也不会丢失。
+     * 注意：读写超时时数据库可能已经执行了插入，此时补写会产生一条重复日志（宁可重复，不可丢失）。
+     * 数据过长等与数据本身有关的错误不熔断（重试也不会成功），这条日志写入隔离文件。
+     */
+    public void logEvent(LogEvent event) {
+        fillActor(event);
+
+        LogSpool spool = LogSpool.getInstance();
+        if (!spool.isDatabaseHealthy()) {
+            spool.append(event);
+            return;
+        }
+
+        String sql = "INSERT INTO sys_logs (username, operation, category, event_type, actor_id, " +
+                "target_type, target_id, payload, op_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         Connection conn = null;
         PreparedStatement ps = null;
 
         try {
-            conn = DBHelper.getConnection();
+            conn = DBHelper.getConnection(SystemConfig.LOG_WRITE_TIMEOUT_MILLIS);
             ps = conn.prepareStatement(sql);
-
-            String username = SessionManager.getCurrentUser() != null
-                    ? SessionManager.getCurrentUser().getUsername()
-                    : "SYSTEM_UNKNOWN";
-
-            ps.setString(1, username);
-            ps.setString(2, operation);
+            bindEvent(ps, event);
             ps.executeUpdate();
+            LogCountService.getInstance().onInserted(1);
 
         } catch (Exception e) {
-            // 日志记录失败不影响主业务，只打印错误信息
-            System.err.println("记录日志失败: " + e.getMessage());
-            e.printStackTrace();
+            // 日志记录失败不影响主业务：数据库不可用时改写本地缓存，数据有问题时隔离
+            if (LogSpool.isUnavailable(e)) {
+                spool.markUnhealthy(e);
+                spool.append(event);
+            } else {
+                spool.quarantine(event, e);
+            }
         } finally {
             try {
                 if (ps != null) ps.close();
@@ -44,55 +208,465 @@ public class LogDAO {
     }
 
     /**
-     * 获取所有日志记录
+     * ★ 批量记录日志事件（不抛出异常），用于批量操作，一次插入代替逐条写库
+     * 整批在一个事务中插入：数据库不可用时整批改写本地缓存；
+     * 某条数据有问题时整批回滚，改为逐条写入，只隔离有问题的那条。
      */
-    public DefaultTableModel getLogModel() {
-        Vector<String> cols = new Vector<>();
-        cols.add("ID");
-        cols.add("用户名");
-        cols.add("操作内容");
-        cols.add("操作时间");
+    public void logEvents(List<LogEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (LogEvent event : events) {
+            fillActor(event);
+        }
 
-        Vector<Vector<Object>> data = new Vector<>();
+        LogSpool spool = LogSpool.getInstance();
+        if (spool.isDatabaseHealthy()) {
+            try (Connection conn = DBHelper.getConnection(SystemConfig.LOG_WRITE_TIMEOUT_MILLIS)) {
+                conn.setAutoCommit(false);
+                try {
+                    insertEvents(conn, events);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                LogCountService.getInstance().onInserted(events.size());
+                return;
+            } catch (Exception e) {
+                if (!LogSpool.isUnavailable(e)) {
+                    for (LogEvent event : events) {
+                        logEvent(event);
+                    }
+                    return;
+                }
+                spool.markUnhealthy(e);
+            }
+        }
+        for (LogEvent event : events) {
+            spool.append(event);
+        }
+    }
 
-        String sql = "SELECT id, username, operation, op_time FROM sys_logs ORDER BY op_time DESC";
+    /**
+     * 批量插入日志（本地缓存补写使用，事务和计数由调用方处理）
+     */
+    void insertEvents(Connection conn, List<LogEvent> events) throws SQLException {
+        String sql = "INSERT INTO sys_logs (username, operation, category, event_type, actor_id, " +
+                "target_type, target_id, payload, op_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (LogEvent event : events) {
+                bindEvent(ps, event);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
 
-        Connection conn = null;
-        Statement stmt = null;
-        ResultSet rs = null;
+    /**
+     * ★ 在调用方的事务中写入一条日志（与业务数据一起提交，不另开连接）
+     * 提交后由调用方调用 {@link #onCommitted(int)} 更新日志计数；写入失败时抛出异常，
+     * 语句级失败（{@link #abortsTransaction} 为 false）时调用方可以继续提交业务数据，
+     * 再用 {@link #logEvent(LogEvent)} 补记。
+     */
+    void insertEvent(Connection conn, LogEvent event) throws SQLException {
+        fillActor(event);
+        String sql = "INSERT INTO sys_logs (username, operation, category, event_type, actor_id, " +
+                "target_type, target_id, payload, op_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindEvent(ps, event);
+            ps.executeUpdate();
+        }
+    }
 
-        try {
-            conn = DBHelper.getConnection();
-            stmt = conn.createStatement();
-            rs = stmt.executeQuery(sql);
+    /**
+     * ★ 写日志的异常是否已使整个事务失效：死锁、锁等待超时等回滚（SQLState 40），
+     * 或连接已断开（SQLState 08）。此时业务数据也已回滚或无法提交，调用方必须按失败处理，
+     * 不能当作只回滚了日志这一条语句而继续提交。
+     */
+    static boolean abortsTransaction(SQLException e) {
+        if (e instanceof SQLTransactionRollbackException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLTransientConnectionException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("40") || state.startsWith("08"));
+    }
+
+    /**
+     * 调用方的事务已提交，计入 n 条日志
+     */
+    void onCommitted(int n) {
+        LogCountService.getInstance().onInserted(n);
+    }
+
+    /**
+     * 补全操作人和时间（在调用线程上读取当前会话：线程绑定了会话时为该会话的用户，否则为桌面端登录用户）
+     */
+    private void fillActor(LogEvent event) {
+        if (event.getUsername() == null) {
+            User user = SessionManager.getCurrentUser();
+            event.setUsername(user != null ? user.getUsername() : "SYSTEM_UNKNOWN");
+            event.setActorId(user != null ? user.getId() : null);
+        }
+        if (event.getOpTime() == null) {
+            event.setOpTime(new Timestamp(System.currentTimeMillis()));
+        }
+    }
 
+    /**
+     * 绑定日志插入语句的参数
+     */
+    private void bindEvent(PreparedStatement ps, LogEvent event) throws SQLException {
+        LogEventType type = event.getEventType();
+        LogCategory category = type == LogEventType.OTHER
+                ? LogCategory.fromOperation(event.getOperation())
+                : type.getCategory();
+
+        ps.setString(1, event.getUsername());
+        ps.setString(2, event.getOperation());
+        ps.setString(3, category.name());
+        ps.setString(4, type.name());
+        setNullableInt(ps, 5, event.getActorId());
+        ps.setString(6, type.getTargetType() != null ? type.getTargetType().name() : null);
+        setNullableInt(ps, 7, event.getTargetId());
+        ps.setString(8, event.getPayload());
+        ps.setTimestamp(9, event.getOpTime());
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+
+    // ============================================================
+    // ★ 结构化审计查询（全部走索引）
+    // ============================================================
+
+    /**
+     * ★ 某个对象的操作历史（如某本书的全部借还记录），走 (target_type, target_id, op_time) 索引
+     */
+    public List<LogRecord> findTargetHistory(LogTargetType targetType, int targetId, int limit) throws DBException {
+        String sql = "SELECT id, username, category, event_type, operation, op_time FROM sys_logs " +
+                "WHERE target_type = ? AND target_id = ? ORDER BY op_time DESC, id DESC LIMIT ?";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, targetType.name());
+            ps.setInt(2, targetId);
+            ps.setInt(3, limit);
+            return queryRecords(ps);
+        } catch (SQLException e) {
+            throw new DBException("查询对象操作历史失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * ★ 某个操作人在时间范围内的操作历史，走 (actor_id, op_time) 索引
+     */
+    public List<LogRecord> findActorHistory(int actorId, Timestamp from, Timestamp to, int limit) throws DBException {
+        String sql = "SELECT id, username, category, event_type, operation, op_time FROM sys_logs " +
+                "WHERE actor_id = ?" + (from != null ? " AND op_time >= ?" : "") + (to != null ? " AND op_time < ?" : "") +
+                " ORDER BY op_time DESC, id DESC LIMIT ?";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, actorId);
+            int index = bindTimeRange(ps, 2, from, to);
+            ps.setInt(index, limit);
+            return queryRecords(ps);
+        } catch (SQLException e) {
+            throw new DBException("查询用户操作历史失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * ★ 按事件类型统计时间范围内的日志条数，走 (event_type, op_time) 索引
+     */
+    public Map<LogEventType, Integer> countByEventType(Timestamp from, Timestamp to) throws DBException {
+        String sql = "SELECT event_type, COUNT(*) AS cnt FROM sys_logs" +
+                timeRangeClause(from, to) + " GROUP BY event_type";
+        Map<LogEventType, Integer> counts = new EnumMap<>(LogEventType.class);
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindTimeRange(ps, 1, from, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    counts.merge(LogEventType.fromCode(rs.getString("event_type")), rs.getInt("cnt"), Integer::sum);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException("统计日志事件失败: " + e.getMessage(), e);
+        }
+        return counts;
+    }
+
+    private List<LogRecord> queryRecords(PreparedStatement ps) throws SQLException {
+        List<LogRecord> records = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("id"));
-                row.add(rs.getString("username"));
-                row.add(rs.getString("operation"));
-                row.add(rs.getTimestamp("op_time"));
-                data.add(row);
+                records.add(readRecord(rs));
             }
+        }
+        return records;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) conn.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
+    /**
+     * 读取一条日志（查询需包含 id, username, category, event_type, operation, op_time 列）
+     */
+    private static LogRecord readRecord(ResultSet rs) throws SQLException {
+        return new LogRecord(rs.getInt("id"), rs.getString("username"),
+                LogCategory.fromCode(rs.getString("category")), LogEventType.fromCode(rs.getString("event_type")),
+                rs.getString("operation"), rs.getTimestamp("op_time"));
+    }
+
+    /**
+     * 获取所有日志记录
+     */
+    public List<LogRecord> findLogs() throws DBException {
+        return findLogs(null, null);
+    }
+
+    /**
+     * ★ 按时间范围获取日志记录（左闭右开）
+     * sys_logs 按月分区，带 op_time 范围条件时 MySQL 只扫描范围内的分区。
+     * @param from 起始时间，null 表示不限
+     * @param to 截止时间（不含），null 表示不限
+     */
+    public List<LogRecord> findLogs(Timestamp from, Timestamp to) throws DBException {
+        String sql = "SELECT id, username, category, event_type, operation, op_time FROM sys_logs" +
+                timeRangeClause(from, to) + " ORDER BY op_time DESC";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindTimeRange(ps, 1, from, to);
+            return queryRecords(ps);
+        } catch (SQLException e) {
+            throw new DBException("查询日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * ★ 条件检索日志（服务端过滤 + 游标分页）
+     * 排序固定为 op_time DESC, id DESC，下一页条件为 (op_time, id) < (上一页最后一行)，
+     * 不使用 OFFSET，翻到第几页都只读取一页的数据。
+     * @param filter 检索条件
+     * @param after 上一页结果（首页传 null）
+     * @param pageSize 每页条数
+     */
+    public LogPage searchLogs(LogFilter filter, LogPage after, int pageSize) throws DBException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, username, category, event_type, operation, op_time FROM sys_logs WHERE 1=1");
+        if (filter.username != null && !filter.username.trim().isEmpty()) {
+            sql.append(" AND username = ?");
+        }
+        if (filter.category != null) {
+            sql.append(" AND category = ?");
+        }
+        if (filter.eventType != null) {
+            sql.append(" AND event_type = ?");
+        }
+        if (filter.from != null) {
+            sql.append(" AND op_time >= ?");
+        }
+        if (filter.to != null) {
+            sql.append(" AND op_time < ?");
+        }
+        if (filter.keyword != null && !filter.keyword.trim().isEmpty()) {
+            sql.append(" AND operation LIKE ? ESCAPE '\\\\'");
+        }
+        if (after != null && after.lastTime != null) {
+            sql.append(" AND (op_time < ? OR (op_time = ? AND id < ?))");
+        }
+        sql.append(" ORDER BY op_time DESC, id DESC LIMIT ?");
+
+        LogPage page = new LogPage();
+
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            int index = 1;
+            if (filter.username != null && !filter.username.trim().isEmpty()) {
+                ps.setString(index++, filter.username.trim());
+            }
+            if (filter.category != null) {
+                ps.setString(index++, filter.category.name());
+            }
+            if (filter.eventType != null) {
+                ps.setString(index++, filter.eventType.name());
+            }
+            if (filter.from != null) {
+                ps.setTimestamp(index++, filter.from);
+            }
+            if (filter.to != null) {
+                ps.setTimestamp(index++, filter.to);
+            }
+            if (filter.keyword != null && !filter.keyword.trim().isEmpty()) {
+                ps.setString(index++, "%" + escapeLike(filter.keyword.trim()) + "%");
+            }
+            if (after != null && after.lastTime != null) {
+                ps.setTimestamp(index++, after.lastTime);
+                ps.setTimestamp(index++, after.lastTime);
+                ps.setInt(index++, after.lastId);
             }
+            // 多取一行用于判断是否还有下一页
+            ps.setInt(index, pageSize + 1);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (page.records.size() == pageSize) {
+                        page.hasMore = true;
+                        break;
+                    }
+                    LogRecord record = readRecord(rs);
+                    page.records.add(record);
+                    page.lastId = record.getId();
+                    page.lastTime = record.getOpTime();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException("检索日志失败: " + e.getMessage(), e);
         }
 
-        return new DefaultTableModel(data, cols) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+        return page;
+    }
+
+    /**
+     * ★ 实时跟踪：读取 cursor 之后的新日志（按 id 升序，最多 limit 条）
+     * id 是主键首列，"id > ?" 是一次主键范围查询；op_time 下限只用于分区裁剪（只查本月和上月分区），
+     * 断线补写的早期日志不会出现在实时跟踪中。过滤条件在内存中判断，这样无论是否匹配，
+     * 下一次都从已读到的最大 id 之后开始，不会重复扫描不匹配的行。
+     * ★ 借还等事务中写入的日志 id 先分配、提交后才可见，可能晚于更大的 id 出现：扫描时跳过的 id 记为空缺，
+     * 之后每次只按主键补读这些空缺（{@link SystemConfig#LOG_TAIL_MAX_GAPS} 个以内），
+     * 超过 {@link SystemConfig#LOG_TAIL_GAP_TIMEOUT_MILLIS} 仍未出现的视为已回滚，不再补读。
+     *
+     * @return records 为匹配的日志（先是补读到的，再是新日志，都按 id 升序，不含已返回过的）；
+     *         tailCursor 为下一次读取的位置；hasMore 表示还有未读完的新日志
+     */
+    public LogPage tailLogs(LogFilter filter, TailCursor cursor, int limit) throws DBException {
+        String columns = "SELECT id, username, category, event_type, operation, op_time FROM sys_logs ";
+        Timestamp since = Timestamp.valueOf(YearMonth.now().minusMonths(1).atDay(1).atStartOfDay());
+        long now = System.currentTimeMillis();
+
+        Map<Integer, Long> gaps = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> e : cursor.gaps.entrySet()) {
+            if (now - e.getValue() < SystemConfig.LOG_TAIL_GAP_TIMEOUT_MILLIS) {
+                gaps.put(e.getKey(), e.getValue());
+            }
+        }
+
+        LogPage page = new LogPage();
+        int lastId = cursor.lastId;
+
+        try (Connection conn = DBHelper.getConnection()) {
+            // 1. 按主键补读之前跳过的 id
+            if (!gaps.isEmpty()) {
+                StringBuilder sql = new StringBuilder(columns).append("WHERE id IN (");
+                for (int k = 0; k < gaps.size(); k++) {
+                    sql.append(k == 0 ? "?" : ", ?");
+                }
+                sql.append(") AND op_time >= ? ORDER BY id");
+                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                    int index = 1;
+                    for (int id : gaps.keySet()) {
+                        ps.setInt(index++, id);
+                    }
+                    ps.setTimestamp(index, since);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            gaps.remove(rs.getInt("id"));
+                            if (filter.matches(rs.getString("username"), rs.getString("category"),
+                                    rs.getString("event_type"), rs.getString("operation"))) {
+                                page.records.add(readRecord(rs));
+                            }
+                        }
+                    }
+                }
             }
-        };
+
+            // 2. 新日志
+            try (PreparedStatement ps = conn.prepareStatement(columns + "WHERE id > ? AND op_time >= ? ORDER BY id LIMIT ?")) {
+                ps.setInt(1, lastId);
+                ps.setTimestamp(2, since);
+                ps.setInt(3, limit);
+
+                int scanned = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int id = rs.getInt("id");
+                        scanned++;
+                        // 跳过的 id 记为空缺；一次跳过太多（如删除或归档后的大段空缺）不是未提交的事务，不记录
+                        int missing = id - lastId - 1;
+                        if (missing > 0 && gaps.size() + missing <= SystemConfig.LOG_TAIL_MAX_GAPS) {
+                            for (int gap = lastId + 1; gap < id; gap++) {
+                                gaps.put(gap, now);
+                            }
+                        }
+                        lastId = id;
+                        page.lastTime = rs.getTimestamp("op_time");
+
+                        if (filter.matches(rs.getString("username"), rs.getString("category"),
+                                rs.getString("event_type"), rs.getString("operation"))) {
+                            page.records.add(readRecord(rs));
+                        }
+                    }
+                }
+                page.hasMore = scanned >= limit;
+            }
+        } catch (SQLException e) {
+            throw new DBException("读取新日志失败: " + e.getMessage(), e);
+        }
+
+        page.lastId = lastId;
+        page.tailCursor = new TailCursor(lastId, gaps);
+        return page;
+    }
+
+    /**
+     * 当前最大的日志 ID（主键首列，直接读索引末端），无日志时返回 0
+     */
+    public int getMaxLogId() throws DBException {
+        try (Connection conn = DBHelper.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM sys_logs")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new DBException("查询日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 转义 LIKE 通配符
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 生成时间范围条件（分区裁剪依赖 op_time 上的范围谓词）
+     */
+    private String timeRangeClause(Timestamp from, Timestamp to) {
+        if (from != null && to != null) {
+            return " WHERE op_time >= ? AND op_time < ?";
+        } else if (from != null) {
+            return " WHERE op_time >= ?";
+        } else if (to != null) {
+            return " WHERE op_time < ?";
+        }
+        return "";
+    }
+
+    /**
+     * 绑定时间范围参数，返回下一个参数下标
+     */
+    private int bindTimeRange(PreparedStatement ps, int index, Timestamp from, Timestamp to) throws SQLException {
+        if (from != null) {
+            ps.setTimestamp(index++, from);
+        }
+        if (to != null) {
+            ps.setTimestamp(index++, to);
+        }
+        return index;
     }
 
     /**
@@ -114,6 +688,7 @@ public class LogDAO {
             if (rows == 0) {
                 throw new DBException("日志记录不存在或已被删除。");
             }
+            LogCountService.getInstance().onDeleted(rows);
 
         } catch (SQLException e) {
             throw new DBException("删除日志失败: " + e.getMessage(), e);
@@ -150,9 +725,15 @@ public class LogDAO {
                 ps.addBatch();
             }
 
-            ps.executeBatch();
+            int[] results = ps.executeBatch();
             conn.commit();
 
+            int deleted = 0;
+            for (int r : results) {
+                deleted += Math.max(r, 0);
+            }
+            LogCountService.getInstance().onDeleted(deleted);
+
         } catch (SQLException e) {
             try {
                 if (conn != null) conn.rollback();
@@ -184,8 +765,15 @@ public class LogDAO {
 
         try {
             conn = DBHelper.getConnection();
-            ps = conn.prepareStatement(sql);
-            ps.executeUpdate();
+
+            // ★ 分区表直接清空所有分区（元数据操作，且不重置自增ID）
+            if (partitionManager.isPartitioned()) {
+                partitionManager.truncateAll(conn);
+            } else {
+                ps = conn.prepareStatement(sql);
+                ps.executeUpdate();
+            }
+            LogCountService.getInstance().onCleared();
 
         } catch (SQLException e) {
             throw new DBException("清空日志失败: " + e.getMessage(), e);
@@ -201,6 +789,8 @@ public class LogDAO {
 
     /**
      * 删除指定日期之前的日志
+     * ★ 整月早于该日期的月份交给 {@link LogArchiver} 先导出归档再删除（整月分区 DROP PARTITION），
+     * 只有边界月份内早于该日期的剩余行才逐行 DELETE（不归档）
      */
     public void deleteLogsBefore(Date date) throws DBException {
         String sql = "DELETE FROM sys_logs WHERE op_time < ?";
@@ -209,12 +799,18 @@ public class LogDAO {
         PreparedStatement ps = null;
 
         try {
+            long archived = new LogArchiver().archiveBefore(YearMonth.from(date.toLocalDate()));
+            if (archived > 0) {
+                System.out.println("已归档并删除 " + archived + " 条历史日志。");
+            }
+
             conn = DBHelper.getConnection();
             ps = conn.prepareStatement(sql);
             ps.setDate(1, date);
 
             int rows = ps.executeUpdate();
             System.out.println("已删除 " + rows + " 条历史日志。");
+            LogCountService.getInstance().onDeleted(rows);
 
         } catch (SQLException e) {
             throw new DBException("删除历史日志失败: " + e.getMessage(), e);
@@ -229,19 +825,27 @@ public class LogDAO {
     }
 
     /**
-     * 获取日志总数
+     * 获取日志总数（常数时间，来自 {@link LogCountService}，可能是估算值）
      */
     public int getLogCount() {
-        String sql = "SELECT COUNT(*) FROM sys_logs";
+        return (int) Math.max(0, LogCountService.getInstance().getCount());
+    }
+
+    /**
+     * ★ 获取时间范围内的日志条数（只扫描范围内的分区）
+     */
+    public int getLogCount(Timestamp from, Timestamp to) {
+        String sql = "SELECT COUNT(*) FROM sys_logs" + timeRangeClause(from, to);
 
         Connection conn = null;
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet rs = null;
 
         try {
             conn = DBHelper.getConnection();
-            stmt = conn.createStatement();
-            rs = stmt.executeQuery(sql);
+            stmt = conn.prepareStatement(sql);
+            bindTimeRange(stmt, 1, from, to);
+            rs = stmt.executeQuery();
 
             if (rs.next()) {
                 return rs.getInt(1);
@@ -0,0 +1,300 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+import com.library.util.SchemaHelper;
+
+import java.sql.*;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * sys_logs 按月分区管理
+ *
+ * 分区规则：RANGE (TO_DAYS(op_time))，每月一个分区 pYYYYMM，末尾保留 pmax 兜底。
+ * - 创建：首次运行时把普通表改造为分区表（主键需包含 op_time）
+ * - 滚动：提前创建未来 {@link SystemConfig#LOG_PARTITION_AHEAD_MONTHS} 个月的分区（从空的 pmax 中拆出，几乎无开销）
+ * - 归档：超过 {@link SystemConfig#LOG_RETENTION_MONTHS} 个月的数据由 {@link LogArchiver} 导出到本地文件后，
+ *         再通过 {@link #dropPartition} 整体删除（元数据操作，不逐行 DELETE）
+ *
+ * 每个桌面客户端和服务端启动时都会执行维护；改造和滚动分区前先取得命名锁 {@link #MAINTENANCE_LOCK}，
+ * 同一时间只有一个进程执行 DDL，其他进程本次跳过。
+ */
+public class LogPartitionManager {
+    private static final String TABLE = "sys_logs";
+    private static final String MAX_PARTITION = "pmax";
+
+    /**
+     * 日志维护命名锁（分区改造、滚动和归档共用）
+     */
+    static final String MAINTENANCE_LOCK = "library-log-maintenance";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    /**
+     * 分区信息（用于展示和保留策略）
+     */
+    public static class PartitionInfo {
+        public String name;
+        public YearMonth month;   // pmax 为 null
+        public long approxRows;   // 来自 information_schema，近似值
+    }
+
+    /**
+     * 分区名 → 对应月份，非月分区（如 pmax）返回 null
+     */
+    static YearMonth monthOf(String partitionName) {
+        if (partitionName == null || !partitionName.matches("p\\d{6}")) {
+            return null;
+        }
+        return YearMonth.parse(partitionName.substring(1), DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+
+    static String partitionName(YearMonth month) {
+        return month.format(NAME_FORMAT);
+    }
+
+    /**
+     * 该月分区的上界表达式（下个月第一天）
+     */
+    private static String upperBound(YearMonth month) {
+        return "TO_DAYS('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    /**
+     * 判断 sys_logs 是否已经是分区表
+     */
+    public boolean isPartitioned() throws DBException {
+        try (Connection conn = DBHelper.getConnection()) {
+            return isPartitioned(conn);
+        } catch (SQLException e) {
+            throw new DBException("查询日志分区信息失败: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean isPartitioned(Connection conn) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    /**
+     * ★ 首次运行：将 sys_logs 改造为按月分区表
+     * 1. op_time 统一为 DATETIME（TIMESTAMP 列不能用 TO_DAYS 分区）
+     * 2. 主键改为 (id, op_time)（MySQL 要求分区列包含在所有唯一键中）
+     * 3. 按已有数据的最早月份到未来若干月建分区
+     * 其他进程正在维护时直接返回，由取得锁的进程完成改造。
+     */
+    public void ensurePartitioned() throws DBException {
+        try (Connection conn = DBHelper.getConnection()) {
+            if (isPartitioned(conn)) {
+                return;
+            }
+            if (!SchemaHelper.tryLock(conn, MAINTENANCE_LOCK)) {
+                System.out.println("其他进程正在维护日志分区，本次跳过");
+                return;
+            }
+            try {
+                // 取得锁后再检查一次：其他进程可能刚刚完成改造
+                if (!isPartitioned(conn)) {
+                    partition(conn);
+                }
+            } finally {
+                SchemaHelper.releaseLock(conn, MAINTENANCE_LOCK);
+            }
+        } catch (SQLException e) {
+            throw new DBException("创建日志分区失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void partition(Connection conn) throws SQLException {
+        if (!"datetime".equals(SchemaHelper.columnType(conn, TABLE, "op_time"))) {
+            SchemaHelper.execute(conn, "ALTER TABLE " + TABLE +
+                    " MODIFY op_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP");
+        }
+
+        // 上次改造在建分区前中断时主键已是 (id, op_time)，不再重建
+        if (!primaryKeyHasOpTime(conn)) {
+            SchemaHelper.execute(conn, "ALTER TABLE " + TABLE +
+                    " DROP PRIMARY KEY, ADD PRIMARY KEY (id, op_time)");
+        }
+
+        YearMonth first = YearMonth.now();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(op_time) FROM " + TABLE)) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                first = YearMonth.from(rs.getTimestamp(1).toLocalDateTime());
+            }
+        }
+
+        // 超出保留期的历史数据全部归入第一个分区，随后由归档任务导出并删除
+        YearMonth oldestKept = YearMonth.now().minusMonths(SystemConfig.LOG_RETENTION_MONTHS);
+        if (first.isBefore(oldestKept)) {
+            first = oldestKept;
+        }
+        YearMonth last = YearMonth.now().plusMonths(SystemConfig.LOG_PARTITION_AHEAD_MONTHS);
+
+        StringBuilder ddl = new StringBuilder("ALTER TABLE " + TABLE +
+                " PARTITION BY RANGE (TO_DAYS(op_time)) (");
+        for (YearMonth m = first; !m.isAfter(last); m = m.plusMonths(1)) {
+            ddl.append("PARTITION ").append(partitionName(m))
+                    .append(" VALUES LESS THAN (").append(upperBound(m)).append("), ");
+        }
+        ddl.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN MAXVALUE)");
+        SchemaHelper.execute(conn, ddl.toString());
+
+        System.out.println("sys_logs 已改造为按月分区表: " + partitionName(first) + " ~ " + partitionName(last));
+    }
+
+    private boolean primaryKeyHasOpTime(Connection conn) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() " +
+                "AND TABLE_NAME = ? AND INDEX_NAME = 'PRIMARY' AND COLUMN_NAME = 'op_time'";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * 获取分区列表（按分区顺序）
+     */
+    public List<PartitionInfo> listPartitions() throws DBException {
+        try (Connection conn = DBHelper.getConnection()) {
+            return listPartitions(conn);
+        } catch (SQLException e) {
+            throw new DBException("查询日志分区信息失败: " + e.getMessage(), e);
+        }
+    }
+
+    private List<PartitionInfo> listPartitions(Connection conn) throws SQLException {
+        String sql = "SELECT PARTITION_NAME, TABLE_ROWS FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+                "ORDER BY PARTITION_ORDINAL_POSITION";
+        List<PartitionInfo> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    PartitionInfo info = new PartitionInfo();
+                    info.name = rs.getString("PARTITION_NAME");
+                    info.month = monthOf(info.name);
+                    info.approxRows = rs.getLong("TABLE_ROWS");
+                    list.add(info);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * ★ 滚动：保证当前月到未来 N 个月的分区都已存在
+     * 新分区从 pmax 中拆出；pmax 始终为空，REORGANIZE 只改元数据。
+     * 其他进程正在维护时本次跳过。
+     * @return 新建的分区数
+     */
+    public int rollPartitions() throws DBException {
+        try (Connection conn = DBHelper.getConnection()) {
+            if (!SchemaHelper.tryLock(conn, MAINTENANCE_LOCK)) {
+                return 0;
+            }
+            try {
+                return roll(conn);
+            } finally {
+                SchemaHelper.releaseLock(conn, MAINTENANCE_LOCK);
+            }
+        } catch (SQLException e) {
+            throw new DBException("滚动创建日志分区失败: " + e.getMessage(), e);
+        }
+    }
+
+    private int roll(Connection conn) throws SQLException {
+        if (!isPartitioned(conn)) {
+            return 0;
+        }
+
+        YearMonth lastExisting = null;
+        for (PartitionInfo p : listPartitions(conn)) {
+            if (p.month != null && (lastExisting == null || p.month.isAfter(lastExisting))) {
+                lastExisting = p.month;
+            }
+        }
+
+        YearMonth target = YearMonth.now().plusMonths(SystemConfig.LOG_PARTITION_AHEAD_MONTHS);
+        YearMonth next = lastExisting == null ? YearMonth.now() : lastExisting.plusMonths(1);
+        if (next.isAfter(target)) {
+            return 0;
+        }
+
+        StringBuilder ddl = new StringBuilder("ALTER TABLE " + TABLE +
+                " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (");
+        int created = 0;
+        for (YearMonth m = next; !m.isAfter(target); m = m.plusMonths(1)) {
+            ddl.append("PARTITION ").append(partitionName(m))
+                    .append(" VALUES LESS THAN (").append(upperBound(m)).append("), ");
+            created++;
+        }
+        ddl.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN MAXVALUE)");
+        SchemaHelper.execute(conn, ddl.toString());
+        return created;
+    }
+
+    /**
+     * 删除指定月份的分区（分区不存在或为最后一个月分区时不删除）
+     * 调用方需保证该分区中的数据都已归档：第一个月分区还包含更早的历史数据。
+     * @return 是否已删除
+     */
+    boolean dropPartition(Connection conn, YearMonth month) throws SQLException {
+        if (!isPartitioned(conn)) {
+            return false;
+        }
+
+        String name = partitionName(month);
+        boolean found = false;
+        int monthPartitions = 0;
+        for (PartitionInfo p : listPartitions(conn)) {
+            if (p.month != null) {
+                monthPartitions++;
+                found |= p.name.equals(name);
+            }
+        }
+        if (!found || monthPartitions <= 1) {
+            return false;
+        }
+
+        SchemaHelper.execute(conn, "ALTER TABLE " + TABLE + " DROP PARTITION " + name);
+        return true;
+    }
+
+    /**
+     * 清空全部分区（保留表结构和自增计数）
+     */
+    void truncateAll(Connection conn) throws SQLException {
+        SchemaHelper.execute(conn, "ALTER TABLE " + TABLE + " TRUNCATE PARTITION ALL");
+    }
+
+    /**
+     * ★ 定时维护入口：建表分区、滚动（不抛出异常，静默失败）
+     * 过期分区不在这里删除，由 {@link LogArchiver} 归档后再删除。
+     */
+    public void maintain() {
+        try {
+            ensurePartitioned();
+            int created = rollPartitions();
+            if (created > 0) {
+                System.out.println("日志分区维护完成: 新建 " + created + " 个分区");
+            }
+        } catch (DBException e) {
+            // 分区维护失败不影响主业务（例如数据库账号没有 ALTER 权限），日志仍写入原表
+            System.err.println("日志分区维护失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.entity.LogEvent;
+import com.library.entity.LogEventType;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+import com.library.util.JsonUtil;
+import com.library.util.SchemaHelper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ★ 日志本地缓存（预写文件）
+ *
+ * 数据库不可用或写入超时时，日志追加到本地文件 spool/sys_logs-&lt;代号&gt;.spool（每行一条 JSON），
+ * 后台任务在数据库恢复后按批补写回 sys_logs，保留原始的操作人和操作时间。
+ *
+ * - 写入：追加写文件（进程崩溃不丢），由后台线程每 {@link SystemConfig#LOG_SPOOL_FSYNC_MILLIS} 毫秒批量刷盘
+ * - 熔断：一次因连接失败、断线或超时写库失败后标记数据库不可用，之后的日志直接写本地文件，
+ *         业务线程不再等待连接超时；由补写任务探测数据库恢复后再切回。
+ *         数据过长、约束冲突等数据本身的错误不熔断
+ * - 隔离：数据本身有问题、重试也写不进去的日志追加到 spool/quarantine.log（格式同缓存文件，
+ *         多一个 error 字段），补写时遇到这样的行也隔离后跳过，不会卡住后面的日志
+ * - 补写：每批日志与补写进度（sys_log_spool 表）在同一个事务中提交，中途失败不会重复或丢失；
+ *         文件补写完毕后删除，新日志写入新代号的文件
+ * - 进度按 (实例编号, 代号) 记录：sys_log_spool 由所有客户端和服务端共用，代号取自时间可能重复，
+ *   实例编号是首次使用缓存目录时生成并保存在目录中的 UUID（instance.id）
+ */
+public class LogSpool {
+    private static final String FILE_PREFIX = "sys_logs-";
+    private static final String FILE_SUFFIX = ".spool";
+    private static final String INSTANCE_FILE = "instance.id";
+    private static final String QUARANTINE_FILE = "quarantine.log";
+
+    private static final LogSpool INSTANCE = new LogSpool(Paths.get(SystemConfig.LOG_SPOOL_DIR));
+
+    private final Path dir;
+    private final LogDAO logDAO = new LogDAO();
+
+    // 追加写状态（受 lock 保护）
+    private final Object lock = new Object();
+    private FileChannel channel;
+    private long generation;
+    private boolean dirty;
+
+    private volatile boolean databaseHealthy = true;
+    private String instanceId;
+    private boolean schemaReady;
+    private ScheduledExecutorService executor;
+
+    private LogSpool(Path dir) {
+        this.dir = dir;
+    }
+
+    public static LogSpool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 启动后台刷盘和补写任务（重复调用无副作用）
+     * 使用独立线程，不与耗时的分区维护、归档任务排队。
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "library-log-spool");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::flush,
+                SystemConfig.LOG_SPOOL_FSYNC_MILLIS, SystemConfig.LOG_SPOOL_FSYNC_MILLIS, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::replay,
+                0, SystemConfig.LOG_SPOOL_REPLAY_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "library-log-spool-flush"));
+    }
+
+    /**
+     * 数据库当前是否可写（false 时日志直接写本地缓存）
+     */
+    public boolean isDatabaseHealthy() {
+        return databaseHealthy;
+    }
+
+    /**
+     * 写库失败后调用：后续日志直接写本地缓存，直到补写任务探测到数据库恢复
+     */
+    public void markUnhealthy(Exception cause) {
+        if (databaseHealthy) {
+            databaseHealthy = false;
+            System.err.println("日志写入数据库失败，改为写入本地缓存: " + cause.getMessage());
+        }
+    }
+
+    /**
+     * ★ 写库异常是否表示数据库不可用（获取连接失败、断线、超时），只有这类异常才熔断
+     */
+    static boolean isUnavailable(Exception e) {
+        if (e instanceof DBException) {
+            return true;
+        }
+        if (e instanceof SQLTimeoutException || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        if (e instanceof SQLException) {
+            String state = ((SQLException) e).getSQLState();
+            return state != null && state.startsWith("08");
+        }
+        return false;
+    }
+
+    /**
+     * ★ 隔离一条写不进数据库的日志（不抛出异常），留待人工处理
+     */
+    public void quarantine(LogEvent event, Exception cause) {
+        String line = toLine(event, cause.getMessage());
+        System.err.println("日志无法写入数据库，已隔离: " + cause.getMessage());
+        synchronized (lock) {
+            try {
+                Files.createDirectories(dir);
+                Files.write(dir.resolve(QUARANTINE_FILE), line.getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("写入隔离文件失败: " + e.getMessage() + "，日志内容: " + line);
+            }
+        }
+    }
+
+    private static String toLine(LogEvent event, String error) {
+        return JsonUtil.object(
+                "eventType", event.getEventType().name(),
+                "actorId", event.getActorId(),
+                "username", event.getUsername(),
+                "targetId", event.getTargetId(),
+                "payload", event.getPayload(),
+                "operation", event.getOperation(),
+                "opTime", event.getOpTime().getTime(),
+                "error", error) + "\n";
+    }
+
+    /**
+     * ★ 追加一条日志到本地缓存（不抛出异常）
+     */
+    public void append(LogEvent event) {
+        String line = toLine(event, null);
+        ByteBuffer buf = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+
+        synchronized (lock) {
+            try {
+                if (channel == null) {
+                    Files.createDirectories(dir);
+                    generation = Math.max(System.currentTimeMillis(), generation + 1);
+                    channel = FileChannel.open(fileOf(generation), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                dirty = true;
+            } catch (IOException e) {
+                // 数据库和本地文件都不可用，只能输出到控制台
+                System.err.println("写入日志本地缓存失败: " + e.getMessage() + "，日志内容: " + line);
+            }
+        }
+    }
+
+    /**
+     * 批量刷盘：把上次刷盘后追加的内容一次性写入磁盘
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (!dirty || channel == null) {
+                return;
+            }
+            try {
+                channel.force(false);
+                dirty = false;
+            } catch (IOException e) {
+                System.err.println("日志本地缓存刷盘失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * ★ 补写任务：数据库可用时把本地缓存按代号顺序补写回 sys_logs（不抛出异常）
+     */
+    public void replay() {
+        try {
+            TreeMap<Long, Path> files = listSpoolFiles();
+            if (files.isEmpty()) {
+                if (!databaseHealthy) {
+                    // 没有待补写的缓存，但要确认数据库确实已恢复再切回
+                    try (Connection conn = DBHelper.getConnection(SystemConfig.LOG_WRITE_TIMEOUT_MILLIS);
+                         Statement stmt = conn.createStatement()) {
+                        stmt.executeQuery("SELECT 1").close();
+                    }
+                    databaseHealthy = true;
+                }
+                return;
+            }
+
+            try (Connection conn = DBHelper.getConnection(SystemConfig.LOG_WRITE_TIMEOUT_MILLIS)) {
+                ensureSchema(conn);
+                for (Map.Entry<Long, Path> e : files.entrySet()) {
+                    replayFile(conn, e.getKey(), e.getValue());
+                }
+            }
+            databaseHealthy = true;
+
+        } catch (DBException | SQLException | IOException e) {
+            // 数据库仍不可用，下次再试
+        }
+    }
+
+    /**
+     * 补写进度表（与补写的日志在同一事务中提交）
+     */
+    private void ensureSchema(Connection conn) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        SchemaHelper.execute(conn, "CREATE TABLE IF NOT EXISTS sys_log_spool (" +
+                "instance_id VARCHAR(36) NOT NULL, " +
+                "generation BIGINT NOT NULL, " +
+                "committed_offset BIGINT NOT NULL, " +
+                "PRIMARY KEY (instance_id, generation))");
+        schemaReady = true;
+    }
+
+    /**
+     * 本机缓存目录的实例编号（首次使用时生成并保存）
+     */
+    private String instanceId() throws IOException {
+        if (instanceId == null) {
+            Files.createDirectories(dir);
+            Path file = dir.resolve(INSTANCE_FILE);
+            if (Files.exists(file)) {
+                instanceId = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+            }
+            if (instanceId == null || instanceId.isEmpty()) {
+                instanceId = UUID.randomUUID().toString();
+                Files.write(file, instanceId.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return instanceId;
+    }
+
+    private TreeMap<Long, Path> listSpoolFiles() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                String code = name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length());
+                try {
+                    files.put(Long.parseLong(code), p);
+                } catch (NumberFormatException ignored) {
+                    // 不是缓存文件
+                }
+            }
+        }
+        return files;
+    }
+
+    private Path fileOf(long generation) {
+        return dir.resolve(FILE_PREFIX + generation + FILE_SUFFIX);
+    }
+
+    /**
+     * 补写一个缓存文件：从已提交的偏移开始，逐批插入并在同一事务中推进偏移
+     */
+    private void replayFile(Connection conn, long generation, Path file) throws SQLException, IOException {
+        String instance = instanceId();
+        long offset = committedOffset(conn, instance, generation);
+
+        while (true) {
+            List<LogEvent> batch = new ArrayList<>();
+            long next = readBatch(file, offset, batch);
+            if (next == offset) {
+                break;
+            }
+
+            conn.setAutoCommit(false);
+            int inserted;
+            try {
+                try {
+                    logDAO.insertEvents(conn, batch);
+                    inserted = batch.size();
+                } catch (SQLException e) {
+                    if (isUnavailable(e) || LogDAO.abortsTransaction(e)) {
+                        throw e;
+                    }
+                    // 某条日志的数据有问题：整批回滚后逐条插入，隔离有问题的行，偏移照常推进
+                    conn.rollback();
+                    inserted = insertEach(conn, batch);
+                }
+                saveOffset(conn, instance, generation, next);
+                conn.commit();
+                LogCountService.getInstance().onInserted(inserted);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            offset = next;
+            System.out.println("已从本地缓存补写日志 " + inserted + " 条");
+        }
+
+        retire(conn, instance, generation, file, offset);
+    }
+
+    /**
+     * 在当前事务中逐条插入，数据有问题的行隔离后跳过（语句级失败只回滚这一条）
+     * @return 插入的条数
+     */
+    private int insertEach(Connection conn, List<LogEvent> batch) throws SQLException {
+        int inserted = 0;
+        for (LogEvent event : batch) {
+            try {
+                logDAO.insertEvent(conn, event);
+                inserted++;
+            } catch (SQLException e) {
+                if (isUnavailable(e) || LogDAO.abortsTransaction(e)) {
+                    throw e;
+                }
+                quarantine(event, e);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * 从 offset 开始读取至多一批完整的行（未写完的最后一行留到下次），返回新的偏移
+     */
+    private long readBatch(Path file, long offset, List<LogEvent> batch) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (offset >= ch.size()) {
+                return offset;
+            }
+            ch.position(offset);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(ch), 64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+            long position = offset;
+            int b;
+            while (batch.size() < SystemConfig.LOG_SPOOL_REPLAY_BATCH && (b = in.read()) >= 0) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                line.reset();
+                offset = position;
+                if (text.isEmpty()) {
+                    continue;
+                }
+                try {
+                    batch.add(parse(text));
+                } catch (RuntimeException e) {
+                    // 损坏的行跳过，避免阻塞后续日志
+                    System.err.println("跳过无法解析的缓存日志: " + text);
+                }
+            }
+            return offset;
+        }
+    }
+
+    private LogEvent parse(String text) {
+        Map<String, Object> json = JsonUtil.parseObject(text);
+        LogEvent event = new LogEvent(
+                LogEventType.fromCode((String) json.get("eventType")),
+                toInteger(json.get("targetId")),
+                (String) json.get("payload"),
+                (String) json.get("operation"));
+        event.setActorId(toInteger(json.get("actorId")));
+        event.setUsername((String) json.get("username"));
+        event.setOpTime(new Timestamp(((Number) json.get("opTime")).longValue()));
+        return event;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    /**
+     * 文件已补写完毕：正在追加的文件只有在没有新内容时才关闭，随后删除文件和进度
+     */
+    private void retire(Connection conn, String instance, long generation, Path file, long offset)
+            throws SQLException, IOException {
+        synchronized (lock) {
+            if (Files.size(file) > offset) {
+                return; // 补写期间又有新日志追加，下次继续
+            }
+            if (channel != null && this.generation == generation) {
+                channel.close();
+                channel = null;
+                dirty = false;
+            }
+            Files.deleteIfExists(file);
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM sys_log_spool WHERE instance_id = ? AND generation = ?")) {
+            ps.setString(1, instance);
+            ps.setLong(2, generation);
+            ps.executeUpdate();
+        }
+    }
+
+    private long committedOffset(Connection conn, String instance, long generation) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT committed_offset FROM sys_log_spool WHERE instance_id = ? AND generation = ?")) {
+            ps.setString(1, instance);
+            ps.setLong(2, generation);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private void saveOffset(Connection conn, String instance, long generation, long offset) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO sys_log_spool (instance_id, generation, committed_offset) VALUES (?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE committed_offset = VALUES(committed_offset)")) {
+            ps.setString(1, instance);
+            ps.setLong(2, generation);
+            ps.setLong(3, offset);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.util.SessionManager;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台维护任务调度器
+ * 应用启动时调用 {@link #start()}，数据库维护任务在两个守护线程中执行，不阻塞界面：
+ * - library-maintenance：短小、需要准时的清理（会话、操作编号、预约保留期）
+ * - library-maintenance-bulk：耗时的任务（日志分区 DDL、归档、用户名过滤器重建），
+ *   执行几分钟甚至更久也不会让上面的清理排队等待
+ */
+public class MaintenanceScheduler {
+
+    private static ScheduledExecutorService scheduler;
+    private static ScheduledExecutorService bulkScheduler;
+
+    /**
+     * 启动后台维护任务（重复调用无副作用）
+     * @throws IllegalStateException 必需的表结构升级失败
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        // ★ 表结构升级（可重复执行），需在写入任何日志之前完成，因此同步执行；
+        // 必需的升级失败时抛出异常终止启动（此时尚未创建任何后台线程）
+        LogDAO.ensureSchema();
+        UserDAO.ensureSchema();
+        BookDAO.ensureSchema();
+        HoldDAO.ensureSchema();
+
+        scheduler = newDaemonScheduler("library-maintenance");
+        bulkScheduler = newDaemonScheduler("library-maintenance-bulk");
+
+        // ★ 日志本地缓存：刷盘和补写使用独立线程
+        LogSpool.getInstance().start();
+
+        // ★ 用户名过滤器：先于耗时的维护任务建立，之后定期重建（补上其他进程的改名）
+        bulkScheduler.execute(UsernameRegistry.getInstance()::rebuild);
+        bulkScheduler.scheduleWithFixedDelay(UsernameRegistry.getInstance()::rebuild, SystemConfig.USERNAME_FILTER_REBUILD_HOURS,
+                SystemConfig.USERNAME_FILTER_REBUILD_HOURS, TimeUnit.HOURS);
+
+        // ★ 清理空闲超时的会话
+        scheduler.scheduleWithFixedDelay(SessionManager::purgeExpired, 1, 1, TimeUnit.MINUTES);
+
+        // ★ 清理过期的流通操作编号
+        scheduler.scheduleWithFixedDelay(CirculationOps::purgeExpired, 1, 1, TimeUnit.HOURS);
+
+        // ★ 预约保留期已过的图书顺延给下一位读者
+        HoldDAO holdDAO = new HoldDAO();
+        scheduler.scheduleWithFixedDelay(holdDAO::expireReadyHolds, SystemConfig.HOLD_SWEEP_INTERVAL_SECONDS,
+                SystemConfig.HOLD_SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        // ★ 日志分区与归档：启动时立即检查一次，之后按固定间隔执行
+        // 先滚动分区，再归档过期月份（归档完成后才删除对应分区，过期日志不会在归档前丢失）
+        LogPartitionManager partitionManager = new LogPartitionManager();
+        LogArchiver archiver = new LogArchiver();
+        bulkScheduler.scheduleWithFixedDelay(() -> {
+            partitionManager.maintain();
+            archiver.maintain();
+        }, 0, SystemConfig.MAINTENANCE_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    private static ScheduledExecutorService newDaemonScheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 获取执行短小清理任务的调度线程（供其他后台任务复用，不要提交耗时任务）
+     */
+    public static synchronized ScheduledExecutorService getScheduler() {
+        start();
+        return scheduler;
+    }
+
+    /**
+     * 获取执行耗时维护任务的调度线程（如全表读取、DDL）
+     */
+    public static synchronized ScheduledExecutorService getBulkScheduler() {
+        start();
+        return bulkScheduler;
+    }
+
+    /**
+     * 停止所有后台维护任务
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            bulkScheduler.shutdownNow();
+            scheduler = null;
+            bulkScheduler = null;
+        }
+        LogSpool.getInstance().flush();
+    }
+}
@@ -0,0 +1,91 @@
+package com.library.dao;
+
+import com.library.entity.Notification;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+import com.library.util.SchemaHelper;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ★ 读者通知（本地 notification_outbox 表）
+ *
+ * 到书、预约过期等通知由产生它的事务直接写入（{@link #enqueue}），与业务数据一起提交或回滚，
+ * 不会出现书已分配却没有通知、或通知了却未分配的情况。
+ * 客户端定期读取当前用户的未读通知（按 (user_id, read_at, id) 索引），不需要反复搜索图书目录。
+ */
+public class NotificationDAO {
+
+    public static final String HOLD_READY = "HOLD_READY";
+    public static final String HOLD_EXPIRED = "HOLD_EXPIRED";
+    public static final String HOLD_CANCELLED = "HOLD_CANCELLED";
+
+    /**
+     * 建表（可重复执行）
+     */
+    static void ensureSchema(Connection conn) throws SQLException {
+        SchemaHelper.execute(conn, "CREATE TABLE IF NOT EXISTS notification_outbox (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "user_id INT NOT NULL, " +
+                "book_id INT NULL, " +
+                "event_type VARCHAR(32) NOT NULL, " +
+                "message VARCHAR(500) NOT NULL, " +
+                "created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "read_at DATETIME NULL, " +
+                "INDEX idx_notification_unread (user_id, read_at, id))");
+    }
+
+    /**
+     * 在调用方的事务中写入一条通知
+     */
+    static void enqueue(Connection conn, int userId, int bookId, String type, String message) throws SQLException {
+        String sql = "INSERT INTO notification_outbox (user_id, book_id, event_type, message) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setInt(2, bookId);
+            ps.setString(3, type);
+            ps.setString(4, message);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 查询用户的未读通知（按时间顺序）
+     */
+    public List<Notification> findUnread(int userId) throws DBException {
+        String sql = "SELECT id, user_id, book_id, event_type, message, created_at FROM notification_outbox " +
+                "WHERE user_id = ? AND read_at IS NULL ORDER BY id";
+        List<Notification> list = new ArrayList<>();
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new Notification(rs.getLong(1), rs.getInt(2), rs.getInt(3),
+                            rs.getString(4), rs.getString(5), rs.getTimestamp(6)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException("查询通知失败: " + e.getMessage(), e);
+        }
+        return list;
+    }
+
+    /**
+     * 将用户编号不超过 upToId 的未读通知标记为已读（读取之后新到的通知不受影响）
+     */
+    public void markRead(int userId, long upToId) throws DBException {
+        String sql = "UPDATE notification_outbox SET read_at = NOW() " +
+                "WHERE user_id = ? AND read_at IS NULL AND id <= ?";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setLong(2, upToId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new DBException("更新通知状态失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.library.dao;
+
+/**
+ * ★ 流式查询的逐行回调
+ * 由 {@link StreamingQuery} 每读到一行调用一次（日志归档导出、用户名过滤器重建），
+ * 调用方处理完当前行后它即可被回收，整个查询的内存占用与数据量无关。
+ *
+ * @param <T> 行对应的实体类型
+ */
+public interface RowHandler<T> {
+
+    /**
+     * 处理一行
+     * @return true 继续读取下一行；false 提前结束，剩余的行不再从服务器读取
+     * @throws Exception 处理失败（如写文件出错），查询随即结束，异常包装为 DBException 抛给调用方
+     */
+    boolean handle(T row) throws Exception;
+}
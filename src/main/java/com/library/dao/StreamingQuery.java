@@ -0,0 +1,102 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+
+import java.sql.*;
+
+/**
+ * ★ 流式查询（DAO 内部使用）
+ *
+ * fetchSize = Integer.MIN_VALUE 时 MySQL 驱动逐行从服务器读取，结果集不整体缓存在客户端，
+ * 全表导出、报表、归档可以处理任意多的数据而内存占用不变。
+ *
+ * 流式结果集在读完之前独占连接，因此每次查询单独取一个连接，结束后一定释放：
+ * - 正常读完：正常关闭；
+ * - 回调要求提前结束或处理出错：直接中止连接（abort），
+ *   不再像 close 那样先把剩余的行全部读完丢弃，大表上提前结束也能立即返回。
+ */
+final class StreamingQuery {
+
+    private StreamingQuery() {
+    }
+
+    /**
+     * 把结果集的一行读成实体
+     */
+    interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * 执行查询，把每一行交给回调
+     * @param sql 查询语句
+     * @param reader 行读取方式
+     * @param handler 逐行回调，返回 false 提前结束
+     * @param params 查询参数
+     * @return 交给回调处理的行数
+     */
+    static <T> long stream(String sql, RowReader<T> reader, RowHandler<? super T> handler, Object... params)
+            throws DBException {
+        Connection conn = DBHelper.getConnection();
+        boolean completed = false;
+        long rows = 0;
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                // 调用方逐行处理较慢时，避免服务器等待发送超时断开连接
+                stmt.execute("SET SESSION net_write_timeout = " + SystemConfig.STREAM_NET_WRITE_TIMEOUT_SECONDS);
+            }
+
+            PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                rows++;
+                if (!handler.handle(reader.read(rs))) {
+                    return rows;
+                }
+            }
+            rs.close();
+            ps.close();
+            completed = true;
+            return rows;
+
+        } catch (SQLException e) {
+            throw new DBException("流式查询失败: " + e.getMessage(), e);
+        } catch (DBException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DBException("处理查询结果失败: " + e.getMessage(), e);
+        } finally {
+            release(conn, completed);
+        }
+    }
+
+    /**
+     * 释放连接：读完的恢复 net_write_timeout 后正常关闭（服务模式下归还连接池，不能把调大的超时带给下一个使用者），
+     * 未读完或恢复失败的直接中止（连接池丢弃该连接）
+     */
+    private static void release(Connection conn, boolean completed) {
+        if (completed) {
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SET SESSION net_write_timeout = @@GLOBAL.net_write_timeout");
+                }
+                conn.close();
+                return;
+            } catch (SQLException e) {
+                System.err.println("恢复流式查询连接失败: " + e.getMessage());
+            }
+        }
+        try {
+            conn.abort(Runnable::run);
+        } catch (SQLException e) {
+            System.err.println("释放流式查询连接失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.entity.User;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ★ 用户信息缓存（按用户 ID 和用户名查找）
+ *
+ * 个人中心、启用/禁用、删除、注销等操作都要先按 ID 读一次用户，这些重复读取改为内存查找：
+ * - 容量：按最近访问顺序（LRU）保留至多 {@link SystemConfig#USER_CACHE_MAX_ENTRIES} 个用户
+ * - 有效期：缓存超过 {@link SystemConfig#USER_CACHE_TTL_SECONDS} 秒后重新查库，
+ *   限制其他客户端修改用户后本机读到旧数据的时间
+ * - 失效：本机修改用户名、密码、状态或删除用户后由 UserDAO 立即使对应用户失效
+ * - 返回副本，调用方修改返回的 User 不会影响缓存
+ * - 用户名索引不区分大小写，与 MySQL 的用户名比较规则一致（"Alice" 命中 "alice" 的缓存）
+ *
+ * 登录验证不读缓存，始终以数据库中的密码和状态为准。
+ */
+public class UserCache {
+    private static final UserCache INSTANCE = new UserCache();
+
+    /**
+     * 一个缓存的用户
+     */
+    private static class CachedUser {
+        final User user;
+        final long loadedAt;
+
+        CachedUser(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final Map<Integer, CachedUser> byId = new LinkedHashMap<Integer, CachedUser>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedUser> eldest) {
+            if (size() <= SystemConfig.USER_CACHE_MAX_ENTRIES) {
+                return false;
+            }
+            byUsername.remove(key(eldest.getValue().user.getUsername()));
+            evictions++;
+            return true;
+        }
+    };
+    private final Map<String, Integer> byUsername = new HashMap<>();
+
+    // 统计信息（受 this 保护）
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    private UserCache() {
+    }
+
+    public static UserCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 按 ID 查找，未缓存或已过期时返回 null
+     */
+    public synchronized User getById(int userId) {
+        CachedUser cached = byId.get(userId);
+        if (cached == null || isExpired(cached)) {
+            if (cached != null) {
+                remove(userId);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        return copyOf(cached.user);
+    }
+
+    /**
+     * 按用户名查找，未缓存或已过期时返回 null
+     */
+    public synchronized User getByUsername(String username) {
+        Integer userId = byUsername.get(key(username));
+        if (userId == null) {
+            misses++;
+            return null;
+        }
+        return getById(userId);
+    }
+
+    /**
+     * 缓存从数据库读取的用户（保存副本）
+     */
+    public synchronized void put(User user) {
+        remove(user.getId());
+        byId.put(user.getId(), new CachedUser(copyOf(user), System.currentTimeMillis()));
+        byUsername.put(key(user.getUsername()), user.getId());
+    }
+
+    /**
+     * ★ 用户被修改或删除后调用
+     */
+    public synchronized void invalidate(int userId) {
+        if (remove(userId)) {
+            invalidations++;
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        invalidations += byId.size();
+        byId.clear();
+        byUsername.clear();
+    }
+
+    private boolean remove(int userId) {
+        CachedUser old = byId.remove(userId);
+        if (old == null) {
+            return false;
+        }
+        byUsername.remove(key(old.user.getUsername()));
+        return true;
+    }
+
+    /**
+     * 用户名索引的键（与 UsernameRegistry 相同：去掉首尾空格并转为小写）
+     */
+    private static String key(String username) {
+        return username.trim().toLowerCase();
+    }
+
+    private static boolean isExpired(CachedUser cached) {
+        return System.currentTimeMillis() - cached.loadedAt >= SystemConfig.USER_CACHE_TTL_SECONDS * 1000L;
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User(user.getId(), user.getUsername(), user.getPassword(), user.getRole());
+        copy.setIsActive(user.getIsActive());
+        return copy;
+    }
+
+    // ============================================================
+    // ★ 统计信息（用于监控）
+    // ============================================================
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * 命中率（0~1），尚无查询时为 0
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 统计摘要，如 "用户缓存: 12 个, 命中率 93.5% (命中 187, 未命中 13, 淘汰 0, 失效 4)"
+     */
+    public synchronized String getStats() {
+        return String.format("用户缓存: %d 个, 命中率 %.1f%% (命中 %d, 未命中 %d, 淘汰 %d, 失效 %d)",
+                byId.size(), getHitRate() * 100, hits, misses, evictions, invalidations);
+    }
+}
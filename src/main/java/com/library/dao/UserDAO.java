@@ -1,14 +1,109 @@
 package com.library.dao;
 
+import com.library.config.SystemConfig;
+import com.library.entity.LogEvent;
+import com.library.entity.LogEventType;
 import com.library.entity.User;
 import com.library.exception.*;
 import com.library.util.DBHelper;
-import javax.swing.table.DefaultTableModel;
+import com.library.util.JsonUtil;
+import com.library.util.LoginRateLimiter;
+import com.library.util.PasswordHasher;
+import com.library.util.SchemaHelper;
+import com.library.util.SessionManager;
 import java.sql.*;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 public class UserDAO {
+    /** 批量操作失败时提示中最多列出的用户数 */
+    private static final int MAX_LISTED_USERS = 10;
+
+    /**
+     * ★ 账号摘要：删除、注销前需要检查的全部信息（一条聚合查询得到）
+     */
+    public static class AccountSummary {
+        public int userId;
+        public String username;
+        public String role;
+        public int isActive;
+        public int unreturnedCount;     // 未归还图书数
+        public int unpaidFineCount;     // 待支付罚款笔数
+        public double unpaidFineTotal;  // 待支付罚款总额
+    }
+
     private LogDAO logDAO = new LogDAO();
+    private final UserCache cache = UserCache.getInstance();
+
+    /**
+     * 用户检索条件（所有字段可为空，为空表示不限）
+     */
+    public static class UserFilter {
+        public String usernamePrefix;  // 用户名前缀（走用户名索引的范围扫描）
+        public String role;            // "admin" / "user"
+        public Integer isActive;       // 1 正常，0 已禁用，-1 已注销
+    }
+
+    /**
+     * 一页用户检索结果，lastUsername/lastId 为下一页的游标
+     */
+    public static class UserPage {
+        public List<User> users = new ArrayList<>();
+        public String lastUsername;
+        public int lastId;
+        public boolean hasMore;
+        public long total = -1;        // 满足条件的总数（只在首页计算），-1 表示未计算
+        public boolean totalExact;     // false 时 total 为估算值或下限
+    }
+
+    /**
+     * ★ 用户表结构升级（可重复执行）：
+     * - password 列加宽以存放哈希值
+     * - 检索索引：每种条件组合都有以 (username, id) 结尾、等值列在前的索引，按索引顺序读取和翻页，不需要排序：
+     *   无条件或只有用户名前缀 → username 唯一索引（InnoDB 二级索引隐含主键 id，即 (username, id)）；
+     *   状态 → (is_active, username, id)；角色 → (role, username, id)；角色 + 状态 → (role, is_active, username, id)
+     * - 删除与 username 唯一索引重复的旧索引 idx_users_username
+     */
+    public static void ensureSchema() {
+        try (Connection conn = DBHelper.getConnection()) {
+            String sql = "SELECT CHARACTER_MAXIMUM_LENGTH FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users' AND COLUMN_NAME = 'password'";
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                if (rs.next() && rs.getLong(1) < 128) {
+                    SchemaHelper.execute(conn, "ALTER TABLE users MODIFY password VARCHAR(128) NOT NULL");
+                }
+            }
+            if (SchemaHelper.indexExists(conn, "users", "idx_users_username") && hasUniqueUsernameIndex(conn)) {
+                SchemaHelper.execute(conn, "ALTER TABLE users DROP INDEX idx_users_username");
+            }
+            SchemaHelper.ensureIndex(conn, "users", "idx_users_active_name", "(is_active, username, id)");
+            SchemaHelper.ensureIndex(conn, "users", "idx_users_role_name", "(role, username, id)");
+            SchemaHelper.ensureIndex(conn, "users", "idx_users_role_active_name", "(role, is_active, username, id)");
+        } catch (Exception e) {
+            System.err.println("用户表结构升级失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 是否存在只含 username 一列的唯一索引（有它时 (username, id) 索引是多余的）
+     */
+    private static boolean hasUniqueUsernameIndex(Connection conn) throws SQLException {
+        String sql = "SELECT INDEX_NAME FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users' AND NON_UNIQUE = 0 " +
+                "GROUP BY INDEX_NAME HAVING COUNT(*) = 1 AND MAX(COLUMN_NAME) = 'username'";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next();
+        }
+    }
 
     // =================================================================
     // ★ 个人中心和管理员重置凭证所需的新增方法 START
@@ -24,24 +119,11 @@ public class UserDAO {
     }
 
     /**
-     * 检查新密码是否与旧密码相同。
+     * 检查新密码是否与旧密码相同（旧密码为哈希值时按哈希验证）。
      */
-    private boolean isSameAsOldPassword(int userId, String newPassword) throws DBException {
-        String sql = "SELECT password FROM users WHERE id = ?";
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    String oldPassword = rs.getString("password");
-                    return oldPassword.equals(newPassword);
-                }
-                return false;
-            }
-        } catch (SQLException e) {
-            throw new DBException("查询旧密码失败: " + e.getMessage(), e);
-        }
+    public boolean isSameAsOldPassword(int userId, String newPassword) throws DBException {
+        User user = findUser(userId);
+        return user != null && PasswordHasher.verify(newPassword, user.getPassword());
     }
 
     /**
@@ -62,14 +144,19 @@ public class UserDAO {
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, newUsername);
-            ps.setString(2, newPassword);
+            ps.setString(2, PasswordHasher.hash(newPassword));
             ps.setInt(3, userId);
 
-            if (ps.executeUpdate() == 0) {
+            int rows = ps.executeUpdate();
+            cache.invalidate(userId);
+            if (rows == 0) {
                 throw new BusinessException("用户ID不存在，更新失败。");
             }
 
-            logDAO.logOperation("更新了用户ID: " + userId + " 的凭证。新用户名: " + newUsername);
+            UsernameRegistry.getInstance().onAdded(newUsername);
+            SessionManager.invalidateUser(userId);
+            logDAO.logEvent(LogEventType.USER_CREDENTIALS_UPDATED, userId, JsonUtil.object("username", newUsername),
+                    "更新了用户ID: " + userId + " 的凭证。新用户名: " + newUsername);
 
         } catch (SQLException e) {
             if (e.getSQLState().startsWith("23")) {
@@ -86,91 +173,273 @@ public class UserDAO {
     /**
      * ✅ 用户登录验证
      * 改进：区分"已注销"和"已禁用"两种状态
+     * 桌面端登录只按用户名限流：同一台借还机上不同读者的失败不会互相锁定
      */
     public User login(String username, String password) throws AuthException, ValidationException, DBException {
+        return login(username, password, null);
+    }
+
+    /**
+     * ✅ 用户登录验证（指定客户端标识，用于按客户端限流）
+     * @param clientId 客户端标识（如远程地址），null 表示只按用户名限流
+     */
+    public User login(String username, String password, String clientId)
+            throws AuthException, ValidationException, DBException {
         if (username == null || username.isEmpty() || password == null || password.isEmpty()) {
             throw new ValidationException("用户名和密码不能为空。");
         }
 
-        // ✅ 改进：查询时只检查用户名和密码，不限制 is_active
-        String sql = "SELECT * FROM users WHERE username=? AND password=?";
+        // ★ 限流：锁定期间直接拒绝，不查询数据库、不写日志
+        LoginRateLimiter limiter = LoginRateLimiter.getInstance();
+        long wait = limiter.checkAllowed(username, clientId);
+        if (wait > 0) {
+            throw new AuthException("登录失败次数过多，请 " + wait + " 秒后再试。");
+        }
+
+        // ★ 按用户名查询，读出的字段复制到局部变量后立即关闭连接；
+        // 比对密码哈希（验证线程池中计算，耗时数十毫秒）和写日志都不占用数据库连接
+        String sql = "SELECT id, username, password, role, is_active FROM users WHERE username=?";
+        String stored = null;
+        int id = 0;
+        String dbUsername = null;
+        String role = null;
+        int isActive = 0;
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, username);
-            ps.setString(2, password);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    int isActive = rs.getInt("is_active");
-
-                    // ✅ 关键改进：根据不同状态返回不同错误信息
-                    if (isActive == -1) {
-                        // 已注销状态
-                        logDAO.logOperation("尝试登录已注销账号: " + username);
-                        throw new AuthException("该账号已注销，无法登录。");
-                    } else if (isActive == 0) {
-                        // 被管理员禁用
-                        logDAO.logOperation("尝试登录已禁用账号: " + username);
-                        throw new AuthException("账号已被管理员禁用，请联系管理员。");
-                    }
-
-                    // 正常登录
-                    User user = new User(rs.getInt("id"), rs.getString("username"), rs.getString("role"));
-                    logDAO.logOperation("用户 [" + username + "] 登录成功");
-                    return user;
-                } else {
-                    logDAO.logOperation("尝试登录失败: " + username);
-                    throw new AuthException("用户名或密码错误。");
+                    id = rs.getInt("id");
+                    dbUsername = rs.getString("username");
+                    stored = rs.getString("password");
+                    role = rs.getString("role");
+                    isActive = rs.getInt("is_active");
                 }
             }
         } catch (SQLException e) {
             throw new DBException("登录查询失败。", e);
         }
+
+        boolean verified;
+        try {
+            verified = PasswordHasher.verifyBounded(password, stored);
+        } catch (RejectedExecutionException e) {
+            throw new AuthException("当前登录人数过多，请稍后再试。");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthException("登录已取消。");
+        }
+
+        if (!verified) {
+            logDAO.logEvent(LogEventType.LOGIN_FAILED, null, JsonUtil.object("username", username),
+                    "尝试登录失败: " + username);
+
+            List<LoginRateLimiter.Lockout> lockouts = limiter.recordFailure(username, clientId);
+            if (!lockouts.isEmpty()) {
+                // 每次锁定只写一条汇总日志（含上次锁定期间被拒绝的尝试次数），用户名和客户端同时锁定时各写一条
+                long lockSeconds = 0;
+                for (LoginRateLimiter.Lockout lockout : lockouts) {
+                    logDAO.logEvent(LogEventType.LOGIN_LOCKOUT, null, JsonUtil.object(
+                            "username", username, "client", clientId, "key", lockout.key,
+                            "failures", lockout.failures, "lockSeconds", lockout.lockSeconds,
+                            "rejectedLastLockout", lockout.previousRejected),
+                            lockout.key + " 连续登录失败 " + lockout.failures + " 次，锁定 " + lockout.lockSeconds + " 秒");
+                    lockSeconds = Math.max(lockSeconds, lockout.lockSeconds);
+                }
+                throw new AuthException("登录失败次数过多，请 " + lockSeconds + " 秒后再试。");
+            }
+            throw new AuthException("用户名或密码错误。");
+        }
+
+        // ✅ 关键改进：根据不同状态返回不同错误信息
+        if (isActive == -1) {
+            // 已注销状态
+            logDAO.logEvent(LogEventType.LOGIN_REJECTED, id, JsonUtil.object("username", username, "reason", "deactivated"),
+                    "尝试登录已注销账号: " + username);
+            throw new AuthException("该账号已注销，无法登录。");
+        } else if (isActive == 0) {
+            // 被管理员禁用
+            logDAO.logEvent(LogEventType.LOGIN_REJECTED, id, JsonUtil.object("username", username, "reason", "disabled"),
+                    "尝试登录已禁用账号: " + username);
+            throw new AuthException("账号已被管理员禁用，请联系管理员。");
+        }
+
+        // 正常登录
+        limiter.recordSuccess(username);
+        User user = new User(id, dbUsername, role);
+
+        logDAO.logEvent(LogEventType.USER_LOGIN, user.getId(), JsonUtil.object("username", username),
+                "用户 [" + username + "] 登录成功");
+
+        // ★ 旧版明文密码或哈希成本已调整：登录连接关闭后再用本次输入的密码重新哈希
+        if (PasswordHasher.needsRehash(stored)) {
+            upgradePasswordHash(user.getId(), stored, password);
+        }
+        return user;
     }
 
     /**
-     * ✅ 获取所有用户列表（用于管理界面）
-     * 改进：状态列显示"正常"、"已禁用"、"已注销"
+     * 升级密码哈希（只在密码未被其他操作修改时更新；失败不影响本次登录）
+     * 新哈希在验证线程池中计算，不占用数据库连接；线程池繁忙时跳过，下次登录再升级。
      */
-    public DefaultTableModel getAllUsersModel() {
-        Vector<String> cols = new Vector<>();
-        cols.add("ID");
-        cols.add("用户名");
-        cols.add("角色");
-        cols.add("状态");
-        Vector<Vector<Object>> data = new Vector<>();
+    private void upgradePasswordHash(int userId, String oldValue, String password) {
+        String newHash;
+        try {
+            newHash = PasswordHasher.hashBounded(password);
+        } catch (RejectedExecutionException | ExecutionException e) {
+            System.err.println("暂不升级用户 " + userId + " 的密码哈希: " + e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
 
+        String sql = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, newHash);
+            ps.setInt(2, userId);
+            ps.setString(3, oldValue);
+            ps.executeUpdate();
+            cache.invalidate(userId);
+        } catch (SQLException | DBException e) {
+            System.err.println("升级用户 " + userId + " 的密码哈希失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * ✅ 获取所有用户（按 ID 排序）
+     * 注意：一次读取全部用户，用户量大时请使用 {@link #searchUsers} 分页检索
+     */
+    public List<User> findAllUsers() throws DBException {
         String sql = "SELECT id, username, role, is_active FROM users ORDER BY id";
+        List<User> users = new ArrayList<>();
         try (Connection conn = DBHelper.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
-
             while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("id"));
-                row.add(rs.getString("username"));
-
-                // 角色显示
-                String roleCn = "admin".equals(rs.getString("role")) ? "管理员" : "普通用户";
-                row.add(roleCn);
-
-                // ✅ 关键改进：状态列显示三种状态
-                int isActive = rs.getInt("is_active");
-                String statusCn;
-                if (isActive == 1) {
-                    statusCn = "正常";
-                } else if (isActive == 0) {
-                    statusCn = "已禁用";
-                } else {
-                    statusCn = "已注销"; // is_active = -1
+                users.add(readUser(rs));
+            }
+        } catch (SQLException e) {
+            throw new DBException("查询用户列表失败: " + e.getMessage(), e);
+        }
+        return users;
+    }
+
+    /**
+     * 用户列表的一行（不含密码）
+     */
+    private static User readUser(ResultSet rs) throws SQLException {
+        User user = new User(rs.getInt("id"), rs.getString("username"), rs.getString("role"));
+        user.setIsActive(rs.getInt("is_active"));
+        return user;
+    }
+
+    /**
+     * ★ 条件检索用户（服务端过滤 + 游标分页）
+     * 排序固定为 username, id，用户名前缀条件是索引上的范围扫描，下一页条件为
+     * (username, id) > (上一页最后一行)，不使用 OFFSET，翻到第几页都只读取一页的数据。
+     * 首页同时计算总数：无条件时为表统计信息中的估算值，有条件时最多数到 USER_COUNT_LIMIT。
+     * @param filter 检索条件
+     * @param after 上一页结果（首页传 null）
+     * @param pageSize 每页条数
+     */
+    public UserPage searchUsers(UserFilter filter, UserPage after, int pageSize) throws DBException {
+        List<Object> params = new ArrayList<>();
+        String where = buildUserWhere(filter, params);
+
+        StringBuilder sql = new StringBuilder("SELECT id, username, role, is_active FROM users WHERE 1=1").append(where);
+        List<Object> pageParams = new ArrayList<>(params);
+        if (after != null && after.lastUsername != null) {
+            sql.append(" AND (username > ? OR (username = ? AND id > ?))");
+            pageParams.add(after.lastUsername);
+            pageParams.add(after.lastUsername);
+            pageParams.add(after.lastId);
+        }
+        sql.append(" ORDER BY username, id LIMIT ?");
+        // 多取一行用于判断是否还有下一页
+        pageParams.add(pageSize + 1);
+
+        UserPage page = new UserPage();
+
+        try (Connection conn = DBHelper.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                bindAll(ps, pageParams);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (page.users.size() == pageSize) {
+                            page.hasMore = true;
+                            break;
+                        }
+                        page.users.add(readUser(rs));
+                        page.lastUsername = rs.getString("username");
+                        page.lastId = rs.getInt("id");
+                    }
                 }
-                row.add(statusCn);
+            }
 
-                data.add(row);
+            if (after == null) {
+                countUsers(conn, where, params, page);
+            }
+        } catch (SQLException e) {
+            throw new DBException("检索用户失败: " + e.getMessage(), e);
+        }
+
+        return page;
+    }
+
+    private static String buildUserWhere(UserFilter filter, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (filter.usernamePrefix != null && !filter.usernamePrefix.trim().isEmpty()) {
+            where.append(" AND username LIKE ? ESCAPE '\\\\'");
+            params.add(escapeLike(filter.usernamePrefix.trim()) + "%");
+        }
+        if (filter.role != null) {
+            where.append(" AND role = ?");
+            params.add(filter.role);
+        }
+        if (filter.isActive != null) {
+            where.append(" AND is_active = ?");
+            params.add(filter.isActive);
+        }
+        return where.toString();
+    }
+
+    /**
+     * 总数：无条件时读表统计信息（不扫描），有条件时用 LIMIT 限定最多扫描的行数
+     */
+    private static void countUsers(Connection conn, String where, List<Object> params, UserPage page) throws SQLException {
+        if (where.isEmpty()) {
+            String sql = "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users'";
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                page.total = rs.next() ? rs.getLong(1) : 0;
+                page.totalExact = false;
+            }
+            return;
+        }
+
+        int limit = SystemConfig.USER_COUNT_LIMIT;
+        String sql = "SELECT COUNT(*) FROM (SELECT 1 FROM users WHERE 1=1" + where + " LIMIT " + (limit + 1) + ") t";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindAll(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                long count = rs.next() ? rs.getLong(1) : 0;
+                page.total = Math.min(count, limit);
+                page.totalExact = count <= limit;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return new DefaultTableModel(data, cols);
+    }
+
+    private static void bindAll(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     /**
@@ -186,12 +455,22 @@ public class UserDAO {
 
         String sql = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
         try (Connection conn = DBHelper.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, username);
-            ps.setString(2, password);
+            ps.setString(2, PasswordHasher.hash(password));
             ps.setString(3, role);
             ps.executeUpdate();
-            logDAO.logOperation("添加新用户: " + username + ", 角色: " + role);
+
+            UsernameRegistry.getInstance().onAdded(username);
+
+            Integer userId = null;
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    userId = keys.getInt(1);
+                }
+            }
+            logDAO.logEvent(LogEventType.USER_ADDED, userId, JsonUtil.object("username", username, "role", role),
+                    "添加新用户: " + username + ", 角色: " + role);
         } catch (SQLException e) {
             if (e.getErrorCode() == 1062) {
                 throw new DBException("用户 '" + username + "' 已存在。", e);
@@ -211,10 +490,12 @@ public class UserDAO {
         String sql = "UPDATE users SET password=? WHERE id=?";
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, newPassword);
+            ps.setString(1, PasswordHasher.hash(newPassword));
             ps.setInt(2, userId);
             ps.executeUpdate();
-            logDAO.logOperation("重置用户 ID " + userId + " 的密码");
+            cache.invalidate(userId);
+            SessionManager.invalidateUser(userId);
+            logDAO.logEvent(LogEventType.PASSWORD_RESET, userId, null, "重置用户 ID " + userId + " 的密码");
         } catch (SQLException e) {
             throw new DBException("修改密码失败: " + e.getMessage(), e);
         }
@@ -235,36 +516,18 @@ public class UserDAO {
         try {
             conn = DBHelper.getConnection();
 
-            // ✅ 第一步：获取用户名（用于日志记录和错误提示）
-            String getUsernameSql = "SELECT username FROM users WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(getUsernameSql)) {
-                ps.setInt(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        username = rs.getString("username");
-                    } else {
-                        throw new DBException("删除失败：用户不存在");
-                    }
-                }
-            }
-
-            // ✅ 第二步：检查是否有未归还的图书
-            String checkBorrowSql = "SELECT COUNT(*) AS unreturned_count FROM borrow_records " +
-                    "WHERE user_id = ? AND is_returned = 0";
-
-            int unreturnedCount = 0;
-            try (PreparedStatement checkPs = conn.prepareStatement(checkBorrowSql)) {
-                checkPs.setInt(1, userId);
-                try (ResultSet rs = checkPs.executeQuery()) {
-                    if (rs.next()) {
-                        unreturnedCount = rs.getInt("unreturned_count");
-                    }
-                }
+            // ✅ 第一步：一条聚合查询取得用户名、未归还图书数和待支付罚款（代替原来的四次查询）
+            AccountSummary summary = queryAccountSummary(conn, userId);
+            if (summary == null) {
+                throw new DBException("删除失败：用户不存在");
             }
+            username = summary.username;
 
-            // ✅ 如果有未归还图书，记录日志并抛出业务异常
+            // ✅ 第二步：如果有未归还图书，记录日志并抛出业务异常
+            int unreturnedCount = summary.unreturnedCount;
             if (unreturnedCount > 0) {
-                logDAO.logOperation(String.format(
+                logDAO.logEvent(LogEventType.USER_DELETE_FAILED, userId,
+                        JsonUtil.object("reason", "unreturned", "count", unreturnedCount), String.format(
                         "尝试删除用户 [%s] (ID:%d) 失败：存在 %d 本未归还图书",
                         username, userId, unreturnedCount
                 ));
@@ -276,37 +539,13 @@ public class UserDAO {
                 );
             }
 
-            // ✅ 第三步：检查是否有待支付的罚款
-            String checkFineSql = "SELECT COUNT(*) AS unpaid_fine_count FROM borrow_records " +
-                    "WHERE user_id = ? AND fine_amount > 0 AND fine_paid = 0";
-
-            int unpaidFineCount = 0;
-            try (PreparedStatement checkPs = conn.prepareStatement(checkFineSql)) {
-                checkPs.setInt(1, userId);
-                try (ResultSet rs = checkPs.executeQuery()) {
-                    if (rs.next()) {
-                        unpaidFineCount = rs.getInt("unpaid_fine_count");
-                    }
-                }
-            }
-
-            // ✅ 如果有待支付罚款，记录日志并抛出业务异常
+            // ✅ 第三步：如果有待支付罚款，记录日志并抛出业务异常
+            int unpaidFineCount = summary.unpaidFineCount;
             if (unpaidFineCount > 0) {
-                // 查询具体的罚款详情
-                String fineDetailsSql = "SELECT SUM(fine_amount) AS total_fine FROM borrow_records " +
-                        "WHERE user_id = ? AND fine_amount > 0 AND fine_paid = 0";
-
-                double totalFine = 0;
-                try (PreparedStatement ps = conn.prepareStatement(fineDetailsSql)) {
-                    ps.setInt(1, userId);
-                    try (ResultSet rs = ps.executeQuery()) {
-                        if (rs.next()) {
-                            totalFine = rs.getDouble("total_fine");
-                        }
-                    }
-                }
+                double totalFine = summary.unpaidFineTotal;
 
-                logDAO.logOperation(String.format(
+                logDAO.logEvent(LogEventType.USER_DELETE_FAILED, userId,
+                        JsonUtil.object("reason", "unpaidFine", "count", unpaidFineCount, "total", totalFine), String.format(
                         "尝试删除用户 [%s] (ID:%d) 失败：存在 %d 笔待支付罚款，总计 %.2f 元",
                         username, userId, unpaidFineCount, totalFine
                 ));
@@ -324,13 +563,17 @@ public class UserDAO {
             try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
                 ps.setInt(1, userId);
                 int rows = ps.executeUpdate();
+                cache.invalidate(userId);
+                SessionManager.invalidateUser(userId);
 
                 if (rows == 0) {
                     throw new DBException("删除失败：用户可能不存在");
                 }
 
+                UsernameRegistry.getInstance().onDeleted(1);
+
                 // ✅ 记录成功日志
-                logDAO.logOperation(String.format(
+                logDAO.logEvent(LogEventType.USER_DELETED, userId, JsonUtil.object("username", username), String.format(
                         "成功删除用户 [%s] (ID:%d)",
                         username, userId
                 ));
@@ -341,7 +584,7 @@ public class UserDAO {
             throw e;
         } catch (SQLException e) {
             // ✅ 记录数据库异常日志
-            logDAO.logOperation(String.format(
+            logDAO.logEvent(LogEventType.USER_DELETE_FAILED, userId, JsonUtil.object("reason", "db"), String.format(
                     "删除用户 [%s] (ID:%d) 失败：数据库错误 - %s",
                     username, userId, e.getMessage()
             ));
@@ -365,17 +608,9 @@ public class UserDAO {
      */
     public void updateUserStatus(int userId, int isActive) throws DBException {
         // ✅ 增加校验：不允许对已注销用户执行启用/禁用
-        String checkSql = "SELECT is_active FROM users WHERE id=?";
-        try (Connection conn = DBHelper.getConnection();
-             PreparedStatement checkPs = conn.prepareStatement(checkSql)) {
-            checkPs.setInt(1, userId);
-            try (ResultSet rs = checkPs.executeQuery()) {
-                if (rs.next() && rs.getInt("is_active") == -1) {
-                    throw new DBException("该用户已注销，无法执行启用/禁用操作。");
-                }
-            }
-        } catch (SQLException e) {
-            throw new DBException("检查用户状态失败: " + e.getMessage(), e);
+        User target = findUser(userId);
+        if (target != null && target.getIsActive() == -1) {
+            throw new DBException("该用户已注销，无法执行启用/禁用操作。");
         }
 
         String sql = "UPDATE users SET is_active=? WHERE id=?";
@@ -384,8 +619,13 @@ public class UserDAO {
             ps.setInt(1, isActive);
             ps.setInt(2, userId);
             ps.executeUpdate();
+            cache.invalidate(userId);
+            if (isActive != 1) {
+                SessionManager.invalidateUser(userId);
+            }
             String status = isActive == 1 ? "启用" : "禁用";
-            logDAO.logOperation("设置用户 ID " + userId + " 状态为: " + status);
+            logDAO.logEvent(LogEventType.USER_STATUS_CHANGED, userId, JsonUtil.object("isActive", isActive),
+                    "设置用户 ID " + userId + " 状态为: " + status);
         } catch (SQLException e) {
             throw new DBException("更新用户状态失败: " + e.getMessage(), e);
         }
@@ -405,35 +645,18 @@ public class UserDAO {
         try {
             conn = DBHelper.getConnection();
 
-            // ✅ 获取用户名（用于日志记录）
-            String getUsernameSql = "SELECT username FROM users WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(getUsernameSql)) {
-                ps.setInt(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        username = rs.getString("username");
-                    }
-                }
-            }
-
-            // ✅ 第一步：检查是否有未归还的图书
-            String checkSql = "SELECT COUNT(*) AS unreturned_count FROM borrow_records " +
-                    "WHERE user_id = ? AND return_time IS NULL";
-
-            int unreturnedCount = 0;
-            try (PreparedStatement checkPs = conn.prepareStatement(checkSql)) {
-                checkPs.setInt(1, userId);
-                try (ResultSet rs = checkPs.executeQuery()) {
-                    if (rs.next()) {
-                        unreturnedCount = rs.getInt("unreturned_count");
-                    }
-                }
+            // ✅ 第一步：一条聚合查询取得用户名和未归还图书数
+            AccountSummary summary = queryAccountSummary(conn, userId);
+            if (summary != null) {
+                username = summary.username;
             }
+            int unreturnedCount = summary != null ? summary.unreturnedCount : 0;
 
             // ✅ 如果有未归还图书，记录日志并抛出业务异常
             if (unreturnedCount > 0) {
                 // ✅ 记录失败日志
-                logDAO.logOperation(String.format(
+                logDAO.logEvent(LogEventType.USER_DEACTIVATE_FAILED, userId,
+                        JsonUtil.object("reason", "unreturned", "count", unreturnedCount), String.format(
                         "用户 [%s] (ID:%d) 尝试注销账号失败：存在 %d 本未归还图书",
                         username, userId, unreturnedCount
                 ));
@@ -449,10 +672,13 @@ public class UserDAO {
             try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
                 pstmt.setInt(1, userId);
                 int rows = pstmt.executeUpdate();
+                cache.invalidate(userId);
+                SessionManager.invalidateUser(userId);
 
                 if (rows == 0) {
                     // ✅ 记录失败日志
-                    logDAO.logOperation(String.format(
+                    logDAO.logEvent(LogEventType.USER_DEACTIVATE_FAILED, userId, JsonUtil.object("reason", "notFound"),
+                            String.format(
                             "用户 [%s] (ID:%d) 注销账号失败：用户不存在",
                             username, userId
                     ));
@@ -460,7 +686,8 @@ public class UserDAO {
                 }
 
                 // ✅ 记录成功日志
-                logDAO.logOperation(String.format(
+                logDAO.logEvent(LogEventType.USER_DEACTIVATED, userId, JsonUtil.object("username", username),
+                        String.format(
                         "用户 [%s] (ID:%d) 已成功注销账号（永久禁用）",
                         username, userId
                 ));
@@ -471,7 +698,7 @@ public class UserDAO {
             throw e;
         } catch (SQLException e) {
             // ✅ 记录数据库异常日志
-            logDAO.logOperation(String.format(
+            logDAO.logEvent(LogEventType.USER_DEACTIVATE_FAILED, userId, JsonUtil.object("reason", "db"), String.format(
                     "用户 [%s] (ID:%d) 注销账号失败：数据库错误 - %s",
                     username, userId, e.getMessage()
             ));
@@ -484,30 +711,330 @@ public class UserDAO {
             }
         }
     }
+    // =================================================================
+    // ★ 账号摘要与批量操作
+    // =================================================================
+
+    /**
+     * ★ 查询账号摘要（用户名、状态、未归还图书数、待支付罚款），用户不存在时返回 null
+     */
+    public AccountSummary getAccountSummary(int userId) throws DBException {
+        try (Connection conn = DBHelper.getConnection()) {
+            return queryAccountSummary(conn, userId);
+        } catch (SQLException e) {
+            throw new DBException("查询账号信息失败: " + e.getMessage(), e);
+        }
+    }
+
+    private AccountSummary queryAccountSummary(Connection conn, int userId) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        ids.add(userId);
+        return queryAccountSummaries(conn, ids, false).get(userId);
+    }
+
+    /**
+     * 聚合查询取得多个用户的摘要（LEFT JOIN 借阅记录，按用户分组），
+     * 每 {@link SystemConfig#USER_BATCH_CHUNK_SIZE} 个用户一条查询
+     * @param forUpdate 是否锁定读到的用户和借阅记录（批量操作在事务中使用，防止检查后又产生新的借阅）
+     */
+    private Map<Integer, AccountSummary> queryAccountSummaries(Connection conn, Collection<Integer> userIds,
+                                                              boolean forUpdate) throws SQLException {
+        Map<Integer, AccountSummary> result = new LinkedHashMap<>();
+        for (List<Integer> chunk : chunks(userIds)) {
+            queryAccountSummaries(conn, chunk, forUpdate, result);
+        }
+        return result;
+    }
+
+    private void queryAccountSummaries(Connection conn, List<Integer> userIds, boolean forUpdate,
+                                       Map<Integer, AccountSummary> result) throws SQLException {
+        String sql = "SELECT u.id, u.username, u.role, u.is_active, " +
+                "COALESCE(SUM(br.is_returned = 0), 0) AS unreturned_count, " +
+                "COALESCE(SUM(br.fine_amount > 0 AND br.fine_paid = 0), 0) AS unpaid_fine_count, " +
+                "COALESCE(SUM(CASE WHEN br.fine_amount > 0 AND br.fine_paid = 0 THEN br.fine_amount END), 0) AS unpaid_fine_total " +
+                "FROM users u LEFT JOIN borrow_records br ON br.user_id = u.id " +
+                "WHERE u.id IN (" + placeholders(userIds.size()) + ") " +
+                "GROUP BY u.id, u.username, u.role, u.is_active" +
+                (forUpdate ? " FOR UPDATE" : "");
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (int id : userIds) {
+                ps.setInt(i++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    AccountSummary summary = new AccountSummary();
+                    summary.userId = rs.getInt("id");
+                    summary.username = rs.getString("username");
+                    summary.role = rs.getString("role");
+                    summary.isActive = rs.getInt("is_active");
+                    summary.unreturnedCount = rs.getInt("unreturned_count");
+                    summary.unpaidFineCount = rs.getInt("unpaid_fine_count");
+                    summary.unpaidFineTotal = rs.getDouble("unpaid_fine_total");
+                    result.put(summary.userId, summary);
+                }
+            }
+        }
+    }
+
+    /**
+     * ✅ 批量删除用户（全部成功或全部不执行）
+     * 一次查询检查所有用户：任一用户不存在、有未归还图书或待支付罚款时整批取消，并列出原因。
+     * @return 删除的用户数
+     */
+    public int deleteUsers(Collection<Integer> userIds) throws DBException, BusinessException {
+        int deleted = applyBatch(userIds, "删除", "DELETE FROM users WHERE id IN (%s)", summary -> {
+            if (summary.unreturnedCount > 0) {
+                return summary.unreturnedCount + " 本图书未归还";
+            }
+            if (summary.unpaidFineCount > 0) {
+                return String.format("%d 笔罚款待支付（%.2f 元）", summary.unpaidFineCount, summary.unpaidFineTotal);
+            }
+            return null;
+        }, summary -> new LogEvent(LogEventType.USER_DELETED, summary.userId,
+                JsonUtil.object("username", summary.username, "batch", true),
+                String.format("批量删除用户 [%s] (ID:%d)", summary.username, summary.userId)));
+        UsernameRegistry.getInstance().onDeleted(deleted);
+        SessionManager.invalidateUsers(userIds);
+        return deleted;
+    }
+
+    /**
+     * ✅ 批量注销用户（全部成功或全部不执行），有未归还图书的用户不能注销
+     * @return 注销的用户数
+     */
+    public int deactivateUsers(Collection<Integer> userIds) throws DBException, BusinessException {
+        int deactivated = applyBatch(userIds, "注销", "UPDATE users SET is_active = -1 WHERE id IN (%s)", summary -> {
+            if (summary.unreturnedCount > 0) {
+                return summary.unreturnedCount + " 本图书未归还";
+            }
+            return null;
+        }, summary -> new LogEvent(LogEventType.USER_DEACTIVATED, summary.userId,
+                JsonUtil.object("username", summary.username, "batch", true),
+                String.format("批量注销用户 [%s] (ID:%d)", summary.username, summary.userId)));
+        SessionManager.invalidateUsers(userIds);
+        return deactivated;
+    }
+
+    /**
+     * ✅ 批量启用/禁用用户（全部成功或全部不执行），已注销的用户不能启用/禁用
+     * @param isActive 1 启用，0 禁用
+     * @return 更新的用户数
+     */
+    public int updateUsersStatus(Collection<Integer> userIds, int isActive) throws DBException, BusinessException {
+        String action = isActive == 1 ? "启用" : "禁用";
+        int updated = applyBatch(userIds, action, "UPDATE users SET is_active = " + (isActive == 1 ? 1 : 0) + " WHERE id IN (%s)",
+                summary -> summary.isActive == -1 ? "已注销" : null,
+                summary -> new LogEvent(LogEventType.USER_STATUS_CHANGED, summary.userId,
+                        JsonUtil.object("isActive", isActive, "batch", true),
+                        "设置用户 ID " + summary.userId + " 状态为: " + action));
+        if (isActive != 1) {
+            SessionManager.invalidateUsers(userIds);
+        }
+        return updated;
+    }
+
+    /**
+     * 批量操作的检查规则：返回不能执行的原因，可以执行时返回 null
+     */
+    private interface BatchCheck {
+        String reject(AccountSummary summary);
+    }
+
+    /**
+     * 批量操作的日志
+     */
+    private interface BatchLog {
+        LogEvent toEvent(AccountSummary summary);
+    }
+
+    /**
+     * 批量操作的公共流程：在一个事务中锁定并检查全部用户，全部通过后执行，否则回滚
+     * （IN 列表每 {@link SystemConfig#USER_BATCH_CHUNK_SIZE} 个用户一条语句）
+     * @param sqlTemplate 执行语句，%s 处替换为 ID 占位符
+     * @return 影响的用户数
+     */
+    private int applyBatch(Collection<Integer> userIds, String action, String sqlTemplate,
+                           BatchCheck check, BatchLog log) throws DBException, BusinessException {
+        Set<Integer> ids = new LinkedHashSet<>(userIds);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        Connection conn = null;
+        List<AccountSummary> applied;
+        int affected;
+        try {
+            conn = DBHelper.getConnection();
+            conn.setAutoCommit(false);
+
+            Map<Integer, AccountSummary> summaries = queryAccountSummaries(conn, ids, true);
+
+            // ✅ 集合检查：收集所有不能执行的用户，一次性提示
+            List<String> problems = new ArrayList<>();
+            for (int id : ids) {
+                AccountSummary summary = summaries.get(id);
+                String reason = summary == null ? "用户不存在" : check.reject(summary);
+                if (reason != null) {
+                    String name = summary == null ? "ID:" + id : summary.username;
+                    problems.add("• [" + name + "] " + reason);
+                }
+            }
+            if (!problems.isEmpty()) {
+                conn.rollback();
+                StringBuilder msg = new StringBuilder(String.format(
+                        "批量%s已取消：选中的 %d 个用户中有 %d 个不能%s，未做任何修改。\n\n",
+                        action, ids.size(), problems.size(), action));
+                for (int i = 0; i < problems.size() && i < MAX_LISTED_USERS; i++) {
+                    msg.append(problems.get(i)).append("\n");
+                }
+                if (problems.size() > MAX_LISTED_USERS) {
+                    msg.append("……等 ").append(problems.size()).append(" 个用户\n");
+                }
+                throw new BusinessException(msg.toString());
+            }
+
+            affected = 0;
+            for (List<Integer> chunk : chunks(ids)) {
+                try (PreparedStatement ps = conn.prepareStatement(String.format(sqlTemplate, placeholders(chunk.size())))) {
+                    int i = 1;
+                    for (int id : chunk) {
+                        ps.setInt(i++, id);
+                    }
+                    affected += ps.executeUpdate();
+                }
+            }
+            // 用户行已被 FOR UPDATE 锁定，影响行数必然等于检查通过的用户数；不等说明锁定失效，回滚而不是带着疑问提交
+            if (affected != summaries.size()) {
+                rollbackQuietly(conn);
+                throw new DBException(String.format("批量%s用户失败：检查通过 %d 个，实际影响 %d 行，已回滚",
+                        action, summaries.size(), affected));
+            }
+            conn.commit();
+            applied = new ArrayList<>(summaries.values());
+
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw new DBException("批量" + action + "用户失败: " + e.getMessage(), e);
+        } finally {
+            for (int id : ids) {
+                cache.invalidate(id);
+            }
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // ✅ 提交后一次写入全部日志
+        List<LogEvent> events = new ArrayList<>();
+        for (AccountSummary summary : applied) {
+            events.add(log.toEvent(summary));
+        }
+        logDAO.logEvents(events);
+        return affected;
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            if (conn != null) conn.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 按 {@link SystemConfig#USER_BATCH_CHUNK_SIZE} 把用户 ID 分段
+     */
+    private static List<List<Integer>> chunks(Collection<Integer> ids) {
+        List<Integer> all = new ArrayList<>(ids);
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += SystemConfig.USER_BATCH_CHUNK_SIZE) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + SystemConfig.USER_BATCH_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
     /**
      * ★ 新增：根据用户ID查询完整的用户信息（包括密码）
-     * 用于个人中心只修改用户名时获取当前密码
+     * 用于个人中心只修改用户名时获取当前密码（优先读缓存）
      */
     public User getUserById(int userId) throws DBException {
-        String sql = "SELECT id, username, password, role, is_active FROM users WHERE id = ?";
+        User user = findUser(userId);
+        if (user == null) {
+            throw new DBException("用户ID " + userId + " 不存在");
+        }
+        return user;
+    }
+
+    /**
+     * ★ 会话是否仍然有效：用户存在、处于启用状态，且密码未被修改或重置
+     * （优先读缓存，其他客户端的修改至多延迟 USER_CACHE_TTL_SECONDS 秒）
+     * 服务模式处理每个请求前据此确认会话仍然有效。
+     * @param credential 创建会话时的密码哈希，null 表示不检查密码
+     */
+    public boolean isSessionValid(int userId, String credential) throws DBException {
+        User user = findUser(userId);
+        return user != null && user.getIsActive() == 1
+                && (credential == null || credential.equals(user.getPassword()));
+    }
+
+    /**
+     * ★ 根据用户名查询完整的用户信息（优先读缓存），用户不存在时返回 null
+     */
+    public User getUserByUsername(String username) throws DBException {
+        User user = cache.getByUsername(username);
+        if (user != null) {
+            return user;
+        }
+        return loadUser("username = ?", username);
+    }
+
+    /**
+     * 按 ID 读取用户：先查缓存，未命中时查库并放入缓存；用户不存在时返回 null
+     */
+    private User findUser(int userId) throws DBException {
+        User user = cache.getById(userId);
+        if (user != null) {
+            return user;
+        }
+        return loadUser("id = ?", userId);
+    }
+
+    private User loadUser(String condition, Object value) throws DBException {
+        String sql = "SELECT id, username, password, role, is_active FROM users WHERE " + condition;
 
         try (Connection conn = DBHelper.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setInt(1, userId);
+            ps.setObject(1, value);
 
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    User user = new User(
-                            rs.getInt("id"),
-                            rs.getString("username"),
-                            rs.getString("password"),
-                            rs.getString("role")
-                    );
-                    return user;
-                } else {
-                    throw new DBException("用户ID " + userId + " 不存在");
+                if (!rs.next()) {
+                    return null;
                 }
+                User user = new User(
+                        rs.getInt("id"),
+                        rs.getString("username"),
+                        rs.getString("password"),
+                        rs.getString("role")
+                );
+                user.setIsActive(rs.getInt("is_active"));
+                cache.put(user);
+                return user;
             }
 
         } catch (SQLException e) {
@@ -515,4 +1042,4 @@ public class UserDAO {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,329 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.entity.LogEventType;
+import com.library.exception.DBException;
+import com.library.util.DBHelper;
+import com.library.util.JsonUtil;
+import com.library.util.PasswordHasher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * ★ 从 CSV 批量导入用户（新学期开学批量开户）
+ *
+ * 文件格式：每行 用户名,密码[,角色]，角色为 user/admin 或 普通用户/管理员，省略时为普通用户；
+ * 第一行为表头（用户名/username 开头）时跳过，支持 UTF-8 BOM 和带引号的字段。
+ *
+ * 流式读取，每 {@link SystemConfig#USER_IMPORT_CHUNK_ROWS} 行一批：
+ * 1. 集合查重：一条 IN 查询找出本批中已存在的用户名（文件内重复的用户名在内存中检查）
+ * 2. 并行哈希：初始密码按正式成本 {@link SystemConfig#PASSWORD_HASH_ITERATIONS} 计算，
+ *    不为导入速度降低成本（降低成本的哈希在用户首次登录前一直是弱哈希，从不登录的账号永远不会升级）
+ * 3. 批量插入：整批一条多行 INSERT；整批失败时（如其他管理员同时添加了同名用户）
+ *    改为逐行插入，找出出错的行
+ *
+ * 连接从 {@link DBHelper#getConnection()} 获取（服务模式下受连接池上限约束），只在查重和插入时占用，
+ * 耗时的哈希计算期间不占用连接。
+ *
+ * 出错的行（格式错误、用户名重复等）记录行号和原因后跳过，不影响其他行；
+ * 导入结束后写一条汇总日志，不逐个用户写日志。
+ */
+public class UserImporter {
+
+    /**
+     * 导入出错的一行
+     */
+    public static class RowError {
+        public int line;          // 文件中的行号（从 1 开始）
+        public String username;
+        public String message;
+
+        RowError(int line, String username, String message) {
+            this.line = line;
+            this.username = username;
+            this.message = message;
+        }
+    }
+
+    /**
+     * 导入结果
+     */
+    public static class ImportResult {
+        public int totalRows;     // 数据行数（不含表头和空行）
+        public int imported;      // 成功导入数
+        public int failed;        // 出错行数
+        public long elapsedMillis;
+        public List<RowError> errors = new ArrayList<>(); // 至多 USER_IMPORT_MAX_ERRORS 条
+
+        void addError(int line, String username, String message) {
+            failed++;
+            if (errors.size() < SystemConfig.USER_IMPORT_MAX_ERRORS) {
+                errors.add(new RowError(line, username, message));
+            }
+        }
+    }
+
+    /**
+     * 待导入的一行
+     */
+    private static class Row {
+        final int line;
+        final String username;
+        final String password;
+        final String role;
+        String hash;
+
+        Row(int line, String username, String password, String role) {
+            this.line = line;
+            this.username = username;
+            this.password = password;
+            this.role = role;
+        }
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
+
+    private final LogDAO logDAO = new LogDAO();
+
+    /**
+     * 导入 CSV 文件（UTF-8）
+     */
+    public ImportResult importCsv(Path file) throws DBException, IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importCsv(reader, file.getFileName().toString());
+        }
+    }
+
+    /**
+     * ★ 流式导入：逐行读取，每满一批处理一次，内存中只保留一批数据和已见过的用户名
+     * @param source 来源说明（写入汇总日志）
+     */
+    public ImportResult importCsv(Reader reader, String source) throws DBException, IOException {
+        long start = System.currentTimeMillis();
+        ImportResult result = new ImportResult();
+        Set<String> seen = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(SystemConfig.USER_IMPORT_CHUNK_ROWS);
+
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        try {
+            String text;
+            int lineNo = 0;
+            while ((text = in.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1 && !text.isEmpty() && text.charAt(0) == '\ufeff') {
+                    text = text.substring(1);
+                }
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                List<String> fields = parseLine(text);
+                String first = fields.get(0).trim();
+                if (lineNo == 1 && ("用户名".equals(first) || "username".equalsIgnoreCase(first))) {
+                    continue;
+                }
+
+                result.totalRows++;
+                Row row = parseRow(lineNo, fields, result);
+                if (row == null) {
+                    continue;
+                }
+                if (!seen.add(row.username.toLowerCase())) {
+                    result.addError(lineNo, row.username, "用户名在文件中重复");
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() >= SystemConfig.USER_IMPORT_CHUNK_ROWS) {
+                    processChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, result);
+            }
+
+        } catch (SQLException e) {
+            throw new DBException("批量导入用户失败（已导入 " + result.imported + " 个）: " + e.getMessage(), e);
+        } finally {
+            result.elapsedMillis = System.currentTimeMillis() - start;
+            logDAO.logEvent(LogEventType.USER_IMPORTED, null, JsonUtil.object(
+                    "source", source, "total", result.totalRows, "imported", result.imported,
+                    "failed", result.failed, "millis", result.elapsedMillis),
+                    String.format("从 %s 批量导入用户：共 %d 行，成功 %d，失败 %d，耗时 %d 毫秒",
+                            source, result.totalRows, result.imported, result.failed, result.elapsedMillis));
+        }
+        return result;
+    }
+
+    /**
+     * 校验一行的字段，不合法时记录错误并返回 null
+     */
+    private Row parseRow(int lineNo, List<String> fields, ImportResult result) {
+        String username = fields.get(0).trim();
+        String password = fields.size() > 1 ? fields.get(1).trim() : "";
+        String roleText = fields.size() > 2 ? fields.get(2).trim() : "";
+
+        if (username.isEmpty()) {
+            result.addError(lineNo, username, "用户名不能为空");
+            return null;
+        }
+        if (password.isEmpty()) {
+            result.addError(lineNo, username, "密码不能为空");
+            return null;
+        }
+
+        String role;
+        if (roleText.isEmpty() || "user".equalsIgnoreCase(roleText) || "普通用户".equals(roleText)) {
+            role = "user";
+        } else if ("admin".equalsIgnoreCase(roleText) || "管理员".equals(roleText)) {
+            role = "admin";
+        } else {
+            result.addError(lineNo, username, "无效的角色: " + roleText);
+            return null;
+        }
+        return new Row(lineNo, username, password, role);
+    }
+
+    /**
+     * 处理一批：集合查重 → 并行哈希 → 批量插入
+     */
+    private void processChunk(List<Row> chunk, ImportResult result) throws DBException, SQLException {
+        // 1. 一条查询找出已存在的用户名
+        Set<String> existing;
+        try (Connection conn = DBHelper.getConnection()) {
+            existing = findExisting(conn, chunk);
+        }
+        List<Row> rows = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (existing.contains(row.username.toLowerCase())) {
+                result.addError(row.line, row.username, "用户名已存在");
+            } else {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // 2. 并行计算密码哈希（CPU 密集，占满所有核心；不占用数据库连接）
+        List<String> hashes = rows.parallelStream()
+                .map(r -> PasswordHasher.hash(r.password))
+                .collect(Collectors.toList());
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).hash = hashes.get(i);
+        }
+
+        // 3. 批量插入：一条多行 INSERT，一次网络往返；单条语句要么全部插入要么全部不插入
+        try (Connection conn = DBHelper.getConnection()) {
+            StringBuilder sql = new StringBuilder(INSERT_SQL);
+            for (int i = 1; i < rows.size(); i++) {
+                sql.append(", (?, ?, ?)");
+            }
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < rows.size(); i++) {
+                    bind(ps, i * 3, rows.get(i));
+                }
+                ps.executeUpdate();
+                result.imported += rows.size();
+                for (Row row : rows) {
+                    UsernameRegistry.getInstance().onAdded(row.username);
+                }
+                return;
+            } catch (SQLException e) {
+                if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+                    throw e;   // 连接断开，逐行重试也不会成功
+                }
+            }
+
+            // 整批失败：逐行插入，定位出错的行
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+                for (Row row : rows) {
+                    bind(ps, 0, row);
+                    try {
+                        ps.executeUpdate();
+                        result.imported++;
+                        UsernameRegistry.getInstance().onAdded(row.username);
+                    } catch (SQLException e) {
+                        result.addError(row.line, row.username,
+                                e.getErrorCode() == 1062 ? "用户名已存在" : e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 绑定一行的三个参数
+     * @param offset 该行第一个参数之前的参数个数（多行 INSERT 中为行序号 × 3）
+     */
+    private static void bind(PreparedStatement ps, int offset, Row row) throws SQLException {
+        ps.setString(offset + 1, row.username);
+        ps.setString(offset + 2, row.hash);
+        ps.setString(offset + 3, row.role);
+    }
+
+    /**
+     * 本批中已存在于 users 表的用户名（小写，与默认排序规则的不区分大小写比较一致）
+     */
+    private Set<String> findExisting(Connection conn, List<Row> chunk) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT username FROM users WHERE username IN (");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        Set<String> existing = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < chunk.size(); i++) {
+                ps.setString(i + 1, chunk.get(i).username);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1).toLowerCase());
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * 拆分一行 CSV（支持双引号包裹的字段和 "" 转义）
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,227 @@
+package com.library.dao;
+
+import com.library.config.SystemConfig;
+import com.library.entity.User;
+import com.library.exception.DBException;
+import com.library.util.BloomFilter;
+import com.library.util.DBHelper;
+
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ★ 用户名占用检查（布隆过滤器 + 索引确认）
+ *
+ * 注册和添加用户时边输入边检查用户名是否可用：
+ * - 启动时流式读取 users 表的全部用户名构建布隆过滤器（后台执行，不阻塞界面），并记下最大用户 ID
+ * - 过滤器判断"一定不存在"时，若距上次追加已超过 USERNAME_FILTER_REFRESH_MILLIS，
+ *   先按主键读取 id 更大的新用户（其他进程注册或添加的）加入过滤器，再用过滤器判断
+ * - 判断"可能存在"时用 username 索引精确确认一次
+ * - 本进程添加、改名、导入时把新用户名加入过滤器；删除无法从过滤器中移除，
+ *   只会让误判变多，累计删除超过过滤器容量的 10% 后在后台重建
+ * - 其他进程的改名不改变用户 ID，追加读取发现不了，由每 USERNAME_FILTER_REBUILD_HOURS 小时一次的重建补上
+ *
+ * 因此"可用"只是输入时的提示：其他进程刚注册（刷新间隔内）或改成的用户名可能被判为可用，
+ * 提交时由数据库唯一约束最终把关。
+ *
+ * 用户名按小写加入和检查，与数据库默认排序规则不区分大小写的比较一致。
+ * 过滤器尚未建好时直接查询数据库。
+ */
+public class UsernameRegistry {
+    private static final UsernameRegistry INSTANCE = new UsernameRegistry();
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter pending;   // 正在重建的过滤器（重建期间的新增也要加入）
+    private final AtomicBoolean building = new AtomicBoolean(false);
+    private final AtomicLong deletedSinceBuild = new AtomicLong();
+    private int lastSeenId;                 // 已加入过滤器的最大用户 ID（synchronized 保护）
+    private volatile long lastRefreshMillis;
+
+    // 统计信息
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong skippedQueries = new AtomicLong();   // 过滤器判断不存在，未查库
+    private final AtomicLong falsePositives = new AtomicLong();   // 过滤器判断可能存在，查库后不存在
+    private final AtomicLong refreshedNames = new AtomicLong();   // 追加读取加入的其他进程新用户名
+
+    private UsernameRegistry() {
+    }
+
+    public static UsernameRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * ★ 重建布隆过滤器：流式读取全部用户名（不抛出异常，失败时保留旧过滤器）
+     * 重建期间新增的用户名同时加入新旧两个过滤器，不会漏掉。
+     */
+    public void rebuild() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            int count = 0;
+            try (Connection conn = DBHelper.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+                if (rs.next()) {
+                    count = rs.getInt(1);
+                }
+            }
+
+            // 预留增长空间，开学批量开户后误判率仍在目标附近
+            BloomFilter next = new BloomFilter(Math.max(SystemConfig.USERNAME_FILTER_MIN_CAPACITY, count * 2),
+                    SystemConfig.USERNAME_FILTER_FPP);
+            pending = next;
+            // 流式读取（见 StreamingQuery），不把整张表读入内存
+            int[] maxId = {0};
+            StreamingQuery.stream("SELECT id, username FROM users",
+                    rs -> new User(rs.getInt(1), rs.getString(2), null),
+                    user -> {
+                        maxId[0] = Math.max(maxId[0], user.getId());
+                        next.add(key(user.getUsername()));
+                        return true;
+                    });
+            synchronized (this) {
+                filter = next;
+                lastSeenId = Math.max(lastSeenId, maxId[0]);
+            }
+            lastRefreshMillis = System.currentTimeMillis();
+            deletedSinceBuild.set(0);
+            System.out.println(String.format("用户名过滤器已建立: %d 个用户名, %d KB, 耗时 %d 毫秒",
+                    next.size(), next.sizeInBytes() / 1024, System.currentTimeMillis() - start));
+
+        } catch (DBException | SQLException e) {
+            System.err.println("建立用户名过滤器失败: " + e.getMessage());
+        } finally {
+            pending = null;
+            building.set(false);
+        }
+    }
+
+    /**
+     * ★ 用户名是否可用（未被占用）
+     */
+    public boolean isAvailable(String username) throws DBException {
+        checks.incrementAndGet();
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(key(username))) {
+            if (System.currentTimeMillis() - lastRefreshMillis < SystemConfig.USERNAME_FILTER_REFRESH_MILLIS) {
+                skippedQueries.incrementAndGet();
+                return true;
+            }
+            refresh();
+            current = filter;
+            if (!current.mightContain(key(username))) {
+                return true;
+            }
+        }
+
+        boolean exists = existsInDatabase(username);
+        if (!exists && current != null) {
+            falsePositives.incrementAndGet();
+        }
+        return !exists;
+    }
+
+    /**
+     * 追加读取 id 大于 lastSeenId 的用户名（其他进程新增的用户），走主键范围扫描
+     */
+    private synchronized void refresh() throws DBException {
+        String sql = "SELECT id, username FROM users WHERE id > ? ORDER BY id";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, lastSeenId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lastSeenId = rs.getInt(1);
+                    onAdded(rs.getString(2));
+                    refreshedNames.incrementAndGet();
+                }
+            }
+            lastRefreshMillis = System.currentTimeMillis();
+        } catch (SQLException e) {
+            throw new DBException("读取新增用户名失败: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean existsInDatabase(String username) throws DBException {
+        String sql = "SELECT 1 FROM users WHERE username = ? LIMIT 1";
+        try (Connection conn = DBHelper.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new DBException("检查用户名失败: " + e.getMessage(), e);
+        }
+    }
+
+    // ============================================================
+    // ★ 用户名变化时由 UserDAO / UserImporter 调用
+    // ============================================================
+
+    /**
+     * 新增了用户名（添加、改名、导入）
+     */
+    public void onAdded(String username) {
+        String key = key(username);
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(key);
+        }
+        BloomFilter next = pending;
+        if (next != null) {
+            next.add(key);
+        }
+    }
+
+    /**
+     * 删除了 n 个用户名：过滤器无法移除，累计过多时后台重建
+     */
+    public void onDeleted(int n) {
+        BloomFilter current = filter;
+        long deleted = deletedSinceBuild.addAndGet(n);
+        if (current != null && deleted > current.size() / 10 + 100 && !building.get()) {
+            MaintenanceScheduler.getBulkScheduler().execute(this::rebuild);
+        }
+    }
+
+    private static String key(String username) {
+        return username.trim().toLowerCase();
+    }
+
+    // ============================================================
+    // ★ 统计信息（用于监控）
+    // ============================================================
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    /**
+     * 统计摘要，如 "用户名检查: 120 次, 免查库 113 次, 误判 1 次, 追加 3 个"
+     */
+    public String getStats() {
+        return String.format("用户名检查: %d 次, 免查库 %d 次, 误判 %d 次, 追加 %d 个",
+                checks.get(), skippedQueries.get(), falsePositives.get(), refreshedNames.get());
+    }
+
+    public long getChecks() {
+        return checks.get();
+    }
+
+    public long getSkippedQueries() {
+        return skippedQueries.get();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.get();
+    }
+
+    public long getRefreshedNames() {
+        return refreshedNames.get();
+    }
+}
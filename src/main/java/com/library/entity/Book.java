@@ -4,18 +4,24 @@ public class Book {
     private int id;
     private String title;
     private String author;
-    private String status;
+    private BookStatus status;
+    private int version;    // 乐观锁版本号，每次修改加 1
 
-    public Book(int id, String title, String author, String status) {
+    public Book(int id, String title, String author, BookStatus status) {
+        this(id, title, author, status, 0);
+    }
+
+    public Book(int id, String title, String author, BookStatus status, int version) {
         this.id = id;
         this.title = title;
         this.author = author;
         this.status = status;
+        this.version = version;
     }
     // Getters
     public int getId() { return id; }
     public String getTitle() { return title; }
     public String getAuthor() { return author; }
-    public String getStatus() { return status; }
+    public BookStatus getStatus() { return status; }
+    public int getVersion() { return version; }
 }
-
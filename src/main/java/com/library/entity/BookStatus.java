@@ -0,0 +1,53 @@
+package com.library.entity;
+
+/**
+ * ★ 图书状态
+ * books.status 存 TINYINT 状态码（见 BookDAO.ensureSchema 的迁移），状态条件都是带索引的整数比较；
+ * 界面显示的中文统一取 {@link #getDisplayName()}，不再在 SQL 和界面中各写一套字符串。
+ */
+public enum BookStatus {
+    AVAILABLE(0, "可借阅"),
+    BORROWED(1, "已借出"),
+    LOST(2, "遗失"),
+    DELETED(3, "已删除"),
+    ON_HOLD(4, "预约保留");   // 已归还，为预约队列中的下一位读者保留
+
+    private static final BookStatus[] BY_CODE = new BookStatus[values().length];
+
+    static {
+        for (BookStatus s : values()) {
+            BY_CODE[s.code] = s;
+        }
+    }
+
+    private final int code;
+    private final String displayName;
+
+    BookStatus(int code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+
+    /**
+     * 数据库中的状态码（不可修改已有取值）
+     */
+    public int getCode() {
+        return code;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 根据状态码解析，无法识别时返回 null
+     */
+    public static BookStatus fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
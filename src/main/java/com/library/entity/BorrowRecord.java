@@ -0,0 +1,177 @@
+package com.library.entity;
+
+import com.library.config.SystemConfig;
+
+import java.sql.Timestamp;
+
+/**
+ * ★ 借阅记录（borrow_records 一行，附带图书和借阅人信息）
+ * DAO 查询返回该类型，界面的表格模型由 ui 包中的适配器按需生成。
+ */
+public class BorrowRecord {
+    private int id;
+    private int bookId;
+    private String bookTitle;
+    private String bookAuthor;
+    private int userId;
+    private String username;
+    private Timestamp borrowTime;
+    private Timestamp returnTime;
+    private int isReturned;       // 0 未归还，1 已归还，2 遗失
+    private BorrowState state = BorrowState.BORROWING;  // 处理状态（查询时由 resolution 等列算出）
+    private double fineAmount;
+    private boolean finePaid;
+    private int version;          // 乐观锁版本号，每次修改加 1
+    private Timestamp dueTime;    // 应还时间（借出时写入，续借时顺延）
+    private int renewCount;       // 已续借次数
+
+    // Getters
+    public int getId() {
+        return id;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public String getBookAuthor() {
+        return bookAuthor;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Timestamp getBorrowTime() {
+        return borrowTime;
+    }
+
+    public Timestamp getReturnTime() {
+        return returnTime;
+    }
+
+    public int getIsReturned() {
+        return isReturned;
+    }
+
+    public BorrowState getState() {
+        return state;
+    }
+
+    public double getFineAmount() {
+        return fineAmount;
+    }
+
+    public boolean isFinePaid() {
+        return finePaid;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * 应还时间：取记录中的 due_time（含续借顺延）；未写入时按借出时间 + 借阅期限计算，两者都缺失时返回 null
+     */
+    public Timestamp getDueTime() {
+        if (dueTime != null) {
+            return dueTime;
+        }
+        return borrowTime != null ? new Timestamp(borrowTime.getTime() + SystemConfig.DUE_PERIOD_MILLIS) : null;
+    }
+
+    public int getRenewCount() {
+        return renewCount;
+    }
+
+    /**
+     * 未归还且已超过应还时间
+     */
+    public boolean isOverdue(long now) {
+        Timestamp due = getDueTime();
+        return isReturned == 0 && due != null && now > due.getTime();
+    }
+
+    /**
+     * 是否还可以续借（不含预约检查，预约情况由 BookDAO 续借时判断）
+     */
+    public boolean isRenewable(long now) {
+        return isReturned == 0 && !isOverdue(now) && fineAmount == 0 && renewCount < SystemConfig.MAX_RENEW_COUNT;
+    }
+
+    /**
+     * 遗失后以新书替换处理
+     */
+    public boolean isReplacement() {
+        return state == BorrowState.LOST_REPLACED;
+    }
+
+    // Setters
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public void setBookId(int bookId) {
+        this.bookId = bookId;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public void setBookAuthor(String bookAuthor) {
+        this.bookAuthor = bookAuthor;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public void setBorrowTime(Timestamp borrowTime) {
+        this.borrowTime = borrowTime;
+    }
+
+    public void setReturnTime(Timestamp returnTime) {
+        this.returnTime = returnTime;
+    }
+
+    public void setIsReturned(int isReturned) {
+        this.isReturned = isReturned;
+    }
+
+    public void setState(BorrowState state) {
+        this.state = state;
+    }
+
+    public void setFineAmount(double fineAmount) {
+        this.fineAmount = fineAmount;
+    }
+
+    public void setFinePaid(boolean finePaid) {
+        this.finePaid = finePaid;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public void setDueTime(Timestamp dueTime) {
+        this.dueTime = dueTime;
+    }
+
+    public void setRenewCount(int renewCount) {
+        this.renewCount = renewCount;
+    }
+}
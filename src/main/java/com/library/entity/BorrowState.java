@@ -0,0 +1,41 @@
+package com.library.entity;
+
+/**
+ * ★ 借阅记录的处理状态
+ * 由查询中的 CASE 表达式根据 is_returned、fine_amount 和 resolution 一次算出（见 dao.BorrowRecordMapper），
+ * 各界面的"是否归还""状态"列只按这个状态码查表显示，不再逐行对 resolution 做字符串匹配。
+ * 超期与否和时间有关，不在此列，显示时按当前时间计算。
+ */
+public enum BorrowState {
+    BORROWING,           // 未归还
+    RETURNED,            // 正常归还
+    RETURNED_FINED,      // 归还时有超期罚款
+    RETURNED_LOST_NOTE,  // 已归还，处理说明中注明遗失（罚款已结清）
+    LOST_REPLACED,       // 遗失，新书替换
+    LOST_FINED,          // 遗失，罚款处理
+    LOST_NOTED,          // 遗失，旧数据：有处理说明但未注明替换或罚款
+    LOST_BLANK;          // 遗失，旧数据：无处理说明且无罚款
+
+    private static final BorrowState[] BY_CODE = values();
+
+    /**
+     * 状态码即枚举序号，与 BorrowRecordMapper 中 CASE 表达式的取值一致
+     */
+    public int getCode() {
+        return ordinal();
+    }
+
+    /**
+     * 根据状态码解析（数组下标查表），无法识别时按未归还处理
+     */
+    public static BorrowState fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : BORROWING;
+    }
+
+    /**
+     * 是否已遗失
+     */
+    public boolean isLost() {
+        return ordinal() >= LOST_REPLACED.ordinal();
+    }
+}
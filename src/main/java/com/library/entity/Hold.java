@@ -0,0 +1,38 @@
+package com.library.entity;
+
+import java.sql.Timestamp;
+
+/**
+ * ★ 图书预约（book_holds 一行，附带图书信息和排队位置）
+ */
+public class Hold {
+    private int id;
+    private int bookId;
+    private String bookTitle;
+    private String bookAuthor;
+    private int userId;
+    private HoldStatus status;
+    private Timestamp createdAt;
+    private Timestamp expireAt;   // 到书后的保留截止时间，排队中为 null
+    private int position;         // 排队中时在该书队列中的位置（从 1 开始）
+
+    public int getId() { return id; }
+    public int getBookId() { return bookId; }
+    public String getBookTitle() { return bookTitle; }
+    public String getBookAuthor() { return bookAuthor; }
+    public int getUserId() { return userId; }
+    public HoldStatus getStatus() { return status; }
+    public Timestamp getCreatedAt() { return createdAt; }
+    public Timestamp getExpireAt() { return expireAt; }
+    public int getPosition() { return position; }
+
+    public void setId(int id) { this.id = id; }
+    public void setBookId(int bookId) { this.bookId = bookId; }
+    public void setBookTitle(String bookTitle) { this.bookTitle = bookTitle; }
+    public void setBookAuthor(String bookAuthor) { this.bookAuthor = bookAuthor; }
+    public void setUserId(int userId) { this.userId = userId; }
+    public void setStatus(HoldStatus status) { this.status = status; }
+    public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
+    public void setExpireAt(Timestamp expireAt) { this.expireAt = expireAt; }
+    public void setPosition(int position) { this.position = position; }
+}
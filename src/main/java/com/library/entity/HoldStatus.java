@@ -0,0 +1,58 @@
+package com.library.entity;
+
+/**
+ * ★ 预约状态（book_holds.status 存状态码）
+ */
+public enum HoldStatus {
+    WAITING(0, "排队中"),
+    READY(1, "已到书，待借阅"),
+    FULFILLED(2, "已借阅"),
+    CANCELLED(3, "已取消"),
+    EXPIRED(4, "已过期");
+
+    private static final HoldStatus[] BY_CODE = new HoldStatus[values().length];
+
+    static {
+        for (HoldStatus s : values()) {
+            BY_CODE[s.code] = s;
+        }
+    }
+
+    private final int code;
+    private final String displayName;
+
+    HoldStatus(int code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+
+    /**
+     * 数据库中的状态码（不可修改已有取值）
+     */
+    public int getCode() {
+        return code;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 是否仍占用预约名额（排队中或已到书）
+     */
+    public boolean isActive() {
+        return this == WAITING || this == READY;
+    }
+
+    /**
+     * 根据状态码解析，无法识别时返回 null
+     */
+    public static HoldStatus fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
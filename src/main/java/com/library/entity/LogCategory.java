@@ -0,0 +1,72 @@
+package com.library.entity;
+
+/**
+ * 系统日志操作分类
+ * 写入日志时根据操作内容归类并存入 sys_logs.category（带索引），按分类筛选时无需 LIKE 扫描。
+ */
+public enum LogCategory {
+    LOGIN("登录"),
+    BORROW("借阅"),
+    RETURN("归还"),
+    FINE("罚款/遗失"),
+    BOOK("图书管理"),
+    USER("用户管理"),
+    SYSTEM("其他");
+
+    private final String displayName;
+
+    LogCategory(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 根据操作内容判断分类（与 LogDAO 中回填历史数据的 SQL 规则保持一致）
+     */
+    public static LogCategory fromOperation(String operation) {
+        if (operation == null) {
+            return SYSTEM;
+        }
+        if (operation.contains("登录")) {
+            return LOGIN;
+        }
+        if (operation.contains("成功归还")) {
+            return RETURN;
+        }
+        if (operation.contains("成功借阅")) {
+            return BORROW;
+        }
+        if (operation.contains("用户") || operation.contains("密码") || operation.contains("注销")) {
+            return USER;
+        }
+        if (operation.contains("罚款") || operation.contains("遗失")) {
+            return FINE;
+        }
+        if (operation.contains("图书")) {
+            return BOOK;
+        }
+        return SYSTEM;
+    }
+
+    /**
+     * 根据存储值解析分类，无法识别时返回 SYSTEM
+     */
+    public static LogCategory fromCode(String code) {
+        if (code != null) {
+            for (LogCategory c : values()) {
+                if (c.name().equals(code)) {
+                    return c;
+                }
+            }
+        }
+        return SYSTEM;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
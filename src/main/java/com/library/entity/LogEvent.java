@@ -0,0 +1,70 @@
+package com.library.entity;
+
+import java.sql.Timestamp;
+
+/**
+ * 结构化日志事件
+ * 除可读的操作文本外，携带事件类型、操作人、目标对象和少量载荷（JSON），分别存入带索引的列。
+ */
+public class LogEvent {
+    private LogEventType eventType;
+    private Integer actorId;      // 操作人用户ID（未登录时为 null）
+    private String username;      // 操作人用户名
+    private Integer targetId;     // 目标对象ID（类型由 eventType 决定）
+    private String payload;       // 少量结构化数据（JSON 字符串）
+    private String operation;     // 可读的操作描述
+    private Timestamp opTime;
+
+    public LogEvent(LogEventType eventType, Integer targetId, String payload, String operation) {
+        this.eventType = eventType;
+        this.targetId = targetId;
+        this.payload = payload;
+        this.operation = operation;
+    }
+
+    // Getters
+    public LogEventType getEventType() {
+        return eventType;
+    }
+
+    public LogTargetType getTargetType() {
+        return eventType.getTargetType();
+    }
+
+    public Integer getActorId() {
+        return actorId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Integer getTargetId() {
+        return targetId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Timestamp getOpTime() {
+        return opTime;
+    }
+
+    // Setters（操作人和时间在写入日志时补全）
+    public void setActorId(Integer actorId) {
+        this.actorId = actorId;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public void setOpTime(Timestamp opTime) {
+        this.opTime = opTime;
+    }
+}
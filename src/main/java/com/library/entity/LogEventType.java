@@ -0,0 +1,85 @@
+package com.library.entity;
+
+/**
+ * 结构化日志事件类型（存入 sys_logs.event_type，带索引）
+ * 每种事件固定所属分类和目标对象类型，统计和按对象追溯时无需解析操作文本。
+ */
+public enum LogEventType {
+    // --- 登录 ---
+    USER_LOGIN(LogCategory.LOGIN, LogTargetType.USER, "登录成功"),
+    LOGIN_FAILED(LogCategory.LOGIN, LogTargetType.USER, "登录失败"),
+    LOGIN_REJECTED(LogCategory.LOGIN, LogTargetType.USER, "登录被拒绝"),
+    LOGIN_LOCKOUT(LogCategory.LOGIN, LogTargetType.USER, "登录锁定"),
+
+    // --- 借还与罚款 ---
+    BOOK_BORROWED(LogCategory.BORROW, LogTargetType.BOOK, "借阅图书"),
+    BOOK_RETURNED(LogCategory.RETURN, LogTargetType.BOOK, "归还图书"),
+    FINE_RECORDED(LogCategory.FINE, LogTargetType.BORROW_RECORD, "记录罚款"),
+    BOOK_LOST(LogCategory.FINE, LogTargetType.BOOK, "遗失处理"),
+    LOAN_RENEWED(LogCategory.BORROW, LogTargetType.BORROW_RECORD, "续借"),
+
+    // --- 预约 ---
+    HOLD_PLACED(LogCategory.BORROW, LogTargetType.BOOK, "预约图书"),
+    HOLD_CANCELLED(LogCategory.BORROW, LogTargetType.BOOK, "取消预约"),
+    HOLD_EXPIRED(LogCategory.BORROW, LogTargetType.BOOK, "预约过期"),
+
+    // --- 图书管理 ---
+    BOOK_ADDED(LogCategory.BOOK, LogTargetType.BOOK, "新增图书"),
+    BOOK_UPDATED(LogCategory.BOOK, LogTargetType.BOOK, "修改图书"),
+    BOOK_DELETED(LogCategory.BOOK, LogTargetType.BOOK, "删除图书"),
+
+    // --- 用户管理 ---
+    USER_ADDED(LogCategory.USER, LogTargetType.USER, "添加用户"),
+    USER_CREDENTIALS_UPDATED(LogCategory.USER, LogTargetType.USER, "更新凭证"),
+    PASSWORD_RESET(LogCategory.USER, LogTargetType.USER, "重置密码"),
+    USER_STATUS_CHANGED(LogCategory.USER, LogTargetType.USER, "启用/禁用"),
+    USER_DELETED(LogCategory.USER, LogTargetType.USER, "删除用户"),
+    USER_DELETE_FAILED(LogCategory.USER, LogTargetType.USER, "删除用户失败"),
+    USER_DEACTIVATED(LogCategory.USER, LogTargetType.USER, "注销账号"),
+    USER_DEACTIVATE_FAILED(LogCategory.USER, LogTargetType.USER, "注销账号失败"),
+    USER_IMPORTED(LogCategory.USER, LogTargetType.USER, "批量导入用户"),
+
+    // --- 未结构化的旧式日志 ---
+    OTHER(LogCategory.SYSTEM, null, "其他");
+
+    private final LogCategory category;
+    private final LogTargetType targetType;
+    private final String displayName;
+
+    LogEventType(LogCategory category, LogTargetType targetType, String displayName) {
+        this.category = category;
+        this.targetType = targetType;
+        this.displayName = displayName;
+    }
+
+    public LogCategory getCategory() {
+        return category;
+    }
+
+    public LogTargetType getTargetType() {
+        return targetType;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 根据存储值解析事件类型，无法识别时返回 OTHER
+     */
+    public static LogEventType fromCode(String code) {
+        if (code != null) {
+            for (LogEventType t : values()) {
+                if (t.name().equals(code)) {
+                    return t;
+                }
+            }
+        }
+        return OTHER;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
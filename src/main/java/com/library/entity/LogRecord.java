@@ -0,0 +1,51 @@
+package com.library.entity;
+
+import java.sql.Timestamp;
+
+/**
+ * ★ 已写入的一条日志（查询结果）
+ * 与 {@link LogEvent}（待写入的事件）分开：查询只需要列表展示用到的列。
+ */
+public class LogRecord {
+    private final int id;
+    private final String username;
+    private final LogCategory category;
+    private final LogEventType eventType;
+    private final String operation;
+    private final Timestamp opTime;
+
+    public LogRecord(int id, String username, LogCategory category, LogEventType eventType,
+                     String operation, Timestamp opTime) {
+        this.id = id;
+        this.username = username;
+        this.category = category;
+        this.eventType = eventType;
+        this.operation = operation;
+        this.opTime = opTime;
+    }
+
+    // Getters
+    public int getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public LogCategory getCategory() {
+        return category;
+    }
+
+    public LogEventType getEventType() {
+        return eventType;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Timestamp getOpTime() {
+        return opTime;
+    }
+}
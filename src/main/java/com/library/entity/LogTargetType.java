@@ -0,0 +1,20 @@
+package com.library.entity;
+
+/**
+ * 日志事件的目标对象类型（存入 sys_logs.target_type）
+ */
+public enum LogTargetType {
+    BOOK("图书"),
+    USER("用户"),
+    BORROW_RECORD("借阅记录");
+
+    private final String displayName;
+
+    LogTargetType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,32 @@
+package com.library.entity;
+
+import java.sql.Timestamp;
+
+/**
+ * ★ 读者通知（notification_outbox 一行）
+ * 由借还、预约等操作在同一事务中写入，客户端读取未读通知后标记为已读。
+ */
+public class Notification {
+    private final long id;
+    private final int userId;
+    private final int bookId;
+    private final String type;
+    private final String message;
+    private final Timestamp createdAt;
+
+    public Notification(long id, int userId, int bookId, String type, String message, Timestamp createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.type = type;
+        this.message = message;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() { return id; }
+    public int getUserId() { return userId; }
+    public int getBookId() { return bookId; }
+    public String getType() { return type; }
+    public String getMessage() { return message; }
+    public Timestamp getCreatedAt() { return createdAt; }
+}
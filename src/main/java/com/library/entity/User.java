@@ -40,7 +40,18 @@ public class User {
         return password;
     }
 
+    /**
+     * ★ 新增：获取账号状态（1 正常，0 已禁用，-1 已注销）
+     */
+    public int getIsActive() {
+        return isActive;
+    }
+
     // Setters
+    public void setIsActive(int isActive) {
+        this.isActive = isActive;
+    }
+
     public void setUsername(String username) {
         this.username = username;
     }
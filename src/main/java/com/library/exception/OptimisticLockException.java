@@ -0,0 +1,9 @@
+package com.library.exception;
+
+/**
+ * 乐观锁冲突：数据在读取之后已被其他操作修改（version 不一致），本次修改未生效，可刷新后重试
+ */
+public class OptimisticLockException extends BusinessException {
+    public OptimisticLockException(String message) { super(message); }
+    public OptimisticLockException() { this("数据已被其他操作修改，请刷新后重试。"); }
+}
@@ -0,0 +1,193 @@
+package com.library.server;
+
+import com.library.config.SystemConfig;
+import com.library.entity.User;
+import com.library.exception.AuthException;
+import com.library.exception.ValidationException;
+import com.library.util.JsonUtil;
+import com.library.util.SessionManager;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ★ 一次 HTTP 请求的参数和会话
+ *
+ * 参数来自查询字符串和请求体（JSON 对象或表单），同名时请求体优先。
+ * 会话令牌从 "Authorization: Bearer 令牌" 或 "X-Session-Token" 请求头读取。
+ * 借阅、归还的操作编号从 "Idempotency-Key" 请求头或 operationId 参数读取。
+ */
+class ApiRequest {
+    private final HttpExchange exchange;
+    private final Map<String, String> params;
+
+    private ApiRequest(HttpExchange exchange, Map<String, String> params) {
+        this.exchange = exchange;
+        this.params = params;
+    }
+
+    /**
+     * 读取并解析请求参数
+     */
+    static ApiRequest parse(HttpExchange exchange) throws IOException, ValidationException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+
+        String body = readBody(exchange.getRequestBody());
+        if (!body.trim().isEmpty()) {
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (contentType != null && contentType.toLowerCase().contains("json")) {
+                try {
+                    for (Map.Entry<String, Object> e : JsonUtil.parseObject(body).entrySet()) {
+                        params.put(e.getKey(), e.getValue() == null ? null : e.getValue().toString());
+                    }
+                } catch (RuntimeException e) {
+                    throw new ValidationException("请求体不是有效的 JSON 对象: " + e.getMessage());
+                }
+            } else {
+                parseForm(body, params);
+            }
+        }
+        return new ApiRequest(exchange, params);
+    }
+
+    private static String readBody(InputStream in) throws IOException, ValidationException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+            if (out.size() > SystemConfig.HTTP_MAX_BODY_BYTES) {
+                throw new ValidationException("请求体过大");
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void parseForm(String text, Map<String, String> params) throws UnsupportedEncodingException {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        for (String pair : text.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+    }
+
+    /**
+     * 请求携带的会话令牌，没有时返回 null
+     */
+    String token() {
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        if (auth != null && auth.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return auth.substring(7).trim();
+        }
+        return exchange.getRequestHeaders().getFirst("X-Session-Token");
+    }
+
+    /**
+     * 操作编号（客户端超时重试时沿用同一编号，服务端据此去重），没有时返回 null
+     */
+    String operationId() throws ValidationException {
+        String id = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (id == null || id.trim().isEmpty()) {
+            id = param("operationId");
+        }
+        if (id == null) {
+            return null;
+        }
+        id = id.trim();
+        if (id.isEmpty() || id.length() > SystemConfig.CIRCULATION_OP_ID_MAX_LENGTH) {
+            throw new ValidationException("操作编号长度应为 1 到 " + SystemConfig.CIRCULATION_OP_ID_MAX_LENGTH + " 个字符");
+        }
+        return id;
+    }
+
+    /**
+     * 客户端地址（登录限流按此区分客户端）
+     */
+    String remoteAddress() {
+        return exchange.getRemoteAddress().getAddress().getHostAddress();
+    }
+
+    String param(String name) {
+        String value = params.get(name);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    String requireParam(String name) throws ValidationException {
+        String value = param(name);
+        if (value == null) {
+            throw new ValidationException("缺少参数: " + name);
+        }
+        return value;
+    }
+
+    int intParam(String name) throws ValidationException {
+        String value = requireParam(name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("参数 " + name + " 应为整数: " + value);
+        }
+    }
+
+    long longParam(String name) throws ValidationException {
+        String value = requireParam(name);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("参数 " + name + " 应为整数: " + value);
+        }
+    }
+
+    int intParam(String name, int defaultValue) throws ValidationException {
+        return param(name) == null ? defaultValue : intParam(name);
+    }
+
+    Double doubleParam(String name) throws ValidationException {
+        String value = param(name);
+        if (value == null) {
+            return null;
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("参数 " + name + " 应为数字: " + value);
+        }
+        // NaN 与任何数比较都为 false，会绕过金额检查
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            throw new ValidationException("参数 " + name + " 应为有限的数字: " + value);
+        }
+        return number;
+    }
+
+    boolean boolParam(String name) {
+        String value = param(name);
+        return value != null && ("true".equalsIgnoreCase(value) || "1".equals(value));
+    }
+
+    /**
+     * 当前请求的登录用户（分发请求时已把会话绑定到当前线程）
+     */
+    User requireUser() throws AuthException {
+        SessionManager.Session session = SessionManager.getBoundSession();
+        if (session == null) {
+            throw new AuthException("未登录或会话已过期，请重新登录。");
+        }
+        return session.getUser();
+    }
+}
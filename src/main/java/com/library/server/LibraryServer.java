@@ -0,0 +1,427 @@
+package com.library.server;
+
+import com.library.config.SystemConfig;
+import com.library.dao.BookDAO;
+import com.library.dao.HoldDAO;
+import com.library.dao.MaintenanceScheduler;
+import com.library.dao.NotificationDAO;
+import com.library.dao.UserCache;
+import com.library.dao.UserDAO;
+import com.library.dao.UsernameRegistry;
+import com.library.entity.Book;
+import com.library.entity.BookStatus;
+import com.library.entity.BorrowRecord;
+import com.library.entity.Hold;
+import com.library.entity.HoldStatus;
+import com.library.entity.Notification;
+import com.library.entity.User;
+import com.library.exception.AuthException;
+import com.library.exception.BusinessException;
+import com.library.exception.DBException;
+import com.library.exception.ValidationException;
+import com.library.util.DBHelper;
+import com.library.util.JsonUtil;
+import com.library.util.SessionManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ★ 无界面服务模式：用 JDK 自带的 HttpServer 提供借阅相关的 JSON 接口（自助借还机、校园门户使用）
+ *
+ * 启动：java -cp ... com.library.server.LibraryServer [端口]
+ *
+ * 接口（参数可放在查询字符串、表单或 JSON 请求体中；除登录和监控外都需要会话令牌，
+ * 放在 "Authorization: Bearer 令牌" 请求头中）：
+ * - POST /api/login    username, password → token
+ *   （每次请求都确认令牌所属账号仍处于启用状态且密码未变，账号在桌面端被禁用、注销、删除或改密码后，
+ *   至多 {@link SystemConfig#USER_CACHE_TTL_SECONDS} 秒令牌即失效；每个账号最多保持
+ *   {@link SystemConfig#SESSION_MAX_PER_USER} 个会话，再登录时最早的会话失效）
+ * - POST /api/logout
+ * - GET  /api/books    q（书名关键词）, available（true 只看可借）, limit
+ * - POST /api/borrow   bookId
+ * - POST /api/return   bookId[, finePayment（支付罚款并归还）]
+ * - POST /api/renew    borrowId → 续借，返回新的应还时间
+ * - GET  /api/loans    当前在借
+ * - GET  /api/fines    待支付罚款
+ * - GET  /api/holds    我的有效预约（排队位置、保留截止时间）
+ * - POST /api/hold     bookId → 加入预约队列，返回排队位置
+ * - POST /api/hold/cancel  holdId
+ * - GET  /api/notifications       未读通知（预约到书、过期等）
+ * - POST /api/notifications/read  upToId（将不超过该编号的通知标记为已读）
+ * - GET  /api/metrics  各接口请求数、错误数和耗时分布，用户缓存命中率、用户名过滤器统计和连接池状态
+ *
+ * 并发：请求由 {@link SystemConfig#HTTP_WORKER_THREADS} 个工作线程处理，
+ * 最多排队 {@link SystemConfig#HTTP_QUEUE_CAPACITY} 个，再多时直接返回 503，不会无限堆积请求。
+ * 数据库连接来自连接池（{@link DBHelper#enablePool}），同时打开的业务连接不超过
+ * {@link SystemConfig#DB_POOL_MAX_CONNECTIONS} 个，池满时等待至多 {@link SystemConfig#DB_POOL_WAIT_MILLIS} 毫秒；
+ * 写日志使用带超时的专用小连接池（{@link SystemConfig#DB_LOG_POOL_MAX_CONNECTIONS} 个），不占用业务连接池，
+ * 两个池合计就是服务进程打开的数据库连接上限（另有批量导入时的一个批量写入连接）。
+ * 业务规则与桌面端相同（直接调用 BookDAO / UserDAO），整个进程不加载 Swing 界面类。
+ */
+public class LibraryServer {
+
+    /**
+     * 一个接口：返回 JSON 响应体，出错时抛出异常（按异常类型映射为 HTTP 状态码）
+     */
+    private interface Endpoint {
+        String handle(ApiRequest request) throws Exception;
+    }
+
+    /**
+     * 标记当前线程正在处理被拒绝的请求（工作线程和队列都已满），这类请求直接返回 503
+     */
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor overflow;
+    private final RequestMetrics metrics = new RequestMetrics();
+    private final BookDAO bookDAO = new BookDAO();
+    private final HoldDAO holdDAO = new HoldDAO();
+    private final NotificationDAO notificationDAO = new NotificationDAO();
+    private final UserDAO userDAO = new UserDAO();
+
+    public LibraryServer(int port) throws IOException {
+        // 拒绝的请求交给单独的小线程池回复 503；它也满了时由接收线程直接回复
+        overflow = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(SystemConfig.HTTP_QUEUE_CAPACITY), namedThreads("library-http-reject"),
+                (r, pool) -> runRejected(r));
+        workers = new ThreadPoolExecutor(SystemConfig.HTTP_WORKER_THREADS, SystemConfig.HTTP_WORKER_THREADS,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(SystemConfig.HTTP_QUEUE_CAPACITY),
+                namedThreads("library-http"),
+                (r, pool) -> {
+                    try {
+                        overflow.execute(() -> runRejected(r));
+                    } catch (RejectedExecutionException e) {
+                        runRejected(r);
+                    }
+                });
+        workers.allowCoreThreadTimeOut(true);
+
+        server = HttpServer.create(new InetSocketAddress(port), SystemConfig.HTTP_QUEUE_CAPACITY);
+        server.setExecutor(workers);
+
+        route("/api/login", "POST", this::login);
+        route("/api/logout", "POST", this::logout);
+        route("/api/books", "GET", this::searchBooks);
+        route("/api/borrow", "POST", this::borrow);
+        route("/api/return", "POST", this::returnBook);
+        route("/api/renew", "POST", this::renew);
+        route("/api/loans", "GET", this::loans);
+        route("/api/fines", "GET", this::fines);
+        route("/api/holds", "GET", this::holds);
+        route("/api/hold", "POST", this::placeHold);
+        route("/api/hold/cancel", "POST", this::cancelHold);
+        route("/api/notifications", "GET", this::notifications);
+        route("/api/notifications/read", "POST", this::markNotificationsRead);
+        route("/api/metrics", "GET", request -> metrics.toJson(
+                workers.getActiveCount(), workers.getQueue().size(), SessionManager.getSessionCount(),
+                cacheStats()));
+    }
+
+    /**
+     * 本进程缓存的命中统计和数据库连接池状态（/api/metrics）
+     */
+    private static String cacheStats() {
+        UserCache userCache = UserCache.getInstance();
+        UsernameRegistry registry = UsernameRegistry.getInstance();
+        return JsonUtil.object(
+                "userCache", JsonUtil.raw(JsonUtil.object(
+                        "size", userCache.size(),
+                        "hits", userCache.getHits(),
+                        "misses", userCache.getMisses(),
+                        "hitRate", Math.round(userCache.getHitRate() * 1000) / 1000.0,
+                        "evictions", userCache.getEvictions(),
+                        "invalidations", userCache.getInvalidations())),
+                "usernameRegistry", JsonUtil.raw(JsonUtil.object(
+                        "ready", registry.isReady(),
+                        "checks", registry.getChecks(),
+                        "skippedQueries", registry.getSkippedQueries(),
+                        "falsePositives", registry.getFalsePositives(),
+                        "refreshedNames", registry.getRefreshedNames())),
+                "dbPool", DBHelper.getPoolStats());
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : SystemConfig.HTTP_PORT;
+
+        DBHelper.enablePool(SystemConfig.DB_POOL_MAX_CONNECTIONS, SystemConfig.DB_POOL_WAIT_MILLIS);
+        DBHelper.enableTimeoutPool(SystemConfig.DB_LOG_POOL_MAX_CONNECTIONS, SystemConfig.LOG_WRITE_TIMEOUT_MILLIS);
+        MaintenanceScheduler.start();
+        LibraryServer server = new LibraryServer(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            MaintenanceScheduler.shutdown();
+            DBHelper.closePool();
+        }, "library-http-shutdown"));
+        server.start();
+        System.out.println("图书馆 HTTP 服务已启动，端口 " + port + "，工作线程 " + SystemConfig.HTTP_WORKER_THREADS);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * 停止服务：不再接收新连接，等待处理中的请求最多 delaySeconds 秒
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdown();
+        overflow.shutdown();
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static void runRejected(Runnable r) {
+        REJECTED.set(Boolean.TRUE);
+        try {
+            r.run();
+        } finally {
+            REJECTED.remove();
+        }
+    }
+
+    // ============================================================
+    // ★ 请求分发：绑定会话、异常映射、耗时统计
+    // ============================================================
+
+    private void route(String path, String method, Endpoint endpoint) {
+        server.createContext(path, exchange -> dispatch(exchange, path, method, endpoint));
+    }
+
+    private void dispatch(HttpExchange exchange, String path, String method, Endpoint endpoint) {
+        long start = System.nanoTime();
+        if (Boolean.TRUE.equals(REJECTED.get())) {
+            metrics.recordRejected();
+            send(exchange, 503, error("服务器繁忙，请稍后再试。"));
+            return;
+        }
+
+        int status = 200;
+        String body;
+        try {
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                status = 404;
+                body = error("接口不存在");
+            } else if (!method.equalsIgnoreCase(exchange.getRequestMethod())) {
+                status = 405;
+                body = error("请使用 " + method + " 请求");
+            } else {
+                ApiRequest request = ApiRequest.parse(exchange);
+                SessionManager.Session session = SessionManager.bind(request.token());
+                if (session != null && !userDAO.isSessionValid(session.getUser().getId(), session.getCredential())) {
+                    // 账号已在其他客户端被禁用、注销、删除或修改了密码：会话作废，按未登录处理
+                    SessionManager.invalidate(session.getToken());
+                    SessionManager.unbind();
+                }
+                body = endpoint.handle(request);
+            }
+        } catch (AuthException e) {
+            status = 401;
+            body = error(e.getMessage());
+        } catch (ValidationException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (BusinessException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (DBException e) {
+            // 数据库错误的详细信息只写服务端日志，不返回给客户端
+            System.err.println(path + " 数据库操作失败: " + e.getMessage());
+            status = 500;
+            body = error("数据库操作失败，请稍后再试。");
+        } catch (Exception e) {
+            System.err.println(path + " 处理请求失败: " + e);
+            status = 500;
+            body = error("服务器内部错误");
+        } finally {
+            // 工作线程会被复用，必须解除绑定
+            SessionManager.unbind();
+        }
+
+        send(exchange, status, body);
+        metrics.record(path, System.nanoTime() - start, status);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // 客户端已断开，无需处理
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String error(String message) {
+        return JsonUtil.object("ok", false, "error", message);
+    }
+
+    // ============================================================
+    // ★ 接口实现
+    // ============================================================
+
+    private String login(ApiRequest request) throws Exception {
+        User user = userDAO.login(request.param("username"), request.param("password"), request.remoteAddress());
+        // 记下登录后的密码哈希（已包含登录时的哈希升级），之后密码被修改或重置时会话作废
+        String credential = userDAO.getUserById(user.getId()).getPassword();
+        SessionManager.Session session = SessionManager.createSession(user, credential);
+        return JsonUtil.object("ok", true, "token", session.getToken(),
+                "userId", user.getId(), "username", user.getUsername(), "role", user.getRole(),
+                "idleTimeoutMinutes", SystemConfig.SESSION_IDLE_TIMEOUT_MINUTES);
+    }
+
+    private String logout(ApiRequest request) {
+        SessionManager.invalidate(request.token());
+        return JsonUtil.object("ok", true);
+    }
+
+    private String searchBooks(ApiRequest request) throws Exception {
+        request.requireUser();
+        int limit = Math.max(1, Math.min(request.intParam("limit", SystemConfig.HTTP_SEARCH_LIMIT),
+                SystemConfig.HTTP_SEARCH_LIMIT));
+        List<String> items = new ArrayList<>();
+        for (Book book : bookDAO.searchBooks(request.param("q"), request.boolParam("available"), limit)) {
+            items.add(JsonUtil.object("id", book.getId(), "title", book.getTitle(),
+                    "author", book.getAuthor(), "status", statusCode(book.getStatus())));
+        }
+        return JsonUtil.object("ok", true, "count", items.size(), "books", JsonUtil.raw(JsonUtil.array(items)));
+    }
+
+    /**
+     * 接口中的图书状态沿用原来的英文代码（available / borrowed / lost / deleted）
+     */
+    private static String statusCode(BookStatus status) {
+        return status != null ? status.name().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private String borrow(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        int bookId = request.intParam("bookId");
+        String operationId = request.operationId();
+        bookDAO.borrowBook(operationId, bookId, user.getId());
+        return JsonUtil.object("ok", true, "bookId", bookId, "operationId", operationId);
+    }
+
+    private String returnBook(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        int bookId = request.intParam("bookId");
+        Double finePayment = request.doubleParam("finePayment");
+        String operationId = request.operationId();
+        if (finePayment != null) {
+            bookDAO.returnBook(operationId, bookId, user.getId(), finePayment);
+        } else {
+            bookDAO.returnBook(operationId, bookId, user.getId());
+        }
+        return JsonUtil.object("ok", true, "bookId", bookId, "operationId", operationId);
+    }
+
+    private String renew(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        int borrowId = request.intParam("borrowId");
+        String operationId = request.operationId();
+        Timestamp dueTime = bookDAO.renewLoan(operationId, borrowId, user.getId());
+        return JsonUtil.object("ok", true, "borrowId", borrowId, "dueTime", dueTime, "operationId", operationId);
+    }
+
+    private String loans(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        List<String> items = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (BorrowRecord loan : bookDAO.findCurrentLoans(user.getId())) {
+            items.add(JsonUtil.object("borrowId", loan.getId(), "bookId", loan.getBookId(),
+                    "title", loan.getBookTitle(), "author", loan.getBookAuthor(),
+                    "borrowTime", loan.getBorrowTime(), "dueTime", loan.getDueTime(), "overdue", loan.isOverdue(now),
+                    "fineAmount", loan.getFineAmount(), "finePaid", loan.isFinePaid(),
+                    "renewCount", loan.getRenewCount(), "renewable", loan.isRenewable(now)));
+        }
+        return JsonUtil.object("ok", true, "count", items.size(), "loans", JsonUtil.raw(JsonUtil.array(items)));
+    }
+
+    private String fines(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        List<String> items = new ArrayList<>();
+        double total = 0;
+        for (BorrowRecord fine : bookDAO.findUnpaidFines(user.getId())) {
+            total += fine.getFineAmount();
+            items.add(JsonUtil.object("borrowId", fine.getId(), "bookId", fine.getBookId(),
+                    "title", fine.getBookTitle(), "amount", fine.getFineAmount(),
+                    "returned", fine.getIsReturned() == 1, "lost", fine.getIsReturned() == 2));
+        }
+        return JsonUtil.object("ok", true, "count", items.size(), "total", Math.round(total * 100) / 100.0,
+                "fines", JsonUtil.raw(JsonUtil.array(items)));
+    }
+
+    private String holds(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        List<String> items = new ArrayList<>();
+        for (Hold hold : holdDAO.findActiveHolds(user.getId())) {
+            boolean ready = hold.getStatus() == HoldStatus.READY;
+            items.add(JsonUtil.object("holdId", hold.getId(), "bookId", hold.getBookId(),
+                    "title", hold.getBookTitle(), "author", hold.getBookAuthor(),
+                    "ready", ready, "position", ready ? 0 : hold.getPosition(),
+                    "expireTime", hold.getExpireAt()));
+        }
+        return JsonUtil.object("ok", true, "count", items.size(), "holds", JsonUtil.raw(JsonUtil.array(items)));
+    }
+
+    private String placeHold(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        int bookId = request.intParam("bookId");
+        int position = holdDAO.placeHold(bookId, user.getId());
+        return JsonUtil.object("ok", true, "bookId", bookId, "position", position);
+    }
+
+    private String cancelHold(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        int holdId = request.intParam("holdId");
+        holdDAO.cancelHold(holdId, user.getId());
+        return JsonUtil.object("ok", true, "holdId", holdId);
+    }
+
+    private String notifications(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        List<String> items = new ArrayList<>();
+        for (Notification n : notificationDAO.findUnread(user.getId())) {
+            items.add(JsonUtil.object("id", n.getId(), "type", n.getType(), "bookId", n.getBookId(),
+                    "message", n.getMessage(), "time", n.getCreatedAt()));
+        }
+        return JsonUtil.object("ok", true, "count", items.size(), "notifications", JsonUtil.raw(JsonUtil.array(items)));
+    }
+
+    private String markNotificationsRead(ApiRequest request) throws Exception {
+        User user = request.requireUser();
+        long upToId = request.longParam("upToId");
+        notificationDAO.markRead(user.getId(), upToId);
+        return JsonUtil.object("ok", true);
+    }
+}
@@ -0,0 +1,116 @@
+package com.library.server;
+
+import com.library.util.JsonUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ★ 按接口统计请求数、错误数和耗时分布
+ *
+ * 每个请求只做几次原子累加，不加锁、不保存单个请求的耗时：
+ * 耗时按固定的毫秒区间计数，百分位数取所在区间的上界（估算值，精度为区间宽度）。
+ */
+class RequestMetrics {
+
+    /**
+     * 耗时区间上界（毫秒），最后一个区间为超过 10 秒
+     */
+    private static final long[] BUCKET_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private static class Stats {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();      // 5xx
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_MILLIS.length + 1);
+    }
+
+    private final Map<String, Stats> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final long startedAt = System.currentTimeMillis();
+
+    void record(String endpoint, long nanos, int status) {
+        Stats stats = endpoints.computeIfAbsent(endpoint, k -> new Stats());
+        stats.count.increment();
+        if (status >= 500) {
+            stats.errors.increment();
+        }
+        stats.totalNanos.add(nanos);
+        long max;
+        while (nanos > (max = stats.maxNanos.get()) && !stats.maxNanos.compareAndSet(max, nanos)) {
+            // 重试直到更新成功或已有更大的值
+        }
+        stats.buckets.incrementAndGet(bucketOf(nanos / 1_000_000));
+    }
+
+    /**
+     * 工作线程和队列都已满、直接返回 503 的请求
+     */
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKET_MILLIS.length; i++) {
+            if (millis < BUCKET_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_MILLIS.length;
+    }
+
+    /**
+     * 估算百分位数（毫秒，所在区间的上界），没有请求时返回 0
+     */
+    private static long percentile(Stats s, long count, double p) {
+        AtomicLongArray buckets = s.buckets;
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * p);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                // 落在最后一个区间（超过 10 秒）时取最大耗时
+                return i < BUCKET_MILLIS.length ? BUCKET_MILLIS[i] : s.maxNanos.get() / 1_000_000;
+            }
+        }
+        return s.maxNanos.get() / 1_000_000;
+    }
+
+    /**
+     * 统计快照（JSON）
+     * @param caches 缓存统计（JSON 对象）
+     */
+    String toJson(int activeWorkers, int queuedRequests, int sessions, String caches) {
+        List<String> items = new ArrayList<>();
+        for (Map.Entry<String, Stats> e : endpoints.entrySet()) {
+            Stats s = e.getValue();
+            long count = s.count.sum();
+            items.add(JsonUtil.object(
+                    "endpoint", e.getKey(),
+                    "count", count,
+                    "errors", s.errors.sum(),
+                    "avgMillis", count == 0 ? 0 : Math.round(s.totalNanos.sum() / 1_000_000.0 / count * 100) / 100.0,
+                    "p50Millis", percentile(s, count, 0.50),
+                    "p95Millis", percentile(s, count, 0.95),
+                    "p99Millis", percentile(s, count, 0.99),
+                    "maxMillis", Math.round(s.maxNanos.get() / 10_000.0) / 100.0));
+        }
+        return JsonUtil.object(
+                "uptimeSeconds", (System.currentTimeMillis() - startedAt) / 1000,
+                "activeWorkers", activeWorkers,
+                "queuedRequests", queuedRequests,
+                "rejected", rejected.sum(),
+                "sessions", sessions,
+                "caches", JsonUtil.raw(caches),
+                "endpoints", JsonUtil.raw(JsonUtil.array(items)));
+    }
+}
@@ -135,7 +135,7 @@ public class AdminStatusPanel extends JPanel {
      */
     private void refreshTable() {
         try {
-            model = bookDAO.getAllBorrowRecordsModelForAdmin();
+            model = BookTableModels.adminBorrowRecords(bookDAO.findAllBorrowRecords());
             table.setModel(model);
 
             // 调整列宽
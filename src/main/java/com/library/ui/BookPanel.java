@@ -1,8 +1,11 @@
 package com.library.ui;
 
 import com.library.dao.BookDAO;
+import com.library.entity.Book;
+import com.library.entity.BookStatus;
 import com.library.entity.User;
 import com.library.exception.DBException;
+import com.library.exception.OptimisticLockException;
 import com.library.util.SessionManager;
 
 import javax.swing.*;
@@ -19,7 +22,7 @@ import java.awt.*;
 public class BookPanel extends JPanel {
     private BookDAO bookDAO = new BookDAO();
     private JTable bookTable;
-    private DefaultTableModel model;
+    private TableModels.LazyModel<Book> model;
     private TableRowSorter<DefaultTableModel> sorter;
     private User currentUser;
     private boolean isAdmin;
@@ -154,7 +157,7 @@ public class BookPanel extends JPanel {
         try {
             // 普通用户只能看到"可借阅"的图书，管理员可以看到所有图书
             boolean onlyAvailable = !isAdmin;
-            model = bookDAO.getBookModel(keyword, onlyAvailable);
+            model = BookTableModels.books(bookDAO.findBooks(keyword, onlyAvailable));
             bookTable.setModel(model);
 
             // ★★★ 优化列宽设置
@@ -272,13 +275,14 @@ public class BookPanel extends JPanel {
         int bookId = (int) bookTable.getValueAt(row, 0);
         String oldTitle = (String) bookTable.getValueAt(row, 1);
         String oldAuthor = (String) bookTable.getValueAt(row, 2);
+        int version = model.getRow(bookTable.convertRowIndexToModel(row)).getVersion();
 
         // ★ 获取状态并去除空格
         Object statusObj = bookTable.getValueAt(row, 3);
         String status = statusObj != null ? statusObj.toString().trim() : "";
 
         // ★ 检查图书状态是否为"遗失"
-        if ("遗失".equals(status)) {
+        if (BookStatus.LOST.getDisplayName().equals(status)) {
             JOptionPane.showMessageDialog(this,
                     String.format("该图书已遗失，无法修改信息。\n\n图书编号: %d\n书名: %s\n作者: %s\n状态: %s",
                             bookId, oldTitle, oldAuthor, status),
@@ -288,7 +292,7 @@ public class BookPanel extends JPanel {
         }
 
         // ★ 检查图书状态是否为"已删除"
-        if ("已删除".equals(status)) {
+        if (BookStatus.DELETED.getDisplayName().equals(status)) {
             JOptionPane.showMessageDialog(this,
                     String.format("该图书已删除，无法修改信息。\n\n图书编号: %d\n书名: %s\n作者: %s\n状态: %s",
                             bookId, oldTitle, oldAuthor, status),
@@ -309,12 +313,19 @@ public class BookPanel extends JPanel {
             String newAuthor = dialog.getNewAuthor();
 
             try {
-                bookDAO.updateBook(bookId, newTitle, newAuthor);
+                bookDAO.updateBook(bookId, newTitle, newAuthor, version);
                 refreshTable(null);
                 JOptionPane.showMessageDialog(this,
                         "图书信息修改成功!",
                         "成功",
                         JOptionPane.INFORMATION_MESSAGE);
+            } catch (OptimisticLockException ex) {
+                // ★ 其他管理员已修改该图书：刷新后由用户确认最新内容再修改
+                refreshTable(null);
+                JOptionPane.showMessageDialog(this,
+                        "修改失败: " + ex.getMessage(),
+                        "提示",
+                        JOptionPane.WARNING_MESSAGE);
             } catch (DBException ex) {
                 JOptionPane.showMessageDialog(this,
                         "修改失败: " + ex.getMessage(),
@@ -356,7 +367,7 @@ public class BookPanel extends JPanel {
         String status = statusObj != null ? statusObj.toString().trim() : "";
 
         // ★ 检查图书状态是否为"遗失"
-        if ("遗失".equals(status)) {
+        if (BookStatus.LOST.getDisplayName().equals(status)) {
             JOptionPane.showMessageDialog(this,
                     String.format("该图书已遗失，无法删除。\n\n图书编号: %d\n书名: %s\n状态: %s\n\n提示：已遗失的图书已被系统标记，无需手动删除。",
                             bookId, title, status),
@@ -366,7 +377,7 @@ public class BookPanel extends JPanel {
         }
 
         // ★ 检查图书状态是否为"已删除"
-        if ("已删除".equals(status)) {
+        if (BookStatus.DELETED.getDisplayName().equals(status)) {
             JOptionPane.showMessageDialog(this,
                     String.format("该图书已删除，无法重复删除。\n\n图书编号: %d\n书名: %s\n状态: %s",
                             bookId, title, status),
@@ -376,7 +387,7 @@ public class BookPanel extends JPanel {
         }
 
         // ★ 检查图书状态是否为"已借出"
-        if ("已借出".equals(status)) {
+        if (BookStatus.BORROWED.getDisplayName().equals(status)) {
             int confirm = JOptionPane.showConfirmDialog(this,
                     String.format("该图书当前已借出，确认删除吗？\n\n图书编号: %d\n书名: %s\n状态: %s\n\n⚠️ 删除后借阅记录仍会保留，但图书将无法再次借阅。",
                             bookId, title, status),
@@ -0,0 +1,245 @@
+package com.library.ui;
+
+import com.library.config.SystemConfig;
+import com.library.entity.Book;
+import com.library.entity.BookStatus;
+import com.library.entity.BorrowRecord;
+import com.library.entity.Hold;
+import com.library.entity.HoldStatus;
+
+import javax.swing.table.DefaultTableModel;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * ★ 图书和借阅记录的表格模型（把 BookDAO 返回的列表转换为界面表格）
+ * 列和显示文字与各面板原有的表格一致；数据查询在 BookDAO 中，这里只负责显示格式。
+ */
+public final class BookTableModels {
+
+    private BookTableModels() {
+    }
+
+    /**
+     * 图书列表（图书管理、借阅图书面板）
+     */
+    public static TableModels.LazyModel<Book> books(List<Book> books) {
+        return TableModels.lazy(books)
+                .column("图书编号", Book::getId)
+                .column("书名", Book::getTitle)
+                .column("作者", Book::getAuthor)
+                .column("状态", b -> statusText(b.getStatus()));
+    }
+
+    /**
+     * ★ 我的预约：排队中显示队列位置，已到书显示保留截止时间
+     */
+    public static TableModels.LazyModel<Hold> holds(List<Hold> holds) {
+        return TableModels.lazy(holds)
+                .column("预约编号", Hold::getId)
+                .column("图书编号", Hold::getBookId)
+                .column("书名", Hold::getBookTitle)
+                .column("作者", Hold::getBookAuthor)
+                .column("状态", h -> h.getStatus() != null ? h.getStatus().getDisplayName() : "-")
+                .column("排队位置/保留至", h -> h.getStatus() == HoldStatus.READY
+                        ? "保留至 " + timeText(h.getExpireAt())
+                        : "第 " + h.getPosition() + " 位");
+    }
+
+    /**
+     * 图书状态的中文显示
+     */
+    public static String statusText(BookStatus status) {
+        return status != null ? status.getDisplayName() : "-";
+    }
+
+    /**
+     * ★ 我的借阅记录（简化状态显示）
+     */
+    public static TableModels.LazyModel<BorrowRecord> myBorrowRecords(List<BorrowRecord> records) {
+        long now = System.currentTimeMillis();
+        return TableModels.lazy(records)
+                .column("记录ID", BorrowRecord::getId)
+                .column("书名", BorrowRecord::getBookTitle)
+                .column("借出日期", r -> timeText(r.getBorrowTime()))
+                // ★ 已归还显示实际归还日期，未归还显示应归还日期
+                .column("应归还日期/归还日期", r -> timeText(r.getIsReturned() == 1 ? r.getReturnTime() : r.getDueTime()))
+                .column("是否归还", r -> RETURNED_TEXT[r.getState().getCode()])
+                .column("状态", r -> stateText(MY_STATE_TEXT, r, now))
+                .column("罚款金额", BookTableModels::fineText);
+    }
+
+    /**
+     * ★ 全部借阅记录（超期和遗失管理）
+     */
+    public static TableModels.LazyModel<BorrowRecord> allBorrowRecords(List<BorrowRecord> records) {
+        long now = System.currentTimeMillis();
+        return withRecordColumns(TableModels.lazy(records))
+                .column("应还日期", r -> timeText(r.getDueTime()))
+                .column("是否归还", r -> RETURN_STATUS_TEXT[r.getState().getCode()])
+                .column("状态", r -> stateText(ALL_STATE_TEXT, r, now))
+                .column("罚款状态", BookTableModels::fineText);
+    }
+
+    /**
+     * ★ 全部借阅记录（管理员状态面板）- 显示归还时间，状态列不做超期计算
+     */
+    public static DefaultTableModel adminBorrowRecords(List<BorrowRecord> records) {
+        return withRecordColumns(TableModels.lazy(records))
+                .column("归还日期", r -> timeText(r.getReturnTime()))
+                .column("是否归还", r -> RETURN_STATUS_TEXT[r.getState().getCode()])
+                .column("状态", BookTableModels::adminStateText);
+    }
+
+    /**
+     * ★ 当前在借的图书（还书面板）
+     */
+    public static DefaultTableModel currentLoans(List<BorrowRecord> records) {
+        Vector<String> cols = new Vector<>();
+        cols.add("图书ID");
+        cols.add("书名");
+        cols.add("作者");
+        cols.add("借出日期");
+        cols.add("应还日期");
+        cols.add("状态");
+
+        long now = System.currentTimeMillis();
+        Vector<Vector<Object>> data = new Vector<>(records.size());
+        for (BorrowRecord r : records) {
+            Vector<Object> row = new Vector<>(6);
+            row.add(r.getBookId());
+            row.add(r.getBookTitle());
+            row.add(r.getBookAuthor());
+            row.add(timeText(r.getBorrowTime()));
+
+            Timestamp dueTime = r.getDueTime();
+            if (dueTime == null) {
+                row.add("-");
+                row.add("数据异常");
+                data.add(row);
+                continue;
+            }
+            row.add(dueTime.toString());
+
+            double fineAmount = r.getFineAmount();
+            String status;
+            if (now > dueTime.getTime()) {
+                long overduePeriod = SystemConfig.calculateOverduePeriod(now - dueTime.getTime());
+                if (fineAmount > 0 && !r.isFinePaid()) {
+                    // ★ 管理员已记录罚款，待用户支付
+                    status = String.format("⚠ 已超期 %d %s（待支付罚款 %.2f 元）",
+                            overduePeriod, SystemConfig.getTimeUnitText(), fineAmount);
+                } else if (fineAmount > 0) {
+                    status = String.format("已超期 %d %s（罚款已支付 %.2f 元，可归还）",
+                            overduePeriod, SystemConfig.getTimeUnitText(), fineAmount);
+                } else {
+                    // ★ 超期但管理员未记录罚款 - 禁止归还
+                    status = String.format("⚠ 已超期 %d %s（请联系管理员处理罚款）",
+                            overduePeriod, SystemConfig.getTimeUnitText());
+                }
+            } else {
+                long remainingPeriod = SystemConfig.calculateRemainingPeriod(dueTime.getTime() - now);
+                status = String.format("借阅中（剩余 %d %s）", remainingPeriod, SystemConfig.getTimeUnitText());
+            }
+            row.add(status);
+            data.add(row);
+        }
+        return TableModels.readOnly(data, cols);
+    }
+
+    // ============================================================
+    // ★ 公共的列格式
+    // 借阅记录的处理状态已在查询中算好（BorrowState），固定文字按状态码查表；
+    // 未归还记录的超期天数与当前时间有关，显示时计算。
+    // ============================================================
+
+    /** 是否归还（我的借阅） */
+    private static final String[] RETURNED_TEXT = {
+            "未归还", "已归还", "已归还", "已归还", "遗失", "遗失", "遗失", "遗失"};
+
+    /** 是否归还（管理员视图，新书替换视为"已归还"） */
+    private static final String[] RETURN_STATUS_TEXT = {
+            "未归还", "已归还", "已归还", "已归还", "已归还", "遗失", "遗失", "遗失"};
+
+    /** 状态（我的借阅），null 表示按借阅期计算 */
+    private static final String[] MY_STATE_TEXT = {
+            null, "正常归还", "超期罚款", "遗失罚款",
+            "遗失 - 新书替换", "遗失 - 罚款处理", "遗失 - 罚款处理", "遗失 - 罚款处理"};
+
+    /** 状态（超期和遗失管理）；兼容旧数据：有处理说明但未注明新书替换的按遗失罚款，无说明且无罚款的按新书替换 */
+    private static final String[] ALL_STATE_TEXT = {
+            null, "正常归还", "超期罚款", "遗失罚款",
+            "新书替换", "遗失罚款", "遗失罚款", "新书替换"};
+
+    /**
+     * 记录ID、图书ID、图书名称、用户ID、用户名、借出日期
+     */
+    private static TableModels.LazyModel<BorrowRecord> withRecordColumns(TableModels.LazyModel<BorrowRecord> model) {
+        return model
+                .column("记录ID", BorrowRecord::getId)
+                .column("图书ID", BorrowRecord::getBookId)
+                .column("图书名称", BorrowRecord::getBookTitle)
+                .column("用户ID", BorrowRecord::getUserId)
+                .column("用户名", BorrowRecord::getUsername)
+                .column("借出日期", r -> timeText(r.getBorrowTime()));
+    }
+
+    private static String stateText(String[] texts, BorrowRecord r, long now) {
+        String text = texts[r.getState().getCode()];
+        return text != null ? text : loanPeriodText(r, now);
+    }
+
+    /**
+     * ★ 管理员状态面板的状态列（详细说明）
+     */
+    private static String adminStateText(BorrowRecord r) {
+        double fineAmount = r.getFineAmount();
+        switch (r.getState()) {
+            case BORROWING:
+                if (fineAmount > 0) {
+                    return String.format(r.isFinePaid() ? "借阅中（已支付罚款 %.2f 元）" : "借阅中（待支付罚款 %.2f 元）",
+                            fineAmount);
+                }
+                return "借阅中";
+            case RETURNED_FINED:
+                return String.format(r.isFinePaid() ? "超期归还（已支付罚款 %.2f 元）" : "超期归还（待支付罚款 %.2f 元）",
+                        fineAmount);
+            case RETURNED:
+            case RETURNED_LOST_NOTE:
+                return "正常归还";
+            case LOST_FINED:
+                return String.format("遗失罚款（%.2f 元）", fineAmount);
+            default:
+                // ★★★ 新书替换，以及未注明罚款的旧数据
+                return "新书替换";
+        }
+    }
+
+    /**
+     * 未归还记录的借阅期状态：已超期 N 天 / 借阅中（剩余 N 天）
+     */
+    private static String loanPeriodText(BorrowRecord r, long now) {
+        Timestamp dueTime = r.getDueTime();
+        if (dueTime == null) {
+            return "数据异常";
+        }
+        if (now > dueTime.getTime()) {
+            long overduePeriod = SystemConfig.calculateOverduePeriod(now - dueTime.getTime());
+            return String.format("已超期 %d %s", overduePeriod, SystemConfig.getTimeUnitText());
+        }
+        long remainingPeriod = SystemConfig.calculateRemainingPeriod(dueTime.getTime() - now);
+        return String.format("借阅中（剩余 %d %s）", remainingPeriod, SystemConfig.getTimeUnitText());
+    }
+
+    private static String fineText(BorrowRecord r) {
+        if (r.getFineAmount() <= 0) {
+            return "-";
+        }
+        return String.format(r.isFinePaid() ? "%.2f 元（已支付）" : "%.2f 元（待支付）", r.getFineAmount());
+    }
+
+    private static String timeText(Timestamp time) {
+        return time != null ? time.toString() : "-";
+    }
+}
@@ -1,6 +1,10 @@
 package com.library.ui;
 
+import com.library.config.SystemConfig;
 import com.library.dao.BookDAO;
+import com.library.dao.HoldDAO;
+import com.library.entity.Book;
+import com.library.entity.BookStatus;
 import com.library.entity.User;
 import com.library.exception.BusinessException;
 import com.library.exception.DBException;
@@ -9,6 +13,8 @@ import javax.swing.*;
 import java.awt.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 借书面板
@@ -16,6 +22,8 @@ import javax.swing.table.TableRowSorter;
  */
 public class BorrowBookPanel extends JPanel {
     private BookDAO bookDAO = new BookDAO();
+    private HoldDAO holdDAO = new HoldDAO();
+    private final PendingOperation pendingOperation = new PendingOperation();
     private JTable bookTable;
     private DefaultTableModel model;
     private TableRowSorter<DefaultTableModel> sorter;
@@ -25,6 +33,7 @@ public class BorrowBookPanel extends JPanel {
     private JTextField txtSearch;
     private JButton btnSearch;
     private JButton btnResetSearch;
+    private JCheckBox chkShowBorrowed;
     private JLabel statsLabel;
 
     public BorrowBookPanel(User user) {
@@ -54,18 +63,24 @@ public class BorrowBookPanel extends JPanel {
         btnSearch = new JButton("🔍 搜索可借图书");
         btnResetSearch = new JButton("↺ 重置");
         JButton btnBorrow = new JButton("📥 借阅选中图书");
+        JButton btnHold = new JButton("📌 预约选中图书");
+        JButton btnMyHolds = new JButton("📋 我的预约");
+        chkShowBorrowed = new JCheckBox("显示已借出图书（可预约）");
 
         controlPanel.add(new JLabel("书名关键词:"));
         controlPanel.add(txtSearch);
         controlPanel.add(btnSearch);
         controlPanel.add(btnResetSearch);
         controlPanel.add(btnBorrow);
+        controlPanel.add(chkShowBorrowed);
+        controlPanel.add(btnHold);
+        controlPanel.add(btnMyHolds);
 
         // ============================================================
         // 3. 提示信息区域
         // ============================================================
         JPanel infoPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        JLabel infoLabel = new JLabel("📋 提示：以下为可借阅图书列表，选择后点击【借阅选中图书】按钮进行借阅");
+        JLabel infoLabel = new JLabel("📋 提示：以下为可借阅图书列表，选择后点击【借阅选中图书】按钮进行借阅；已借出的图书可以预约，到书后会收到通知");
         infoLabel.setForeground(new Color(52, 152, 219));
         infoPanel.add(infoLabel);
 
@@ -128,6 +143,9 @@ public class BorrowBookPanel extends JPanel {
         });
 
         btnBorrow.addActionListener(e -> borrowBookAction());
+        btnHold.addActionListener(e -> placeHoldAction());
+        btnMyHolds.addActionListener(e -> showMyHolds());
+        chkShowBorrowed.addActionListener(e -> performSearch());
 
         updateStats();
     }
@@ -144,7 +162,17 @@ public class BorrowBookPanel extends JPanel {
      * 刷新表格数据并更新底部统计
      */
     private void refreshTable(String keyword) {
-        model = bookDAO.getBookModel(keyword, true);
+        List<Book> books;
+        try {
+            books = chkShowBorrowed != null && chkShowBorrowed.isSelected()
+                    ? bookDAO.findCirculatingBooks(keyword)
+                    : bookDAO.findBooks(keyword, true);
+        } catch (DBException e) {
+            JOptionPane.showMessageDialog(this, "加载图书列表失败: " + e.getMessage(),
+                    "错误", JOptionPane.ERROR_MESSAGE);
+            books = Collections.emptyList();
+        }
+        model = BookTableModels.books(books);
         bookTable.setModel(model);
 
         // 调整列宽
@@ -199,7 +227,9 @@ public class BorrowBookPanel extends JPanel {
         }
 
         int count = bookTable.getRowCount();
-        String statsText = String.format("当前可借阅图书数量: %d 本", count);
+        String statsText = chkShowBorrowed != null && chkShowBorrowed.isSelected()
+                ? String.format("当前显示图书数量: %d 本（含已借出、预约保留）", count)
+                : String.format("当前可借阅图书数量: %d 本", count);
         statsLabel.setText(statsText);
 
         if (count == 0) {
@@ -230,8 +260,9 @@ public class BorrowBookPanel extends JPanel {
         String author = (String) bookTable.getModel().getValueAt(modelRow, 2);
         String status = (String) bookTable.getModel().getValueAt(modelRow, 3);
 
-        // 双重检查状态
-        if (!"可借阅".equals(status)) {
+        // 双重检查状态（预约保留的图书由 DAO 判断是否为当前读者保留）
+        if (!BookStatus.AVAILABLE.getDisplayName().equals(status)
+                && !BookStatus.ON_HOLD.getDisplayName().equals(status)) {
             JOptionPane.showMessageDialog(this,
                     "该书当前状态为 [" + status + "]，无法借阅。",
                     "操作失败", JOptionPane.WARNING_MESSAGE);
@@ -249,7 +280,8 @@ public class BorrowBookPanel extends JPanel {
         if (confirm == JOptionPane.YES_OPTION) {
             try {
                 // 调用 DAO 执行借阅
-                bookDAO.borrowBook(bookId, currentUser.getId());
+                bookDAO.borrowBook(pendingOperation.idFor("borrow:" + bookId), bookId, currentUser.getId());
+                pendingOperation.clear();
 
                 // 成功后刷新列表
                 refreshTable(null);
@@ -259,11 +291,63 @@ public class BorrowBookPanel extends JPanel {
                         "图书 [" + title + "] 借阅成功！",
                         "成功", JOptionPane.INFORMATION_MESSAGE);
 
-            } catch (DBException | BusinessException ex) {
+            } catch (BusinessException ex) {
+                pendingOperation.clear();
+                JOptionPane.showMessageDialog(this,
+                        "借阅失败: " + ex.getMessage(),
+                        "错误", JOptionPane.ERROR_MESSAGE);
+            } catch (DBException ex) {
+                // 不确定是否已借阅成功：保留操作编号，再次借阅同一本书时按重试处理，不会重复借阅
                 JOptionPane.showMessageDialog(this,
                         "借阅失败: " + ex.getMessage(),
                         "错误", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
+
+    /**
+     * 预约图书动作：只能预约已借出或为他人保留的图书
+     */
+    private void placeHoldAction() {
+        int row = bookTable.getSelectedRow();
+        if (row < 0) {
+            JOptionPane.showMessageDialog(this, "请先选择要预约的图书（勾选【显示已借出图书】可查看已借出的图书）。",
+                    "提示", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        int modelRow = bookTable.convertRowIndexToModel(row);
+        int bookId = (int) bookTable.getModel().getValueAt(modelRow, 0);
+        String title = (String) bookTable.getModel().getValueAt(modelRow, 1);
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+                String.format("确认预约以下图书吗？\n\n书名：%s\n图书ID：%d\n\n图书归还后按预约先后分配，到书后请在 %s 内借阅。",
+                        title, bookId, SystemConfig.HOLD_PICKUP_TEXT),
+                "预约确认", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        try {
+            int position = holdDAO.placeHold(bookId, currentUser.getId());
+            JOptionPane.showMessageDialog(this,
+                    "图书 [" + title + "] 预约成功！\n当前排在第 " + position + " 位，到书后将通知您。",
+                    "成功", JOptionPane.INFORMATION_MESSAGE);
+        } catch (DBException | BusinessException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "预约失败: " + ex.getMessage(),
+                    "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * 查看我的预约（借阅已到书的图书、取消预约）
+     */
+    private void showMyHolds() {
+        HoldListDialog dialog = new HoldListDialog(SwingUtilities.getWindowAncestor(this), currentUser);
+        dialog.setVisible(true);
+        if (dialog.isChanged()) {
+            performSearch();
+        }
+    }
 }
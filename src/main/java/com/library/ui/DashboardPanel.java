@@ -1,12 +1,16 @@
 package com.library.ui;
 
 import com.library.dao.BookDAO;
+import com.library.dao.UserCache;
+import com.library.dao.UsernameRegistry;
+import com.library.entity.BookStatus;
 import javax.swing.*;
 import java.awt.*;
 
 public class DashboardPanel extends JPanel {
     private BookDAO bookDAO = new BookDAO();
     private BarChartPanel barChartPanel;
+    private JLabel cacheStatsLabel;
 
     public DashboardPanel() {
         setLayout(new BorderLayout());
@@ -26,6 +30,11 @@ public class DashboardPanel extends JPanel {
         barChartPanel = new BarChartPanel();
         add(barChartPanel, BorderLayout.CENTER);
 
+        // ★ 本机缓存命中情况（随刷新更新）
+        cacheStatsLabel = new JLabel(" ");
+        cacheStatsLabel.setForeground(new Color(127, 140, 141));
+        add(cacheStatsLabel, BorderLayout.SOUTH);
+
         // 监听器
         btnRefresh.addActionListener(e -> loadData());
 
@@ -39,14 +48,18 @@ public class DashboardPanel extends JPanel {
     private void loadData() {
         new Thread(() -> {
             try {
-                // ★ 使用数据库中的实际状态值
+                // ★ 按状态码统计（走 status 索引）
                 int total = bookDAO.getBookCountByStatus(null);         // 总数
-                int available = bookDAO.getBookCountByStatus("available"); // 可借阅
-                int borrowed = bookDAO.getBookCountByStatus("borrowed");   // 已借出
-                int lost = bookDAO.getBookCountByStatus("lost");           // 遗失
+                int available = bookDAO.getBookCountByStatus(BookStatus.AVAILABLE); // 可借阅
+                int borrowed = bookDAO.getBookCountByStatus(BookStatus.BORROWED)    // 已借出
+                        + bookDAO.getBookCountByStatus(BookStatus.ON_HOLD);         // 预约保留（不对外出借，计入借出）
+                int lost = bookDAO.getBookCountByStatus(BookStatus.LOST);           // 遗失
+
+                String cacheStats = UserCache.getInstance().getStats() + "    " + UsernameRegistry.getInstance().getStats();
 
                 SwingUtilities.invokeLater(() -> {
                     barChartPanel.setData(total, available, borrowed, lost);
+                    cacheStatsLabel.setText(cacheStats);
                 });
             } catch (Exception e) {
                 e.printStackTrace();
@@ -0,0 +1,130 @@
+package com.library.ui;
+
+import com.library.dao.BookDAO;
+import com.library.dao.HoldDAO;
+import com.library.entity.Hold;
+import com.library.entity.HoldStatus;
+import com.library.entity.User;
+import com.library.exception.BusinessException;
+import com.library.exception.DBException;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Collections;
+
+/**
+ * ★ 我的预约：查看排队位置和到书情况，借阅已到书的图书或取消预约
+ */
+public class HoldListDialog extends JDialog {
+    private final HoldDAO holdDAO = new HoldDAO();
+    private final BookDAO bookDAO = new BookDAO();
+    private final PendingOperation pendingOperation = new PendingOperation();
+    private final User currentUser;
+    private final JTable holdTable = new JTable();
+    private TableModels.LazyModel<Hold> model;
+    private boolean changed = false;
+
+    public HoldListDialog(Window owner, User user) {
+        super(owner, "我的预约", ModalityType.APPLICATION_MODAL);
+        this.currentUser = user;
+        setLayout(new BorderLayout(10, 10));
+
+        JLabel infoLabel = new JLabel("📌 图书归还后按预约先后分配，到书后请在保留期内借阅，逾期将顺延给下一位读者");
+        infoLabel.setForeground(new Color(52, 152, 219));
+        infoLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 10));
+        add(infoLabel, BorderLayout.NORTH);
+
+        holdTable.getTableHeader().setReorderingAllowed(false);
+        holdTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        holdTable.setRowHeight(25);
+        add(new JScrollPane(holdTable), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton btnBorrow = new JButton("📥 借阅已到书图书");
+        JButton btnCancel = new JButton("✖ 取消预约");
+        JButton btnClose = new JButton("关闭");
+        buttonPanel.add(btnBorrow);
+        buttonPanel.add(btnCancel);
+        buttonPanel.add(btnClose);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        btnBorrow.addActionListener(e -> borrowSelected());
+        btnCancel.addActionListener(e -> cancelSelected());
+        btnClose.addActionListener(e -> dispose());
+
+        refresh();
+        setSize(760, 360);
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * 关闭后调用方是否需要刷新图书列表（借阅或取消了已到书的预约）
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    private void refresh() {
+        try {
+            model = BookTableModels.holds(holdDAO.findActiveHolds(currentUser.getId()));
+        } catch (DBException e) {
+            JOptionPane.showMessageDialog(this, "加载预约失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            model = BookTableModels.holds(Collections.<Hold>emptyList());
+        }
+        holdTable.setModel(model);
+    }
+
+    private Hold selectedHold() {
+        int row = holdTable.getSelectedRow();
+        if (row < 0) {
+            JOptionPane.showMessageDialog(this, "请先选择一条预约。", "提示", JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        return model.getRow(holdTable.convertRowIndexToModel(row));
+    }
+
+    private void borrowSelected() {
+        Hold hold = selectedHold();
+        if (hold == null) {
+            return;
+        }
+        if (hold.getStatus() != HoldStatus.READY) {
+            JOptionPane.showMessageDialog(this, "该书尚未到馆，请耐心等候。", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        try {
+            bookDAO.borrowBook(pendingOperation.idFor("borrow:" + hold.getBookId()),
+                    hold.getBookId(), currentUser.getId());
+            pendingOperation.clear();
+            changed = true;
+            JOptionPane.showMessageDialog(this, "图书 [" + hold.getBookTitle() + "] 借阅成功！",
+                    "成功", JOptionPane.INFORMATION_MESSAGE);
+        } catch (BusinessException e) {
+            pendingOperation.clear();
+            JOptionPane.showMessageDialog(this, "借阅失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        } catch (DBException e) {
+            JOptionPane.showMessageDialog(this, "借阅失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+        refresh();
+    }
+
+    private void cancelSelected() {
+        Hold hold = selectedHold();
+        if (hold == null) {
+            return;
+        }
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "确认取消对《" + hold.getBookTitle() + "》的预约吗？\n取消后如需再次预约将重新排队。",
+                "取消预约", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        try {
+            holdDAO.cancelHold(hold.getId(), currentUser.getId());
+            changed |= hold.getStatus() == HoldStatus.READY;
+        } catch (DBException | BusinessException e) {
+            JOptionPane.showMessageDialog(this, "取消失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+        refresh();
+    }
+}
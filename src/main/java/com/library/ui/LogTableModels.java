@@ -0,0 +1,70 @@
+package com.library.ui;
+
+import com.library.entity.LogRecord;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * ★ 日志列表的表格模型（把 LogDAO / LogArchiveReader 返回的日志转换为界面表格）
+ */
+public final class LogTableModels {
+
+    private LogTableModels() {
+    }
+
+    /**
+     * 检索结果：ID、用户名、分类、操作内容、操作时间
+     */
+    public static DefaultTableModel records(List<LogRecord> records) {
+        Vector<String> cols = new Vector<>();
+        cols.add("ID");
+        cols.add("用户名");
+        cols.add("分类");
+        cols.add("操作内容");
+        cols.add("操作时间");
+
+        Vector<Vector<Object>> data = new Vector<>(records.size());
+        for (LogRecord record : records) {
+            Vector<Object> row = new Vector<>(5);
+            for (Object value : toRow(record)) {
+                row.add(value);
+            }
+            data.add(row);
+        }
+        return TableModels.readOnly(data, cols);
+    }
+
+    /**
+     * 检索结果的一行（追加下一页、实时跟踪插入新行时使用）
+     */
+    public static Object[] toRow(LogRecord record) {
+        return new Object[]{record.getId(), record.getUsername(), record.getCategory().getDisplayName(),
+                record.getOperation(), record.getOpTime()};
+    }
+
+    /**
+     * 操作历史：ID、用户名、事件、操作内容、操作时间
+     */
+    public static DefaultTableModel events(List<LogRecord> records) {
+        Vector<String> cols = new Vector<>();
+        cols.add("ID");
+        cols.add("用户名");
+        cols.add("事件");
+        cols.add("操作内容");
+        cols.add("操作时间");
+
+        Vector<Vector<Object>> data = new Vector<>(records.size());
+        for (LogRecord record : records) {
+            Vector<Object> row = new Vector<>(5);
+            row.add(record.getId());
+            row.add(record.getUsername());
+            row.add(record.getEventType().getDisplayName());
+            row.add(record.getOperation());
+            row.add(record.getOpTime());
+            data.add(row);
+        }
+        return TableModels.readOnly(data, cols);
+    }
+}
@@ -1,23 +1,56 @@
 package com.library.ui;
 
+import com.library.config.SystemConfig;
+import com.library.dao.LogArchiveReader;
+import com.library.dao.LogCountService;
 import com.library.dao.LogDAO;
+import com.library.entity.LogCategory;
+import com.library.entity.LogRecord;
 import com.library.exception.DBException;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * 日志查看面板 - 支持查看和删除日志
+ * 日志查看面板 - 支持条件检索、分页加载和删除日志
  */
 public class LogViewerPanel extends JPanel {
     private LogDAO logDAO = new LogDAO();
     private JTable logTable;
+    private DefaultTableModel model;
 
     private JButton btnRefresh;
     private JButton btnDeleteSelected;
     private JButton btnClearAll;
+    private JButton btnLoadMore;
+    private JCheckBox chkTail;
     private JLabel lblLogCount;
+    private JComboBox<String> cmbRange;
+
+    // ★ 检索条件
+    private JTextField txtUsername;
+    private JTextField txtKeyword;
+    private JComboBox<Object> cmbCategory;
+
+    // ★ 当前检索条件与最后一页（游标）
+    private LogDAO.LogFilter currentFilter;
+    private LogDAO.LogPage lastPage;
+    // 重置条件期间为 true，下拉框的监听器不刷新（重置结束后统一刷新一次）
+    private boolean resettingFilters;
+
+    // ★ 实时跟踪：定时读取 tailCursor 之后的新日志（含之前跳过、后来提交的日志）
+    private Timer tailTimer;
+    private LogDAO.TailCursor tailCursor;
+    private boolean tailLoading;
+
+    // ★ 时间范围选项（天数，0 表示全部）
+    private static final String[] RANGE_LABELS = {"最近 7 天", "最近 30 天", "最近 90 天", "全部"};
+    private static final int[] RANGE_DAYS = {7, 30, 90, 0};
+    private static final String ALL_CATEGORIES = "全部分类";
 
     public LogViewerPanel() {
         setLayout(new BorderLayout());
@@ -33,18 +66,53 @@ public class LogViewerPanel extends JPanel {
         titleLabel.setFont(new Font("微软雅黑", Font.BOLD, 16));
         titlePanel.add(titleLabel);
 
+        // --- 检索面板 ---
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+
+        txtUsername = new JTextField(10);
+        txtKeyword = new JTextField(12);
+
+        cmbCategory = new JComboBox<>();
+        cmbCategory.addItem(ALL_CATEGORIES);
+        for (LogCategory category : LogCategory.values()) {
+            cmbCategory.addItem(category);
+        }
+
+        // ★ 时间范围（日志按月分区，只查询范围内的分区）
+        cmbRange = new JComboBox<>(RANGE_LABELS);
+        cmbRange.setSelectedIndex(defaultRangeIndex());
+
+        JButton btnSearch = new JButton("🔍 查询");
+        JButton btnReset = new JButton("↺ 重置");
+
+        searchPanel.add(new JLabel("用户名:"));
+        searchPanel.add(txtUsername);
+        searchPanel.add(new JLabel("分类:"));
+        searchPanel.add(cmbCategory);
+        searchPanel.add(new JLabel("关键字:"));
+        searchPanel.add(txtKeyword);
+        searchPanel.add(new JLabel("时间范围:"));
+        searchPanel.add(cmbRange);
+        searchPanel.add(btnSearch);
+        searchPanel.add(btnReset);
+
         // --- 操作按钮面板 ---
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
 
         btnRefresh = new JButton("🔄 刷新");
         btnDeleteSelected = new JButton("🗑️ 删除选中");
         btnClearAll = new JButton("⚠️ 清空所有日志");
+        JButton btnArchive = new JButton("🗄 归档检索");
+        chkTail = new JCheckBox("📡 实时跟踪");
+        chkTail.setToolTipText("每 " + SystemConfig.LOG_TAIL_INTERVAL_MILLIS / 1000 + " 秒自动显示新日志");
 
         btnClearAll.setForeground(Color.RED);
 
         buttonPanel.add(btnRefresh);
         buttonPanel.add(btnDeleteSelected);
         buttonPanel.add(btnClearAll);
+        buttonPanel.add(btnArchive);
+        buttonPanel.add(chkTail);
 
         // --- 统计信息面板 ---
         JPanel infoPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -53,9 +121,13 @@ public class LogViewerPanel extends JPanel {
         infoPanel.add(lblLogCount);
 
         // --- 组合顶部面板 ---
+        JPanel actionPanel = new JPanel(new BorderLayout());
+        actionPanel.add(searchPanel, BorderLayout.NORTH);
+        actionPanel.add(buttonPanel, BorderLayout.SOUTH);
+
         JPanel controlPanel = new JPanel(new BorderLayout());
         controlPanel.add(titlePanel, BorderLayout.NORTH);
-        controlPanel.add(buttonPanel, BorderLayout.CENTER);
+        controlPanel.add(actionPanel, BorderLayout.CENTER);
         controlPanel.add(infoPanel, BorderLayout.SOUTH);
 
         topPanel.add(controlPanel, BorderLayout.CENTER);
@@ -81,30 +153,111 @@ public class LogViewerPanel extends JPanel {
         // ★★★ 禁用自动滚动到选中单元格
         logTable.setAutoscrolls(false);
 
-        refreshTable();
-
         JScrollPane scrollPane = new JScrollPane(logTable);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         add(scrollPane, BorderLayout.CENTER);
 
         // ============================================================
-        // 3. 事件监听器
+        // 3. 底部分页
+        // ============================================================
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        btnLoadMore = new JButton("⬇ 加载更多");
+        btnLoadMore.setEnabled(false);
+        bottomPanel.add(btnLoadMore);
+        add(bottomPanel, BorderLayout.SOUTH);
+
+        refreshTable();
+
+        // ============================================================
+        // 4. 事件监听器
         // ============================================================
         btnRefresh.addActionListener(e -> refreshTable());
+        btnSearch.addActionListener(e -> refreshTable());
+        txtUsername.addActionListener(e -> refreshTable());
+        txtKeyword.addActionListener(e -> refreshTable());
+        cmbRange.addActionListener(e -> {
+            if (!resettingFilters) {
+                refreshTable();
+            }
+        });
+        cmbCategory.addActionListener(e -> {
+            if (!resettingFilters) {
+                refreshTable();
+            }
+        });
+        btnReset.addActionListener(e -> {
+            // 设置下拉框会触发它们的监听器，重置期间暂停，全部条件恢复后只刷新一次
+            resettingFilters = true;
+            try {
+                txtUsername.setText("");
+                txtKeyword.setText("");
+                cmbCategory.setSelectedIndex(0);
+                cmbRange.setSelectedIndex(defaultRangeIndex());
+            } finally {
+                resettingFilters = false;
+            }
+            refreshTable();
+        });
+        btnLoadMore.addActionListener(e -> loadMore());
         btnDeleteSelected.addActionListener(e -> deleteSelectedLogs());
         btnClearAll.addActionListener(e -> clearAllLogs());
+        btnArchive.addActionListener(e -> showArchiveSearch());
+        chkTail.addActionListener(e -> {
+            if (chkTail.isSelected()) {
+                startTail();
+            } else {
+                stopTail();
+            }
+        });
+
+        tailTimer = new Timer(SystemConfig.LOG_TAIL_INTERVAL_MILLIS, e -> pollTail());
     }
 
     /**
-     * 刷新表格数据
+     * 面板被移除时停止实时跟踪
+     */
+    @Override
+    public void removeNotify() {
+        stopTail();
+        super.removeNotify();
+    }
+
+    /**
+     * 根据界面上的检索条件构造过滤器
+     */
+    private LogDAO.LogFilter buildFilter() {
+        LogDAO.LogFilter filter = new LogDAO.LogFilter();
+        filter.username = txtUsername.getText().trim();
+        filter.keyword = txtKeyword.getText().trim();
+        filter.from = rangeStart();
+        Object category = cmbCategory.getSelectedItem();
+        filter.category = category instanceof LogCategory ? (LogCategory) category : null;
+        return filter;
+    }
+
+    /**
+     * 刷新表格数据（按当前条件重新检索第一页）
      */
     private void refreshTable() {
-        DefaultTableModel model = logDAO.getLogModel();
+        currentFilter = buildFilter();
+
+        try {
+            lastPage = logDAO.searchLogs(currentFilter, null, SystemConfig.LOG_PAGE_SIZE);
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "查询日志失败: " + ex.getMessage(),
+                    "错误",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        model = LogTableModels.records(lastPage.records);
         logTable.setModel(model);
+        btnLoadMore.setEnabled(lastPage.hasMore && !isTailing());
 
-        // ★★★ 设置列宽：ID窄、用户名窄、操作内容自动填充、时间固定
-        if (logTable.getColumnCount() >= 4) {
+        // ★★★ 设置列宽：ID窄、用户名窄、分类窄、操作内容自动填充、时间固定
+        if (logTable.getColumnCount() >= 5) {
             // 第0列：日志ID - 很窄
             logTable.getColumnModel().getColumn(0).setPreferredWidth(50);
             logTable.getColumnModel().getColumn(0).setMinWidth(40);
@@ -115,15 +268,20 @@ public class LogViewerPanel extends JPanel {
             logTable.getColumnModel().getColumn(1).setMinWidth(100);
             logTable.getColumnModel().getColumn(1).setMaxWidth(150);
 
-            // 第2列：操作内容 - 不设置最大宽度，让它自动填充
-            logTable.getColumnModel().getColumn(2).setPreferredWidth(600);
-            logTable.getColumnModel().getColumn(2).setMinWidth(400);
+            // 第2列：分类 - 窄
+            logTable.getColumnModel().getColumn(2).setPreferredWidth(80);
+            logTable.getColumnModel().getColumn(2).setMinWidth(70);
+            logTable.getColumnModel().getColumn(2).setMaxWidth(100);
+
+            // 第3列：操作内容 - 不设置最大宽度，让它自动填充
+            logTable.getColumnModel().getColumn(3).setPreferredWidth(600);
+            logTable.getColumnModel().getColumn(3).setMinWidth(400);
             // ★ 不设置 maxWidth，让它可以自动扩展
 
-            // 第3列：操作时间 - 固定宽度
-            logTable.getColumnModel().getColumn(3).setPreferredWidth(170);
-            logTable.getColumnModel().getColumn(3).setMinWidth(150);
-            logTable.getColumnModel().getColumn(3).setMaxWidth(190);
+            // 第4列：操作时间 - 固定宽度
+            logTable.getColumnModel().getColumn(4).setPreferredWidth(170);
+            logTable.getColumnModel().getColumn(4).setMinWidth(150);
+            logTable.getColumnModel().getColumn(4).setMaxWidth(190);
         }
 
         // ★★★ 关键：使用 AUTO_RESIZE_LAST_COLUMN 模式
@@ -139,9 +297,131 @@ public class LogViewerPanel extends JPanel {
             logTable.getColumnModel().getColumn(i).setCellRenderer(leftRenderer);
         }
 
-        // 更新统计信息
-        int count = logDAO.getLogCount();
-        lblLogCount.setText("日志总数: " + count + " 条");
+        updateCountLabel();
+    }
+
+    /**
+     * ★ 开启实时跟踪：从当前最大日志 ID 开始，只读取之后写入的日志
+     */
+    private void startTail() {
+        try {
+            tailCursor = new LogDAO.TailCursor(logDAO.getMaxLogId());
+        } catch (DBException ex) {
+            chkTail.setSelected(false);
+            JOptionPane.showMessageDialog(this,
+                    "开启实时跟踪失败: " + ex.getMessage(),
+                    "错误",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        // 新日志插入到表格顶部，底部的分页游标不再适用
+        btnLoadMore.setEnabled(false);
+        tailTimer.start();
+    }
+
+    private void stopTail() {
+        if (tailTimer != null) {
+            tailTimer.stop();
+        }
+        if (lastPage != null) {
+            btnLoadMore.setEnabled(lastPage.hasMore);
+        }
+    }
+
+    private boolean isTailing() {
+        return tailTimer != null && tailTimer.isRunning();
+    }
+
+    /**
+     * 实时跟踪的一次刷新：后台线程执行一次主键范围查询，结果插入表格顶部
+     * 上一次查询尚未返回时跳过本次，避免数据库变慢时请求堆积。
+     */
+    private void pollTail() {
+        if (tailLoading) {
+            return;
+        }
+        tailLoading = true;
+
+        LogDAO.LogFilter filter = currentFilter;
+        LogDAO.TailCursor cursor = tailCursor;
+        new SwingWorker<LogDAO.LogPage, Void>() {
+            @Override
+            protected LogDAO.LogPage doInBackground() throws Exception {
+                return logDAO.tailLogs(filter, cursor, SystemConfig.LOG_PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                tailLoading = false;
+                if (!isTailing() || filter != currentFilter) {
+                    return; // 已停止跟踪或条件已改变
+                }
+                try {
+                    LogDAO.LogPage page = get();
+                    tailCursor = page.tailCursor;
+                    prependRows(page.records);
+                    if (page.hasMore) {
+                        pollTail(); // 积压较多时立即读取下一批
+                    }
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    lblLogCount.setText("实时跟踪读取失败: " + cause.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * 把按 id 升序的新日志依次插入表格顶部（最新的在最上面），超出上限时丢弃底部最旧的行
+     */
+    private void prependRows(List<LogRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        for (LogRecord record : records) {
+            model.insertRow(0, LogTableModels.toRow(record));
+        }
+        while (model.getRowCount() > SystemConfig.LOG_TAIL_MAX_ROWS) {
+            model.removeRow(model.getRowCount() - 1);
+        }
+        updateCountLabel();
+    }
+
+    /**
+     * ★ 加载下一页（游标分页，追加到当前表格末尾）
+     */
+    private void loadMore() {
+        if (lastPage == null || !lastPage.hasMore) {
+            return;
+        }
+
+        try {
+            LogDAO.LogPage next = logDAO.searchLogs(currentFilter, lastPage, SystemConfig.LOG_PAGE_SIZE);
+            for (LogRecord record : next.records) {
+                model.addRow(LogTableModels.toRow(record));
+            }
+            lastPage = next;
+            btnLoadMore.setEnabled(next.hasMore);
+            updateCountLabel();
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "加载日志失败: " + ex.getMessage(),
+                    "错误",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * 更新统计信息
+     */
+    private void updateCountLabel() {
+        int count = model.getRowCount();
+        // ★ 总数来自计数服务（常数时间），尚未精确统计时显示估算值
+        LogCountService counter = LogCountService.getInstance();
+        long total = counter.getCount();
+        String totalText = total < 0 ? "统计中" : (counter.isExact() ? "" : "约 ") + total + " 条";
+        lblLogCount.setText("日志总数: " + totalText + "    " +
+                "当前条件已加载: " + count + " 条" + (lastPage.hasMore ? "（还有更多）" : ""));
 
         // 根据日志数量改变颜色
         if (count > 1000) {
@@ -153,6 +433,118 @@ public class LogViewerPanel extends JPanel {
         }
     }
 
+    /**
+     * 默认时间范围对应的下拉框下标
+     */
+    private int defaultRangeIndex() {
+        for (int i = 0; i < RANGE_DAYS.length; i++) {
+            if (RANGE_DAYS[i] == SystemConfig.LOG_DEFAULT_VIEW_DAYS) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 当前选择的时间范围起点，"全部" 返回 null
+     */
+    private Timestamp rangeStart() {
+        int days = RANGE_DAYS[cmbRange.getSelectedIndex()];
+        if (days <= 0) {
+            return null;
+        }
+        return new Timestamp(System.currentTimeMillis() - days * 24L * 60 * 60 * 1000);
+    }
+
+    /**
+     * ★ 归档检索：按当前的用户名、分类、关键字条件检索已归档到本地文件的历史日志
+     * 归档数据都早于在线保留期，因此不使用界面上的时间范围；检索在后台线程中执行。
+     */
+    private void showArchiveSearch() {
+        LogArchiveReader reader = new LogArchiveReader();
+        LogDAO.LogFilter filter = buildFilter();
+        filter.from = null;
+
+        LogArchiveReader.ArchiveSummary summary;
+        try {
+            summary = reader.getSummary();
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "读取归档失败: " + ex.getMessage(),
+                    "错误",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (summary.files == 0) {
+            JOptionPane.showMessageDialog(this,
+                    "当前没有已归档的日志。\n超过 " + SystemConfig.LOG_RETENTION_MONTHS + " 个月的日志会由后台任务自动归档。",
+                    "提示",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this), "🗄 归档日志检索",
+                Dialog.ModalityType.MODELESS);
+        dialog.setLayout(new BorderLayout());
+
+        JLabel lblInfo = new JLabel(String.format("  归档文件 %d 个，共 %d 条（%s ~ %s），正在检索...",
+                summary.files, summary.rows, summary.minTime, summary.maxTime));
+        lblInfo.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        dialog.add(lblInfo, BorderLayout.NORTH);
+
+        JTable table = new JTable();
+        table.setRowHeight(25);
+        table.getTableHeader().setReorderingAllowed(false);
+        dialog.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JButton btnMore = new JButton("⬇ 加载更多");
+        btnMore.setEnabled(false);
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        bottom.add(btnMore);
+        dialog.add(bottom, BorderLayout.SOUTH);
+
+        // 当前已加载的最后一页（用数组以便在匿名类中修改）
+        LogDAO.LogPage[] last = new LogDAO.LogPage[1];
+
+        Runnable load = () -> {
+            btnMore.setEnabled(false);
+            new SwingWorker<LogDAO.LogPage, Void>() {
+                @Override
+                protected LogDAO.LogPage doInBackground() throws Exception {
+                    return reader.search(filter, last[0], SystemConfig.LOG_PAGE_SIZE);
+                }
+
+                @Override
+                protected void done() {
+                    try {
+                        LogDAO.LogPage page = get();
+                        if (last[0] == null) {
+                            table.setModel(LogTableModels.records(page.records));
+                        } else {
+                            DefaultTableModel current = (DefaultTableModel) table.getModel();
+                            for (LogRecord record : page.records) {
+                                current.addRow(LogTableModels.toRow(record));
+                            }
+                        }
+                        last[0] = page;
+                        btnMore.setEnabled(page.hasMore);
+                        lblInfo.setText(String.format("  归档文件 %d 个，共 %d 条，当前条件已加载: %d 条%s",
+                                summary.files, summary.rows, table.getRowCount(), page.hasMore ? "（还有更多）" : ""));
+                    } catch (Exception ex) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        lblInfo.setText("  检索归档失败: " + cause.getMessage());
+                    }
+                }
+            }.execute();
+        };
+        btnMore.addActionListener(e -> load.run());
+
+        dialog.setSize(1000, 600);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+        load.run();
+    }
+
     /**
      * 删除选中的日志
      */
@@ -206,7 +598,17 @@ public class LogViewerPanel extends JPanel {
      * 清空所有日志
      */
     private void clearAllLogs() {
-        int count = logDAO.getLogCount();
+        // 危险操作前使用精确计数（只在这里同步执行 COUNT(*)）
+        long count;
+        try {
+            count = LogCountService.getInstance().getExactCount();
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "统计日志数量失败: " + ex.getMessage(),
+                    "错误",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
         if (count == 0) {
             JOptionPane.showMessageDialog(this,
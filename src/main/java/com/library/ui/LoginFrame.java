@@ -1,5 +1,6 @@
 package com.library.ui;
 
+import com.library.dao.MaintenanceScheduler;
 import com.library.dao.UserDAO;
 import com.library.entity.User;
 import com.library.exception.*;
@@ -235,7 +236,7 @@ public class LoginFrame extends JFrame {
      */
     private void openRegisterDialog() {
         JDialog registerDialog = new JDialog(this, "用户注册", true);
-        registerDialog.setSize(400, 300);
+        registerDialog.setSize(400, 330);
         registerDialog.setLocationRelativeTo(this);
         registerDialog.setLayout(new BorderLayout(10, 10));
 
@@ -258,24 +259,28 @@ public class LoginFrame extends JFrame {
         JTextField txtRegUsername = new JTextField(20);
         formPanel.add(txtRegUsername, gbc);
 
+        // ★ 用户名是否可用（边输入边检查）
+        gbc.gridx = 1; gbc.gridy = 1; gbc.weightx = 1.0;
+        formPanel.add(new UsernameAvailabilityLabel(txtRegUsername), gbc);
+
         // 密码
-        gbc.gridx = 0; gbc.gridy = 1; gbc.weightx = 0;
+        gbc.gridx = 0; gbc.gridy = 2; gbc.weightx = 0;
         formPanel.add(new JLabel("密码:"), gbc);
 
-        gbc.gridx = 1; gbc.gridy = 1; gbc.weightx = 1.0;
+        gbc.gridx = 1; gbc.gridy = 2; gbc.weightx = 1.0;
         JPasswordField txtRegPassword = new JPasswordField(20);
         formPanel.add(txtRegPassword, gbc);
 
         // 确认密码
-        gbc.gridx = 0; gbc.gridy = 2; gbc.weightx = 0;
+        gbc.gridx = 0; gbc.gridy = 3; gbc.weightx = 0;
         formPanel.add(new JLabel("确认密码:"), gbc);
 
-        gbc.gridx = 1; gbc.gridy = 2; gbc.weightx = 1.0;
+        gbc.gridx = 1; gbc.gridy = 3; gbc.weightx = 1.0;
         JPasswordField txtRegConfirmPassword = new JPasswordField(20);
         formPanel.add(txtRegConfirmPassword, gbc);
 
         // 提示信息
-        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2; gbc.weightx = 1.0;
+        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2; gbc.weightx = 1.0;
         JLabel lblHint = new JLabel("<html><font color='gray'>• 密码需大于6个字符<br>• 必须包含字母和数字</font></html>");
         lblHint.setFont(new Font("微软雅黑", Font.PLAIN, 11));
         formPanel.add(lblHint, gbc);
@@ -426,6 +431,9 @@ public class LoginFrame extends JFrame {
         // ★ 优化文本渲染质量
         System.setProperty("awt.useSystemAAFontSettings", "lcd");
 
+        // ★ 启动后台维护任务（日志分区滚动与过期清理）
+        MaintenanceScheduler.start();
+
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
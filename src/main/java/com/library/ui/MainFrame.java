@@ -1,6 +1,9 @@
 package com.library.ui;
 
+import com.library.config.SystemConfig;
+import com.library.dao.NotificationDAO;
 import com.library.dao.UserDAO;
+import com.library.entity.Notification;
 import com.library.entity.User;
 import com.library.exception.BusinessException;
 import com.library.util.SessionManager;
@@ -8,6 +11,7 @@ import com.library.exception.DBException;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyEvent;
+import java.util.List;
 
 public class MainFrame extends JFrame {
 
@@ -16,6 +20,9 @@ public class MainFrame extends JFrame {
 
     // ★ 引入 DAO
     private UserDAO userDAO = new UserDAO();
+    private NotificationDAO notificationDAO = new NotificationDAO();
+    private Timer notificationTimer;
+    private boolean showingNotifications = false;
 
     public MainFrame(User user) {
         this.currentUser = user;
@@ -47,11 +54,52 @@ public class MainFrame extends JFrame {
             tabs.addTab("📖 归还图书", new ReturnBookPanel(user));
             tabs.addTab("📋 我的借阅记录", new MyBorrowPanel(user));
             tabs.addTab("👤 个人中心", new PersonalCenterPanel(this));
+            startNotificationPolling();
         }
 
         add(tabs);
     }
 
+    /**
+     * ★ 读者通知（预约到书、预约过期等）：登录后检查一次，之后定期读取当前用户的未读通知
+     */
+    private void startNotificationPolling() {
+        notificationTimer = new Timer(SystemConfig.NOTIFICATION_POLL_SECONDS * 1000, e -> showNotifications());
+        notificationTimer.setInitialDelay(1000);
+        notificationTimer.start();
+    }
+
+    private void showNotifications() {
+        if (showingNotifications) {
+            return; // 上一批通知的对话框还未关闭
+        }
+        List<Notification> unread;
+        try {
+            unread = notificationDAO.findUnread(currentUser.getId());
+        } catch (DBException ex) {
+            System.err.println("读取通知失败: " + ex.getMessage());
+            return;
+        }
+        if (unread.isEmpty()) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder();
+        for (Notification n : unread) {
+            message.append("• ").append(n.getMessage()).append("\n");
+        }
+        showingNotifications = true;
+        try {
+            JOptionPane.showMessageDialog(this, message.toString(), "📬 您有 " + unread.size() + " 条新通知",
+                    JOptionPane.INFORMATION_MESSAGE);
+            notificationDAO.markRead(currentUser.getId(), unread.get(unread.size() - 1).getId());
+        } catch (DBException ex) {
+            System.err.println("更新通知状态失败: " + ex.getMessage());
+        } finally {
+            showingNotifications = false;
+        }
+    }
+
     /**
      * 创建菜单栏，分离"注销账户"（永久禁用）和"返回登录界面"（临时退出）
      */
@@ -167,7 +215,10 @@ public class MainFrame extends JFrame {
      * 公共方法：清理资源并返回登录界面
      */
     private void returnToLoginScreen() {
-        // 1. 清除当前标签页引用
+        // 1. 停止通知检查，清除当前标签页引用
+        if (notificationTimer != null) {
+            notificationTimer.stop();
+        }
         if (tabs != null) {
             tabs.removeAll();
         }
@@ -1,7 +1,10 @@
 package com.library.ui;
 
+import com.library.config.SystemConfig;
 import com.library.dao.BookDAO;
+import com.library.entity.BorrowRecord;
 import com.library.entity.User;
+import com.library.exception.BusinessException;
 import com.library.exception.DBException;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -10,6 +13,9 @@ import java.awt.*;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 普通用户查看借阅历史记录的面板（增强版 - 带实际功能）
@@ -18,6 +24,7 @@ import java.io.IOException;
  * ★ 新增：显示罚款金额（只有实际有罚款时才显示）
  * ★ 优化：所有按钮放在同一行，调整列宽确保信息完整显示
  * ★ 筛选顺序与统计信息一致
+ * ★ 新增：续借选中的借阅，或一次续借全部可续借的借阅
  */
 public class MyBorrowPanel extends JPanel {
     private BookDAO bookDAO = new BookDAO();
@@ -25,7 +32,7 @@ public class MyBorrowPanel extends JPanel {
     private User currentUser;
     private JLabel statsLabel;
     private JComboBox<String> statusFilter;
-    private DefaultTableModel model;
+    private TableModels.LazyModel<BorrowRecord> model;
     private TableRowSorter<DefaultTableModel> sorter;
 
     public MyBorrowPanel(User user) {
@@ -70,7 +77,11 @@ public class MyBorrowPanel extends JPanel {
         // 操作按钮部分
         JButton btnRefresh = new JButton("🔄 刷新记录");
         JButton btnExport = new JButton("📤 导出记录");
+        JButton btnRenew = new JButton("🔁 续借选中");
+        JButton btnRenewAll = new JButton("🔁 全部续借");
         controlPanel.add(btnRefresh);
+        controlPanel.add(btnRenew);
+        controlPanel.add(btnRenewAll);
         controlPanel.add(btnExport);
 
         topPanel.add(titlePanel, BorderLayout.NORTH);
@@ -128,6 +139,10 @@ public class MyBorrowPanel extends JPanel {
         // 筛选功能监听
         statusFilter.addActionListener(e -> applyFilter());
 
+        // 续借
+        btnRenew.addActionListener(e -> renewSelected());
+        btnRenewAll.addActionListener(e -> renewAll());
+
         // 导出功能
         btnExport.addActionListener(e -> exportToCSV());
 
@@ -140,7 +155,7 @@ public class MyBorrowPanel extends JPanel {
      */
     private void refreshTable() {
         try {
-            model = bookDAO.getMyBorrowRecordsModel(currentUser.getId());
+            model = BookTableModels.myBorrowRecords(bookDAO.findBorrowRecordsByUser(currentUser.getId()));
             recordTable.setModel(model);
 
             // ★★★ 调整列宽（确保所有信息都能显示）
@@ -204,6 +219,66 @@ public class MyBorrowPanel extends JPanel {
         }
     }
 
+    /**
+     * ★ 续借选中的借阅记录
+     */
+    private void renewSelected() {
+        int row = recordTable.getSelectedRow();
+        if (row < 0) {
+            JOptionPane.showMessageDialog(this, "请先选择要续借的借阅记录。", "提示", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        BorrowRecord record = model.getRow(recordTable.convertRowIndexToModel(row));
+        if (record.getIsReturned() != 0) {
+            JOptionPane.showMessageDialog(this, "该图书已归还，无需续借。", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        try {
+            Timestamp dueTime = bookDAO.renewLoan(record.getId(), currentUser.getId());
+            JOptionPane.showMessageDialog(this,
+                    "《" + record.getBookTitle() + "》续借成功！\n新的应归还日期: " + dueTime,
+                    "成功", JOptionPane.INFORMATION_MESSAGE);
+        } catch (BusinessException | DBException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "续借失败", JOptionPane.ERROR_MESSAGE);
+        }
+        refreshTable();
+    }
+
+    /**
+     * ★ 全部续借：在一个事务中续借所有可续借的借阅（已超期、有罚款、达到续借上限或有读者预约的跳过）
+     */
+    private void renewAll() {
+        long now = System.currentTimeMillis();
+        List<BorrowRecord> loans = new ArrayList<>();
+        int unreturned = 0;
+        for (int i = 0; i < model.getRowCount(); i++) {
+            BorrowRecord record = model.getRow(i);
+            if (record.getIsReturned() == 0) {
+                unreturned++;
+                if (record.isRenewable(now)) {
+                    loans.add(record);
+                }
+            }
+        }
+        if (unreturned == 0) {
+            JOptionPane.showMessageDialog(this, "您当前没有未归还的图书。", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        try {
+            int renewed = bookDAO.renewLoans(currentUser.getId(), loans).size();
+            String message = String.format("已续借 %d 本图书。", renewed);
+            if (renewed < unreturned) {
+                message += String.format("\n其余 %d 本不符合续借条件（已超期、有罚款、已达续借上限 %d 次或已有读者预约）。",
+                        unreturned - renewed, SystemConfig.MAX_RENEW_COUNT);
+            }
+            JOptionPane.showMessageDialog(this, message, "续借结果",
+                    renewed > 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this, "续借失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+        refreshTable();
+    }
+
     /**
      * ★★★ 应用筛选条件（修改筛选逻辑，顺序与统计信息一致 + 添加提示信息）
      */
@@ -2,8 +2,10 @@ package com.library.ui;
 
 import com.library.config.SystemConfig;
 import com.library.dao.BookDAO;
+import com.library.entity.BorrowRecord;
 import com.library.exception.BusinessException;
 import com.library.exception.DBException;
+import com.library.exception.OptimisticLockException;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
@@ -20,8 +22,9 @@ import java.util.regex.Pattern;
  */
 public class OverdueManagementPanel extends JPanel {
     private BookDAO bookDAO = new BookDAO();
+    private final PendingOperation pendingOperation = new PendingOperation();
     private JTable recordTable;
-    private DefaultTableModel model;
+    private TableModels.LazyModel<BorrowRecord> model;
     private TableRowSorter<DefaultTableModel> sorter;
     private JComboBox<String> cmbSearchType;
     private JComboBox<String> cmbStatusFilter;
@@ -177,7 +180,7 @@ public class OverdueManagementPanel extends JPanel {
      */
     private void refreshTable() {
         try {
-            model = bookDAO.getAllBorrowRecordsModel();
+            model = BookTableModels.allBorrowRecords(bookDAO.findAllBorrowRecords());
             recordTable.setModel(model);
 
             // ★★★ 优化列宽设置（不设置 MaxWidth，允许拖动调整）
@@ -259,7 +262,8 @@ public class OverdueManagementPanel extends JPanel {
             refreshTimer = new Timer(60000, e -> {
                 int selectedRow = recordTable.getSelectedRow();
                 try {
-                    DefaultTableModel newModel = bookDAO.getAllBorrowRecordsModel();
+                    TableModels.LazyModel<BorrowRecord> newModel = BookTableModels.allBorrowRecords(bookDAO.findAllBorrowRecords());
+                    model = newModel;
                     recordTable.setModel(newModel);
                     sorter = new TableRowSorter<>(newModel);
                     recordTable.setRowSorter(sorter);
@@ -505,6 +509,7 @@ public class OverdueManagementPanel extends JPanel {
         String returnStatus = (String) model.getValueAt(modelRow, 7);
         String statusInfo = (String) model.getValueAt(modelRow, 8);
         String fineStatus = (String) model.getValueAt(modelRow, 9);
+        int version = model.getRow(modelRow).getVersion();
 
         // ★ 检查是否已归还或遗失
         if ("已归还".equals(returnStatus)) {
@@ -558,7 +563,8 @@ public class OverdueManagementPanel extends JPanel {
                 return;
             }
 
-            bookDAO.recordOverdueFine(borrowId, fineAmount);
+            bookDAO.recordOverdueFine(pendingOperation.idFor("fine:" + borrowId), borrowId, fineAmount, version);
+            pendingOperation.clear();
 
             JOptionPane.showMessageDialog(
                     this,
@@ -575,7 +581,14 @@ public class OverdueManagementPanel extends JPanel {
 
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "请输入有效的数字金额！", "错误", JOptionPane.ERROR_MESSAGE);
+        } catch (OptimisticLockException ex) {
+            refreshTable();
+            JOptionPane.showMessageDialog(this, "记录罚款失败：" + ex.getMessage(), "提示", JOptionPane.WARNING_MESSAGE);
+        } catch (BusinessException ex) {
+            pendingOperation.clear();
+            JOptionPane.showMessageDialog(this, "记录罚款失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         } catch (DBException ex) {
+            // 不确定是否已记录：保留操作编号，再次记录同一笔罚款时按重试处理
             JOptionPane.showMessageDialog(this, "记录罚款失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         }
     }
@@ -597,6 +610,7 @@ public class OverdueManagementPanel extends JPanel {
         String bookTitle = (String) model.getValueAt(modelRow, 2);
         String username = (String) model.getValueAt(modelRow, 4);
         String returnStatus = (String) model.getValueAt(modelRow, 7);
+        int version = model.getRow(modelRow).getVersion();
 
         if ("已归还".equals(returnStatus)) {
             JOptionPane.showMessageDialog(this, "该图书已归还，无法标记为遗失。", "提示", JOptionPane.WARNING_MESSAGE);
@@ -632,7 +646,9 @@ public class OverdueManagementPanel extends JPanel {
                     return;
                 }
 
-                bookDAO.handleBookLoss(borrowId, bookId, fineAmount, false);
+                bookDAO.handleBookLoss(pendingOperation.idFor("loss:" + borrowId),
+                        borrowId, bookId, fineAmount, false, version);
+                pendingOperation.clear();
                 JOptionPane.showMessageDialog(this,
                         String.format("遗失处理成功！\n\n罚款金额：%.2f 元\n图书已标记为遗失。", fineAmount),
                         "成功",
@@ -648,7 +664,9 @@ public class OverdueManagementPanel extends JPanel {
                 );
 
                 if (confirm == JOptionPane.YES_OPTION) {
-                    bookDAO.handleBookLoss(borrowId, bookId, 0, true);
+                    bookDAO.handleBookLoss(pendingOperation.idFor("loss:" + borrowId),
+                            borrowId, bookId, 0, true, version);
+                    pendingOperation.clear();
                     JOptionPane.showMessageDialog(this,
                             "新书替换处理成功！\n\n图书已恢复为可借阅状态。",
                             "成功",
@@ -660,7 +678,14 @@ public class OverdueManagementPanel extends JPanel {
 
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "请输入有效的数字金额！");
-        } catch (DBException | BusinessException ex) {
+        } catch (OptimisticLockException ex) {
+            refreshTable();
+            JOptionPane.showMessageDialog(this, "处理失败：" + ex.getMessage(), "提示", JOptionPane.WARNING_MESSAGE);
+        } catch (BusinessException ex) {
+            pendingOperation.clear();
+            JOptionPane.showMessageDialog(this, "处理失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        } catch (DBException ex) {
+            // 不确定是否已处理：保留操作编号，再次处理同一条记录时按重试处理
             JOptionPane.showMessageDialog(this, "处理失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         }
     }
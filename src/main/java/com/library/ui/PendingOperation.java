@@ -0,0 +1,32 @@
+package com.library.ui;
+
+import java.util.UUID;
+
+/**
+ * ★ 界面上最近一次流通操作的操作编号（借阅、归还、罚款、遗失）
+ *
+ * 数据库出错（如网络超时）时无法确定上一次是否已经提交，用户对同一对象再次执行同一操作时沿用原编号，
+ * 由 BookDAO 识别为重试：已提交的不会重复借阅、归还或记录罚款。
+ * 操作得到明确结果（成功或业务提示）后调用 {@link #clear()}，下一次操作使用新编号。
+ */
+final class PendingOperation {
+    private String key;
+    private String operationId;
+
+    /**
+     * 获取操作编号
+     * @param key 操作和对象，例如 "borrow:12"；与上一次未完成的操作相同时返回原编号
+     */
+    String idFor(String key) {
+        if (!key.equals(this.key)) {
+            this.key = key;
+            this.operationId = UUID.randomUUID().toString();
+        }
+        return operationId;
+    }
+
+    void clear() {
+        key = null;
+        operationId = null;
+    }
+}
@@ -1,9 +1,12 @@
 package com.library.ui;
 
+import com.library.dao.LogDAO;
 import com.library.dao.UserDAO;
+import com.library.entity.LogEventType;
 import com.library.entity.User;
 import com.library.exception.BusinessException;
 import com.library.exception.DBException;
+import com.library.util.JsonUtil;
 import com.library.util.SessionManager;
 import javax.swing.*;
 import java.awt.*;
@@ -183,11 +186,8 @@ public class PersonalCenterPanel extends JPanel {
      * ★ 新增：检查新密码是否与旧密码相同
      */
     private boolean isSameAsOldPassword(int userId, String newPassword) throws DBException {
-        User currentUserData = userDAO.getUserById(userId);
-        if (currentUserData == null || currentUserData.getPassword() == null) {
-            return false;
-        }
-        return currentUserData.getPassword().equals(newPassword);
+        // ★ 数据库中保存的是密码哈希，由 UserDAO 按哈希比对
+        return userDAO.isSameAsOldPassword(userId, newPassword);
     }
 
     /**
@@ -387,15 +387,18 @@ public class PersonalCenterPanel extends JPanel {
             ps.setInt(2, userId);
 
             int rowsAffected = ps.executeUpdate();
+            com.library.dao.UserCache.getInstance().invalidate(userId);
 
             if (rowsAffected == 0) {
                 throw new BusinessException("用户ID不存在，更新失败。");
             }
 
+            com.library.dao.UsernameRegistry.getInstance().onAdded(newUsername);
+
             // 记录日志
-            new com.library.dao.LogDAO().logOperation(
-                    "用户ID: " + userId + " 更新了用户名为: " + newUsername
-            );
+            new LogDAO().logEvent(LogEventType.USER_CREDENTIALS_UPDATED, userId,
+                    JsonUtil.object("username", newUsername),
+                    "用户ID: " + userId + " 更新了用户名为: " + newUsername);
 
         } catch (java.sql.SQLException e) {
             if (e.getSQLState().startsWith("23")) {
@@ -416,19 +419,20 @@ public class PersonalCenterPanel extends JPanel {
         try (java.sql.Connection conn = com.library.util.DBHelper.getConnection();
              java.sql.PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setString(1, newPassword);
+            ps.setString(1, com.library.util.PasswordHasher.hash(newPassword));
             ps.setInt(2, userId);
 
             int rowsAffected = ps.executeUpdate();
+            com.library.dao.UserCache.getInstance().invalidate(userId);
 
             if (rowsAffected == 0) {
                 throw new BusinessException("用户ID不存在，更新失败。");
             }
 
             // 记录日志
-            new com.library.dao.LogDAO().logOperation(
-                    "用户ID: " + userId + " 更新了密码"
-            );
+            new LogDAO().logEvent(LogEventType.USER_CREDENTIALS_UPDATED, userId,
+                    JsonUtil.object("passwordChanged", true),
+                    "用户ID: " + userId + " 更新了密码");
 
         } catch (java.sql.SQLException e) {
             throw new DBException("更新密码失败: " + e.getMessage(), e);
@@ -447,19 +451,22 @@ public class PersonalCenterPanel extends JPanel {
              java.sql.PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, newUsername);
-            ps.setString(2, newPassword);
+            ps.setString(2, com.library.util.PasswordHasher.hash(newPassword));
             ps.setInt(3, userId);
 
             int rowsAffected = ps.executeUpdate();
+            com.library.dao.UserCache.getInstance().invalidate(userId);
 
             if (rowsAffected == 0) {
                 throw new BusinessException("用户ID不存在，更新失败。");
             }
 
+            com.library.dao.UsernameRegistry.getInstance().onAdded(newUsername);
+
             // 记录日志
-            new com.library.dao.LogDAO().logOperation(
-                    "用户ID: " + userId + " 更新了用户名为: " + newUsername + " 并更新了密码"
-            );
+            new LogDAO().logEvent(LogEventType.USER_CREDENTIALS_UPDATED, userId,
+                    JsonUtil.object("username", newUsername, "passwordChanged", true),
+                    "用户ID: " + userId + " 更新了用户名为: " + newUsername + " 并更新了密码");
 
         } catch (java.sql.SQLException e) {
             if (e.getSQLState().startsWith("23")) {
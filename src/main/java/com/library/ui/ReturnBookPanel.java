@@ -2,6 +2,7 @@ package com.library.ui;
 
 import com.library.config.SystemConfig;
 import com.library.dao.BookDAO;
+import com.library.entity.BorrowRecord;
 import com.library.entity.User;
 import com.library.exception.BusinessException;
 import com.library.exception.DBException;
@@ -10,6 +11,10 @@ import javax.swing.*;
 import java.awt.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 还书面板
@@ -19,11 +24,15 @@ import javax.swing.table.TableRowSorter;
  * 3. ★ 添加应还日期列，显示超期信息
  * 4. ★ 支持罚款支付功能
  * 5. ★ 超期图书必须管理员记录罚款后才能归还
+ * 6. ★ 支持续借选中图书，或一次续借全部可续借的图书
  */
 public class ReturnBookPanel extends JPanel {
     private BookDAO bookDAO = new BookDAO();
+    private final PendingOperation pendingOperation = new PendingOperation();
     private JTable bookTable;
     private User currentUser;
+    // 表格中的借阅记录（与表格模型的行顺序一致）
+    private List<BorrowRecord> loans = Collections.emptyList();
 
     // 搜索组件
     private JTextField txtSearch;
@@ -71,12 +80,16 @@ public class ReturnBookPanel extends JPanel {
         btnSearch = new JButton("🔍 搜索已借图书");
         btnResetSearch = new JButton("↺ 重置");
         JButton btnReturn = new JButton("📤 归还选中图书");
+        JButton btnRenew = new JButton("🔁 续借选中图书");
+        JButton btnRenewAll = new JButton("🔁 全部续借");
 
         controlPanel.add(new JLabel("书名关键词:"));
         controlPanel.add(txtSearch);
         controlPanel.add(btnSearch);
         controlPanel.add(btnResetSearch);
         controlPanel.add(btnReturn);
+        controlPanel.add(btnRenew);
+        controlPanel.add(btnRenewAll);
 
         // ============================================================
         // 3. 提示信息区域
@@ -129,6 +142,8 @@ public class ReturnBookPanel extends JPanel {
         });
 
         btnReturn.addActionListener(e -> returnBookAction());
+        btnRenew.addActionListener(e -> renewBookAction());
+        btnRenewAll.addActionListener(e -> renewAllAction());
 
         // 回车搜索
         txtSearch.addActionListener(e -> refreshTable(txtSearch.getText()));
@@ -143,7 +158,8 @@ public class ReturnBookPanel extends JPanel {
     private void refreshTable(String keyword) {
         try {
             // 1. 获取数据模型
-            DefaultTableModel model = bookDAO.getCurrentBorrowedBooksModel(currentUser.getId());
+            loans = bookDAO.findCurrentLoans(currentUser.getId());
+            DefaultTableModel model = BookTableModels.currentLoans(loans);
             bookTable.setModel(model);
 
             // ★ 设置列宽
@@ -343,7 +359,8 @@ public class ReturnBookPanel extends JPanel {
             }
 
             // ★ 4. 执行归还操作（传递罚款金额）
-            bookDAO.returnBook(bookId, currentUser.getId(), finePayment);
+            bookDAO.returnBook(pendingOperation.idFor("return:" + bookId), bookId, currentUser.getId(), finePayment);
+            pendingOperation.clear();
 
             // ★ 5. 成功提示
             if (finePayment > 0) {
@@ -362,11 +379,86 @@ public class ReturnBookPanel extends JPanel {
             refreshTable(null);
             txtSearch.setText("");
 
-        } catch (DBException | BusinessException ex) {
+        } catch (BusinessException ex) {
+            pendingOperation.clear();
             JOptionPane.showMessageDialog(this,
                     "归还失败: " + ex.getMessage(),
                     "错误",
                     JOptionPane.ERROR_MESSAGE);
+        } catch (DBException ex) {
+            // 不确定是否已归还：保留操作编号，再次归还同一本书时按重试处理，不会重复收取罚款
+            JOptionPane.showMessageDialog(this,
+                    "归还失败: " + ex.getMessage(),
+                    "错误",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * ★ 续借选中的图书（应还日期顺延一个借阅期）
+     */
+    private void renewBookAction() {
+        int row = bookTable.getSelectedRow();
+        if (row < 0) {
+            JOptionPane.showMessageDialog(this,
+                    "请先选择要续借的图书。",
+                    "提示",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        BorrowRecord loan = loans.get(bookTable.convertRowIndexToModel(row));
+
+        try {
+            Timestamp dueTime = bookDAO.renewLoan(loan.getId(), currentUser.getId());
+            JOptionPane.showMessageDialog(this,
+                    "图书 [" + loan.getBookTitle() + "] 续借成功！\n新的应还日期: " + dueTime,
+                    "续借成功",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } catch (BusinessException | DBException ex) {
+            JOptionPane.showMessageDialog(this,
+                    ex.getMessage(),
+                    "续借失败",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+        refreshTable(txtSearch.getText());
+    }
+
+    /**
+     * ★ 全部续借：在一个事务中续借所有可续借的图书，不符合条件的跳过
+     */
+    private void renewAllAction() {
+        if (loans.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "您当前没有未归还的图书。",
+                    "提示",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<BorrowRecord> renewable = new ArrayList<>();
+        for (BorrowRecord loan : loans) {
+            if (loan.isRenewable(now)) {
+                renewable.add(loan);
+            }
+        }
+
+        try {
+            int renewed = bookDAO.renewLoans(currentUser.getId(), renewable).size();
+            String message = String.format("已续借 %d 本图书。", renewed);
+            if (renewed < loans.size()) {
+                message += String.format("\n其余 %d 本不符合续借条件（已超期、有罚款、已达续借上限 %d 次或已有读者预约）。",
+                        loans.size() - renewed, SystemConfig.MAX_RENEW_COUNT);
+            }
+            JOptionPane.showMessageDialog(this,
+                    message,
+                    "续借结果",
+                    renewed > 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "续借失败: " + ex.getMessage(),
+                    "错误",
+                    JOptionPane.ERROR_MESSAGE);
         }
+        refreshTable(txtSearch.getText());
     }
 }
@@ -0,0 +1,99 @@
+package com.library.ui;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * ★ 表格模型工具
+ *
+ * DAO 只返回实体列表，不引用 Swing；界面表格由 BookTableModels、UserTableModels、LogTableModels
+ * 等适配器按列表生成，统一通过这里创建只读表格模型。
+ */
+public final class TableModels {
+
+    private TableModels() {
+    }
+
+    /**
+     * 不可编辑的表格模型
+     */
+    public static DefaultTableModel readOnly(Vector<? extends Vector<?>> data, Vector<?> columnNames) {
+        return new DefaultTableModel(data, columnNames) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 单元格的取值方式
+     */
+    public interface Cell<T> {
+        Object value(T row);
+    }
+
+    /**
+     * ★ 按实体列表延迟取值的只读表格模型
+     * 不预先把每行复制成 Vector 并格式化所有单元格，只在表格渲染、排序、筛选访问某个单元格时才生成显示值，
+     * 大量记录时内存中只有实体列表本身。用 {@link #column} 依次添加列后再设置到表格上。
+     * 仍是 DefaultTableModel 的子类，以便各面板的 TableRowSorter、RowFilter 写法不变；只支持读取。
+     */
+    public static final class LazyModel<T> extends DefaultTableModel {
+        private final List<T> rows;
+        private final List<String> names = new ArrayList<>();
+        private final List<Cell<? super T>> cells = new ArrayList<>();
+
+        LazyModel(List<T> rows) {
+            this.rows = rows;
+        }
+
+        public LazyModel<T> column(String name, Cell<? super T> cell) {
+            names.add(name);
+            cells.add(cell);
+            return this;
+        }
+
+        /**
+         * 某一行对应的实体
+         */
+        public T getRow(int row) {
+            return rows.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            // 父类构造时 rows 尚未赋值
+            return rows != null ? rows.size() : 0;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return names != null ? names.size() : 0;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return names.get(column);
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return cells.get(column).value(rows.get(row));
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建延迟取值的只读表格模型
+     */
+    public static <T> LazyModel<T> lazy(List<T> rows) {
+        return new LazyModel<>(rows);
+    }
+}
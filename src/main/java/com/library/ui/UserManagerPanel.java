@@ -1,6 +1,9 @@
 package com.library.ui;
 
+import com.library.config.SystemConfig;
 import com.library.dao.UserDAO;
+import com.library.dao.UserImporter;
+import com.library.entity.User;
 import com.library.exception.DBException;
 import com.library.exception.ValidationException;
 import com.library.exception.BusinessException;
@@ -8,13 +11,18 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.regex.Pattern;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 用户与权限管理面板
  * ★ 优化：界面样式与其他面板一致
  * ✅ 新增：防止管理员删除自己的账号
  * ✅ 新增：删除用户前检查未归还图书
+ * ✅ 新增：多选批量删除、注销、启用/禁用（如毕业班账号清理）
+ * ✅ 新增：从 CSV 批量导入用户（新学期批量开户）
+ * ★ 优化：服务端检索 + 游标分页（用户名前缀、角色、状态），不再一次加载全部用户
  */
 public class UserManagerPanel extends JPanel {
     private UserDAO userDAO = new UserDAO();
@@ -23,6 +31,13 @@ public class UserManagerPanel extends JPanel {
     private TableRowSorter<DefaultTableModel> sorter;
     private JLabel statsLabel;
     private JTextField searchField;
+    private JComboBox<String> cmbRole;
+    private JComboBox<String> cmbStatus;
+    private JButton btnLoadMore;
+
+    // ★ 当前检索条件和最后一页（游标）
+    private UserDAO.UserFilter currentFilter = new UserDAO.UserFilter();
+    private UserDAO.UserPage lastPage;
 
     // ✅ 新增：当前登录用户的ID（用于防止删除自己）
     private int currentUserId;
@@ -63,10 +78,18 @@ public class UserManagerPanel extends JPanel {
 
         // --- 搜索面板 ---
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
-        searchPanel.add(new JLabel("用户名全称:"));
+        searchPanel.add(new JLabel("用户名前缀:"));
         searchField = new JTextField(15);
         searchPanel.add(searchField);
 
+        searchPanel.add(new JLabel("角色:"));
+        cmbRole = new JComboBox<>(new String[]{"全部", "管理员", "普通用户"});
+        searchPanel.add(cmbRole);
+
+        searchPanel.add(new JLabel("状态:"));
+        cmbStatus = new JComboBox<>(new String[]{"全部", "正常", "已禁用", "已注销"});
+        searchPanel.add(cmbStatus);
+
         JButton btnSearch = new JButton("🔍 搜索用户");
         searchPanel.add(btnSearch);
 
@@ -76,15 +99,19 @@ public class UserManagerPanel extends JPanel {
         // --- 操作按钮面板 ---
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
         JButton btnAdd = new JButton("➕ 添加用户");
+        JButton btnImport = new JButton("📥 批量导入");
         JButton btnResetPass = new JButton("🔑 重置密码为 " + DEFAULT_PASSWORD);
         JButton btnDelete = new JButton("🗑️ 删除用户");
         JButton btnToggleStatus = new JButton("🔄 启用/禁用");
+        JButton btnDeactivate = new JButton("⛔ 批量注销");
         JButton btnRefresh = new JButton("🔄 刷新列表");
 
         buttonPanel.add(btnAdd);
+        buttonPanel.add(btnImport);
         buttonPanel.add(btnResetPass);
         buttonPanel.add(btnDelete);
         buttonPanel.add(btnToggleStatus);
+        buttonPanel.add(btnDeactivate);
         buttonPanel.add(btnRefresh);
 
         // --- 组合控制面板 ---
@@ -97,7 +124,7 @@ public class UserManagerPanel extends JPanel {
 
         // --- 提示信息 ---
         JPanel infoPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        JLabel infoLabel = new JLabel("📋 提示：可精准搜索用户名 | 状态说明：「正常」可操作 | 「已禁用」管理员禁用 | 「已注销」用户自己注销（仅可删除）");
+        JLabel infoLabel = new JLabel("📋 提示：按用户名开头检索，可组合角色和状态 | 状态说明：「正常」可操作 | 「已禁用」管理员禁用 | 「已注销」用户自己注销（仅可删除） | 按住 Ctrl/Shift 可多选批量操作");
         infoLabel.setForeground(new Color(52, 152, 219));
         infoPanel.add(infoLabel);
 
@@ -111,7 +138,7 @@ public class UserManagerPanel extends JPanel {
         // ============================================================
         userTable = new JTable();
         userTable.getTableHeader().setReorderingAllowed(false);
-        userTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        userTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         userTable.setRowHeight(28);
         userTable.getTableHeader().setFont(new Font("微软雅黑", Font.BOLD, 12));
         refreshTable();
@@ -130,6 +157,10 @@ public class UserManagerPanel extends JPanel {
         statsLabel = new JLabel();
         statsLabel.setFont(new Font("微软雅黑", Font.BOLD, 12));
         bottomPanel.add(statsLabel, BorderLayout.WEST);
+
+        btnLoadMore = new JButton("⬇ 加载更多");
+        btnLoadMore.setEnabled(lastPage != null && lastPage.hasMore);
+        bottomPanel.add(btnLoadMore, BorderLayout.EAST);
         add(bottomPanel, BorderLayout.SOUTH);
 
         // ============================================================
@@ -141,29 +172,44 @@ public class UserManagerPanel extends JPanel {
 
         btnReset.addActionListener(e -> {
             searchField.setText("");
+            cmbRole.setSelectedIndex(0);
+            cmbStatus.setSelectedIndex(0);
             userTable.clearSelection();
             performSearch();
         });
 
+        btnLoadMore.addActionListener(e -> loadMore());
+
         btnRefresh.addActionListener(e -> {
             refreshTable();
             JOptionPane.showMessageDialog(this, "数据已刷新", "提示", JOptionPane.INFORMATION_MESSAGE);
         });
 
         btnAdd.addActionListener(e -> addUserAction());
+        btnImport.addActionListener(e -> importUsersAction(btnImport));
         btnResetPass.addActionListener(e -> resetPasswordAction());
         btnDelete.addActionListener(e -> deleteUserAction());
         btnToggleStatus.addActionListener(e -> toggleUserStatusAction());
+        btnDeactivate.addActionListener(e -> deactivateUsersAction());
 
         updateStats();
     }
 
     /**
-     * 刷新表格数据
+     * 刷新表格数据（按当前条件重新检索第一页）
      */
     private void refreshTable() {
-        model = userDAO.getAllUsersModel();
+        try {
+            lastPage = userDAO.searchUsers(currentFilter, null, SystemConfig.USER_PAGE_SIZE);
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this, "查询用户失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        model = UserTableModels.users(lastPage.users);
         userTable.setModel(model);
+        if (btnLoadMore != null) {
+            btnLoadMore.setEnabled(lastPage.hasMore);
+        }
 
         // 调整列宽
         if (userTable.getColumnCount() > 0) {
@@ -195,43 +241,66 @@ public class UserManagerPanel extends JPanel {
             userTable.getColumnModel().getColumn(i).setCellRenderer(leftRenderer);
         }
 
+        // 排序只作用于已加载的行
         sorter = new TableRowSorter<>(model);
         userTable.setRowSorter(sorter);
 
-        if (searchField != null) {
-            searchField.setText("");
-        }
-
         updateStats();
     }
 
     /**
-     * 执行精准搜索（完全匹配用户名）
+     * 根据界面输入构建检索条件
+     */
+    private UserDAO.UserFilter buildFilter() {
+        UserDAO.UserFilter filter = new UserDAO.UserFilter();
+        String prefix = searchField.getText().trim();
+        filter.usernamePrefix = prefix.isEmpty() ? null : prefix;
+
+        int role = cmbRole.getSelectedIndex();
+        filter.role = role == 1 ? "admin" : role == 2 ? "user" : null;
+
+        int status = cmbStatus.getSelectedIndex();
+        filter.isActive = status == 1 ? Integer.valueOf(1) : status == 2 ? Integer.valueOf(0) : status == 3 ? Integer.valueOf(-1) : null;
+        return filter;
+    }
+
+    /**
+     * ★ 服务端检索（用户名前缀 + 角色 + 状态）
      */
     private void performSearch() {
-        if (sorter == null) {
-            return;
-        }
+        currentFilter = buildFilter();
+        refreshTable();
 
-        String searchText = searchField.getText().trim();
+        if (currentFilter.usernamePrefix != null && userTable.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(this,
+                    "未找到用户名以 [" + currentFilter.usernamePrefix + "] 开头的用户。",
+                    "搜索结果",
+                    JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
 
-        if (searchText.isEmpty()) {
-            sorter.setRowFilter(null);
-        } else {
-            RowFilter<DefaultTableModel, Object> filter =
-                    RowFilter.regexFilter("(?i)^" + Pattern.quote(searchText) + "$", 1);
-            sorter.setRowFilter(filter);
+    /**
+     * ★ 加载下一页（游标分页，追加到当前表格末尾）
+     */
+    private void loadMore() {
+        if (lastPage == null || !lastPage.hasMore) {
+            return;
+        }
 
-            if (userTable.getRowCount() == 0) {
-                JOptionPane.showMessageDialog(this,
-                        "未找到用户名为 [" + searchText + "] 的用户。\n\n" +
-                                "提示：请输入完整的用户名（精准匹配）",
-                        "搜索结果",
-                        JOptionPane.INFORMATION_MESSAGE);
+        try {
+            UserDAO.UserPage next = userDAO.searchUsers(currentFilter, lastPage, SystemConfig.USER_PAGE_SIZE);
+            for (User user : next.users) {
+                model.addRow(UserTableModels.toRow(user));
             }
+            // 总数只在首页计算，沿用首页的结果
+            next.total = lastPage.total;
+            next.totalExact = lastPage.totalExact;
+            lastPage = next;
+            btnLoadMore.setEnabled(next.hasMore);
+            updateStats();
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this, "加载用户失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
         }
-
-        updateStats();
     }
 
     /**
@@ -268,7 +337,14 @@ public class UserManagerPanel extends JPanel {
             }
         }
 
-        String statsText = String.format(
+        String totalText = "";
+        if (lastPage != null && lastPage.total >= 0) {
+            // 无条件时为表统计信息的估算值；有条件时最多数到 USER_COUNT_LIMIT
+            boolean filtered = currentFilter.usernamePrefix != null || currentFilter.role != null
+                    || currentFilter.isActive != null;
+            totalText = (lastPage.totalExact ? "共 " : filtered ? "超过 " : "共约 ") + lastPage.total + " 人  |  ";
+        }
+        String statsText = totalText + String.format(
                 "当前显示: %d 人  |  管理员: %d 人  |  普通用户: %d 人  |  正常: %d 人  |  已禁用: %d 人  |  已注销: %d 人",
                 totalCount, adminCount, userCount, normalCount, disabledCount, deactivatedCount
         );
@@ -294,6 +370,8 @@ public class UserManagerPanel extends JPanel {
         JPanel panel = new JPanel(new GridLayout(0, 2));
         panel.add(new JLabel("用户名:"));
         panel.add(usernameField);
+        panel.add(new JLabel());
+        panel.add(new UsernameAvailabilityLabel(usernameField));
         panel.add(new JLabel("密码:"));
         panel.add(passwordField);
         panel.add(new JLabel("角色:"));
@@ -317,6 +395,68 @@ public class UserManagerPanel extends JPanel {
         }
     }
 
+    /**
+     * ✅ 从 CSV 批量导入用户（后台执行，完成后显示结果和出错的行）
+     */
+    private void importUsersAction(JButton btnImport) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("选择用户 CSV 文件（每行：用户名,密码[,角色]）");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV 文件 (*.csv)", "csv"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+
+        btnImport.setEnabled(false);
+        statsLabel.setText("正在导入 " + file.getName() + " ……");
+        new SwingWorker<UserImporter.ImportResult, Void>() {
+            @Override
+            protected UserImporter.ImportResult doInBackground() throws Exception {
+                return new UserImporter().importCsv(file.toPath());
+            }
+
+            @Override
+            protected void done() {
+                btnImport.setEnabled(true);
+                try {
+                    showImportResult(get());
+                } catch (java.util.concurrent.ExecutionException ex) {
+                    JOptionPane.showMessageDialog(UserManagerPanel.this,
+                            "导入失败: " + ex.getCause().getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                refreshTable();
+            }
+        }.execute();
+    }
+
+    private void showImportResult(UserImporter.ImportResult result) {
+        String summary = String.format("共 %d 行，成功导入 %d 个用户，失败 %d 行，耗时 %.1f 秒。",
+                result.totalRows, result.imported, result.failed, result.elapsedMillis / 1000.0);
+        if (result.errors.isEmpty()) {
+            JOptionPane.showMessageDialog(this, summary, "导入完成", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (UserImporter.RowError error : result.errors) {
+            sb.append("第 ").append(error.line).append(" 行 [").append(error.username).append("]：")
+                    .append(error.message).append("\n");
+        }
+        if (result.failed > result.errors.size()) {
+            sb.append("……其余 ").append(result.failed - result.errors.size()).append(" 行错误未列出\n");
+        }
+        JTextArea area = new JTextArea(sb.toString(), 15, 50);
+        area.setEditable(false);
+        area.setCaretPosition(0);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.add(new JLabel(summary + " 出错的行："), BorderLayout.NORTH);
+        panel.add(new JScrollPane(area), BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(this, panel, "导入完成（部分失败）", JOptionPane.WARNING_MESSAGE);
+    }
+
     /**
      * 重置密码
      */
@@ -381,6 +521,10 @@ public class UserManagerPanel extends JPanel {
                     JOptionPane.WARNING_MESSAGE);
             return;
         }
+        if (userTable.getSelectedRowCount() > 1) {
+            deleteUsersAction();
+            return;
+        }
 
         int modelRow = userTable.convertRowIndexToModel(row);
         int userId = (int) userTable.getModel().getValueAt(modelRow, 0);
@@ -471,6 +615,10 @@ public class UserManagerPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "请先选择要操作的用户。", "提示", JOptionPane.WARNING_MESSAGE);
             return;
         }
+        if (userTable.getSelectedRowCount() > 1) {
+            updateUsersStatusAction();
+            return;
+        }
 
         int modelRow = userTable.convertRowIndexToModel(row);
         int userId = (int) userTable.getModel().getValueAt(modelRow, 0);
@@ -505,4 +653,173 @@ public class UserManagerPanel extends JPanel {
             }
         }
     }
-}
\ No newline at end of file
+
+    // ============================================================
+    // ★ 多选批量操作
+    // ============================================================
+
+    /**
+     * 选中的用户（ID 和用户名）
+     */
+    private static class SelectedUser {
+        final int id;
+        final String username;
+
+        SelectedUser(int id, String username) {
+            this.id = id;
+            this.username = username;
+        }
+    }
+
+    private List<SelectedUser> getSelectedUsers() {
+        List<SelectedUser> users = new ArrayList<>();
+        for (int row : userTable.getSelectedRows()) {
+            int modelRow = userTable.convertRowIndexToModel(row);
+            users.add(new SelectedUser(
+                    (int) userTable.getModel().getValueAt(modelRow, 0),
+                    (String) userTable.getModel().getValueAt(modelRow, 1)));
+        }
+        return users;
+    }
+
+    private static List<Integer> idsOf(List<SelectedUser> users) {
+        List<Integer> ids = new ArrayList<>();
+        for (SelectedUser u : users) {
+            ids.add(u.id);
+        }
+        return ids;
+    }
+
+    /**
+     * 确认信息中列出的用户名（最多 10 个）
+     */
+    private static String namesOf(List<SelectedUser> users) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < users.size() && i < 10; i++) {
+            sb.append(i == 0 ? "" : "、").append(users.get(i).username);
+        }
+        if (users.size() > 10) {
+            sb.append(" 等");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 选中了当前登录的管理员时提示并返回 true
+     */
+    private boolean containsSelf(List<SelectedUser> users, String action) {
+        for (SelectedUser u : users) {
+            if (currentUserId > 0 && u.id == currentUserId) {
+                JOptionPane.showMessageDialog(this,
+                        "⛔ 选中的用户包含自己的账号 [" + u.username + "]，不能批量" + action + "！\n\n" +
+                                "请取消选择自己的账号后重试。",
+                        "操作限制",
+                        JOptionPane.ERROR_MESSAGE);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ✅ 批量删除：全部用户都满足删除条件时才执行，否则不做任何修改
+     */
+    private void deleteUsersAction() {
+        List<SelectedUser> users = getSelectedUsers();
+        if (containsSelf(users, "删除")) {
+            return;
+        }
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+                String.format("确认批量删除选中的 %d 个用户吗？\n\n%s\n\n" +
+                                "⚠️ 警告：此操作不可撤销！历史借阅记录将一并清除。\n\n" +
+                                "✅ 删除前会检查所有用户的未归还图书和待支付罚款，\n" +
+                                "任一用户不满足条件时整批取消，不会只删除一部分。",
+                        users.size(), namesOf(users)),
+                "批量删除确认",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.WARNING_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        try {
+            int count = userDAO.deleteUsers(idsOf(users));
+            JOptionPane.showMessageDialog(this, "已成功删除 " + count + " 个用户。", "删除成功", JOptionPane.INFORMATION_MESSAGE);
+            refreshTable();
+        } catch (BusinessException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "删除失败", JOptionPane.WARNING_MESSAGE);
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this, "删除失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * ✅ 批量注销（如毕业班账号）：已注销的账号只能删除，不能再登录或启用
+     */
+    private void deactivateUsersAction() {
+        List<SelectedUser> users = getSelectedUsers();
+        if (users.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "请先选择要注销的用户（可按住 Ctrl/Shift 多选）。", "提示", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (containsSelf(users, "注销")) {
+            return;
+        }
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+                String.format("确认注销选中的 %d 个用户吗？\n\n%s\n\n" +
+                                "⚠️ 注销后账号永久无法登录，也不能再启用。\n" +
+                                "有未归还图书的用户不能注销，任一用户不满足条件时整批取消。",
+                        users.size(), namesOf(users)),
+                "批量注销确认",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.WARNING_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        try {
+            int count = userDAO.deactivateUsers(idsOf(users));
+            JOptionPane.showMessageDialog(this, "已成功注销 " + count + " 个用户。", "注销成功", JOptionPane.INFORMATION_MESSAGE);
+            refreshTable();
+        } catch (BusinessException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "注销失败", JOptionPane.WARNING_MESSAGE);
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this, "注销失败：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * ✅ 批量启用/禁用：多选时状态可能不同，由管理员选择统一设置为启用或禁用
+     */
+    private void updateUsersStatusAction() {
+        List<SelectedUser> users = getSelectedUsers();
+        if (containsSelf(users, "启用/禁用")) {
+            return;
+        }
+
+        Object[] options = {"全部启用", "全部禁用", "取消"};
+        int choice = JOptionPane.showOptionDialog(this,
+                String.format("对选中的 %d 个用户执行：\n\n%s", users.size(), namesOf(users)),
+                "批量启用/禁用",
+                JOptionPane.YES_NO_CANCEL_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                null, options, options[2]);
+        if (choice != 0 && choice != 1) {
+            return;
+        }
+        int newStatus = choice == 0 ? 1 : 0;
+        String action = newStatus == 1 ? "启用" : "禁用";
+
+        try {
+            int count = userDAO.updateUsersStatus(idsOf(users), newStatus);
+            JOptionPane.showMessageDialog(this, "已成功" + action + " " + count + " 个用户。", "成功", JOptionPane.INFORMATION_MESSAGE);
+            refreshTable();
+        } catch (BusinessException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "操作失败", JOptionPane.WARNING_MESSAGE);
+        } catch (DBException ex) {
+            JOptionPane.showMessageDialog(this, "操作失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.library.ui;
+
+import com.library.entity.User;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * ★ 用户列表的表格模型（把 UserDAO 返回的用户列表转换为界面表格，角色、状态显示为中文）
+ */
+public final class UserTableModels {
+
+    private UserTableModels() {
+    }
+
+    public static DefaultTableModel users(List<User> users) {
+        Vector<String> cols = new Vector<>();
+        cols.add("ID");
+        cols.add("用户名");
+        cols.add("角色");
+        cols.add("状态");
+
+        Vector<Vector<Object>> data = new Vector<>(users.size());
+        for (User user : users) {
+            Vector<Object> row = new Vector<>(4);
+            for (Object value : toRow(user)) {
+                row.add(value);
+            }
+            data.add(row);
+        }
+        return TableModels.readOnly(data, cols);
+    }
+
+    /**
+     * 一行的显示值（追加下一页时使用）
+     */
+    public static Object[] toRow(User user) {
+        return new Object[]{user.getId(), user.getUsername(), roleText(user.getRole()), statusText(user.getIsActive())};
+    }
+
+    public static String roleText(String role) {
+        return "admin".equals(role) ? "管理员" : "普通用户";
+    }
+
+    /**
+     * ✅ 账号状态：正常、已禁用、已注销
+     */
+    public static String statusText(int isActive) {
+        if (isActive == 1) {
+            return "正常";
+        } else if (isActive == 0) {
+            return "已禁用";
+        }
+        return "已注销"; // is_active = -1
+    }
+}
@@ -0,0 +1,81 @@
+package com.library.ui;
+
+import com.library.config.SystemConfig;
+import com.library.dao.UsernameRegistry;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+
+/**
+ * ★ 用户名是否可用的实时提示（注册和添加用户对话框使用）
+ * 停止输入 {@link SystemConfig#USERNAME_CHECK_DELAY_MILLIS} 毫秒后在后台检查，
+ * 检查结果返回时输入框已变化则丢弃，不会显示过期的结果。
+ */
+public class UsernameAvailabilityLabel extends JLabel {
+    private final JTextField field;
+    private final Timer timer;
+
+    public UsernameAvailabilityLabel(JTextField field) {
+        super(" ");
+        this.field = field;
+        setFont(new Font("微软雅黑", Font.PLAIN, 11));
+
+        timer = new Timer(SystemConfig.USERNAME_CHECK_DELAY_MILLIS, e -> check());
+        timer.setRepeats(false);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+        });
+    }
+
+    private void check() {
+        String username = field.getText().trim();
+        if (username.isEmpty()) {
+            setText(" ");
+            return;
+        }
+        setForeground(Color.GRAY);
+        setText("正在检查用户名……");
+
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() throws Exception {
+                return UsernameRegistry.getInstance().isAvailable(username);
+            }
+
+            @Override
+            protected void done() {
+                if (!username.equals(field.getText().trim())) {
+                    return; // 输入已变化，等待下一次检查
+                }
+                try {
+                    if (get()) {
+                        setForeground(new Color(39, 174, 96));
+                        setText("✔ 用户名可用");
+                    } else {
+                        setForeground(new Color(192, 57, 43));
+                        setText("✘ 用户名 [" + username + "] 已被占用");
+                    }
+                } catch (Exception ex) {
+                    // 检查失败不影响注册，提交时仍由数据库唯一约束把关
+                    setText(" ");
+                }
+            }
+        }.execute();
+    }
+}
@@ -0,0 +1,252 @@
+package com.library.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ★ 有上限的数据库连接池（服务模式使用，见 {@link DBHelper#enablePool}）
+ *
+ * - 同时借出的连接数不超过 maxConnections，已满时最多等待 waitMillis 毫秒，仍借不到则抛出异常，
+ *   不会因为请求增多而无限打开连接
+ * - 归还的连接按后进先出复用；空闲超过 VALIDATE_IDLE_MILLIS 的连接借出前先检查是否可用
+ * - 借出的是代理对象：close() 把连接归还连接池（未提交的事务回滚、自动提交恢复为开启），
+ *   abort() 丢弃底层连接（如中止未读完的流式查询）
+ * - 借出期间调用过 setReadOnly、setTransactionIsolation、setCatalog 等改变会话设置的方法时，
+ *   归还时丢弃该连接，不把改过的设置带给下一个使用者；用 SET SESSION 语句改变的会话变量连接池无法察觉，
+ *   使用方须在归还前自行恢复（见 StreamingQuery）
+ */
+class ConnectionPool {
+
+    /**
+     * 底层连接的创建方式
+     */
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * 一个空闲连接
+     */
+    private static class IdleConnection {
+        final Connection conn;
+        final long idleSince;
+
+        IdleConnection(Connection conn, long idleSince) {
+            this.conn = conn;
+            this.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * 改变会话设置的方法：调用过的连接归还时丢弃
+     */
+    private static final Set<String> SESSION_SETTERS = new HashSet<>(Arrays.asList(
+            "setReadOnly", "setTransactionIsolation", "setCatalog", "setSchema", "setHoldability",
+            "setTypeMap", "setClientInfo", "setNetworkTimeout"));
+
+    private static final long VALIDATE_IDLE_MILLIS = 30_000;
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory factory;
+    private final int maxConnections;
+    private final long waitMillis;
+    private final Semaphore permits;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();   // 受 idle 自身保护
+
+    ConnectionPool(ConnectionFactory factory, int maxConnections, long waitMillis) {
+        this.factory = factory;
+        this.maxConnections = maxConnections;
+        this.waitMillis = waitMillis;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * ★ 借出一个连接，用完后调用 close() 归还
+     */
+    Connection borrow() throws SQLException {
+        try {
+            if (!permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "数据库连接池已满（" + maxConnections + " 个），等待 " + waitMillis + " 毫秒仍未获得连接", "08001");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库连接时被中断", "08001", e);
+        }
+
+        try {
+            return wrap(takeIdle());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 取一个可用的空闲连接，没有时新建
+     */
+    private Connection takeIdle() throws SQLException {
+        long now = System.currentTimeMillis();
+        while (true) {
+            IdleConnection entry;
+            synchronized (idle) {
+                entry = idle.pollFirst();
+            }
+            if (entry == null) {
+                return factory.open();
+            }
+            if (now - entry.idleSince < VALIDATE_IDLE_MILLIS || isValid(entry.conn)) {
+                return entry.conn;
+            }
+            closeQuietly(entry.conn);
+        }
+    }
+
+    /**
+     * 归还底层连接：重置事务状态后放回空闲队列，连接已损坏时丢弃
+     */
+    private void giveBack(Connection conn) {
+        try {
+            if (conn.isClosed()) {
+                return;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            synchronized (idle) {
+                idle.addFirst(new IdleConnection(conn, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            closeQuietly(conn);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 丢弃底层连接（不再放回连接池）
+     */
+    private void discard(Connection conn) {
+        closeQuietly(conn);
+        permits.release();
+    }
+
+    /**
+     * 关闭全部空闲连接（服务停止时调用；借出中的连接归还时仍会放回，随进程退出关闭）
+     */
+    void closeIdle() {
+        while (true) {
+            IdleConnection entry;
+            synchronized (idle) {
+                entry = idle.pollFirst();
+            }
+            if (entry == null) {
+                return;
+            }
+            closeQuietly(entry.conn);
+        }
+    }
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * 借出中的连接数
+     */
+    int getActiveCount() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    private static boolean isValid(Connection conn) {
+        try {
+            return conn.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * 包装为代理连接：close() 归还、abort() 丢弃，关闭后的其他调用抛出异常
+     */
+    private Connection wrap(Connection target) {
+        InvocationHandler handler = new InvocationHandler() {
+            private final AtomicBoolean closed = new AtomicBoolean();
+            private volatile boolean sessionChanged;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (closed.compareAndSet(false, true)) {
+                            if (sessionChanged) {
+                                discard(target);
+                            } else {
+                                giveBack(target);
+                            }
+                        }
+                        return null;
+                    case "abort":
+                        if (closed.compareAndSet(false, true)) {
+                            try {
+                                target.abort(Runnable::run);
+                            } finally {
+                                discard(target);
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed.get() || target.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled" + (closed.get() ? "(已归还)" : "[" + target + "]");
+                    default:
+                        break;
+                }
+                if (closed.get()) {
+                    throw new SQLException("连接已归还连接池");
+                }
+                if (SESSION_SETTERS.contains(method.getName())) {
+                    sessionChanged = true;
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+}
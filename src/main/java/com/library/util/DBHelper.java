@@ -10,18 +10,101 @@ public class DBHelper {
     private static final String USER = "root";
     private static final String PASS = "ksxyh1314";
 
+    // ★ 服务模式启用的连接池（桌面端为 null，每次直接打开新连接）
+    private static volatile ConnectionPool pool;
+    // ★ 服务模式写日志用的带超时连接池（与业务连接池分开，业务连接用满时日志仍能写入）
+    private static volatile ConnectionPool timeoutPool;
+    private static volatile int timeoutPoolMillis;
+
     static {
         try { Class.forName("com.mysql.cj.jdbc.Driver"); } catch (ClassNotFoundException e) { e.printStackTrace(); }
     }
 
+    /**
+     * ★ 启用连接池：之后 {@link #getConnection()} 从池中借出连接，close() 即归还，
+     * 同时借出的连接不超过 maxConnections 个
+     */
+    public static synchronized void enablePool(int maxConnections, long waitMillis) {
+        if (pool == null) {
+            pool = new ConnectionPool(() -> DriverManager.getConnection(URL, USER, PASS), maxConnections, waitMillis);
+        }
+    }
+
+    /**
+     * ★ 启用带超时连接的专用连接池：之后超时为 timeoutMillis 的 {@link #getConnection(int)}
+     * 从这个池中借出，同时不超过 maxConnections 个，池满时等待也不超过 timeoutMillis
+     */
+    public static synchronized void enableTimeoutPool(int maxConnections, int timeoutMillis) {
+        if (timeoutPool == null) {
+            timeoutPoolMillis = timeoutMillis;
+            timeoutPool = new ConnectionPool(() -> DriverManager.getConnection(timeoutUrl(timeoutMillis), USER, PASS),
+                    maxConnections, timeoutMillis);
+        }
+    }
+
+    /**
+     * 关闭连接池中的空闲连接（服务停止时调用）
+     */
+    public static void closePool() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.closeIdle();
+        }
+        ConnectionPool timeouts = timeoutPool;
+        if (timeouts != null) {
+            timeouts.closeIdle();
+        }
+    }
+
+    /**
+     * 连接池状态，如 "数据库连接: 借出 3 / 上限 40, 空闲 5; 日志连接: 借出 0 / 上限 8, 空闲 2"；
+     * 未启用连接池时返回 null
+     */
+    public static String getPoolStats() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            return null;
+        }
+        String stats = String.format("数据库连接: 借出 %d / 上限 %d, 空闲 %d",
+                current.getActiveCount(), current.getMaxConnections(), current.getIdleCount());
+        ConnectionPool timeouts = timeoutPool;
+        if (timeouts != null) {
+            stats += String.format("; 日志连接: 借出 %d / 上限 %d, 空闲 %d",
+                    timeouts.getActiveCount(), timeouts.getMaxConnections(), timeouts.getIdleCount());
+        }
+        return stats;
+    }
+
     public static Connection getConnection() throws DBException {
+        ConnectionPool current = pool;
         try {
-            return DriverManager.getConnection(URL, USER, PASS);
+            return current != null ? current.borrow() : DriverManager.getConnection(URL, USER, PASS);
+        } catch (SQLTransientConnectionException e) {
+            throw new DBException("数据库繁忙，请稍后再试", e);
         } catch (SQLException e) {
             throw new DBException("数据库连接失败，请检查服务是否开启", e);
         }
     }
 
+    /**
+     * 获取带超时的连接（连接和读写都不超过 timeoutMillis），用于不能让业务线程久等的场景，如写日志
+     */
+    public static Connection getConnection(int timeoutMillis) throws DBException {
+        ConnectionPool current = timeoutPool;
+        try {
+            if (current != null && timeoutMillis == timeoutPoolMillis) {
+                return current.borrow();
+            }
+            return DriverManager.getConnection(timeoutUrl(timeoutMillis), USER, PASS);
+        } catch (SQLException e) {
+            throw new DBException("数据库连接失败，请检查服务是否开启", e);
+        }
+    }
+
+    private static String timeoutUrl(int timeoutMillis) {
+        return URL + "&connectTimeout=" + timeoutMillis + "&socketTimeout=" + timeoutMillis;
+    }
+
     public static void close(Connection conn, Statement stmt, ResultSet rs) {
         try {
             if (rs != null) rs.close();
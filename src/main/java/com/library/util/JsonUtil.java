@@ -0,0 +1,273 @@
+package com.library.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 轻量 JSON 工具（项目不引入第三方 JSON 库）
+ * 只用于日志载荷、归档行、HTTP 接口响应等简单结构：值支持字符串、数字、布尔和 null，
+ * 嵌套的对象和数组先单独编码，再用 {@link #raw} 原样嵌入。
+ */
+public class JsonUtil {
+
+    /**
+     * 构造扁平 JSON 对象
+     * 用法：JsonUtil.object("userId", 3, "fine", 2.5) → {"userId":3,"fine":2.5}
+     */
+    public static String object(Object... keyValues) {
+        if (keyValues.length % 2 != 0) {
+            throw new IllegalArgumentException("键值参数必须成对出现");
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(quote(String.valueOf(keyValues[i]))).append(':');
+            appendValue(sb, keyValues[i + 1]);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * 拼接 JSON 数组（元素为已编码的 JSON 值）
+     * 用法：JsonUtil.array(Arrays.asList("{\"id\":1}", "{\"id\":2}")) → [{"id":1},{"id":2}]
+     */
+    public static String array(Iterable<String> jsonValues) {
+        StringBuilder sb = new StringBuilder("[");
+        for (String value : jsonValues) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(value);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * 标记已编码的 JSON 片段，作为 {@link #object} 的值时原样输出、不加引号
+     */
+    public static Raw raw(String json) {
+        return new Raw(json);
+    }
+
+    public static final class Raw {
+        private final String json;
+
+        private Raw(String json) {
+            this.json = json;
+        }
+
+        @Override
+        public String toString() {
+            return json;
+        }
+    }
+
+    /**
+     * 追加一个 JSON 值（NaN 和无穷大不是合法的 JSON 数字，输出为 null）
+     */
+    public static void appendValue(StringBuilder sb, Object value) {
+        if (value == null || isNonFinite(value)) {
+            sb.append("null");
+        } else if (value instanceof Raw) {
+            sb.append(((Raw) value).json);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else {
+            sb.append(quote(value.toString()));
+        }
+    }
+
+    private static boolean isNonFinite(Object value) {
+        if (value instanceof Double) {
+            return ((Double) value).isNaN() || ((Double) value).isInfinite();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).isNaN() || ((Float) value).isInfinite();
+        }
+        return false;
+    }
+
+    /**
+     * 字符串转为带引号的 JSON 字符串
+     */
+    public static String quote(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * 解析扁平 JSON 对象（不支持嵌套对象和数组）
+     * 数字解析为 Long 或 Double，字符串解析为 String。
+     */
+    public static Map<String, Object> parseObject(String json) {
+        Parser parser = new Parser(json);
+        return parser.parseObject();
+    }
+
+    /**
+     * 扁平 JSON 解析器
+     */
+    private static class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> parseObject() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                map.put(key, parseValue());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return map;
+                }
+                if (c != ',') {
+                    throw error("应为 ',' 或 '}'");
+                }
+            }
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            }
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("无法识别的值");
+            }
+            String number = text.substring(start, pos);
+            if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+                return Double.parseDouble(number);
+            }
+            return Long.parseLong(number);
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(e); // \" \\ \/
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("JSON 意外结束");
+            }
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw error("应为 '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("JSON 格式错误（位置 " + pos + "）: " + message);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.library.util;
+
+import com.library.config.SystemConfig;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ★ 登录失败限流（内存滑动窗口 + 指数锁定）
+ *
+ * 分别按用户名和客户端统计登录失败次数（客户端标识为 null 时只按用户名统计，如桌面端登录）：
+ * - 滑动窗口：每个键只保存上一窗口和当前窗口的失败次数，按时间比例加权估算最近一个窗口内的失败数，
+ *   每个键只占几个数值，不保存每次失败的时间
+ * - 锁定：窗口内失败数达到上限后锁定，锁定时长从 {@link SystemConfig#LOGIN_LOCKOUT_BASE_SECONDS} 开始，
+ *   每次再被锁定翻倍，最长 {@link SystemConfig#LOGIN_LOCKOUT_MAX_SECONDS}
+ * - 容量：至多跟踪 {@link SystemConfig#LOGIN_LIMITER_MAX_ENTRIES} 个键，已过期（窗口内无失败且未锁定）的键
+ *   在访问时顺带清理；已满时淘汰最久未访问的未锁定键，锁定中的键从不淘汰（否则攻击者制造大量新键
+ *   即可解除锁定）；全部处于锁定时，新键合并到一个共用的溢出计数器
+ *
+ * 锁定期间的登录在查询数据库之前直接拒绝，也不再逐条写日志；每次锁定只由调用方写一条汇总日志。
+ */
+public class LoginRateLimiter {
+    private static final LoginRateLimiter INSTANCE = new LoginRateLimiter();
+
+    /**
+     * 一个用户名或客户端的限流状态
+     */
+    private static class Counter {
+        long windowStart;     // 当前窗口起点
+        int currentFailures;  // 当前窗口失败次数
+        int previousFailures; // 上一窗口失败次数
+        long lockedUntil;     // 锁定截止时间，0 表示未锁定
+        int lockouts;         // 连续锁定次数（决定下次锁定时长）
+        int rejected;         // 本次锁定期间被拒绝的尝试次数
+    }
+
+    /**
+     * 一次锁定的信息（用于写汇总日志）
+     */
+    public static class Lockout {
+        public String key;          // "用户名 xxx" 或 "客户端 xxx"
+        public int failures;        // 触发锁定时窗口内的失败次数
+        public long lockSeconds;    // 锁定时长
+        public int previousRejected;// 上一次锁定期间被拒绝的尝试次数
+    }
+
+    private static final String OVERFLOW_KEY = "未跟踪的用户名/客户端";
+
+    private final Map<String, Counter> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Counter overflow = new Counter();   // 已满且全部锁定时新键共用的计数器
+
+    private LoginRateLimiter() {
+    }
+
+    public static LoginRateLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    private static String userKey(String username) {
+        return "用户名 " + username.trim().toLowerCase();
+    }
+
+    private static String clientKey(String clientId) {
+        return "客户端 " + clientId;
+    }
+
+    /**
+     * ★ 登录前检查（不访问数据库）
+     * @return 仍需等待的秒数，0 表示允许尝试
+     */
+    public synchronized long checkAllowed(String username, String clientId) {
+        long now = System.currentTimeMillis();
+        long wait = remaining(userKey(username), now);
+        if (clientId != null) {
+            wait = Math.max(wait, remaining(clientKey(clientId), now));
+        }
+        return (wait + 999) / 1000;
+    }
+
+    private long remaining(String key, long now) {
+        Counter e = entries.get(key);
+        if (e == null && entries.size() >= SystemConfig.LOGIN_LIMITER_MAX_ENTRIES) {
+            e = overflow;
+        }
+        if (e == null || e.lockedUntil <= now) {
+            return 0;
+        }
+        e.rejected++;
+        return e.lockedUntil - now;
+    }
+
+    /**
+     * ★ 记录一次登录失败
+     * @return 本次失败触发的锁定（用户名和客户端可能同时锁定，各一条），未触发时返回空列表
+     */
+    public synchronized List<Lockout> recordFailure(String username, String clientId) {
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+        List<Lockout> lockouts = new ArrayList<>(2);
+        Lockout userLockout = fail(userKey(username), SystemConfig.LOGIN_MAX_FAILURES_PER_USER, now);
+        if (userLockout != null) {
+            lockouts.add(userLockout);
+        }
+        if (clientId != null) {
+            Lockout clientLockout = fail(clientKey(clientId), SystemConfig.LOGIN_MAX_FAILURES_PER_CLIENT, now);
+            if (clientLockout != null) {
+                lockouts.add(clientLockout);
+            }
+        }
+        return lockouts;
+    }
+
+    private Lockout fail(String key, int maxFailures, long now) {
+        Counter e = entries.get(key);
+        if (e == null) {
+            if (entries.size() >= SystemConfig.LOGIN_LIMITER_MAX_ENTRIES && !evictUnlocked(now)) {
+                // 已满且全部处于锁定：不淘汰锁定中的键，合并到共用的溢出计数器
+                e = overflow;
+                key = OVERFLOW_KEY;
+            } else {
+                e = new Counter();
+                e.windowStart = now;
+                entries.put(key, e);
+            }
+        }
+        roll(e, now);
+        e.currentFailures++;
+
+        if (e.lockedUntil > now || estimate(e, now) < maxFailures) {
+            return null;
+        }
+
+        // ★ 锁定时长指数增长：base * 2^(已锁定次数)，不超过上限
+        long seconds = Math.min(SystemConfig.LOGIN_LOCKOUT_MAX_SECONDS,
+                SystemConfig.LOGIN_LOCKOUT_BASE_SECONDS << Math.min(e.lockouts, 20));
+        Lockout lockout = new Lockout();
+        lockout.key = key;
+        lockout.failures = (int) Math.ceil(estimate(e, now));
+        lockout.lockSeconds = seconds;
+        lockout.previousRejected = e.rejected;
+
+        e.lockouts++;
+        e.lockedUntil = now + seconds * 1000;
+        e.rejected = 0;
+        // 锁定后重新计数，解锁后需要重新累计失败次数才会再次锁定
+        e.currentFailures = 0;
+        e.previousFailures = 0;
+        return lockout;
+    }
+
+    /**
+     * 登录成功：清除该用户名的失败记录（客户端记录保留，防止用一个已知账号掩护猜测其他账号）
+     */
+    public synchronized void recordSuccess(String username) {
+        entries.remove(userKey(username));
+    }
+
+    /**
+     * 窗口滚动：超过一个窗口则当前计数转为上一窗口，超过两个窗口则全部清零
+     */
+    private static void roll(Counter e, long now) {
+        long window = SystemConfig.LOGIN_WINDOW_SECONDS * 1000L;
+        long elapsed = now - e.windowStart;
+        if (elapsed < window) {
+            return;
+        }
+        e.previousFailures = elapsed < 2 * window ? e.currentFailures : 0;
+        e.currentFailures = 0;
+        e.windowStart += (elapsed / window) * window;
+    }
+
+    /**
+     * 滑动窗口估算：上一窗口按未被当前窗口覆盖的比例计入
+     */
+    private static double estimate(Counter e, long now) {
+        long window = SystemConfig.LOGIN_WINDOW_SECONDS * 1000L;
+        double overlap = 1.0 - (double) (now - e.windowStart) / window;
+        return e.currentFailures + e.previousFailures * Math.max(0, overlap);
+    }
+
+    /**
+     * 清理过期的键：未锁定且两个窗口内没有失败。锁定次数在长时间没有失败后随键一起清除。
+     */
+    private void evictExpired(long now) {
+        long window = SystemConfig.LOGIN_WINDOW_SECONDS * 1000L;
+        long idle = Math.max(2 * window, SystemConfig.LOGIN_LOCKOUT_MAX_SECONDS * 1000L);
+        Iterator<Counter> it = entries.values().iterator();
+        // 按访问顺序，最久未访问的在前；遇到未过期的即可停止
+        while (it.hasNext()) {
+            Counter e = it.next();
+            if (e.lockedUntil > now || now - e.windowStart < idle) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * 淘汰最久未访问的一个未锁定键
+     * @return 全部处于锁定、没有可淘汰的键时返回 false
+     */
+    private boolean evictUnlocked(long now) {
+        Iterator<Counter> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().lockedUntil <= now) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 当前跟踪的键数量（用于监控）
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,162 @@
+package com.library.util;
+
+import com.library.config.SystemConfig;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.*;
+
+/**
+ * ★ 密码哈希工具（PBKDF2WithHmacSHA256，JDK 自带，无第三方依赖）
+ *
+ * 存储格式：pbkdf2$迭代次数$盐(Base64)$哈希(Base64)
+ * - 每个密码使用随机盐，迭代次数（计算成本）由 {@link SystemConfig#PASSWORD_HASH_ITERATIONS} 配置
+ * - 迭代次数写在哈希值中，调整配置后旧哈希仍可验证，并在用户下次登录时按新成本重新哈希
+ * - 不是上述格式的值视为旧版明文密码，验证通过后由 UserDAO 升级为哈希
+ *
+ * 验证是 CPU 密集操作，登录时通过 {@link #verifyBounded} 在固定大小的线程池中执行：
+ * 早高峰大量登录时同时计算哈希的线程数不超过 CPU 核数，排队数有上限，超出时直接拒绝，
+ * 不会拖垮其他业务。
+ */
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // 用户名不存在时也做一次等成本的计算，避免通过响应时间判断用户名是否存在
+    private static volatile String dummyHash;
+
+    private static final ThreadPoolExecutor VERIFY_POOL = new ThreadPoolExecutor(
+            SystemConfig.PASSWORD_VERIFY_THREADS, SystemConfig.PASSWORD_VERIFY_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(SystemConfig.PASSWORD_VERIFY_QUEUE),
+            r -> {
+                Thread t = new Thread(r, "library-password-verify");
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    /**
+     * 使用配置的迭代次数哈希密码
+     */
+    public static String hash(String password) {
+        return hash(password, SystemConfig.PASSWORD_HASH_ITERATIONS);
+    }
+
+    /**
+     * 使用指定迭代次数哈希密码
+     */
+    public static String hash(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * 验证密码（在调用线程上计算）
+     * @param stored 数据库中保存的值（哈希或旧版明文）；格式损坏的哈希视为验证失败
+     */
+    public static boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            // 旧版明文密码，使用常量时间比较
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\$");
+        int iterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            iterations = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            System.err.println("密码哈希格式损坏，按验证失败处理: " + e.getMessage());
+            return false;
+        }
+        if (iterations <= 0 || salt.length == 0) {
+            System.err.println("密码哈希参数无效，按验证失败处理");
+            return false;
+        }
+        return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * ★ 在验证线程池中验证密码
+     * @param stored 数据库中保存的值，用户不存在时传 null（仍执行一次等成本计算，结果为 false）
+     * @throws RejectedExecutionException 排队的验证请求已满
+     */
+    public static boolean verifyBounded(String password, String stored) throws InterruptedException {
+        String target = stored != null ? stored : dummyHash();
+        Future<Boolean> future = VERIFY_POOL.submit(() -> verify(password, target));
+        try {
+            return future.get() && stored != null;
+        } catch (ExecutionException e) {
+            // 计算出错时按验证失败处理，不让异常中断登录流程
+            System.err.println("密码验证出错，按验证失败处理: " + e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * 在验证线程池中哈希密码（登录时升级旧哈希使用，与验证共用计算资源上限）
+     * @throws RejectedExecutionException 排队的请求已满
+     */
+    public static String hashBounded(String password) throws InterruptedException, ExecutionException {
+        return VERIFY_POOL.submit(() -> hash(password)).get();
+    }
+
+    /**
+     * 是否为本工具生成的哈希值
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$") && stored.split("\\$").length == 4;
+    }
+
+    /**
+     * 是否需要重新哈希：旧版明文，或迭代次数与当前配置不同
+     */
+    public static boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(stored.split("\\$")[1]) != SystemConfig.PASSWORD_HASH_ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static String dummyHash() {
+        if (dummyHash == null) {
+            dummyHash = hash("dummy-password");
+        }
+        return dummyHash;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("当前 JDK 不支持 " + ALGORITHM, e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.library.util;
+
+import java.sql.*;
+
+/**
+ * 表结构检查工具（基于 information_schema）
+ * MySQL 不支持 "ADD INDEX IF NOT EXISTS"，所有结构升级都先通过这里判断再执行，保证可重复运行。
+ */
+public class SchemaHelper {
+
+    /**
+     * 判断当前库中是否存在指定表
+     */
+    public static boolean tableExists(Connection conn, String table) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.TABLES " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        return exists(conn, sql, table);
+    }
+
+    /**
+     * 判断指定表是否存在某列
+     */
+    public static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        return exists(conn, sql, table, column);
+    }
+
+    /**
+     * 判断指定表是否存在某索引
+     */
+    public static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+        return exists(conn, sql, table, index);
+    }
+
+    /**
+     * 获取列的数据类型（小写，如 "datetime"），列不存在时返回 null
+     */
+    public static String columnType(Connection conn, String table, String column) throws SQLException {
+        String sql = "SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, column);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1).toLowerCase() : null;
+            }
+        }
+    }
+
+    /**
+     * 判断列是否允许 NULL（列不存在时返回 false）
+     */
+    public static boolean isNullable(Connection conn, String table, String column) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ? AND IS_NULLABLE = 'YES'";
+        return exists(conn, sql, table, column);
+    }
+
+    /**
+     * 索引不存在时创建索引
+     * @param definition 例如 "(username, op_time)"
+     */
+    public static void ensureIndex(Connection conn, String table, String index, String definition) throws SQLException {
+        if (!indexExists(conn, table, index)) {
+            execute(conn, "ALTER TABLE " + table + " ADD INDEX " + index + " " + definition);
+        }
+    }
+
+    /**
+     * 列不存在时添加列
+     * @param definition 例如 "VARCHAR(32) NULL"
+     */
+    public static void ensureColumn(Connection conn, String table, String column, String definition) throws SQLException {
+        if (!columnExists(conn, table, column)) {
+            execute(conn, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    /**
+     * 执行一条 DDL 语句
+     */
+    public static void execute(Connection conn, String ddl) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(ddl);
+        }
+    }
+
+    /**
+     * ★ 尝试获取 MySQL 命名锁（GET_LOCK，不等待），用于多个进程（各桌面客户端和服务端）共用的维护任务
+     * 锁属于当前连接，连接关闭时自动释放。
+     * @return 是否获得锁；已被其他连接持有时返回 false
+     */
+    public static boolean tryLock(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    /**
+     * 释放 {@link #tryLock} 获得的命名锁
+     */
+    public static void releaseLock(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, name);
+            ps.executeQuery().close();
+        }
+    }
+
+    private static boolean exists(Connection conn, String sql, String... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
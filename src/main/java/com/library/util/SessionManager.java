@@ -1,15 +1,86 @@
 package com.library.util;
 
+import com.library.config.SystemConfig;
 import com.library.entity.User;
 
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * 用于在应用程序中集中存储和获取当前登录用户的会话信息。
- * 在单线程 Swing 应用程序中，使用静态变量存储当前登录用户。
+ *
+ * 两种使用方式：
+ * - 桌面端：单线程 Swing 应用程序中，使用静态变量存储当前登录用户（{@link #setCurrentUser}）
+ * - ★ 多会话（一个进程同时服务多个窗口/终端）：登录后 {@link #createSession} 得到令牌，
+ *   每次处理请求前 {@link #bind} 把会话绑定到当前线程，处理完 {@link #unbind}。
+ *   绑定期间 {@link #getCurrentUser()} 返回该会话的用户，LogDAO 写日志时据此记录操作人。
+ *
+ * 会话空闲超过 {@link SystemConfig#SESSION_IDLE_TIMEOUT_MINUTES} 分钟后失效；
+ * 会话数不超过 {@link SystemConfig#SESSION_MAX_COUNT}，已满时淘汰空闲最久的会话；
+ * 每个用户的会话不超过 {@link SystemConfig#SESSION_MAX_PER_USER}，再登录时先淘汰该用户最早的会话，
+ * 一个账号反复登录不会把其他用户挤下线。
  */
 public class SessionManager {
 
-    // 使用一个静态变量存储当前登录的完整 User 对象
-    private static User loggedInUser;
+    /**
+     * ★ 一个登录会话
+     */
+    public static class Session {
+        private final String token;
+        private final User user;
+        private final String credential;
+        private final long createdAt;
+        private volatile long lastAccess;
+
+        Session(String token, User user, String credential) {
+            this.token = token;
+            this.user = user;
+            this.credential = credential;
+            this.createdAt = System.currentTimeMillis();
+            this.lastAccess = createdAt;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        /**
+         * 创建会话时用户的密码哈希：之后密码被修改或重置（哈希变化）时会话作废，null 表示不检查
+         */
+        public String getCredential() {
+            return credential;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getLastAccess() {
+            return lastAccess;
+        }
+
+        boolean isExpired(long now) {
+            return now - lastAccess >= SystemConfig.SESSION_IDLE_TIMEOUT_MINUTES * 60_000L;
+        }
+    }
+
+    // 使用一个静态变量存储当前登录的完整 User 对象（桌面端）
+    private static volatile User loggedInUser;
+
+    // ★ 多会话：令牌 -> 会话，以及当前线程绑定的会话
+    private static final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Session> currentSession = new ThreadLocal<>();
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     /**
      * 在用户登录成功后设置当前登录的完整 User 对象。
@@ -21,20 +92,22 @@ public class SessionManager {
 
     /**
      * 获取当前登录的完整 User 对象。
-     * 解决了 PersonalCenterPanel 中调用 getCurrentUser() 的问题。
+     * 当前线程绑定了会话时返回该会话的用户，否则返回桌面端登录的用户。
      */
     public static User getCurrentUser() {
-        return loggedInUser;
+        Session session = currentSession.get();
+        return session != null ? session.user : loggedInUser;
     }
 
     /**
      * 在用户登录成功后设置当前用户名 (兼容旧方法)。
      */
     public static void setCurrentUsername(String username) {
-        // 兼容处理：如果loggedInUser存在，则更新其username
-        if (loggedInUser != null) {
+        // 兼容处理：如果当前用户存在，则更新其username
+        User user = getCurrentUser();
+        if (user != null) {
             // 注意：这要求 User 类必须要有 setUsername 方法
-            loggedInUser.setUsername(username);
+            user.setUsername(username);
         }
     }
 
@@ -42,8 +115,9 @@ public class SessionManager {
      * 在应用内任何地方获取当前用户名 (兼容旧方法)。
      */
     public static String getCurrentUsername() {
-        if (loggedInUser != null) {
-            return loggedInUser.getUsername();
+        User user = getCurrentUser();
+        if (user != null) {
+            return user.getUsername();
         }
         return "SYSTEM_UNKWOWN";
     }
@@ -52,6 +126,189 @@ public class SessionManager {
      * 在用户注销或会话结束时移除信息。
      */
     public static void clearSession() {
-        loggedInUser = null;
+        Session session = currentSession.get();
+        if (session != null) {
+            invalidate(session.token);
+            unbind();
+        } else {
+            loggedInUser = null;
+        }
+    }
+
+    // ============================================================
+    // ★ 多会话
+    // ============================================================
+
+    /**
+     * 为登录成功的用户创建会话（不随密码修改失效）
+     * @return 新会话（令牌为 32 字节随机数）
+     */
+    public static Session createSession(User user) {
+        return createSession(user, null);
+    }
+
+    /**
+     * 为登录成功的用户创建会话
+     * @param credential 登录时的密码哈希，密码修改后会话作废（见 {@link Session#getCredential()}）
+     * @return 新会话（令牌为 32 字节随机数）
+     */
+    public static synchronized Session createSession(User user, String credential) {
+        evictOldestOfUser(user.getId());
+        if (sessions.size() >= SystemConfig.SESSION_MAX_COUNT) {
+            purgeExpired();
+            if (sessions.size() >= SystemConfig.SESSION_MAX_COUNT) {
+                evictIdlest();
+            }
+        }
+
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        Session session = new Session(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes), user, credential);
+        sessions.put(session.token, session);
+        return session;
+    }
+
+    /**
+     * 按令牌查找会话并刷新最近访问时间，不存在或已过期时返回 null
+     */
+    public static Session getSession(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    /**
+     * ★ 把会话绑定到当前线程（处理请求前调用，处理完务必在 finally 中 {@link #unbind}）
+     * @return 绑定的会话，令牌无效或已过期时返回 null（不绑定）
+     */
+    public static Session bind(String token) {
+        Session session = getSession(token);
+        if (session != null) {
+            currentSession.set(session);
+        }
+        return session;
+    }
+
+    /**
+     * 解除当前线程绑定的会话（线程池线程会被复用，不解除会串用到下一个请求）
+     */
+    public static void unbind() {
+        currentSession.remove();
+    }
+
+    /**
+     * 当前线程绑定的会话，未绑定时返回 null
+     */
+    public static Session getBoundSession() {
+        return currentSession.get();
+    }
+
+    /**
+     * 注销会话
+     */
+    public static void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * 注销某个用户的全部会话（如账号被禁用、注销、删除或被管理员重置密码后）
+     * @return 注销的会话数
+     */
+    public static int invalidateUser(int userId) {
+        int removed = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (it.next().user.getId() == userId) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 注销一批用户的全部会话（批量禁用、注销、删除后），只遍历一次会话表
+     * @return 注销的会话数
+     */
+    public static int invalidateUsers(Collection<Integer> userIds) {
+        Set<Integer> ids = new HashSet<>(userIds);
+        int removed = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (ids.contains(it.next().user.getId())) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 清理已过期的会话（由后台维护任务定期调用）
+     * @return 清理的会话数
+     */
+    public static int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 该用户的会话已达上限时淘汰其最早创建的会话
+     */
+    private static void evictOldestOfUser(int userId) {
+        int count = 0;
+        Session oldest = null;
+        for (Session s : sessions.values()) {
+            if (s.user.getId() != userId) {
+                continue;
+            }
+            count++;
+            if (oldest == null || s.createdAt < oldest.createdAt) {
+                oldest = s;
+            }
+        }
+        if (count >= SystemConfig.SESSION_MAX_PER_USER && oldest != null) {
+            sessions.remove(oldest.token, oldest);
+        }
+    }
+
+    /**
+     * 会话数已满时淘汰空闲最久的会话
+     */
+    private static void evictIdlest() {
+        Session idlest = null;
+        for (Session s : sessions.values()) {
+            if (idlest == null || s.lastAccess < idlest.lastAccess) {
+                idlest = s;
+            }
+        }
+        if (idlest != null) {
+            sessions.remove(idlest.token, idlest);
+        }
+    }
+
+    /**
+     * 当前有效会话数（用于监控）
+     */
+    public static int getSessionCount() {
+        return sessions.size();
     }
-}
\ No newline at end of file
+}